@@ -0,0 +1,71 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks building the read threading graph from the reference and the real reads of a padded HaplotypeCaller
+ * assembly region.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReadThreadingGraphBenchmark {
+
+    /**
+     * A 300bp region of the NA12878 WGS test bam, padded by 100bp on each side like a HaplotypeCaller assembly region
+     */
+    private static final SimpleInterval REGION = new SimpleInterval("20", 10_001_900, 10_002_400);
+
+    @Param({"10", "25"})
+    public int kmerSize;
+
+    @Param({"false", "true"})
+    public boolean usePackedKmerGraph;
+
+    private SAMFileHeader header;
+    private byte[] refBases;
+    private final List<GATKRead> reads = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        try ( final ReferenceDataSource reference = ReferenceDataSource.of(Paths.get(GATKBaseTest.b37_reference_20_21));
+              final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(GATKBaseTest.NA12878_20_21_WGS_bam)) ) {
+            refBases = reference.queryAndPrefetch(REGION).getBases();
+            header = readsSource.getHeader();
+            final Iterator<GATKRead> it = readsSource.query(REGION);
+            while ( it.hasNext() ) {
+                final GATKRead read = it.next();
+                if ( ! read.isDuplicate() && ! read.failsVendorQualityCheck() && ! read.isSecondaryAlignment() && read.getMappingQuality() >= 20 ) {
+                    reads.add(read);
+                }
+            }
+        }
+    }
+
+    @Benchmark
+    public ReadThreadingGraph buildGraph() {
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize, false, (byte) 10, 1);
+        graph.setUsePackedKmerGraph(usePackedKmerGraph);
+        graph.addSequence("ref", refBases, true);
+        for ( final GATKRead read : reads ) {
+            graph.addRead(read, header);
+        }
+        graph.buildGraphIfNecessary();
+        return graph;
+    }
+}
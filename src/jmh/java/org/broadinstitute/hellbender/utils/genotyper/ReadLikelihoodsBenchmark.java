@@ -0,0 +1,66 @@
+package org.broadinstitute.hellbender.utils.genotyper;
+
+import htsjdk.variant.variantcontext.Allele;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionTestDataSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionTestDataSetUnitTest;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.pairhmm.PairHMM;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks marginalizing read-by-haplotype likelihoods into read-by-allele likelihoods, as the HaplotypeCaller
+ * genotyping engine does for every variant site of an active region.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class ReadLikelihoodsBenchmark {
+
+    private static final String SAMPLE = "sample";
+    private static final byte CONSTANT_GCP = 10;
+
+    /**
+     * Variation in the region, as a Civar; more variants give more haplotypes to marginalize over
+     */
+    @Param({"*1T*", "*1T*3Iacg*", "*1T*1T*1T*1T*1T*"})
+    public String variation;
+
+    private ReadLikelihoods<Haplotype> haplotypeLikelihoods;
+    private Map<Allele, List<Haplotype>> alleleMapping;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final AssemblyRegionTestDataSet dataSet = AssemblyRegionTestDataSetUnitTest.createAssemblyRegionTestDataSet(10, 101, variation, 500, 300, (byte) 30, (byte) 45, (byte) 45);
+        final List<Haplotype> haplotypes = dataSet.haplotypeList();
+        final List<GATKRead> reads = dataSet.readList();
+
+        // fill in real PairHMM likelihoods rather than random values, so that the marginalization sees realistic maxima
+        haplotypeLikelihoods = new ReadLikelihoods<>(new IndexedSampleList(SAMPLE), new IndexedAlleleList<>(haplotypes), Collections.singletonMap(SAMPLE, reads));
+        final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+        for ( final GATKRead read : reads ) {
+            final byte[] gcp = new byte[read.getLength()];
+            Arrays.fill(gcp, CONSTANT_GCP);
+            gcps.put(read, gcp);
+        }
+        final PairHMM pairHMM = PairHMM.Implementation.LOGLESS_CACHING.makeNewHMM(null);
+        pairHMM.computeLog10Likelihoods(haplotypeLikelihoods.sampleMatrix(0), reads, gcps);
+        pairHMM.close();
+
+        // the reference haplotype supports the reference allele and every other haplotype supports the alternate allele
+        alleleMapping = new LinkedHashMap<>();
+        alleleMapping.put(Allele.create("A", true), Collections.singletonList(haplotypes.get(0)));
+        alleleMapping.put(Allele.create("C", false), haplotypes.subList(1, haplotypes.size()));
+    }
+
+    @Benchmark
+    public ReadLikelihoods<Allele> marginalize() {
+        return haplotypeLikelihoods.marginalize(alleleMapping);
+    }
+}
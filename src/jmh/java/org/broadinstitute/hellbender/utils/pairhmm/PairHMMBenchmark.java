@@ -0,0 +1,86 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionTestDataSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionTestDataSetUnitTest;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the PairHMM on all (read, haplotype) pairs of a simulated active region, the way the HaplotypeCaller
+ * likelihood engine calls it.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class PairHMMBenchmark {
+
+    private static final byte CONSTANT_GCP = 10;
+
+    @Param({"LOGLESS_CACHING", "LOGLESS_ANTI_DIAGONAL"})
+    public PairHMM.Implementation implementation;
+
+    /**
+     * Variation in the region, as a Civar: a single SNP, a SNP and an insertion, and a large deletion
+     */
+    @Param({"*1T*", "*1T*3Iacg*", "*30D*"})
+    public String variation;
+
+    private PairHMM pairHMM;
+    private byte[][] haplotypeBases;
+    private byte[][] readBases;
+    private byte[][] readQuals;
+    private byte[][] readInsQuals;
+    private byte[][] readDelQuals;
+    private byte[][] readGCPs;
+    private double[] likelihoods;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final AssemblyRegionTestDataSet dataSet = AssemblyRegionTestDataSetUnitTest.createAssemblyRegionTestDataSet(10, 101, variation, 200, 300, (byte) 30, (byte) 45, (byte) 45);
+        final List<Haplotype> haplotypes = dataSet.haplotypeList();
+        final List<GATKRead> reads = dataSet.readList();
+
+        haplotypeBases = new byte[haplotypes.size()][];
+        for ( int h = 0; h < haplotypes.size(); h++ ) {
+            haplotypeBases[h] = haplotypes.get(h).getBases();
+        }
+
+        readBases = new byte[reads.size()][];
+        readQuals = new byte[reads.size()][];
+        readInsQuals = new byte[reads.size()][];
+        readDelQuals = new byte[reads.size()][];
+        readGCPs = new byte[reads.size()][];
+        for ( int r = 0; r < reads.size(); r++ ) {
+            final GATKRead read = reads.get(r);
+            readBases[r] = read.getBases();
+            readQuals[r] = read.getBaseQualities();
+            readInsQuals[r] = ReadUtils.getBaseInsertionQualities(read);
+            readDelQuals[r] = ReadUtils.getBaseDeletionQualities(read);
+            readGCPs[r] = new byte[read.getLength()];
+            Arrays.fill(readGCPs[r], CONSTANT_GCP);
+        }
+
+        pairHMM = implementation.makeNewHMM(null);
+        likelihoods = new double[reads.size() * haplotypes.size()];
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pairHMM.close();
+    }
+
+    @Benchmark
+    public double[] computeLog10Likelihoods() {
+        pairHMM.computeLog10Likelihoods(haplotypeBases, readBases, readQuals, readInsQuals, readDelQuals, readGCPs, likelihoods);
+        return likelihoods;
+    }
+}
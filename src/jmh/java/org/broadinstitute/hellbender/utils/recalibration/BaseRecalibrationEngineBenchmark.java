@@ -0,0 +1,76 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Benchmarks {@link BaseRecalibrationEngine#processRead} on the real reads of a 10kb slice of the NA12878 WGS test bam,
+ * with the dbSNP known sites overlapping each read, as BaseRecalibrator does.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class BaseRecalibrationEngineBenchmark {
+
+    private static final SimpleInterval INTERVAL = new SimpleInterval("20", 10_000_000, 10_010_000);
+
+    @Param({"false", "true"})
+    public boolean enableBAQ;
+
+    private ReferenceDataSource reference;
+    private BaseRecalibrationEngine engine;
+    private final List<GATKRead> reads = new ArrayList<>();
+    private final List<List<VariantContext>> knownSitesPerRead = new ArrayList<>();
+
+    @Setup(Level.Trial)
+    public void setup() {
+        reference = ReferenceDataSource.of(Paths.get(GATKBaseTest.b37_reference_20_21));
+        try ( final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(GATKBaseTest.NA12878_20_21_WGS_bam));
+              final FeatureDataSource<VariantContext> knownSites = new FeatureDataSource<>(GATKBaseTest.dbsnp_138_b37_20_21_vcf) ) {
+            final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+            recalArgs.enableBAQ = enableBAQ;
+            engine = new BaseRecalibrationEngine(recalArgs, readsSource.getHeader());
+
+            // the same reads BaseRecalibrator would see after its default read filters
+            final Iterator<GATKRead> it = readsSource.query(INTERVAL);
+            while ( it.hasNext() ) {
+                final GATKRead read = it.next();
+                if ( ! read.isUnmapped() && ! read.isDuplicate() && ! read.failsVendorQualityCheck() && ! read.isSecondaryAlignment()
+                        && ! read.isSupplementaryAlignment() && read.getMappingQuality() > 0 && read.getMappingQuality() != 255 ) {
+                    reads.add(read);
+                    knownSitesPerRead.add(Utils.stream(knownSites.query(new SimpleInterval(read))).collect(Collectors.toList()));
+                }
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        reference.close();
+    }
+
+    @Benchmark
+    public BaseRecalibrationEngine processReads() {
+        for ( int i = 0; i < reads.size(); i++ ) {
+            engine.processRead(reads.get(i), reference, knownSitesPerRead.get(i));
+        }
+        return engine;
+    }
+}
@@ -0,0 +1,73 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionTestDataSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.AssemblyRegionTestDataSetUnitTest;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.CigarUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the Java Smith-Waterman aligner on the two alignments the HaplotypeCaller does: assembled haplotypes
+ * against the reference, and reads against their best haplotype.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5)
+@Measurement(iterations = 10)
+@Fork(1)
+public class SmithWatermanBenchmark {
+
+    /**
+     * Variation in the region, as a Civar: a single SNP, a SNP and an insertion, and a large deletion
+     */
+    @Param({"*1T*", "*1T*3Iacg*", "*30D*"})
+    public String variation;
+
+    private final SmithWatermanAligner aligner = SmithWatermanJavaAligner.getInstance();
+    private byte[] reference;
+    private byte[][] haplotypes;
+    private byte[][] reads;
+    private int[] bestHaplotypeOfRead;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        final AssemblyRegionTestDataSet dataSet = AssemblyRegionTestDataSetUnitTest.createAssemblyRegionTestDataSet(10, 101, variation, 100, 300, (byte) 30, (byte) 45, (byte) 45);
+        reference = dataSet.getReference().getBytes();
+
+        final List<Haplotype> haplotypeList = dataSet.haplotypeList();
+        haplotypes = new byte[haplotypeList.size()][];
+        for ( int h = 0; h < haplotypes.length; h++ ) {
+            haplotypes[h] = haplotypeList.get(h).getBases();
+        }
+
+        // the data set generates reads from the haplotypes in round robin order
+        final List<GATKRead> readList = dataSet.readList();
+        reads = new byte[readList.size()][];
+        bestHaplotypeOfRead = new int[readList.size()];
+        for ( int r = 0; r < reads.length; r++ ) {
+            reads[r] = readList.get(r).getBases();
+            bestHaplotypeOfRead[r] = r % haplotypes.length;
+        }
+    }
+
+    @Benchmark
+    public void alignHaplotypesToReference(final Blackhole blackhole) {
+        for ( final byte[] haplotype : haplotypes ) {
+            blackhole.consume(aligner.align(reference, haplotype, CigarUtils.NEW_SW_PARAMETERS, SWOverhangStrategy.SOFTCLIP));
+        }
+    }
+
+    @Benchmark
+    public void alignReadsToBestHaplotype(final Blackhole blackhole) {
+        for ( int r = 0; r < reads.length; r++ ) {
+            blackhole.consume(aligner.align(haplotypes[bestHaplotypeOfRead[r]], reads[r], CigarUtils.ALIGNMENT_TO_BEST_HAPLOTYPE_SW_PARAMETERS, SWOverhangStrategy.SOFTCLIP));
+        }
+    }
+}
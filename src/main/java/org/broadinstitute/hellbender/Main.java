@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.exceptions.PicardNonZeroExitException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.ClassUtils;
+import org.broadinstitute.hellbender.utils.IndexedClassFinder;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
 import org.broadinstitute.hellbender.utils.runtime.RuntimeUtils;
@@ -301,7 +302,7 @@ public class Main {
                                                           final List<Class<? extends CommandLineProgram>> classList,
                                                           final String commandLineName ) {
         /** Get the set of classes that are our command line programs **/
-        final ClassFinder classFinder = new ClassFinder();
+        final IndexedClassFinder classFinder = new IndexedClassFinder();
         for (final String pkg : packageList) {
             classFinder.find(pkg, picard.cmdline.CommandLineProgram.class);
             classFinder.find(pkg, CommandLineProgram.class);
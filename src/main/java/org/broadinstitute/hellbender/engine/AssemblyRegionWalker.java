@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.engine;
 import org.broadinstitute.barclay.argparser.Advanced;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineException;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
@@ -14,6 +15,8 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.activityprofile.ActivityProfileState;
 import org.broadinstitute.hellbender.utils.downsampling.PositionalDownsampler;
 import org.broadinstitute.hellbender.utils.downsampling.ReadsDownsampler;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 
 import java.io.IOException;
 import java.io.PrintStream;
@@ -38,9 +41,35 @@ import java.util.List;
  *
  * Internally, the reads are loaded in chunks called read shards, which are then subdivided into active/inactive regions
  * for processing by the tool implementation. One read shard is created per contig.
+ *
+ * Tools that implement {@link ThreadedTraversal} may be run with more than one
+ * {@link #traversalThreads traversal thread}. In that mode regions are still produced in order on the traversal thread,
+ * but each region is handed to a pool of workers that invoke {@link ThreadedTraversal#applyConcurrently}, each with a private
+ * {@link ReferenceDataSource} and {@link FeatureManager}. The actions returned by the workers are then run on the
+ * traversal thread in region order, so that output is identical to a single-threaded run.
  */
 public abstract class AssemblyRegionWalker extends GATKTool {
 
+    /**
+     * Implemented by assembly region walkers that can process regions on several threads at once.
+     */
+    public interface ThreadedTraversal {
+        /**
+         * Process an individual AssemblyRegion on a worker thread.
+         *
+         * This method is called concurrently from several threads, each with its own reference and feature data sources,
+         * so implementations must not share mutable state across threads and must not write output directly. Instead,
+         * they should return an action that writes the results for this region (or null if there is nothing to emit).
+         * The engine runs the returned actions on the traversal thread, in region order.
+         *
+         * @param region region to process (pre-marked as either active or inactive)
+         * @param referenceContext reference data overlapping the full extended span of the assembly region
+         * @param featureContext features overlapping the full extended span of the assembly region
+         * @return action emitting the results for this region, or null
+         */
+        Runnable applyConcurrently( AssemblyRegion region, ReferenceContext referenceContext, FeatureContext featureContext );
+    }
+
     //NOTE: these argument names are referenced by HaplotypeCallerSpark
     public static final String MIN_ASSEMBLY_LONG_NAME = "min-assembly-region-size";
     public static final String MAX_ASSEMBLY_LONG_NAME = "max-assembly-region-size";
@@ -51,6 +80,12 @@ public abstract class AssemblyRegionWalker extends GATKTool {
     public static final String PROFILE_OUT_LONG_NAME = "activity-profile-out";
     public static final String ASSEMBLY_REGION_OUT_LONG_NAME = "assembly-region-out";
 
+    /**
+     * Number of regions that may be queued or in flight per worker thread before the traversal thread
+     * blocks waiting for the oldest region to finish.
+     */
+    private static final int REGIONS_IN_FLIGHT_PER_THREAD = 4;
+
     @Advanced
     @Argument(fullName = MIN_ASSEMBLY_LONG_NAME, doc = "Minimum size of an assembly region", optional = true)
     protected int minAssemblyRegionSize = defaultMinAssemblyRegionSize();
@@ -100,6 +135,13 @@ public abstract class AssemblyRegionWalker extends GATKTool {
 
     private PrintStream assemblyRegionOutStream;
 
+    /**
+     * Number of threads used to process assembly regions. Values greater than 1 are only allowed for tools that
+     * support threaded traversal. Output is identical regardless of the number of threads.
+     */
+    @Argument(fullName = StandardArgumentDefinitions.THREADS_LONG_NAME, doc = "Number of worker threads used to process assembly regions (only for tools that support threaded traversal)", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
     /**
      * @return Default value for the {@link #minAssemblyRegionSize} parameter, if none is provided on the command line
      */
@@ -171,6 +213,11 @@ public abstract class AssemblyRegionWalker extends GATKTool {
             throw new CommandLineException.BadArgumentValue("maxReadsPerAlignmentStart must be >= 0");
         }
 
+        if ( traversalThreads > 1 && ! (this instanceof ThreadedTraversal) ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.THREADS_LONG_NAME, String.valueOf(traversalThreads),
+                    getClass().getSimpleName() + " does not support threaded traversal");
+        }
+
         final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
         readShards = makeReadShards(intervals);
 
@@ -256,15 +303,26 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         // meter to check the time more frequently (every 10 regions instead of every 1000 regions).
         progressMeter.setRecordsBetweenTimeChecks(10L);
 
-        for ( final MultiIntervalLocalReadShard readShard : readShards ) {
-            // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
-            // instead of filtering the reads directly here
-            readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
-            readShard.setReadFilter(countedFilter);
-            readShard.setDownsampler(createDownsampler());
-            readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
-
-            processReadShard(readShard, reference, features);
+        final TraversalWorkerPool workers = traversalThreads > 1 ? startWorkers() : null;
+        try {
+            for ( final MultiIntervalLocalReadShard readShard : readShards ) {
+                // Since reads in each shard are lazily fetched, we need to pass the filter and transformers to the window
+                // instead of filtering the reads directly here
+                readShard.setPreReadFilterTransformer(makePreReadFilterTransformer());
+                readShard.setReadFilter(countedFilter);
+                readShard.setDownsampler(createDownsampler());
+                readShard.setPostReadFilterTransformer(makePostReadFilterTransformer());
+
+                if ( workers == null ) {
+                    processReadShard(readShard, reference, features);
+                } else {
+                    processReadShardThreaded(readShard, workers);
+                }
+            }
+        } finally {
+            if ( workers != null ) {
+                workers.close();
+            }
         }
 
         logger.info(countedFilter.getSummaryLine());
@@ -279,7 +337,7 @@ public abstract class AssemblyRegionWalker extends GATKTool {
      * @param features FeatureManager
      */
     private void processReadShard(MultiIntervalLocalReadShard shard, ReferenceDataSource reference, FeatureManager features ) {
-        final Iterator<AssemblyRegion> assemblyRegionIter = new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+        final Iterator<AssemblyRegion> assemblyRegionIter = makeAssemblyRegionIterator(shard);
 
         // Call into the tool implementation to process each assembly region from this shard.
         while ( assemblyRegionIter.hasNext() ) {
@@ -297,6 +355,60 @@ public abstract class AssemblyRegionWalker extends GATKTool {
         }
     }
 
+    /**
+     * Threaded counterpart of {@link #processReadShard}. Regions are produced in order on the traversal thread and
+     * submitted to the workers, which call {@link ThreadedTraversal#applyConcurrently}. The actions returned by the workers are run
+     * on the traversal thread strictly in region order, with at most {@link #REGIONS_IN_FLIGHT_PER_THREAD} regions
+     * per worker outstanding at any time.
+     *
+     * @param shard MultiIntervalLocalReadShard to process
+     * @param workers pool of worker threads created by {@link #startWorkers}
+     */
+    private void processReadShardThreaded(final MultiIntervalLocalReadShard shard, final TraversalWorkerPool workers) {
+        final ThreadedTraversal threadedTool = (ThreadedTraversal) this;
+        final Iterator<AssemblyRegion> assemblyRegionIter = makeAssemblyRegionIterator(shard);
+
+        while ( assemblyRegionIter.hasNext() ) {
+            final AssemblyRegion assemblyRegion = assemblyRegionIter.next();
+
+            logger.debug("Processing assembly region at " + assemblyRegion.getSpan() + " isActive: " + assemblyRegion.isActive() + " numReads: " + assemblyRegion.getReads().size());
+            writeAssemblyRegion(assemblyRegion);
+
+            // Reads may be shared by adjacent regions, so finish any lazy decoding here rather than racing on it in the workers
+            eagerDecodeReads(assemblyRegion);
+            workers.submit(() -> threadedTool.applyConcurrently(assemblyRegion,
+                            new ReferenceContext(workers.getWorkerReference(), assemblyRegion.getExtendedSpan()),
+                            new FeatureContext(workers.getWorkerFeatures(), assemblyRegion.getExtendedSpan())),
+                    emitter -> {
+                        if ( emitter != null ) {
+                            emitter.run();
+                        }
+                        // For this traversal, the progress meter unit is the assembly region rather than the read shard
+                        progressMeter.update(assemblyRegion.getSpan());
+                    });
+        }
+
+        workers.drain();
+    }
+
+    private static void eagerDecodeReads(final AssemblyRegion region) {
+        for ( final GATKRead read : region.getReads() ) {
+            if ( read instanceof SAMRecordToGATKReadAdapter ) {
+                ((SAMRecordToGATKReadAdapter)read).getEncapsulatedSamRecord().eagerDecode();
+            }
+        }
+    }
+
+    private TraversalWorkerPool startWorkers() {
+        logger.info("Processing assembly regions using " + traversalThreads + " worker threads");
+        return new TraversalWorkerPool(this, traversalThreads, traversalThreads * REGIONS_IN_FLIGHT_PER_THREAD,
+                "AssemblyRegionWorker", FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
+    }
+
+    private AssemblyRegionIterator makeAssemblyRegionIterator(final MultiIntervalLocalReadShard shard) {
+        return new AssemblyRegionIterator(shard, getHeaderForReads(), reference, features, assemblyRegionEvaluator(), minAssemblyRegionSize, maxAssemblyRegionSize, assemblyRegionPadding, activeProbThreshold, maxProbPropagationDistance, includeReadsWithDeletionsInIsActivePileups());
+    }
+
     private void writeAssemblyRegion(final AssemblyRegion region) {
         writeActivityProfile(region.getSupportingStates());
 
@@ -353,4 +465,11 @@ public abstract class AssemblyRegionWalker extends GATKTool {
      * @param featureContext features overlapping the full extended span of the assembly region
      */
     public abstract void apply( final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext );
+
+    /**
+     * @return the number of threads used to process assembly regions
+     */
+    public final int getTraversalThreads() {
+        return traversalThreads;
+    }
 }
@@ -9,11 +9,11 @@ import org.apache.commons.lang3.tuple.Pair;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.barclay.argparser.Argument;
-import org.broadinstitute.barclay.argparser.ClassFinder;
 import org.broadinstitute.barclay.argparser.CommandLineParser;
 import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.IndexedClassFinder;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.config.ConfigFactory;
@@ -71,7 +71,7 @@ public final class FeatureManager implements AutoCloseable {
         // Get our configuration:
         final GATKConfig config = ConfigFactory.getInstance().getGATKConfig();
 
-        final ClassFinder finder = new ClassFinder();
+        final IndexedClassFinder finder = new IndexedClassFinder();
         for ( final String codecPackage : config.codec_packages() ) {
             finder.find(codecPackage, CODEC_BASE_CLASS);
         }
@@ -116,6 +116,19 @@ public abstract class GATKTool extends CommandLineProgram {
             optional = true)
     public boolean disableBamIndexCaching = false;
 
+    @Argument(fullName = StandardArgumentDefinitions.READ_DECODING_THREADS_LONG_NAME,
+            doc = "Number of threads used to inflate and decode each BAM input during traversals over all reads (0 to decode on the traversal thread). " +
+                    "Has no effect on traversals restricted to intervals, or on SAM/CRAM inputs.",
+            minValue = 0,
+            optional = true)
+    public int readDecodingThreads = 0;
+
+    @Argument(fullName = StandardArgumentDefinitions.MEMORY_MAP_REFERENCE_LONG_NAME,
+            doc = "If true, serve reference bases from a memory mapping of the reference fasta file that is shared by all threads. " +
+                    "The reference must be an uncompressed local fasta file.",
+            optional = true)
+    public boolean memoryMapReference = false;
+
     @Argument(fullName = StandardArgumentDefinitions.SITES_ONLY_LONG_NAME,
             doc = "If true, don't emit genotype fields when writing vcf file output.", optional = true)
     public boolean outputSitesOnlyVCFs = false;
@@ -361,7 +374,23 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reference data source.
      */
     void initializeReference() {
-        reference = referenceArguments.getReferencePath() != null ? ReferenceDataSource.of(referenceArguments.getReferencePath()) : null;
+        reference = openReferenceDataSource();
+    }
+
+    /**
+     * Open a new, independent source of reference data over the reference provided on the command line.
+     *
+     * Used to initialize {@link #reference}, and by multi-threaded traversals that need a private reference
+     * data source per worker thread, since reference data sources are not thread-safe.
+     *
+     * @return a new ReferenceDataSource, or null if no reference argument was provided. The caller is responsible
+     *         for closing the returned data source.
+     */
+    ReferenceDataSource openReferenceDataSource() {
+        if ( referenceArguments.getReferencePath() == null ) {
+            return null;
+        }
+        return memoryMapReference ? new ReferenceMappedSource(referenceArguments.getReferencePath()) : ReferenceDataSource.of(referenceArguments.getReferencePath());
     }
 
     /**
@@ -371,6 +400,22 @@ public abstract class GATKTool extends CommandLineProgram {
      * May be overridden by traversals that require custom initialization of the reads data source.
      */
     void initializeReads() {
+        reads = openReadsDataSource();
+        if ( reads != null && readDecodingThreads > 0 ) {
+            reads.setParallelDecoding(readDecodingThreads, readArguments.getReadValidationStringency());
+        }
+    }
+
+    /**
+     * Open a new, independent source of reads data over the reads provided on the command line.
+     *
+     * Used to initialize {@link #reads}, and by multi-threaded traversals that need a private reads data source
+     * per worker thread, since reads data sources are not thread-safe.
+     *
+     * @return a new ReadsDataSource, or null if no reads argument(s) were provided. The caller is responsible
+     *         for closing the returned data source.
+     */
+    ReadsDataSource openReadsDataSource() {
         if (! readArguments.getReadFiles().isEmpty()) {
             SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(readArguments.getReadValidationStringency());
             if (hasReference()) { // pass in reference if available, because CRAM files need it
@@ -384,11 +429,11 @@ public abstract class GATKTool extends CommandLineProgram {
                 factory = factory.enable(SamReaderFactory.Option.CACHE_FILE_BASED_INDEXES);
             }
 
-            reads = new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
+            return new ReadsDataSource(readArguments.getReadPaths(), readArguments.getReadIndexPaths(), factory, cloudPrefetchBuffer,
                 (cloudIndexPrefetchBuffer < 0 ? cloudPrefetchBuffer : cloudIndexPrefetchBuffer));
         }
         else {
-            reads = null;
+            return null;
         }
     }
 
@@ -413,11 +458,27 @@ public abstract class GATKTool extends CommandLineProgram {
      * By default, this method initializes the FeatureManager to use the lookahead cache of {@link FeatureDataSource#DEFAULT_QUERY_LOOKAHEAD_BASES} bases.
      */
     void initializeFeatures() {
-        features = new FeatureManager(this, FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                      referenceArguments.getReferencePath());
-        if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
-            features = null;
+        features = openFeatureManager(FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES);
+    }
+
+    /**
+     * Open a new, independent FeatureManager over all Feature inputs discovered for this tool.
+     *
+     * Used to initialize {@link #features}, and by multi-threaded traversals that need a private FeatureManager
+     * per worker thread, since Feature data sources are not thread-safe.
+     *
+     * @param featureQueryLookahead look ahead this many bases during queries that produce cache misses
+     * @return a new FeatureManager, or null if no sources of Features were discovered for this tool. The caller
+     *         is responsible for closing the returned manager.
+     */
+    FeatureManager openFeatureManager(final int featureQueryLookahead) {
+        final FeatureManager manager = new FeatureManager(this, featureQueryLookahead, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
+                                                          referenceArguments.getReferencePath());
+        if ( manager.isEmpty() ) {  // No available sources of Features discovered for this tool
+            manager.close();
+            return null;
         }
+        return manager;
     }
 
     /**
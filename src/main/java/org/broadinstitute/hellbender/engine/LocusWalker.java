@@ -2,14 +2,19 @@ package org.broadinstitute.hellbender.engine;
 
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
+import htsjdk.samtools.SAMSequenceDictionary;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.CommandLineException;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.locusiterator.AlignmentContextIteratorBuilder;
 import org.broadinstitute.hellbender.utils.locusiterator.LIBSDownsamplingInfo;
 import org.broadinstitute.hellbender.utils.locusiterator.LocusIteratorByState;
@@ -35,13 +40,62 @@ import java.util.stream.Collectors;
  * LocusWalker authors must implement the apply() method to process each position, and may optionally implement
  * onTraversalStart(), onTraversalSuccess() and/or closeTool().
  *
+ * Tools that implement {@link ThreadedTraversal} may be run with more than one
+ * {@link #traversalThreads traversal thread}. In that mode the traversal intervals (or the whole genome, if there are
+ * none) are cut into windows of {@link #LOCI_PER_WINDOW} loci, and each window is handed to a pool of workers. Each worker
+ * queries the reads overlapping its window from a private {@link ReadsDataSource}, so that reads starting before a window
+ * still contribute to its pileups, and runs its own {@link LocusIteratorByState} over them, invoking
+ * {@link ThreadedTraversal#applyConcurrently} with a private {@link ReferenceDataSource} and {@link FeatureManager}. The actions returned by
+ * the workers are then run on the traversal thread in genomic order, so that output is identical to a single-threaded run
+ * (unless reads are downsampled, since which reads are kept then depends on the order in which windows are processed).
+ *
  * @author Daniel Gomez-Sanchez (magicDGS)
  */
 public abstract class LocusWalker extends GATKTool {
 
+    /**
+     * Implemented by locus walkers that can process loci on several threads at once.
+     */
+    public interface ThreadedTraversal {
+        /**
+         * Process an individual AlignmentContext on a worker thread.
+         *
+         * This method is called concurrently from several threads, each with its own reference and feature data sources,
+         * so implementations must not share mutable state across threads and must not write output directly. Instead,
+         * they should return an action that writes the results for this locus (or null if there is nothing to emit).
+         * The engine runs the returned actions on the traversal thread, in genomic order.
+         *
+         * @param alignmentContext current alignment context
+         * @param referenceContext Reference bases spanning the current locus, as for {@link LocusWalker#apply}
+         * @param featureContext Features spanning the current locus, as for {@link LocusWalker#apply}
+         * @return action emitting the results for this locus, or null
+         */
+        Runnable applyConcurrently(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext);
+    }
+
+    /**
+     * Number of loci in a window handed to a worker thread during a threaded traversal. Windows are aligned to
+     * multiples of this size, so that a window never spans more than this many bases of a contig.
+     */
+    private static final int LOCI_PER_WINDOW = 10_000;
+
+    /**
+     * Number of windows that may be queued or in flight per worker thread before the traversal thread
+     * blocks waiting for the oldest window to finish.
+     */
+    private static final int WINDOWS_IN_FLIGHT_PER_THREAD = 4;
+
     @Argument(fullName = "maxDepthPerSample", shortName = "maxDepthPerSample", doc = "Maximum number of reads to retain per sample per locus. Reads above this threshold will be downsampled. Set to 0 to disable.", optional = true)
     protected int maxDepthPerSample = defaultMaxDepthPerSample();
 
+    /**
+     * Number of threads used to process loci. Values greater than 1 are only allowed for tools that support threaded
+     * traversal, and require indexed reads. Output is identical regardless of the number of threads, unless reads are
+     * downsampled.
+     */
+    @Argument(fullName = StandardArgumentDefinitions.THREADS_LONG_NAME, doc = "Number of worker threads used to process loci (only for tools that support threaded traversal)", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
     /**
      * Should the LIBS keep unique reads? Tools that do should override to return {@code true}.
      */
@@ -49,6 +103,16 @@ public abstract class LocusWalker extends GATKTool {
         return false;
     }
 
+    /**
+     * Should the storage of the pileups be recycled across loci rather than allocated anew at every locus? This saves
+     * garbage collection on deep data, but an AlignmentContext and its pileup are then only valid until {@link #apply}
+     * returns (their elements may be kept). Tools that don't keep any pileup should override to return {@code true}. Pileups are never pooled during a threaded traversal, since the actions returned by
+     * {@link ThreadedTraversal#applyConcurrently} only run once their whole window has been processed.
+     */
+    protected boolean usePooledPileups() {
+        return false;
+    }
+
     /**
      * LocusWalkers requires read sources
      */
@@ -135,6 +199,17 @@ public abstract class LocusWalker extends GATKTool {
     @Override
     protected final void onStartup() {
         super.onStartup();
+
+        if ( traversalThreads > 1 ) {
+            if ( ! (this instanceof ThreadedTraversal) ) {
+                throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.THREADS_LONG_NAME, String.valueOf(traversalThreads),
+                        getClass().getSimpleName() + " does not support threaded traversal");
+            }
+            if ( ! reads.indicesAvailable() ) {
+                throw new UserException.MissingIndex("A threaded traversal queries the reads of each window, so all read inputs must be indexed.");
+            }
+        }
+
         if ( hasUserSuppliedIntervals() ) {
             reads.setTraversalBounds(intervalArgumentCollection.getTraversalParameters(getHeaderForReads().getSequenceDictionary()));
         }
@@ -147,9 +222,19 @@ public abstract class LocusWalker extends GATKTool {
      * The default implementation iterates over all positions in the reference covered by reads (filtered and transformed)
      * for all samples in the read groups, using the downsampling method provided by {@link #getDownsamplingInfo()}
      * and including deletions only if {@link #includeDeletions()} returns {@code true}.
+     *
+     * With more than one {@link #traversalThreads traversal thread}, the loci are instead processed in windows on
+     * worker threads (see {@link #traverseThreaded}).
      */
     @Override
     public void traverse() {
+        if ( traversalThreads > 1 ) {
+            final CountingReadFilter countedFilter = makeReadFilter();
+            traverseThreaded(countedFilter);
+            logger.info(countedFilter.getSummaryLine());
+            return;
+        }
+
         final SAMFileHeader header = getHeaderForReads();
         // get the samples from the read groups
         final Set<String> samples = header.getReadGroups().stream()
@@ -159,12 +244,7 @@ public abstract class LocusWalker extends GATKTool {
         // get the filter and transformed iterator
         final Iterator<GATKRead> readIterator = getTransformedReadStream(countedFilter).iterator();
 
-        final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = new AlignmentContextIteratorBuilder();
-        alignmentContextIteratorBuilder.setDownsamplingInfo(getDownsamplingInfo());
-        alignmentContextIteratorBuilder.setEmitEmptyLoci(emitEmptyLoci());
-        alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
-        alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
-        alignmentContextIteratorBuilder.setIncludeNs(includeNs());
+        final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = makeAlignmentContextIteratorBuilder(usePooledPileups());
 
         final Iterator<AlignmentContext> iterator = alignmentContextIteratorBuilder.build(
                 readIterator, header, userIntervals, getBestAvailableSequenceDictionary(),
@@ -180,6 +260,147 @@ public abstract class LocusWalker extends GATKTool {
         logger.info(countedFilter.getSummaryLine());
     }
 
+    private AlignmentContextIteratorBuilder makeAlignmentContextIteratorBuilder(final boolean pooledPileups) {
+        final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = new AlignmentContextIteratorBuilder();
+        alignmentContextIteratorBuilder.setDownsamplingInfo(getDownsamplingInfo());
+        alignmentContextIteratorBuilder.setEmitEmptyLoci(emitEmptyLoci());
+        alignmentContextIteratorBuilder.setIncludeDeletions(includeDeletions());
+        alignmentContextIteratorBuilder.setKeepUniqueReadListInLibs(keepUniqueReadListInLibs());
+        alignmentContextIteratorBuilder.setIncludeNs(includeNs());
+        alignmentContextIteratorBuilder.setPooledPileups(pooledPileups);
+        return alignmentContextIteratorBuilder;
+    }
+
+    /**
+     * Threaded counterpart of {@link #traverse}. The windows made by {@link #makeWindows} are submitted in genomic order
+     * to the workers, which query the reads overlapping their window, run the transformers (one set per worker, since
+     * transformers may keep state) and the filter on them, and call {@link ThreadedTraversal#applyConcurrently} on every locus of the
+     * window. The actions returned by the workers are run on the traversal thread strictly in genomic order, with at most
+     * {@link #WINDOWS_IN_FLIGHT_PER_THREAD} windows per worker outstanding at any time.
+     *
+     * Each worker has its own filter, whose counts are added to {@code countedFilter} once the traversal is done. Reads
+     * overlapping several windows are filtered once per window, but only counted in the first window they overlap, so
+     * that the filter summary is the same as that of a single-threaded run. In the other windows they go through a
+     * second, uncounted instance of the filter.
+     *
+     * @param countedFilter filter to which the counts of the workers' filters are added, counting each read once
+     */
+    private void traverseThreaded(final CountingReadFilter countedFilter) {
+        final List<List<SimpleInterval>> windows = makeWindows();
+        logger.info("Processing " + windows.size() + " windows of loci using " + traversalThreads + " worker threads");
+
+        final ThreadedTraversal threadedTool = (ThreadedTraversal) this;
+        final SAMFileHeader header = getHeaderForReads();
+        final SAMSequenceDictionary dictionary = getBestAvailableSequenceDictionary();
+        final boolean isReference = hasReference();
+        final AlignmentContextIteratorBuilder alignmentContextIteratorBuilder = makeAlignmentContextIteratorBuilder(false);
+        final ThreadLocal<ReadTransformer> preTransformers = ThreadLocal.withInitial(this::makePreReadFilterTransformer);
+        final ThreadLocal<ReadTransformer> postTransformers = ThreadLocal.withInitial(this::makePostReadFilterTransformer);
+        final List<CountingReadFilter> workerFilters = new ArrayList<>(traversalThreads);
+        final ThreadLocal<CountingReadFilter> countedFilters = ThreadLocal.withInitial(() -> {
+            synchronized ( workerFilters ) {
+                final CountingReadFilter workerFilter = makeReadFilter();
+                workerFilters.add(workerFilter);
+                return workerFilter;
+            }
+        });
+        final ThreadLocal<CountingReadFilter> uncountedFilters = ThreadLocal.withInitial(this::makeReadFilter);
+        try ( final TraversalWorkerPool workers = new TraversalWorkerPool(this, traversalThreads,
+                traversalThreads * WINDOWS_IN_FLIGHT_PER_THREAD, "LocusWorker", FeatureDataSource.DEFAULT_QUERY_LOOKAHEAD_BASES) ) {
+            for ( int i = 0; i < windows.size(); i++ ) {
+                final List<SimpleInterval> window = windows.get(i);
+                // reads starting at or before the end of the previous window on this contig overlap that window too
+                final int previousWindowEnd = previousWindowEnd(windows, i);
+                workers.submit(() -> {
+                            final ReadsDataSource workerReads = workers.getWorkerReads();
+                            workerReads.setTraversalBounds(window);
+                            final ReadTransformer preTransformer = preTransformers.get();
+                            final ReadTransformer postTransformer = postTransformers.get();
+                            final CountingReadFilter workerCountedFilter = countedFilters.get();
+                            final CountingReadFilter workerUncountedFilter = uncountedFilters.get();
+                            final Iterator<GATKRead> readIterator = Utils.stream(workerReads)
+                                    .map(preTransformer)
+                                    .filter(read -> read.getStart() > previousWindowEnd ? workerCountedFilter.test(read) : workerUncountedFilter.test(read))
+                                    .map(postTransformer)
+                                    .iterator();
+                            return processWindow(threadedTool, alignmentContextIteratorBuilder.build(readIterator, header, window, dictionary, isReference),
+                                                 workers.getWorkerReference(), workers.getWorkerFeatures());
+                        },
+                        this::emitWindow);
+            }
+            workers.drain();
+        }
+        synchronized ( workerFilters ) {
+            workerFilters.forEach(countedFilter::addFilteredCounts);
+        }
+    }
+
+    /**
+     * @return the end of the last interval of the window preceding window {@code index}, or 0 if there is no such window
+     *         on the same contig
+     */
+    private static int previousWindowEnd(final List<List<SimpleInterval>> windows, final int index) {
+        if ( index == 0 ) {
+            return 0;
+        }
+        final List<SimpleInterval> previousWindow = windows.get(index - 1);
+        final SimpleInterval previousInterval = previousWindow.get(previousWindow.size() - 1);
+        return previousInterval.getContig().equals(windows.get(index).get(0).getContig()) ? previousInterval.getEnd() : 0;
+    }
+
+    /**
+     * Cuts the traversal intervals, or the whole genome if there are none, at multiples of {@link #LOCI_PER_WINDOW},
+     * and groups the pieces falling in the same multiple into a window.
+     *
+     * @return the windows, in genomic order, each a list of intervals
+     */
+    private List<List<SimpleInterval>> makeWindows() {
+        final List<SimpleInterval> intervals = hasUserSuppliedIntervals() ? userIntervals : IntervalUtils.getAllIntervalsForReference(getHeaderForReads().getSequenceDictionary());
+        final List<List<SimpleInterval>> windows = new ArrayList<>();
+        List<SimpleInterval> window = null;
+        for ( final SimpleInterval piece : IntervalUtils.cutToShards(intervals, LOCI_PER_WINDOW) ) {
+            if ( window == null || ! window.get(0).getContig().equals(piece.getContig()) ||
+                    IntervalUtils.shardIndex(window.get(0).getStart(), LOCI_PER_WINDOW) != IntervalUtils.shardIndex(piece.getStart(), LOCI_PER_WINDOW) ) {
+                window = new ArrayList<>();
+                windows.add(window);
+            }
+            window.add(piece);
+        }
+        return windows;
+    }
+
+    /**
+     * Results of a window of loci processed on a worker thread: the action returned by {@link ThreadedTraversal#applyConcurrently}
+     * (possibly null) and the interval of each locus.
+     */
+    private static final class ProcessedWindow {
+        private final List<Runnable> emitters = new ArrayList<>();
+        private final List<SimpleInterval> intervals = new ArrayList<>();
+    }
+
+    private ProcessedWindow processWindow(final ThreadedTraversal threadedTool, final Iterator<AlignmentContext> iterator,
+                                          final ReferenceDataSource workerReference, final FeatureManager workerFeatures) {
+        final ProcessedWindow processed = new ProcessedWindow();
+        iterator.forEachRemaining(alignmentContext -> {
+            final SimpleInterval alignmentInterval = new SimpleInterval(alignmentContext);
+            processed.emitters.add(threadedTool.applyConcurrently(alignmentContext,
+                    new ReferenceContext(workerReference, alignmentInterval),
+                    new FeatureContext(workerFeatures, alignmentInterval)));
+            processed.intervals.add(alignmentInterval);
+        });
+        return processed;
+    }
+
+    private void emitWindow(final ProcessedWindow processed) {
+        for ( int i = 0; i < processed.emitters.size(); i++ ) {
+            final Runnable emitter = processed.emitters.get(i);
+            if ( emitter != null ) {
+                emitter.run();
+            }
+            progressMeter.update(processed.intervals.get(i));
+        }
+    }
+
     /**
      * Process an individual AlignmentContext (with optional contextual information). Must be implemented by tool authors.
      * In general, tool authors should simply stream their output from apply(), and maintain as little internal state
@@ -196,6 +417,13 @@ public abstract class LocusWalker extends GATKTool {
      */
     public abstract void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext);
 
+    /**
+     * @return the number of threads used to process loci
+     */
+    public final int getTraversalThreads() {
+        return traversalThreads;
+    }
+
     /**
      * Marked final so that tool authors don't override it. Tool authors should override onTraversalSuccess() instead.
      */
@@ -1,12 +1,19 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
+import org.broadinstitute.hellbender.transformers.ReadTransformer;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
 
 /**
@@ -23,9 +30,58 @@ import java.util.List;
  *
  * ReadWalker authors must implement the apply() method to process each read, and may optionally implement
  * onTraversalStart() and/or onTraversalSuccess(). See the PrintReadsWithReference walker for an example.
+ *
+ * Tools that implement {@link ThreadedTraversal} may be run with more than one
+ * {@link #traversalThreads traversal thread}. In that mode reads are still decoded in order on the traversal thread,
+ * but are handed in batches to a pool of workers that transform and filter them and invoke {@link ThreadedTraversal#applyConcurrently},
+ * each with a private {@link ReferenceDataSource} and {@link FeatureManager}. The actions returned by the workers are
+ * then run on the traversal thread in input order, so that output is identical to a single-threaded run.
  */
 public abstract class ReadWalker extends GATKTool {
 
+    /**
+     * Implemented by read walkers that can process reads on several threads at once.
+     */
+    public interface ThreadedTraversal {
+        /**
+         * Process an individual read on a worker thread.
+         *
+         * This method is called concurrently from several threads, each with its own reference and feature data sources,
+         * so implementations must not share mutable state across threads and must not write output directly. Instead,
+         * they should return an action that writes the results for this read (or null if there is nothing to emit).
+         * The engine runs the returned actions on the traversal thread, in input order.
+         *
+         * @param read current read, already transformed and filtered
+         * @param referenceContext Reference bases spanning the current read, as for {@link ReadWalker#apply}
+         * @param featureContext Features spanning the current read, as for {@link ReadWalker#apply}
+         * @return action emitting the results for this read, or null
+         */
+        Runnable applyConcurrently( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext );
+    }
+
+    /**
+     * Number of reads handed to a worker thread at a time during a threaded traversal
+     */
+    private static final int READS_PER_BATCH = 1_000;
+
+    /**
+     * Number of batches of reads that may be queued or in flight per worker thread before the traversal thread
+     * blocks waiting for the oldest batch to finish.
+     */
+    private static final int BATCHES_IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * Number of threads used to process reads. Values greater than 1 are only allowed for tools that
+     * support threaded traversal. Output is identical regardless of the number of threads.
+     */
+    @Argument(fullName = StandardArgumentDefinitions.THREADS_LONG_NAME, doc = "Number of worker threads used to process reads (only for tools that support threaded traversal)", optional = true, minValue = 1)
+    protected int traversalThreads = 1;
+
+    /**
+     * Worker threads of the threaded traversal while it runs, null otherwise
+     */
+    private TraversalWorkerPool workers = null;
+
     @Override
     public boolean requiresReads() {
         return true;
@@ -49,6 +105,11 @@ public abstract class ReadWalker extends GATKTool {
     protected final void onStartup() {
         super.onStartup();
 
+        if ( traversalThreads > 1 && ! (this instanceof ThreadedTraversal) ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.THREADS_LONG_NAME, String.valueOf(traversalThreads),
+                    getClass().getSimpleName() + " does not support threaded traversal");
+        }
+
         setReadTraversalBounds();
     }
 
@@ -64,11 +125,7 @@ public abstract class ReadWalker extends GATKTool {
     @Override
     void initializeFeatures() {
         //We override this method to change lookahead of the cache
-        features = new FeatureManager(this, FEATURE_CACHE_LOOKAHEAD, cloudPrefetchBuffer, cloudIndexPrefetchBuffer,
-                                      referenceArguments.getReferencePath());
-        if ( features.isEmpty() ) {  // No available sources of Features discovered for this tool
-            features = null;
-        }
+        features = openFeatureManager(FEATURE_CACHE_LOOKAHEAD);
     }
 
     /**
@@ -79,12 +136,21 @@ public abstract class ReadWalker extends GATKTool {
      * {@link #makePreReadFilterTransformer()} {@link #makePostReadFilterTransformer()} and then iterates over all reads, applies
      * the pre-filter transformer, the filter, then the post-filter transformer and hands the resulting reads to the {@link #apply}
      * function of the walker (along with additional contextual information, if present, such as reference bases).
+     *
+     * With more than one {@link #traversalThreads traversal thread}, the transformers, filter and
+     * {@link ThreadedTraversal#applyConcurrently} are run on worker threads instead (see {@link #traverseThreaded}).
      */
     @Override
     public void traverse() {
+        final CountingReadFilter countedFilter = makeReadFilter();
+        if ( traversalThreads > 1 ) {
+            traverseThreaded(countedFilter);
+            logger.info(countedFilter.getSummaryLine());
+            return;
+        }
+
         // Process each read in the input stream.
         // Supply reference bases spanning each read, if a reference is available.
-        final CountingReadFilter countedFilter = makeReadFilter();
         getTransformedReadStream(countedFilter)
                 .forEach(read -> {
                     final SimpleInterval readInterval = getReadInterval(read);
@@ -98,6 +164,98 @@ public abstract class ReadWalker extends GATKTool {
         logger.info(countedFilter.getSummaryLine());
     }
 
+    /**
+     * Threaded counterpart of {@link #traverse}. Reads are decoded in order on the traversal thread and submitted in
+     * batches of {@link #READS_PER_BATCH} to the workers, which run the transformers and the filter (one set per worker,
+     * since transformers and filter counts keep state) and {@link ThreadedTraversal#applyConcurrently} on each read. The actions
+     * returned by the workers are run on the traversal thread strictly in input order, with at most
+     * {@link #BATCHES_IN_FLIGHT_PER_THREAD} batches per worker outstanding at any time.
+     *
+     * @param countedFilter filter to which the counts of the workers' filters are added once the traversal is done
+     */
+    private void traverseThreaded(final CountingReadFilter countedFilter) {
+        if ( ! hasReads() ) {
+            return;
+        }
+        logger.info("Processing reads using " + traversalThreads + " worker threads");
+
+        final ThreadedTraversal threadedTool = (ThreadedTraversal) this;
+        final ThreadLocal<ReadTransformer> preTransformers = ThreadLocal.withInitial(this::makePreReadFilterTransformer);
+        final ThreadLocal<ReadTransformer> postTransformers = ThreadLocal.withInitial(this::makePostReadFilterTransformer);
+        final List<CountingReadFilter> workerFilters = new ArrayList<>(traversalThreads);
+        final ThreadLocal<CountingReadFilter> filters = ThreadLocal.withInitial(() -> {
+            synchronized ( workerFilters ) {
+                final CountingReadFilter workerFilter = makeReadFilter();
+                workerFilters.add(workerFilter);
+                return workerFilter;
+            }
+        });
+        try ( final TraversalWorkerPool workers = new TraversalWorkerPool(this, traversalThreads,
+                traversalThreads * BATCHES_IN_FLIGHT_PER_THREAD, "ReadWorker", FEATURE_CACHE_LOOKAHEAD) ) {
+            this.workers = workers;
+            final Iterator<GATKRead> readIterator = reads.iterator();
+            while ( readIterator.hasNext() ) {
+                final List<GATKRead> batch = new ArrayList<>(READS_PER_BATCH);
+                while ( readIterator.hasNext() && batch.size() < READS_PER_BATCH ) {
+                    batch.add(readIterator.next());
+                }
+
+                workers.submit(() -> processBatch(threadedTool, batch, filters.get(), preTransformers.get(), postTransformers.get(),
+                                                  workers.getWorkerReference(), workers.getWorkerFeatures()),
+                               this::emitBatch);
+            }
+            workers.drain();
+        } finally {
+            this.workers = null;
+        }
+        synchronized ( workerFilters ) {
+            workerFilters.forEach(countedFilter::addFilteredCounts);
+        }
+    }
+
+    /**
+     * Results of a batch of reads processed on a worker thread: the action returned by {@link ThreadedTraversal#applyConcurrently}
+     * (possibly null) and the interval of each read that passed the filter.
+     */
+    private static final class ProcessedBatch {
+        private final List<Runnable> emitters;
+        private final List<SimpleInterval> intervals;
+
+        private ProcessedBatch(final int capacity) {
+            emitters = new ArrayList<>(capacity);
+            intervals = new ArrayList<>(capacity);
+        }
+    }
+
+    private ProcessedBatch processBatch(final ThreadedTraversal threadedTool, final List<GATKRead> batch, final CountingReadFilter filter,
+                                        final ReadTransformer preTransformer, final ReadTransformer postTransformer,
+                                        final ReferenceDataSource workerReference, final FeatureManager workerFeatures) {
+        final ProcessedBatch processed = new ProcessedBatch(batch.size());
+        for ( final GATKRead originalRead : batch ) {
+            final GATKRead preTransformedRead = preTransformer.apply(originalRead);
+            if ( ! filter.test(preTransformedRead) ) {
+                continue;
+            }
+            final GATKRead read = postTransformer.apply(preTransformedRead);
+            final SimpleInterval readInterval = getReadInterval(read);
+            processed.emitters.add(threadedTool.applyConcurrently(read,
+                    new ReferenceContext(workerReference, readInterval), // Will create an empty ReferenceContext if reference or readInterval == null
+                    new FeatureContext(workerFeatures, readInterval)));  // Will create an empty FeatureContext if features or readInterval == null
+            processed.intervals.add(readInterval);
+        }
+        return processed;
+    }
+
+    private void emitBatch(final ProcessedBatch processed) {
+        for ( int i = 0; i < processed.emitters.size(); i++ ) {
+            final Runnable emitter = processed.emitters.get(i);
+            if ( emitter != null ) {
+                emitter.run();
+            }
+            progressMeter.update(processed.intervals.get(i));
+        }
+    }
+
     /**
      * Returns an interval for the read.
      * Note: some walkers must be able to work on any read, including those whose coordinates do not form a valid SimpleInterval.
@@ -141,6 +299,23 @@ public abstract class ReadWalker extends GATKTool {
      */
     public abstract void apply( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext );
 
+    /**
+     * @return the number of threads used to process reads
+     */
+    public final int getTraversalThreads() {
+        return traversalThreads;
+    }
+
+    /**
+     * @return the private reference data source of the calling worker thread, the one backing the
+     *         {@link ReferenceContext} passed to {@link ThreadedTraversal#applyConcurrently}, or null if there is no
+     *         reference. Must only be called from {@link ThreadedTraversal#applyConcurrently}.
+     */
+    protected final ReferenceDataSource getWorkerReference() {
+        Utils.validate(workers != null, "getWorkerReference must only be called from a threaded traversal");
+        return workers.getWorkerReference();
+    }
+
     /**
      * Shutdown data sources.
      *
@@ -14,6 +14,7 @@ import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.iterators.ParallelBamRecordIterator;
 import org.broadinstitute.hellbender.utils.iterators.SAMRecordToReadIterator;
 import org.broadinstitute.hellbender.utils.iterators.SamReaderQueryingIterator;
 import org.broadinstitute.hellbender.utils.nio.SeekableByteChannelPrefetcher;
@@ -78,6 +79,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
      */
     private boolean indicesAvailable;
 
+    /**
+     * Number of threads inflating and decoding each BAM file during unbounded traversals, or 0 to decode on the
+     * calling thread through htsjdk. See {@link #setParallelDecoding}.
+     */
+    private int decodingThreads = 0;
+
+    /**
+     * Validation stringency of the records decoded by the parallel decoding threads
+     */
+    private ValidationStringency parallelDecodingValidationStringency = ReadConstants.DEFAULT_READ_VALIDATION_STRINGENCY;
+
     /**
      * Initialize this data source with a single SAM/BAM file and validation stringency SILENT.
      *
@@ -254,6 +266,22 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return indicesAvailable;
     }
 
+    /**
+     * Inflate and decode BAM inputs on a pool of threads during unbounded traversals of this data source via
+     * {@link #iterator}, instead of on the calling thread. The decoded reads are handed to the calling thread through
+     * a bounded queue, in the same order as a single-threaded traversal. Bounded traversals, queries, and non-BAM inputs
+     * are unaffected.
+     *
+     * @param decodingThreads number of threads per BAM input, or 0 to disable parallel decoding
+     * @param validationStringency validation stringency of the decoded reads; should match that of the SamReaderFactory
+     *                             this data source was created with
+     */
+    public void setParallelDecoding( final int decodingThreads, final ValidationStringency validationStringency ) {
+        Utils.validateArg(decodingThreads >= 0, "decodingThreads must be >= 0");
+        this.decodingThreads = decodingThreads;
+        this.parallelDecodingValidationStringency = Utils.nonNull(validationStringency);
+    }
+
     /**
      * Restricts a traversal of this data source via {@link #iterator} to only return reads which overlap the given intervals.
      * Calls to {@link #query} are not affected by setting these intervals.
@@ -407,7 +435,7 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
                         )
                 );
             } else {
-                readerEntry.setValue(readerEntry.getKey().iterator());
+                readerEntry.setValue(openUnboundedIterator(readerEntry.getKey()));
             }
         }
 
@@ -424,6 +452,17 @@ public final class ReadsDataSource implements GATKDataSource<GATKRead>, AutoClos
         return new SAMRecordToReadIterator(startingIterator);
     }
 
+    /**
+     * Open an iterator over all the reads of a reader, decoding them on a pool of threads if parallel decoding was
+     * requested and the reader is over a BAM file.
+     */
+    private CloseableIterator<SAMRecord> openUnboundedIterator( final SamReader reader ) {
+        if ( decodingThreads > 0 && reader.type() == SamReader.Type.BAM_TYPE ) {
+            return new ParallelBamRecordIterator(backingPaths.get(reader), reader.getFileHeader(), parallelDecodingValidationStringency, decodingThreads);
+        }
+        return reader.iterator();
+    }
+
     /**
      * Reduce the intervals down to only include ones that can actually intersect with this reader
      */
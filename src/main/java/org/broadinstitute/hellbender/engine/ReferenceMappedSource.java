@@ -0,0 +1,216 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMException;
+import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.FastaSequenceIndex;
+import htsjdk.samtools.reference.FastaSequenceIndexEntry;
+import htsjdk.samtools.reference.ReferenceSequence;
+import htsjdk.samtools.reference.ReferenceSequenceFileFactory;
+import htsjdk.samtools.util.IOUtil;
+import htsjdk.samtools.util.StringUtil;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.BaseUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Manages queries over reference data backed by a memory mapping of a local, uncompressed fasta file.
+ *
+ * The fasta file itself is mapped read-only, and the bases of a query are located through the offsets and line
+ * lengths of its .fai index, so that nothing is written or read ahead when a reference is opened. The mapping is shared
+ * by every instance of this class over the same fasta file for the lifetime of the JVM, so that opening one instance
+ * per thread costs nothing and all threads (and all processes over the same file) share the same pages of the page
+ * cache.
+ *
+ * {@link #queryAndPrefetch} copies the bases of a query line by line straight from the mapping into the array of the
+ * returned ReferenceSequence, with no intermediate cache window, and normalizes them there (upper-cased, with IUPAC
+ * ambiguity codes converted to Ns, as by {@link CachingIndexedFastaSequenceFile}). Instances are thread-safe.
+ *
+ * Supports targeted queries over the reference by interval, but does not yet support complete iteration over the
+ * entire reference.
+ */
+public final class ReferenceMappedSource implements ReferenceDataSource {
+
+    /**
+     * Size of each of the mappings the fasta file is split into, as a single mapping cannot exceed 2GB
+     */
+    private static final long SEGMENT_SIZE = 1L << 30;
+
+    /**
+     * Mappings of all the fasta files opened through this class, by absolute path
+     */
+    private static final Map<Path, MappedFasta> MAPPED_FASTAS = new ConcurrentHashMap<>();
+
+    private final MappedFasta fasta;
+
+    /**
+     * Initialize this data source using a fasta file, mapping it into memory if it hasn't been already.
+     *
+     * The provided fasta file must be uncompressed, on the local file system, and have companion .fai and .dict files.
+     *
+     * @param fastaPath reference fasta file
+     */
+    public ReferenceMappedSource(final Path fastaPath) {
+        Utils.nonNull(fastaPath);
+        if ( fastaPath.getFileSystem() != FileSystems.getDefault() ) {
+            throw new UserException.CouldNotReadInputFile(fastaPath, "Only references on the local file system can be memory-mapped");
+        }
+        fasta = MAPPED_FASTAS.computeIfAbsent(fastaPath.toAbsolutePath(), MappedFasta::new);
+    }
+
+    /**
+     * Start an iteration over the entire reference. Not yet supported!
+     *
+     * See the BaseUtils class for guidance on how to work with bases in this format.
+     *
+     * @return iterator over all bases in this reference
+     */
+    @Override
+    public Iterator<Byte> iterator() {
+        throw new UnsupportedOperationException("Iteration over entire reference not yet implemented");
+    }
+
+    /**
+     * Query a specific interval on this reference, and get back all bases spanning that interval at once.
+     * Call getBases() on the returned ReferenceSequence to get the actual reference bases. See the BaseUtils
+     * class for guidance on how to work with bases in this format.
+     *
+     * @param contig query interval contig
+     * @param start query interval start
+     * @param stop query interval stop (included)
+     * @return a ReferenceSequence containing all bases spanning the query interval, prefetched
+     */
+    @Override
+    public ReferenceSequence queryAndPrefetch( final String contig, final long start, final long stop ) {
+        final SAMSequenceRecord contigInfo = fasta.getContig(contig, start, stop);
+        final byte[] bases = new byte[(int)(stop - start + 1)];
+        fasta.copyBases(contigInfo, start, bases);
+        return new ReferenceSequence(contig, contigInfo.getSequenceIndex(), bases);
+    }
+
+    /**
+     * Get the sequence dictionary for this reference
+     *
+     * @return SAMSequenceDictionary for this reference
+     */
+    @Override
+    public SAMSequenceDictionary getSequenceDictionary() {
+        return fasta.sequenceDictionary;
+    }
+
+    /**
+     * no-op: the mapping is shared with other instances over the same fasta file, and is unmapped when it is
+     * garbage collected.
+     */
+    @Override
+    public void close() {}
+
+    /**
+     * A fasta file mapped into memory, along with the index entries locating the bases of each of its contigs.
+     */
+    private static final class MappedFasta {
+        private final SAMSequenceDictionary sequenceDictionary;
+
+        /**
+         * Index entry of each contig, by sequence index
+         */
+        private final FastaSequenceIndexEntry[] indexEntries;
+
+        private final MappedByteBuffer[] segments;
+
+        private MappedFasta(final Path fastaPath) {
+            // performs the same checks on the fasta and its companion files as the other reference data sources
+            try ( final CachingIndexedFastaSequenceFile fasta = new CachingIndexedFastaSequenceFile(fastaPath) ) {
+                sequenceDictionary = fasta.getSequenceDictionary();
+            }
+            try {
+                if ( IOUtil.isBlockCompressed(fastaPath, true) ) {
+                    throw new UserException.CouldNotReadInputFile(fastaPath, "Block-compressed references cannot be memory-mapped");
+                }
+
+                final FastaSequenceIndex index = new FastaSequenceIndex(ReferenceSequenceFileFactory.getFastaIndexFileName(fastaPath));
+                indexEntries = new FastaSequenceIndexEntry[sequenceDictionary.size()];
+                for ( final SAMSequenceRecord contig : sequenceDictionary.getSequences() ) {
+                    if ( ! index.hasIndexEntry(contig.getSequenceName()) ) {
+                        throw new UserException.MalformedFile(fastaPath, "Contig " + contig.getSequenceName() + " from the sequence dictionary is missing from the fasta index");
+                    }
+                    indexEntries[contig.getSequenceIndex()] = index.getIndexEntry(contig.getSequenceName());
+                }
+
+                try ( final FileChannel fastaChannel = FileChannel.open(fastaPath, StandardOpenOption.READ) ) {
+                    final long fastaSize = fastaChannel.size();
+                    segments = new MappedByteBuffer[(int)((fastaSize + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+                    for ( int i = 0; i < segments.length; i++ ) {
+                        final long segmentStart = i * SEGMENT_SIZE;
+                        segments[i] = fastaChannel.map(FileChannel.MapMode.READ_ONLY, segmentStart, Math.min(SEGMENT_SIZE, fastaSize - segmentStart));
+                    }
+                }
+            } catch ( final IOException e ) {
+                throw new UserException.CouldNotReadInputFile(fastaPath, e);
+            }
+        }
+
+        private SAMSequenceRecord getContig(final String contig, final long start, final long stop) {
+            final SAMSequenceRecord contigInfo = sequenceDictionary.getSequence(contig);
+            if ( contigInfo == null ) {
+                throw new UserException.MissingContigInSequenceDictionary(contig, sequenceDictionary);
+            }
+            if ( stop > contigInfo.getSequenceLength() ) {
+                throw new SAMException("Query asks for data past end of contig. Query contig " + contig + " start:" + start + " stop:" + stop + " contigLength:" + contigInfo.getSequenceLength());
+            }
+            Utils.validateArg(start >= 1, () -> "Query start must be >= 1 but was " + start);
+            Utils.validateArg(stop >= start - 1, () -> String.format("Asking for stop<start (%d < %d)", stop, start));
+            return contigInfo;
+        }
+
+        /**
+         * Copies the normalized bases of a contig starting at start into the whole of destination, skipping the line
+         * terminators of the fasta.
+         */
+        private void copyBases(final SAMSequenceRecord contigInfo, final long start, final byte[] destination) {
+            final FastaSequenceIndexEntry entry = indexEntries[contigInfo.getSequenceIndex()];
+            final int basesPerLine = entry.getBasesPerLine();
+            long offsetInContig = start - 1;
+            int copied = 0;
+            while ( copied < destination.length ) {
+                final long offsetInLine = offsetInContig % basesPerLine;
+                final int chunk = (int)Math.min(destination.length - copied, basesPerLine - offsetInLine);
+                copyBytes(entry.getLocation() + (offsetInContig / basesPerLine) * entry.getBytesPerLine() + offsetInLine, destination, copied, chunk);
+                copied += chunk;
+                offsetInContig += chunk;
+            }
+            StringUtil.toUpperCase(destination);
+            BaseUtils.convertIUPACtoN(destination, true, false);
+        }
+
+        private void copyBytes(final long fastaOffset, final byte[] destination, final int destinationOffset, final int length) {
+            long offset = fastaOffset;
+            int copied = 0;
+            while ( copied < length ) {
+                // a new buffer over the mapping, so that concurrent queries do not share a position
+                final ByteBuffer segment = segments[(int)(offset / SEGMENT_SIZE)].duplicate();
+                segment.position((int)(offset % SEGMENT_SIZE));
+                final int chunk = Math.min(length - copied, segment.remaining());
+                if ( chunk <= 0 ) {
+                    throw new GATKException("BUG: query past the end of the mapped fasta at offset " + offset);
+                }
+                segment.get(destination, destinationOffset + copied, chunk);
+                copied += chunk;
+                offset += chunk;
+            }
+        }
+    }
+}
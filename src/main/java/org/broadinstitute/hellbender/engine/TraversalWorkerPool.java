@@ -0,0 +1,172 @@
+package org.broadinstitute.hellbender.engine;
+
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Pool of worker threads used by the multi-threaded traversals of the walker base classes, and by tools that
+ * implement their own threaded traversal.
+ *
+ * Units of work are submitted from the traversal thread together with a completion action. The work runs on the
+ * workers, each of which has a private {@link ReferenceDataSource} and {@link FeatureManager} (data sources are not
+ * thread-safe), as well as a private {@link ReadsDataSource} for traversals that query reads on the workers, while the completion actions are run back on the traversal thread strictly in submission order, so
+ * that output is identical to a single-threaded traversal. The number of units of work queued or in flight is
+ * bounded, so that the traversal thread cannot run arbitrarily far ahead of the workers.
+ *
+ * Not thread-safe: {@link #submit}, {@link #drain} and {@link #close} must all be called from the traversal thread.
+ */
+public final class TraversalWorkerPool implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(TraversalWorkerPool.class);
+
+    private final ExecutorService workers;
+    private final int maxTasksInFlight;
+    private final Deque<PendingTask<?>> pending;
+
+    /**
+     * Private data sources opened on behalf of worker threads, closed by {@link #close}.
+     */
+    private final List<AutoCloseable> workerDataSources = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<ReferenceDataSource> workerReference;
+    private final ThreadLocal<FeatureManager> workerFeatures;
+    private final ThreadLocal<ReadsDataSource> workerReads;
+
+    private static final class PendingTask<T> {
+        private final Future<T> future;
+        private final Consumer<T> onCompletion;
+
+        private PendingTask(final Future<T> future, final Consumer<T> onCompletion) {
+            this.future = future;
+            this.onCompletion = onCompletion;
+        }
+
+        private void complete() {
+            final T result;
+            try {
+                result = future.get();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for a worker thread", e);
+            } catch ( final ExecutionException e ) {
+                if ( e.getCause() instanceof RuntimeException ) {
+                    throw (RuntimeException)e.getCause();
+                }
+                throw new GATKException("Error in worker thread", e.getCause());
+            }
+            onCompletion.accept(result);
+        }
+    }
+
+    /**
+     * @param tool tool whose reference and Feature inputs the workers should open
+     * @param numThreads number of worker threads, must be > 0
+     * @param maxTasksInFlight maximum number of units of work queued or in flight before {@link #submit} blocks, must be > 0
+     * @param threadNamePrefix prefix of the names of the worker threads
+     * @param featureQueryLookahead look ahead this many bases during Feature queries that produce cache misses
+     */
+    public TraversalWorkerPool(final GATKTool tool, final int numThreads, final int maxTasksInFlight, final String threadNamePrefix, final int featureQueryLookahead) {
+        Utils.nonNull(tool);
+        Utils.validateArg(numThreads > 0, "numThreads must be > 0");
+        Utils.validateArg(maxTasksInFlight > 0, "maxTasksInFlight must be > 0");
+
+        this.maxTasksInFlight = maxTasksInFlight;
+        this.pending = new ArrayDeque<>(maxTasksInFlight);
+        workerReference = ThreadLocal.withInitial(() -> registerWorkerDataSource(tool.openReferenceDataSource()));
+        workerFeatures = ThreadLocal.withInitial(() -> registerWorkerDataSource(tool.openFeatureManager(featureQueryLookahead)));
+        workerReads = ThreadLocal.withInitial(() -> registerWorkerDataSource(tool.openReadsDataSource()));
+
+        workers = Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName(threadNamePrefix + "-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * @return the private reference data source of the calling worker thread, or null if the tool has no reference.
+     *         Must only be called from within a task running on this pool.
+     */
+    ReferenceDataSource getWorkerReference() {
+        return workerReference.get();
+    }
+
+    /**
+     * @return the private FeatureManager of the calling worker thread, or null if the tool has no Feature inputs.
+     *         Must only be called from within a task running on this pool.
+     */
+    FeatureManager getWorkerFeatures() {
+        return workerFeatures.get();
+    }
+
+    /**
+     * @return the private reads data source of the calling worker thread, opened on first use, or null if the tool
+     *         has no reads. Must only be called from within a task running on this pool.
+     */
+    ReadsDataSource getWorkerReads() {
+        return workerReads.get();
+    }
+
+    /**
+     * Submit a unit of work to the workers. Before returning, runs the completion actions of all the units of work at
+     * the head of the queue that have finished, blocking on the oldest one while the queue is full.
+     *
+     * @param task work to run on a worker thread
+     * @param onCompletion action to run on the traversal thread with the result of task, in submission order
+     */
+    public <T> void submit(final Callable<T> task, final Consumer<T> onCompletion) {
+        pending.add(new PendingTask<>(workers.submit(task), onCompletion));
+
+        while ( ! pending.isEmpty() && (pending.size() >= maxTasksInFlight || pending.peek().future.isDone()) ) {
+            pending.remove().complete();
+        }
+    }
+
+    /**
+     * Wait for all submitted units of work to finish, running their completion actions in submission order.
+     */
+    public void drain() {
+        while ( ! pending.isEmpty() ) {
+            pending.remove().complete();
+        }
+    }
+
+    private <T extends AutoCloseable> T registerWorkerDataSource(final T dataSource) {
+        if ( dataSource != null ) {
+            workerDataSources.add(dataSource);
+        }
+        return dataSource;
+    }
+
+    /**
+     * Stop the workers, abandoning any outstanding work, and close their data sources.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        pending.clear();
+        synchronized ( workerDataSources ) {
+            for ( final AutoCloseable dataSource : workerDataSources ) {
+                try {
+                    dataSource.close();
+                } catch ( final Exception e ) {
+                    logger.warn("Error closing worker data source", e);
+                }
+            }
+            workerDataSources.clear();
+        }
+    }
+}
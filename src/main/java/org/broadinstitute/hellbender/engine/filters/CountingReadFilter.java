@@ -75,6 +75,16 @@ public class CountingReadFilter extends ReadFilter {
         filteredCount = 0;
     }
 
+    /**
+     * Add the counts of another filter built the same way as this one (for example, the copy used by another
+     * traversal thread) to the counts of this filter, level by level.
+     */
+    public void addFilteredCounts(final CountingReadFilter other) {
+        Utils.nonNull(other);
+        Utils.validateArg(other.getClass() == getClass(), "Filter counts can only be added from a filter with the same structure");
+        filteredCount += other.filteredCount;
+    }
+
     public String getName() {return delegateFilter.getClass().getSimpleName();}
 
     // Returns a summary line with filter counts organized by level
@@ -148,6 +158,12 @@ public class CountingReadFilter extends ReadFilter {
             return accept;
         }
 
+        @Override
+        public void addFilteredCounts(final CountingReadFilter other) {
+            super.addFilteredCounts(other);
+            delegateCountingFilter.addFilteredCounts(((CountingNegateReadFilter) other).delegateCountingFilter);
+        }
+
         @Override
         public String getName() {
             return "Not " + delegateCountingFilter.getName();
@@ -194,6 +210,13 @@ public class CountingReadFilter extends ReadFilter {
             this.rhs.resetFilteredCount();
         }
 
+        @Override
+        public void addFilteredCounts(final CountingReadFilter other) {
+            super.addFilteredCounts(other);
+            this.lhs.addFilteredCounts(((CountingBinopReadFilter) other).lhs);
+            this.rhs.addFilteredCounts(((CountingBinopReadFilter) other).rhs);
+        }
+
         @Override
         public abstract String getName();
     }
@@ -48,7 +48,7 @@ public class AddContextDataToReadSpark {
      * @param reads the coordinate-sorted reads
      * @param referenceSource the reference source
      * @param variants the coordinate-sorted variants
-     * @param variantsPaths the paths to variants files
+     * @param variantsPaths the paths to variants files or known sites indexes
      * @param joinStrategy the strategy to use to join context data to reads
      * @param sequenceDictionary the sequence dictionary for the reads (only used for OVERLAPS_PARTITIONER join strategy, use null otherwise)
      * @param shardSize the maximum size of each shard, in bases (only used for OVERLAPS_PARTITIONER join strategy, use 0 otherwise)
@@ -88,7 +88,7 @@ public class AddContextDataToReadSpark {
      * @param mappedReads the coordinate-sorted reads
      * @param referenceSource the reference source
      * @param variants the coordinate-sorted variants
-     * @param variantsPaths the paths to variants files, if null then the variants RDD is used
+     * @param variantsPaths the paths to variants files or known sites indexes, if null then the variants RDD is used
      * @param sequenceDictionary the sequence dictionary for the reads
      * @param shardSize the maximum size of each shard, in bases
      * @param shardPadding amount of extra context around each shard, in bases
@@ -120,15 +120,15 @@ public class AddContextDataToReadSpark {
                 // get reference bases for this shard (padded)
                 SimpleInterval paddedInterval = shard.getInterval().expandWithinContig(shardPadding, sequenceDictionary);
                 ReferenceBases referenceBases = bReferenceSource.getValue().getReferenceBases(paddedInterval);
-                final IntervalsSkipList<GATKVariant> intervalsSkipList = variantsPaths == null ? variantsBroadcast.getValue() :
-                        KnownSitesCache.getVariants(variantsPaths);
+                final java.util.function.Function<SimpleInterval, List<GATKVariant>> overlapping = variantsPaths == null ?
+                        variantsBroadcast.getValue()::getOverlapping : KnownSitesCache.getVariants(variantsPaths);
                 Iterator<Tuple2<GATKRead, ReadContextData>> transform = Iterators.transform(shard.iterator(), new Function<GATKRead, Tuple2<GATKRead, ReadContextData>>() {
                     @Nullable
                     @Override
                     public Tuple2<GATKRead, ReadContextData> apply(@Nullable GATKRead r) {
                         List<GATKVariant> overlappingVariants;
                         if (SimpleInterval.isValid(r.getContig(), r.getStart(), r.getEnd())) {
-                            overlappingVariants = intervalsSkipList.getOverlapping(new SimpleInterval(r));
+                            overlappingVariants = overlapping.apply(new SimpleInterval(r));
                         } else {
                             //Sometimes we have reads that do not form valid intervals (reads that do not consume any ref bases, eg CIGAR 61S90I
                             //In those cases, we'll just say that nothing overlaps the read
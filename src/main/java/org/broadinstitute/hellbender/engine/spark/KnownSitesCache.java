@@ -4,38 +4,71 @@ import htsjdk.variant.variantcontext.VariantContext;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
 import org.broadinstitute.hellbender.utils.variant.GATKVariant;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesIndex;
 import org.broadinstitute.hellbender.utils.variant.VariantContextVariantAdapter;
 
 import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 /**
  * A cache of known sites by file path, with the property that there is only one copy of each collection of known sites per JVM.
  * This class is an alternative for cases that can't use a Spark broadcast due to its 2GB limitation.
+ *
+ * Paths with the {@link KnownSitesIndex#FILE_EXTENSION} extension are known sites indexes, which are memory-mapped
+ * rather than loaded into the heap, from a copy on local disk if they are on remote storage.
  */
 class KnownSitesCache {
 
     private static final Logger log = LogManager.getLogger(KnownSitesCache.class);
 
-    private static final Map<List<String>, IntervalsSkipList<GATKVariant>> PATHS_TO_VARIANTS = new HashMap<>();
+    private static final Map<List<String>, Function<SimpleInterval, List<GATKVariant>>> PATHS_TO_VARIANTS = new HashMap<>();
 
-    public static synchronized IntervalsSkipList<GATKVariant> getVariants(List<String> paths) {
+    /**
+     * @return a function from an interval to the known sites of the given paths overlapping it
+     */
+    public static synchronized Function<SimpleInterval, List<GATKVariant>> getVariants(List<String> paths) {
         if (PATHS_TO_VARIANTS.containsKey(paths)) {
             return PATHS_TO_VARIANTS.get(paths);
         }
-        IntervalsSkipList<GATKVariant> variants = retrieveVariants(paths);
+        Function<SimpleInterval, List<GATKVariant>> variants = retrieveVariants(paths);
         PATHS_TO_VARIANTS.put(paths, variants);
         return variants;
     }
 
-    private static IntervalsSkipList<GATKVariant> retrieveVariants(List<String> paths) {
-        return new IntervalsSkipList<>(paths
-                .stream()
-                .map(KnownSitesCache::loadFromFeatureDataSource)
-                .flatMap(Collection::stream)
-                .collect(Collectors.toList()));
+    private static Function<SimpleInterval, List<GATKVariant>> retrieveVariants(List<String> paths) {
+        final List<Function<SimpleInterval, List<GATKVariant>>> sources = new ArrayList<>();
+        final List<String> variantPaths = paths.stream().filter(path -> !isKnownSitesIndex(path)).collect(Collectors.toList());
+        if (!variantPaths.isEmpty()) {
+            sources.add(new IntervalsSkipList<>(variantPaths
+                    .stream()
+                    .map(KnownSitesCache::loadFromFeatureDataSource)
+                    .flatMap(Collection::stream)
+                    .collect(Collectors.toList()))::getOverlapping);
+        }
+        paths.stream().filter(KnownSitesCache::isKnownSitesIndex).forEach(path -> {
+            final KnownSitesIndex index = KnownSitesIndex.open(path);
+            log.info("Mapped " + index.size() + " known sites from " + path);
+            sources.add(index::getOverlapping);
+        });
+
+        if (sources.size() == 1) {
+            return sources.get(0);
+        }
+        return interval -> {
+            final List<GATKVariant> overlapping = new ArrayList<>();
+            for (final Function<SimpleInterval, List<GATKVariant>> source : sources) {
+                overlapping.addAll(source.apply(interval));
+            }
+            return overlapping;
+        };
+    }
+
+    private static boolean isKnownSitesIndex(final String path) {
+        return path.endsWith(KnownSitesIndex.FILE_EXTENSION);
     }
 
     private static List<GATKVariant> loadFromFeatureDataSource(String path) {
@@ -139,7 +139,7 @@ import java.util.regex.Pattern;
         programGroup = ReadDataManipulationProgramGroup.class
 )
 @DocumentedFeature
-public final class ClipReads extends ReadWalker {
+public final class ClipReads extends ReadWalker implements ReadWalker.ThreadedTraversal {
 
     private final Logger logger = LogManager.getLogger(ClipReads.class);
 
@@ -319,6 +319,24 @@ public final class ClipReads extends ReadWalker {
         }
     }
 
+    /**
+     * Clips the read on the worker thread; the output and the statistics are only updated by the returned action.
+     */
+    @Override
+    public Runnable applyConcurrently( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
+        if ( onlyDoRead != null && ! read.getName().equals(onlyDoRead) ) {
+            return null;
+        }
+        if ( clippingRepresentation == ClippingRepresentation.HARDCLIP_BASES || clippingRepresentation == ClippingRepresentation.REVERT_SOFTCLIPPED_BASES )
+            read = ReadClipper.revertSoftClippedBases(read);
+        final ReadClipperWithData clipper = new ReadClipperWithData(read, sequencesToClip);
+        clipBadQualityScores(clipper);
+        clipCycles(clipper);
+        clipSequences(clipper);
+        final GATKRead clippedRead = clipper.clipRead(clippingRepresentation);
+        return () -> accumulate(clipper, clippedRead);
+    }
+
     @Override
     public ClippingData onTraversalSuccess(){
         if ( outputStats != null ){
@@ -483,7 +501,10 @@ public final class ClipReads extends ReadWalker {
         if ( clipper == null )
             return;
 
-        GATKRead clippedRead = clipper.clipRead(clippingRepresentation);
+        accumulate(clipper, clipper.clipRead(clippingRepresentation));
+    }
+
+    private void accumulate(final ReadClipperWithData clipper, final GATKRead clippedRead) {
         outputBam.addRead(clippedRead);
 
         accumulator.nTotalReads++;
@@ -83,7 +83,7 @@ import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
         programGroup = ReadDataManipulationProgramGroup.class
 )
 @DocumentedFeature
-public final class PrintReads extends ReadWalker {
+public final class PrintReads extends ReadWalker implements ReadWalker.ThreadedTraversal {
 
     @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
             shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
@@ -101,6 +101,11 @@ public final class PrintReads extends ReadWalker {
         outputWriter.addRead(read);
     }
 
+    @Override
+    public Runnable applyConcurrently( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext ) {
+        return () -> outputWriter.addRead(read);
+    }
+
     @Override
     public void closeTool() {
         if ( outputWriter != null ) {
@@ -63,7 +63,7 @@ import java.util.stream.Collectors;
         oneLineSummary = "Outputs reads from a SAM/BAM/CRAM by read group, sample and library name",
         programGroup = ReadDataManipulationProgramGroup.class
 )
-public final class SplitReads extends ReadWalker {
+public final class SplitReads extends ReadWalker implements ReadWalker.ThreadedTraversal {
 
     public static final String SAMPLE_SHORT_NAME = "SM";
     public static final String READ_GROUP_SHORT_NAME = "RG";
@@ -129,6 +129,12 @@ public final class SplitReads extends ReadWalker {
         outs.computeIfAbsent(getKey(splitters, read), this::createUnknownOutOnDemand).addRead(read);
     }
 
+    @Override
+    public Runnable applyConcurrently( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext ) {
+        final String key = getKey(splitters, read);
+        return () -> outs.computeIfAbsent(key, this::createUnknownOutOnDemand).addRead(read);
+    }
+
     @Override
     public void closeTool() {
         if ( outs != null ) {
@@ -22,6 +22,7 @@ import org.broadinstitute.hellbender.tools.copynumber.formats.collections.Alleli
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.Metadata;
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.MetadataUtils;
 import org.broadinstitute.hellbender.tools.copynumber.formats.metadata.SampleLocatableMetadata;
+import org.broadinstitute.hellbender.tools.copynumber.formats.records.AllelicCount;
 import org.broadinstitute.hellbender.utils.Nucleotide;
 
 import java.io.File;
@@ -79,7 +80,7 @@ import java.util.List;
 )
 @DocumentedFeature
 @BetaFeature
-public final class CollectAllelicCounts extends LocusWalker {
+public final class CollectAllelicCounts extends LocusWalker implements LocusWalker.ThreadedTraversal {
     private static final Logger logger = LogManager.getLogger(CollectAllelicCounts.class);
 
     private static final int DEFAULT_MINIMUM_MAPPING_QUALITY = 30;
@@ -108,6 +109,11 @@ public final class CollectAllelicCounts extends LocusWalker {
         return true;
     }
 
+    @Override
+    protected boolean usePooledPileups() {
+        return true;
+    }
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -151,4 +157,11 @@ public final class CollectAllelicCounts extends LocusWalker {
         final byte refAsByte = referenceContext.getBase();
         allelicCountCollector.collectAtLocus(Nucleotide.decode(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
     }
+
+    @Override
+    public Runnable applyConcurrently(final AlignmentContext alignmentContext, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+        final byte refAsByte = referenceContext.getBase();
+        final AllelicCount allelicCount = AllelicCountCollector.countAtLocus(Nucleotide.decode(refAsByte), alignmentContext.getBasePileup(), alignmentContext.getLocation(), minimumBaseQuality);
+        return allelicCount == null ? null : () -> allelicCountCollector.add(allelicCount);
+    }
 }
@@ -46,6 +46,28 @@ public final class AllelicCountCollector {
      * @param minBaseQuality minimum base quality in the read for that read to count at that position.  Must be greater than or equal to 0.
      */
     public void collectAtLocus(final Nucleotide refBase, final ReadPileup pileup, final Locatable locus, final int minBaseQuality) {
+        final AllelicCount allelicCount = countAtLocus(refBase, pileup, locus, minBaseQuality);
+        if (allelicCount != null) {
+            add(allelicCount);
+        }
+    }
+
+    /**
+     * Add counts computed by {@link #countAtLocus} to this class.
+     *
+     * @param allelicCount counts at a locus.  Not {@code null}
+     */
+    public void add(final AllelicCount allelicCount) {
+        allelicCounts.add(Utils.nonNull(allelicCount));
+    }
+
+    /**
+     * Compute the counts for a specific locus without adding them to this class, so that they can be computed
+     * concurrently for several loci.  Takes the same arguments as {@link #collectAtLocus}.
+     *
+     * @return the counts at the locus, or {@code null} if the reference base is unknown
+     */
+    public static AllelicCount countAtLocus(final Nucleotide refBase, final ReadPileup pileup, final Locatable locus, final int minBaseQuality) {
         Utils.nonNull(refBase);
         Utils.nonNull(pileup);
         Utils.nonNull(locus);
@@ -54,7 +76,7 @@ public final class AllelicCountCollector {
         if (!BASES.contains(refBase)) {
             logger.warn(String.format("The reference position at %s has an unknown base call (value: %s). Skipping...",
                     locus, refBase.toString()));
-            return;
+            return null;
         }
 
         final Nucleotide.Counter nucleotideCounter = new Nucleotide.Counter();
@@ -69,9 +91,9 @@ public final class AllelicCountCollector {
         final int altReadCount = totalBaseCount - refReadCount;                                         //we take alt = total - ref instead of the actual alt count
         final Nucleotide altBase = altReadCount == 0 ? Nucleotide.N : inferAltFromPileupBaseCounts(nucleotideCounter, refBase);
 
-        allelicCounts.add(new AllelicCount(
+        return new AllelicCount(
                 new SimpleInterval(locus.getContig(), locus.getStart(), locus.getEnd()),
-                refReadCount, altReadCount, refBase, altBase));
+                refReadCount, altReadCount, refBase, altBase);
     }
 
     /**
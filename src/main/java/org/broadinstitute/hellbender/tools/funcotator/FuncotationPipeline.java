@@ -0,0 +1,291 @@
+package org.broadinstitute.hellbender.tools.funcotator;
+
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.engine.FeatureContext;
+import org.broadinstitute.hellbender.engine.ReferenceContext;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.BiConsumer;
+import java.util.function.Supplier;
+
+/**
+ * Multi-threaded annotation of variants by a {@link FuncotatorEngine}.
+ *
+ * Variants are grouped into batches of nearby variants. For each batch, the Gencode data sources run first, then every
+ * other data source runs over the whole batch as a separate task on a pool of worker threads, and the results are
+ * assembled into {@link FuncotationMap}s identical to those of {@link FuncotatorEngine#createFuncotationMapForVariant}.
+ * The tasks of a given data source run one batch after another, so that no {@link DataSourceFuncotationFactory} is ever
+ * used by two threads at once, while different data sources (and the Gencode data sources on the next batch) run
+ * concurrently. Since reference data sources are not thread-safe, each worker thread reads the reference through its
+ * own {@link ReferenceDataSource}. Each data source queries its own Feature input, so the {@link FeatureContext}s
+ * created on the traversal thread are shared.
+ *
+ * Annotated variants are handed to the writer on the traversal thread, in input order.
+ *
+ * Not thread-safe: {@link #add}, {@link #flush} and {@link #close} must all be called from the traversal thread.
+ */
+final class FuncotationPipeline implements AutoCloseable {
+    private static final Logger logger = LogManager.getLogger(FuncotationPipeline.class);
+
+    /**
+     * Maximum number of variants in a batch, whatever its span.
+     */
+    private static final int MAX_BATCH_SIZE = 1000;
+
+    private final FuncotatorEngine engine;
+    private final List<DataSourceFuncotationFactory> nonGencodeFactories;
+    private final BiConsumer<VariantContext, FuncotationMap> writer;
+    private final int batchWindowInBp;
+    private final int maxBatchesInFlight;
+
+    private final ExecutorService workers;
+    private final List<ReferenceDataSource> workerReferences = Collections.synchronizedList(new ArrayList<>());
+    private final ThreadLocal<ReferenceDataSource> workerReference;
+
+    /**
+     * Batches submitted to the workers and not yet written, in input order.
+     */
+    private final Deque<CompletableFuture<Batch>> pending = new ArrayDeque<>();
+
+    /**
+     * The last task of the Gencode data sources, and of each other data source, so that the next batch is
+     * only started once the previous one is done with the data source.
+     */
+    private CompletableFuture<?> lastGencodeTask = CompletableFuture.completedFuture(null);
+    private final List<CompletableFuture<?>> lastFactoryTasks = new ArrayList<>();
+
+    private Batch currentBatch = null;
+
+    /**
+     * @param engine engine whose data sources annotate the variants
+     * @param writer action run on the traversal thread on each annotated variant, in input order
+     * @param referenceSupplier opens a new, independent reference data source for a worker thread
+     * @param numThreads number of worker threads, must be > 0
+     * @param batchWindowInBp maximum span of a batch of variants, must be > 0
+     */
+    FuncotationPipeline(final FuncotatorEngine engine,
+                        final BiConsumer<VariantContext, FuncotationMap> writer,
+                        final Supplier<ReferenceDataSource> referenceSupplier,
+                        final int numThreads,
+                        final int batchWindowInBp) {
+        this.engine = Utils.nonNull(engine);
+        this.writer = Utils.nonNull(writer);
+        Utils.nonNull(referenceSupplier);
+        Utils.validateArg(numThreads > 0, "numThreads must be > 0");
+        Utils.validateArg(batchWindowInBp > 0, "batchWindowInBp must be > 0");
+
+        this.batchWindowInBp = batchWindowInBp;
+        this.maxBatchesInFlight = 2 * numThreads;
+        nonGencodeFactories = engine.getNonGencodeFuncotationFactories();
+        for ( int i = 0; i < nonGencodeFactories.size(); i++ ) {
+            lastFactoryTasks.add(CompletableFuture.completedFuture(null));
+        }
+
+        workerReference = ThreadLocal.withInitial(() -> {
+            final ReferenceDataSource reference = referenceSupplier.get();
+            workerReferences.add(reference);
+            return reference;
+        });
+        workers = Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("Funcotator-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+        logger.info("Annotating variants using " + numThreads + " worker threads");
+    }
+
+    /**
+     * Queue a variant for annotation. Before returning, writes the variants of all the batches at the head of the queue
+     * that have been annotated, blocking on the oldest one while too many batches are in flight.
+     */
+    void add(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+        if ( currentBatch != null && ! currentBatch.accepts(variant) ) {
+            submit(currentBatch);
+            currentBatch = null;
+        }
+        if ( currentBatch == null ) {
+            currentBatch = new Batch(variant.getContig(), variant.getStart());
+        }
+        currentBatch.add(variant, referenceContext, featureContext);
+
+        while ( ! pending.isEmpty() && (pending.size() > maxBatchesInFlight || pending.peek().isDone()) ) {
+            write(pending.remove());
+        }
+    }
+
+    /**
+     * Annotate and write all the queued variants.
+     */
+    void flush() {
+        if ( currentBatch != null ) {
+            submit(currentBatch);
+            currentBatch = null;
+        }
+        while ( ! pending.isEmpty() ) {
+            write(pending.remove());
+        }
+    }
+
+    private void submit(final Batch batch) {
+        final CompletableFuture<List<FuncotationMap>> gencodeTask =
+                lastGencodeTask.thenApplyAsync(ignored -> batch.createGencodeFuncotationMaps(), workers);
+        lastGencodeTask = gencodeTask;
+
+        final List<CompletableFuture<List<List<List<Funcotation>>>>> factoryTasks = new ArrayList<>(nonGencodeFactories.size());
+        for ( int i = 0; i < nonGencodeFactories.size(); i++ ) {
+            final DataSourceFuncotationFactory factory = nonGencodeFactories.get(i);
+            final CompletableFuture<List<List<List<Funcotation>>>> factoryTask =
+                    gencodeTask.thenCombineAsync(lastFactoryTasks.get(i), (funcotationMaps, ignored) -> batch.createFuncotations(factory, funcotationMaps), workers);
+            lastFactoryTasks.set(i, factoryTask);
+            factoryTasks.add(factoryTask);
+        }
+
+        final CompletableFuture<?>[] allTasks = new CompletableFuture<?>[factoryTasks.size() + 1];
+        factoryTasks.toArray(allTasks);
+        allTasks[factoryTasks.size()] = gencodeTask;
+        pending.add(CompletableFuture.allOf(allTasks).thenApply(ignored -> {
+            final List<List<List<List<Funcotation>>>> factoryFuncotations = new ArrayList<>(factoryTasks.size());
+            for ( final CompletableFuture<List<List<List<Funcotation>>>> factoryTask : factoryTasks ) {
+                factoryFuncotations.add(factoryTask.join());
+            }
+            batch.assemble(gencodeTask.join(), factoryFuncotations);
+            return batch;
+        }));
+    }
+
+    private void write(final CompletableFuture<Batch> batchTask) {
+        final Batch batch;
+        try {
+            batch = batchTask.join();
+        } catch ( final CompletionException e ) {
+            if ( e.getCause() instanceof RuntimeException ) {
+                throw (RuntimeException)e.getCause();
+            }
+            throw new GATKException("Error in Funcotator worker thread", e.getCause());
+        }
+        for ( int i = 0; i < batch.variants.size(); i++ ) {
+            writer.accept(batch.variants.get(i), batch.funcotationMaps.get(i));
+        }
+    }
+
+    /**
+     * Stop the workers, abandoning any outstanding work, and close their reference data sources.
+     */
+    @Override
+    public void close() {
+        workers.shutdownNow();
+        pending.clear();
+        synchronized ( workerReferences ) {
+            for ( final ReferenceDataSource reference : workerReferences ) {
+                if ( reference != null ) {
+                    reference.close();
+                }
+            }
+            workerReferences.clear();
+        }
+    }
+
+    /**
+     * Variants on the same contig within a window of {@link #batchWindowInBp} bases, annotated together.
+     */
+    private final class Batch {
+        private final String contig;
+        private final int windowStart;
+        private final List<VariantContext> variants = new ArrayList<>();
+        private final List<ReferenceContext> referenceContexts = new ArrayList<>();
+        private final List<FeatureContext> featureContexts = new ArrayList<>();
+        private List<FuncotationMap> funcotationMaps;
+
+        private Batch(final String contig, final int windowStart) {
+            this.contig = contig;
+            this.windowStart = windowStart;
+        }
+
+        private boolean accepts(final VariantContext variant) {
+            return variants.size() < MAX_BATCH_SIZE && contig.equals(variant.getContig()) &&
+                    variant.getStart() >= windowStart && variant.getStart() - windowStart < batchWindowInBp;
+        }
+
+        private void add(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
+            variants.add(variant);
+            referenceContexts.add(referenceContext);
+            featureContexts.add(featureContext);
+        }
+
+        /**
+         * @return the reference context of the i-th variant, reading from the private reference of the calling worker thread
+         */
+        private ReferenceContext getWorkerReferenceContext(final int i) {
+            final ReferenceContext referenceContext = referenceContexts.get(i);
+            return new ReferenceContext(workerReference.get(), referenceContext.getInterval(), referenceContext.getWindow());
+        }
+
+        /**
+         * Runs on a worker thread.
+         * @return a {@link FuncotationMap} holding the Gencode funcotations of each variant
+         */
+        private List<FuncotationMap> createGencodeFuncotationMaps() {
+            final List<FuncotationMap> maps = new ArrayList<>(variants.size());
+            for ( int i = 0; i < variants.size(); i++ ) {
+                final List<GencodeFuncotation> transcriptFuncotations =
+                        engine.createGencodeFuncotations(variants.get(i), getWorkerReferenceContext(i), featureContexts.get(i));
+                maps.add(FuncotationMap.createFromGencodeFuncotations(transcriptFuncotations));
+            }
+            return maps;
+        }
+
+        /**
+         * Runs on a worker thread. Only reads the given Gencode {@link FuncotationMap}s.
+         * @return the funcotations created by the given data source for each transcript of each variant
+         */
+        private List<List<List<Funcotation>>> createFuncotations(final DataSourceFuncotationFactory factory, final List<FuncotationMap> gencodeFuncotationMaps) {
+            final List<List<List<Funcotation>>> funcotations = new ArrayList<>(variants.size());
+            for ( int i = 0; i < variants.size(); i++ ) {
+                final FuncotationMap funcotationMap = gencodeFuncotationMaps.get(i);
+                final ReferenceContext referenceContext = getWorkerReferenceContext(i);
+                final List<List<Funcotation>> variantFuncotations = new ArrayList<>();
+                for ( final String txId : funcotationMap.getTranscriptList() ) {
+                    variantFuncotations.add(factory.createFuncotations(variants.get(i), referenceContext,
+                            featureContexts.get(i), funcotationMap.getGencodeFuncotations(txId)));
+                }
+                funcotations.add(variantFuncotations);
+            }
+            return funcotations;
+        }
+
+        /**
+         * Adds the funcotations of all the data sources to the Gencode {@link FuncotationMap}s, in the same order
+         * as {@link FuncotatorEngine#createFuncotationMapForVariant}.
+         */
+        private void assemble(final List<FuncotationMap> gencodeFuncotationMaps, final List<List<List<List<Funcotation>>>> factoryFuncotations) {
+            for ( int i = 0; i < variants.size(); i++ ) {
+                final FuncotationMap funcotationMap = gencodeFuncotationMaps.get(i);
+                final List<String> txIds = funcotationMap.getTranscriptList();
+                for ( final List<List<List<Funcotation>>> funcotations : factoryFuncotations ) {
+                    for ( int t = 0; t < txIds.size(); t++ ) {
+                        funcotationMap.add(txIds.get(t), funcotations.get(i).get(t));
+                    }
+                }
+                engine.addInputFuncotations(variants.get(i), funcotationMap);
+            }
+            funcotationMaps = gencodeFuncotationMaps;
+        }
+    }
+}
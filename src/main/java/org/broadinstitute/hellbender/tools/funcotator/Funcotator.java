@@ -214,6 +214,11 @@ public class Funcotator extends VariantWalker {
 
     private FuncotatorEngine funcotatorEngine;
 
+    /**
+     * Annotates variants on worker threads when {@link FuncotatorArgumentCollection#threads} is more than 1, null otherwise.
+     */
+    private FuncotationPipeline funcotationPipeline;
+
     //==================================================================================================================
 
     /**
@@ -287,6 +292,16 @@ public class Funcotator extends VariantWalker {
                 getDefaultToolVCFHeaderLines(),
                 this
         );
+
+        if ( funcotatorArgs.threads > 1 ) {
+            funcotationPipeline = new FuncotationPipeline(
+                    funcotatorEngine,
+                    outputRenderer::write,
+                    () -> ReferenceDataSource.of(referenceArguments.getReferencePath()),
+                    funcotatorArgs.threads,
+                    funcotatorArgs.batchWindowInBp
+            );
+        }
     }
 
     /**
@@ -339,11 +354,18 @@ public class Funcotator extends VariantWalker {
 
     @Override
     public Object onTraversalSuccess() {
+        if ( funcotationPipeline != null ) {
+            funcotationPipeline.flush();
+        }
         return true;
     }
 
     @Override
     public void closeTool() {
+        if ( funcotationPipeline != null ) {
+            funcotationPipeline.close();
+        }
+
         if ( funcotatorEngine != null) {
             funcotatorEngine.close();
         }
@@ -363,6 +385,11 @@ public class Funcotator extends VariantWalker {
      */
     private void enqueueAndHandleVariant(final VariantContext variant, final ReferenceContext referenceContext, final FeatureContext featureContext) {
 
+        if ( funcotationPipeline != null ) {
+            funcotationPipeline.add(variant, referenceContext, featureContext);
+            return;
+        }
+
         final FuncotationMap funcotationMap = funcotatorEngine.createFuncotationMapForVariant(variant, referenceContext, featureContext);
 
         // At this point there is only one transcript ID in the funcotation map if canonical or best effect are selected
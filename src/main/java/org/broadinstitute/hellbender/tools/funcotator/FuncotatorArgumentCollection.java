@@ -108,4 +108,21 @@ public class FuncotatorArgumentCollection implements Serializable {
             doc = "Fields that should not be rendered in the final output.  Only exact name matches will be excluded."
     )
     public Set<String> excludedFields = new HashSet<>();
+
+    @Argument(
+            fullName = StandardArgumentDefinitions.THREADS_LONG_NAME,
+            optional = true,
+            minValue = 1,
+            doc = "Number of worker threads used to annotate variants.  With more than one thread, the data sources annotate batches of nearby variants concurrently.  Output is identical regardless of the number of threads."
+    )
+    public int threads = FuncotatorArgumentDefinitions.THREADS_DEFAULT_VALUE;
+
+    @Advanced
+    @Argument(
+            fullName = FuncotatorArgumentDefinitions.BATCH_WINDOW_IN_BP_NAME,
+            optional = true,
+            minValue = 1,
+            doc = "Maximum span in base-pairs of a batch of variants annotated together when using more than one thread."
+    )
+    public int batchWindowInBp = FuncotatorArgumentDefinitions.BATCH_WINDOW_IN_BP_DEFAULT_VALUE;
 }
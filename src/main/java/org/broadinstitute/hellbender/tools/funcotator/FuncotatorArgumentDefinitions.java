@@ -61,6 +61,11 @@ public class FuncotatorArgumentDefinitions {
 
     public static final String FORCE_B37_TO_HG19_REFERENCE_CONTIG_CONVERSION = "force-b37-to-hg19-reference-contig-conversion";
 
+    public static final int THREADS_DEFAULT_VALUE = 1;
+
+    public static final String BATCH_WINDOW_IN_BP_NAME = "batch-window-bp";
+    public static final int BATCH_WINDOW_IN_BP_DEFAULT_VALUE = 100_000;
+
     // ------------------------------------------------------------
     // Helper Types:
 
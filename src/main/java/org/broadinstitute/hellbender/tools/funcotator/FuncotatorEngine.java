@@ -121,14 +121,7 @@ public final class FuncotatorEngine implements AutoCloseable {
         //==============================================================================================================
         // First create only the transcript (Gencode) funcotations:
 
-        if (retrieveGencodeFuncotationFactoryStream().count() > 1) {
-            logger.warn("Attempting to annotate with more than one GENCODE datasource.  If these have overlapping transcript IDs, errors may occur.");
-        }
-
-        final List<GencodeFuncotation> transcriptFuncotations = retrieveGencodeFuncotationFactoryStream()
-                .map(gf -> gf.createFuncotations(variantContext, referenceContext, featureContext))
-                .flatMap(List::stream)
-                .map(gf -> (GencodeFuncotation) gf).collect(Collectors.toList());
+        final List<GencodeFuncotation> transcriptFuncotations = createGencodeFuncotations(variantContext, referenceContext, featureContext);
 
         //==============================================================================================================
         // Create the funcotations for non-Gencode data sources:
@@ -137,29 +130,66 @@ public final class FuncotatorEngine implements AutoCloseable {
         final FuncotationMap funcotationMap = FuncotationMap.createFromGencodeFuncotations(transcriptFuncotations);
 
         // Perform the rest of the annotation.  Note that this code manually excludes the Gencode Funcotations.
-        for (final DataSourceFuncotationFactory funcotationFactory : dataSourceFactories ) {
-
-            // Note that this guarantees that we do not add GencodeFuncotations a second time.
-            if (!funcotationFactory.getType().equals(FuncotatorArgumentDefinitions.DataSourceType.GENCODE)) {
-                final List<String> txIds = funcotationMap.getTranscriptList();
+        for (final DataSourceFuncotationFactory funcotationFactory : getNonGencodeFuncotationFactories() ) {
+            final List<String> txIds = funcotationMap.getTranscriptList();
 
-                for (final String txId: txIds) {
-                    funcotationMap.add(txId, funcotationFactory.createFuncotations(variantContext, referenceContext,
-                            featureContext, funcotationMap.getGencodeFuncotations(txId)));
-                }
+            for (final String txId: txIds) {
+                funcotationMap.add(txId, funcotationFactory.createFuncotations(variantContext, referenceContext,
+                        featureContext, funcotationMap.getGencodeFuncotations(txId)));
             }
         }
 
         //==============================================================================================================
         // Create the funcotations for the input and add to all txID mappings.
 
+        addInputFuncotations(variantContext, funcotationMap);
+
+        return funcotationMap;
+    }
+
+    /**
+     * Creates the transcript (Gencode) {@link Funcotation}s for the given {@code variantContext}, which the other
+     * data sources need in order to create their {@link Funcotation}s.
+     *
+     * @param variantContext   {@link VariantContext} to annotate.  Never {@code null}.
+     * @param referenceContext {@link ReferenceContext} corresponding to the given {@code variantContext}.  Never {@code null}.
+     * @param featureContext {@link FeatureContext} corresponding to the given {@code variantContext}.  Never {@code null}.
+     * @return The {@link GencodeFuncotation}s created by all the Gencode data sources.
+     */
+    List<GencodeFuncotation> createGencodeFuncotations(final VariantContext variantContext,
+                                                       final ReferenceContext referenceContext,
+                                                       final FeatureContext featureContext) {
+        if (retrieveGencodeFuncotationFactoryStream().count() > 1) {
+            logger.warn("Attempting to annotate with more than one GENCODE datasource.  If these have overlapping transcript IDs, errors may occur.");
+        }
+
+        return retrieveGencodeFuncotationFactoryStream()
+                .map(gf -> gf.createFuncotations(variantContext, referenceContext, featureContext))
+                .flatMap(List::stream)
+                .map(gf -> (GencodeFuncotation) gf).collect(Collectors.toList());
+    }
+
+    /**
+     * @return The {@link DataSourceFuncotationFactory}s other than the Gencode ones, in the order in which their
+     *         {@link Funcotation}s are added to a {@link FuncotationMap}.
+     */
+    List<DataSourceFuncotationFactory> getNonGencodeFuncotationFactories() {
+        return dataSourceFactories.stream()
+                .filter(f -> !f.getType().equals(FuncotatorArgumentDefinitions.DataSourceType.GENCODE))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Adds the {@link Funcotation}s created from the input variant itself to every transcript of the given {@code funcotationMap}.
+     * @param variantContext {@link VariantContext} being annotated.  Never {@code null}.
+     * @param funcotationMap {@link FuncotationMap} holding all other {@link Funcotation}s for the given {@code variantContext}.
+     */
+    void addInputFuncotations(final VariantContext variantContext, final FuncotationMap funcotationMap) {
         final List<String> txIds = funcotationMap.getTranscriptList();
 
         for (final String txId: txIds) {
             funcotationMap.add(txId, FuncotatorUtils.createFuncotations(variantContext, inputMetadata, FuncotatorConstants.DATASOURCE_NAME_FOR_INPUT_VCFS));
         }
-
-        return funcotationMap;
     }
 
     /**
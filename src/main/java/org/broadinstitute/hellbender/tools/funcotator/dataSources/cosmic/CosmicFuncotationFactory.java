@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.funcotator.dataSources.cosmic;
 
 import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.tribble.Feature;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.VariantContext;
@@ -16,6 +17,7 @@ import org.broadinstitute.hellbender.tools.funcotator.dataSources.TableFuncotati
 import org.broadinstitute.hellbender.tools.funcotator.dataSources.gencode.GencodeFuncotation;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
 import org.sqlite.SQLiteConfig;
 
 import java.nio.file.Path;
@@ -91,10 +93,15 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     private static final String FIELD_NAME_QUERY = "SELECT * FROM " + TABLE_NAME + " LIMIT 1;";
 
     /**
-     * Template for results query for matching genes in the database.
+     * Results query for matching genes in the database, with the gene name as its only parameter.
      */
-    private static final String RESULT_QUERY_TEMPLATE = "SELECT * FROM " + TABLE_NAME + " WHERE \""
-            + GENE_NAME_COLUMN + "\" == ";
+    private static final String RESULT_QUERY = "SELECT * FROM " + TABLE_NAME + " WHERE \""
+            + GENE_NAME_COLUMN + "\" == ?;";
+
+    /**
+     * Default maximum number of genes whose COSMIC records are kept in memory.
+     */
+    private static final int DEFAULT_GENE_CACHE_SIZE = 2000;
 
     //==================================================================================================================
     // Private Members:
@@ -114,6 +121,16 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
      */
     private final Connection dbConnection;
 
+    /**
+     * The prepared query for the COSMIC records of a gene, used when a gene is not in {@link #geneRecordsCache}.
+     */
+    private final PreparedStatement geneQueryStatement;
+
+    /**
+     * The indexed COSMIC records of the most recently used genes, keyed by gene name, in least-recently-used order.
+     */
+    private final Map<String, CosmicGeneRecords> geneRecordsCache;
+
     /**
      * The ordered set of fields that this {@link CosmicFuncotationFactory} supports.
      */
@@ -129,6 +146,15 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     public CosmicFuncotationFactory(final Path pathToCosmicDb,
                                     final LinkedHashMap<String, String> annotationOverridesMap,
                                     final String version) {
+        this(pathToCosmicDb, annotationOverridesMap, version, DEFAULT_GENE_CACHE_SIZE);
+    }
+
+    @VisibleForTesting
+    CosmicFuncotationFactory(final Path pathToCosmicDb,
+                             final LinkedHashMap<String, String> annotationOverridesMap,
+                             final String version,
+                             final int geneCacheSize) {
+        Utils.validateArg(geneCacheSize > 0, "geneCacheSize must be > 0");
 
         this.pathToCosmicDb = pathToCosmicDb;
         this.version = version;
@@ -145,6 +171,8 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
             logger.debug("Connecting to SQLite database at: " + pathToCosmicDb.toUri().toString());
             dbConnection = DriverManager.getConnection("jdbc:sqlite:" + pathToCosmicDb.toUri().toString(), config.toProperties());
             logger.debug("Connected to SQLite database!");
+
+            geneQueryStatement = dbConnection.prepareStatement(RESULT_QUERY);
         }
         catch (final SQLException ex) {
             throw new UserException("Unable to open SQLite DB for COSMIC at: " + pathToCosmicDb.toUri().toString(), ex);
@@ -157,6 +185,16 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         supportedFields = new LinkedHashSet<>(1);
         supportedFields.add(name + "_overlapping_mutations");
 
+        // Keep the records of the most recently used genes:
+        geneRecordsCache = new LinkedHashMap<String, CosmicGeneRecords>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<String, CosmicGeneRecords> eldest) {
+                return size() > geneCacheSize;
+            }
+        };
+
         // Initialize our annotation overrides:
         initializeAnnotationOverrides(annotationOverridesMap);
     }
@@ -174,6 +212,7 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     public void close() {
         if (dbConnection != null) {
             try {
+                geneQueryStatement.close();
                 dbConnection.close();
             }
             catch (final SQLException ex) {
@@ -248,41 +287,18 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
                 proteinPosition = null;
             }
 
-            try {
-                try ( final Statement statement = dbConnection.createStatement() ) {
-                    try ( final ResultSet resultSet = statement.executeQuery(RESULT_QUERY_TEMPLATE + "\"" + geneName + "\";") ) {
-                        // iterate through our results:
-                        while ( resultSet.next() ) {
-
-                            // Get the genome position:
-                            final SimpleInterval cosmicGenomePosition = getGenomePositionFromResults(resultSet);
-
-                            // Try to match on genome position first:
-                            if ( cosmicGenomePosition != null ) {
-                                if ( genomePosition.overlaps(cosmicGenomePosition) ) {
-                                    // If we overlap the records, we get the protein change and add it to the map:
-                                    updateProteinChangeCountMap(proteinChangeCounts, resultSet);
-                                    continue;
-                                }
-                            }
-
-                            // Get the protein position:
-                            final SimpleInterval cosmicProteinPosition = getProteinPositionFromResults(resultSet);
-
-                            // Now try to match on protein position:
-                            if ( proteinPosition != null ) {
-                                // If we overlap the records, we update the counter:
-                                if ( proteinPosition.overlaps(cosmicProteinPosition) ) {
-                                    updateProteinChangeCountMap(proteinChangeCounts, resultSet);
-                                }
-                            }
-                            // NOTE: We can't annotate if the protein position is null.
-                        }
-                    }
-                }
+            // Get the records that overlap either position, in database order:
+            final CosmicGeneRecords geneRecords = getGeneRecords(geneName);
+            final BitSet overlappingRecords = new BitSet(geneRecords.size());
+            geneRecords.addOverlappingGenomePositions(genomePosition, overlappingRecords);
+            // NOTE: We can't annotate on protein position if the protein position is null.
+            if ( proteinPosition != null ) {
+                geneRecords.addOverlappingProteinPositions(proteinPosition, overlappingRecords);
             }
-            catch (final SQLException ex) {
-                throw new GATKException("Unable to query the database for geneName: " + geneName, ex);
+
+            // If we overlap the records, we get the protein change and add it to the map:
+            for ( int i = overlappingRecords.nextSetBit(0); i >= 0; i = overlappingRecords.nextSetBit(i + 1) ) {
+                updateProteinChangeCountMap(proteinChangeCounts, geneRecords.getProteinChange(i));
             }
         }
 
@@ -303,8 +319,7 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         return outputFuncotations;
     }
 
-    private void updateProteinChangeCountMap(final Map<String, Integer> proteinChangeCounts, final ResultSet resultSet) {
-        final String proteinChange = getProteinChangeStringFromResults(resultSet);
+    private static void updateProteinChangeCountMap(final Map<String, Integer> proteinChangeCounts, final String proteinChange) {
         if ( !proteinChange.isEmpty() ) {
             final int count = proteinChangeCounts.getOrDefault(proteinChange, 0);
             proteinChangeCounts.put(proteinChange, count + 1);
@@ -322,6 +337,58 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     //==================================================================================================================
     // Instance Methods:
 
+    /**
+     * Get the indexed COSMIC records of the given gene, from {@link #geneRecordsCache} or, if absent, from the database.
+     * @param geneName The name of the gene whose records to get.
+     * @return The {@link CosmicGeneRecords} of the given gene.  Will not be {@code null}.
+     */
+    private CosmicGeneRecords getGeneRecords(final String geneName) {
+        CosmicGeneRecords geneRecords = geneRecordsCache.get(geneName);
+        if ( geneRecords == null ) {
+            geneRecords = queryGeneRecords(geneName);
+            geneRecordsCache.put(geneName, geneRecords);
+        }
+        return geneRecords;
+    }
+
+    /**
+     * Query the database for the COSMIC records of the given gene, and index their genome and protein positions.
+     * @param geneName The name of the gene whose records to get.
+     * @return The {@link CosmicGeneRecords} of the given gene.  Will not be {@code null}.
+     */
+    private CosmicGeneRecords queryGeneRecords(final String geneName) {
+        final List<String> proteinChanges = new ArrayList<>();
+        final List<IndexedPosition> genomePositions = new ArrayList<>();
+        final List<IndexedPosition> proteinPositions = new ArrayList<>();
+
+        try {
+            geneQueryStatement.setString(1, geneName);
+            try ( final ResultSet resultSet = geneQueryStatement.executeQuery() ) {
+                // iterate through our results:
+                while ( resultSet.next() ) {
+                    final int recordIndex = proteinChanges.size();
+                    final String proteinChange = getProteinChangeStringFromResults(resultSet);
+                    proteinChanges.add(proteinChange);
+
+                    final SimpleInterval cosmicGenomePosition = getGenomePositionFromResults(resultSet);
+                    if ( cosmicGenomePosition != null ) {
+                        genomePositions.add(new IndexedPosition(cosmicGenomePosition, recordIndex));
+                    }
+
+                    final SimpleInterval cosmicProteinPosition = parseProteinString(proteinChange);
+                    if ( cosmicProteinPosition != null ) {
+                        proteinPositions.add(new IndexedPosition(cosmicProteinPosition, recordIndex));
+                    }
+                }
+            }
+        }
+        catch (final SQLException ex) {
+            throw new GATKException("Unable to query the database for geneName: " + geneName, ex);
+        }
+
+        return new CosmicGeneRecords(proteinChanges, genomePositions, proteinPositions);
+    }
+
     /**
      * Get the genome position of the current record in the given {@link ResultSet}.
      * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
@@ -364,15 +431,6 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
         return null;
     }
 
-    /**
-     * Pulls a protein change / protein position out of the current record in the given {@link ResultSet}.
-     * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
-     * @return A {@link SimpleInterval} representing the extents of the protein position in the current record in the given {@link ResultSet} or {@code null}.
-     */
-    private SimpleInterval getProteinPositionFromResults(final ResultSet resultSet) {
-        return parseProteinString( getProteinChangeStringFromResults(resultSet) );
-    }
-
     /**
      * Pulls a protein change string out of the current record in the given {@link ResultSet}.
      * @param resultSet The results of a query on the database with a current row (must not be {@code null}).
@@ -448,4 +506,64 @@ public class CosmicFuncotationFactory extends DataSourceFuncotationFactory {
     //==================================================================================================================
     // Helper Data Types:
 
+    /**
+     * A genome or protein position of the COSMIC record at a given index in the records of a gene.
+     */
+    private static final class IndexedPosition implements Locatable {
+        private final SimpleInterval position;
+        private final int recordIndex;
+
+        private IndexedPosition(final SimpleInterval position, final int recordIndex) {
+            this.position = position;
+            this.recordIndex = recordIndex;
+        }
+
+        @Override
+        public String getContig() {
+            return position.getContig();
+        }
+
+        @Override
+        public int getStart() {
+            return position.getStart();
+        }
+
+        @Override
+        public int getEnd() {
+            return position.getEnd();
+        }
+    }
+
+    /**
+     * The COSMIC records of a gene, in database order, with their genome and protein positions indexed for overlap queries.
+     */
+    private static final class CosmicGeneRecords {
+        private final List<String> proteinChanges;
+        private final IntervalsSkipList<IndexedPosition> genomePositions;
+        private final IntervalsSkipList<IndexedPosition> proteinPositions;
+
+        private CosmicGeneRecords(final List<String> proteinChanges,
+                                  final List<IndexedPosition> genomePositions,
+                                  final List<IndexedPosition> proteinPositions) {
+            this.proteinChanges = proteinChanges;
+            this.genomePositions = new IntervalsSkipList<>(genomePositions);
+            this.proteinPositions = new IntervalsSkipList<>(proteinPositions);
+        }
+
+        private int size() {
+            return proteinChanges.size();
+        }
+
+        private String getProteinChange(final int recordIndex) {
+            return proteinChanges.get(recordIndex);
+        }
+
+        private void addOverlappingGenomePositions(final SimpleInterval genomePosition, final BitSet recordIndices) {
+            genomePositions.getOverlapping(genomePosition).forEach(p -> recordIndices.set(p.recordIndex));
+        }
+
+        private void addOverlappingProteinPositions(final SimpleInterval proteinPosition, final BitSet recordIndices) {
+            proteinPositions.getOverlapping(proteinPosition).forEach(p -> recordIndices.set(p.recordIndex));
+        }
+    }
 }
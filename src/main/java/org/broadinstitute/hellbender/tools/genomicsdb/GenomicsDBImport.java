@@ -29,6 +29,7 @@ import org.broadinstitute.hellbender.cmdline.programgroups.ShortVariantDiscovery
 import org.broadinstitute.hellbender.engine.GATKTool;
 import org.broadinstitute.hellbender.exceptions.GATKException;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.IntervalUtils;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
@@ -103,6 +104,18 @@ import java.util.stream.Collectors;
  *       --reader-threads 5
  *  </pre>
  *
+ *  Import several intervals concurrently. Each interval is imported into its own GenomicsDB array by its own worker.
+ *
+ *  <pre>
+ *    gatk --java-options "-Xmx16g -Xms16g" \
+ *       GenomicsDBImport \
+ *       --genomicsdb-workspace-path my_database \
+ *       -L intervals.list \
+ *       --sample-name-map cohort.sample_map \
+ *       --tmp-dir=/path/to/large/tmp \
+ *       --max-num-intervals-to-import-in-parallel 4
+ *  </pre>
+ *
  *  The sample map is a tab-delimited text file with sample_name--tab--path_to_sample_vcf per line. Using a sample map
  *  saves the tool from having to download the GVCF headers in order to determine the sample names. Sample names in
  *  the sample name map file may have non-tab whitespace, but may not begin or end with whitespace.
@@ -136,6 +149,10 @@ public final class GenomicsDBImport extends GATKTool {
     private static final long DEFAULT_VCF_BUFFER_SIZE_PER_SAMPLE = 16*1024L;
     private static final long DEFAULT_SEGMENT_SIZE = 1048576L;
     private static final int DEFAULT_ZERO_BATCH_SIZE = 0;
+    // Rough heap footprint of an open GVCF reader on top of its GenomicsDB buffer: codec, index and stream buffers
+    private static final long ESTIMATED_READER_MEMORY_OVERHEAD = 1024*1024L;
+    // Fraction of the max heap that the readers of the intervals imported in parallel may take when sizing batches
+    private static final double MAX_HEAP_FRACTION_FOR_READERS = 0.5;
 
     public static final String WORKSPACE_ARG_LONG_NAME = "genomicsdb-workspace-path";
     public static final String SEGMENT_SIZE_ARG_LONG_NAME = "genomicsdb-segment-size";
@@ -194,7 +211,8 @@ public final class GenomicsDBImport extends GATKTool {
               doc = "Batch size controls the number of samples for which readers are open at once " +
                     "and therefore provides a way to minimize memory consumption. However, it can take longer to complete. " +
                     "Use the consolidate flag if more than a hundred batches were used. This will improve feature read time. " +
-                    "batchSize=0 means no batching (i.e. readers for all samples will be opened at once) " +
+                    "batchSize=0 means no batching (i.e. readers for all samples will be opened at once), unless several " +
+                    "intervals are imported in parallel, in which case the batches are made as large as the available memory allows. " +
                     "Defaults to " + DEFAULT_ZERO_BATCH_SIZE,
               optional = true)
     private int batchSize = DEFAULT_ZERO_BATCH_SIZE;
@@ -242,8 +260,8 @@ public final class GenomicsDBImport extends GATKTool {
     @Advanced
     @Argument(fullName = MAX_NUM_INTERVALS_TO_IMPORT_IN_PARALLEL,
             shortName = MAX_NUM_INTERVALS_TO_IMPORT_IN_PARALLEL,
-            doc = "Max number of intervals to import in parallel; higher values may improve performance, but require more" +
-                  " memory and a higher number of file descriptors open at the same time",
+            doc = "Max number of intervals to import in parallel, each into its own array by its own worker; higher values " +
+                  "may improve performance, but require more memory and a higher number of file descriptors open at the same time",
             optional = true,
             minValue = 1)
     private int maxNumIntervalsToImportInParallel = 1;
@@ -251,6 +269,9 @@ public final class GenomicsDBImport extends GATKTool {
     //executor service used when vcfInitializerThreads > 1
     private ExecutorService inputPreloadExecutorService;
 
+    //executor service used when maxNumIntervalsToImportInParallel > 1 and there is more than one interval
+    private ExecutorService intervalImportExecutorService;
+
     @Override
     public boolean requiresIntervals() { return true; }
 
@@ -275,7 +296,7 @@ public final class GenomicsDBImport extends GATKTool {
     @Override
     public String getProgressMeterRecordLabel() { return "batches"; }
 
-    // Intervals from command line (singleton for now)
+    // Intervals from command line, each of which is imported into its own array
     private List<ChromosomeInterval> intervals;
 
     // Sorted mapping between sample names and corresponding GVCF file name
@@ -306,9 +327,6 @@ public final class GenomicsDBImport extends GATKTool {
     // used to write the callset json file on traversal success
     private GenomicsDBCallsetsMapProto.CallsetMappingPB callsetMappingPB;
 
-    //in-progress batchCount
-    private int batchCount = 1;
-
     /**
      * Before traversal starts, create the feature readers
      * for all the input GVCFs, create the merged header and
@@ -488,18 +506,20 @@ public final class GenomicsDBImport extends GATKTool {
         }
     }
 
-    private Map<String, FeatureReader<VariantContext>> createSampleToReaderMap(
+    private Map<String, FeatureReader<VariantContext>> createSampleToReaderMap(final ChromosomeInterval interval,
             final Map<String, Path> sampleNameToVcfPath, final int batchSize, final int index) {
         // TODO: fix casting since it's really ugly
         return inputPreloadExecutorService != null ?
-                getFeatureReadersInParallel((SortedMap<String, Path>) sampleNameToVcfPath, batchSize, index)
-                : getFeatureReadersSerially(sampleNameToVcfPath, batchSize, index);
+                getFeatureReadersInParallel(interval, (SortedMap<String, Path>) sampleNameToVcfPath, batchSize, index)
+                : getFeatureReadersSerially(interval, sampleNameToVcfPath, batchSize, index);
     }
 
-    private Void logMessageOnBatchCompletion(final BatchCompletionCallbackFunctionArgument arg) {
-        progressMeter.update(intervals.get(0));
-        logger.info("Done importing batch " + arg.batchCount + "/" + arg.totalBatchCount);
-        this.batchCount = arg.batchCount + 1;
+    private Void logMessageOnBatchCompletion(final ChromosomeInterval interval, final BatchCompletionCallbackFunctionArgument arg) {
+        // the progress meter is shared by the workers of all the intervals imported in parallel
+        synchronized (progressMeter) {
+            progressMeter.update(interval);
+        }
+        logger.info("Done importing batch " + arg.batchCount + "/" + arg.totalBatchCount + " of interval " + IntervalUtils.locatableToString(interval));
         return null;
     }
 
@@ -522,8 +542,17 @@ public final class GenomicsDBImport extends GATKTool {
         }).collect(Collectors.toList());
     }
 
-    private ImportConfig createImportConfig(final int batchSize) {
-        final List<GenomicsDBImportConfiguration.Partition> partitions = generatePartitionListFromIntervals(intervals);
+    /**
+     * Creates the configuration to import a single interval into its own array.
+     *
+     * @param interval  the interval to import
+     * @param batchSize  the number of samples to import at once
+     * @param writeWorkspaceMetadata  whether the vid map, callset map and VCF header files are written to the workspace
+     *                                by this import; since they are the same for every interval, the imports of the
+     *                                other intervals write theirs to temporary files instead, so as not to race on them
+     */
+    private ImportConfig createImportConfig(final ChromosomeInterval interval, final int batchSize, final boolean writeWorkspaceMetadata) {
+        final List<GenomicsDBImportConfiguration.Partition> partitions = generatePartitionListFromIntervals(Collections.singletonList(interval));
         GenomicsDBImportConfiguration.ImportConfiguration.Builder importConfigurationBuilder =
                 GenomicsDBImportConfiguration.ImportConfiguration.newBuilder();
         importConfigurationBuilder.addAllColumnPartitions(partitions);
@@ -532,32 +561,100 @@ public final class GenomicsDBImport extends GATKTool {
         importConfigurationBuilder.setSegmentSize(segmentSize);
         importConfigurationBuilder.setConsolidateTiledbArrayAfterLoad(doConsolidation);
         ImportConfig importConfig = new ImportConfig(importConfigurationBuilder.build(), validateSampleToReaderMap, true,
-                batchSize, mergedHeaderLines, sampleNameToVcfPath, this::createSampleToReaderMap);
-        importConfig.setOutputCallsetmapJsonFile(callsetMapJSONFile.getAbsolutePath());
-        importConfig.setOutputVidmapJsonFile(vidMapJSONFile.getAbsolutePath());
-        importConfig.setOutputVcfHeaderFile(vcfHeaderFile.getAbsolutePath());
+                batchSize, mergedHeaderLines, sampleNameToVcfPath,
+                (sampleNameToPath, updatedBatchSize, index) -> createSampleToReaderMap(interval, sampleNameToPath, updatedBatchSize, index));
+        if (writeWorkspaceMetadata) {
+            importConfig.setOutputCallsetmapJsonFile(callsetMapJSONFile.getAbsolutePath());
+            importConfig.setOutputVidmapJsonFile(vidMapJSONFile.getAbsolutePath());
+            importConfig.setOutputVcfHeaderFile(vcfHeaderFile.getAbsolutePath());
+        } else {
+            importConfig.setOutputCallsetmapJsonFile(IOUtils.createTempFile("callset", ".json").getAbsolutePath());
+            importConfig.setOutputVidmapJsonFile(IOUtils.createTempFile("vidmap", ".json").getAbsolutePath());
+            importConfig.setOutputVcfHeaderFile(IOUtils.createTempFile("vcfheader", ".vcf").getAbsolutePath());
+        }
         importConfig.setUseSamplesInOrder(true);
-        importConfig.setFunctionToCallOnBatchCompletion(this::logMessageOnBatchCompletion);
+        importConfig.setFunctionToCallOnBatchCompletion(arg -> logMessageOnBatchCompletion(interval, arg));
         return importConfig;
     }
 
     /**
      * A complete traversal from start to finish. This method will import all samples
-     * specified in the input GVCF files.
+     * specified in the input GVCF files, into one array per interval. Up to
+     * {@link #maxNumIntervalsToImportInParallel} intervals are imported concurrently,
+     * each by its own {@link GenomicsDBImporter}.
      */
     @Override
     public void traverse() {
         // Force the progress meter to update after every batch
         progressMeter.setRecordsBetweenTimeChecks(1L);
 
+        final int numWorkers = Math.min(maxNumIntervalsToImportInParallel, intervals.size());
+        final int updatedBatchSize = getUpdatedBatchSize(numWorkers);
+
+        if (numWorkers == 1) {
+            for (int i = 0; i < intervals.size(); i++) {
+                importInterval(intervals.get(i), updatedBatchSize, i == 0);
+            }
+            return;
+        }
+
+        final ThreadFactory threadFactory = new ThreadFactoryBuilder()
+                .setNameFormat("intervalImporter-thread-%d")
+                .setDaemon(true)
+                .build();
+        intervalImportExecutorService = Executors.newFixedThreadPool(numWorkers, threadFactory);
+        logger.info("Importing " + intervals.size() + " intervals with " + numWorkers + " workers");
+        final List<Future<?>> futures = new ArrayList<>(intervals.size());
+        for (int i = 0; i < intervals.size(); i++) {
+            final ChromosomeInterval interval = intervals.get(i);
+            final boolean writeWorkspaceMetadata = i == 0;
+            futures.add(intervalImportExecutorService.submit(() -> importInterval(interval, updatedBatchSize, writeWorkspaceMetadata)));
+        }
+        for (final Future<?> future : futures) {
+            try {
+                future.get();
+            } catch (final InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while importing intervals", e);
+            } catch (final ExecutionException e) {
+                throw (e.getCause() instanceof RuntimeException ? (RuntimeException) e.getCause() : new GATKException("Failed to import an interval", e.getCause()));
+            }
+        }
+    }
+
+    /**
+     * Determines the number of samples to import at once. When batching was not requested and several intervals are
+     * imported in parallel, readers for the samples of a batch are open in every worker at once, so the batch size is
+     * capped to what fits in {@link #MAX_HEAP_FRACTION_FOR_READERS} of the max heap.
+     *
+     * @param numWorkers  the number of intervals imported in parallel
+     * @return the batch size to import with
+     */
+    private int getUpdatedBatchSize(final int numWorkers) {
         final int sampleCount = sampleNameToVcfPath.size();
-        final int updatedBatchSize = (batchSize == DEFAULT_ZERO_BATCH_SIZE) ? sampleCount : batchSize;
-        final ImportConfig importConfig = createImportConfig(updatedBatchSize);
+        if (batchSize != DEFAULT_ZERO_BATCH_SIZE) {
+            return batchSize;
+        } else if (numWorkers == 1) {
+            return sampleCount;
+        }
+        final long memoryPerSample = (vcfBufferSizePerSample + ESTIMATED_READER_MEMORY_OVERHEAD) * numWorkers;
+        final long samplesThatFit = (long) (Runtime.getRuntime().maxMemory() * MAX_HEAP_FRACTION_FOR_READERS) / memoryPerSample;
+        final int updatedBatchSize = (int) Math.max(1, Math.min(sampleCount, samplesThatFit));
+        if (updatedBatchSize < sampleCount) {
+            logger.info(String.format("Importing %d intervals in parallel with readers for all %d samples open at once " +
+                    "may exhaust the heap, using a batch size of %d instead. Consider using --%s if there are more than a hundred batches.",
+                    numWorkers, sampleCount, updatedBatchSize, CONSOLIDATE_ARG_NAME));
+        }
+        return updatedBatchSize;
+    }
+
+    private void importInterval(final ChromosomeInterval interval, final int batchSize, final boolean writeWorkspaceMetadata) {
+        final ImportConfig importConfig = createImportConfig(interval, batchSize, writeWorkspaceMetadata);
 
         GenomicsDBImporter importer;
         try {
             importer = new GenomicsDBImporter(importConfig);
-            importer.executeImport(maxNumIntervalsToImportInParallel);
+            importer.executeImport(1);
         } catch (final IOException e) {
             throw new UserException("Error initializing GenomicsDBImporter", e);
         } catch (final IllegalArgumentException iae) {
@@ -581,12 +678,13 @@ public final class GenomicsDBImport extends GATKTool {
      * Method to create feature readers for input files or GCS URLs
      * in the current batch
      *
+     * @param interval  Interval being imported, which the readers are queried over
      * @param sampleNametoPath  Sample name to file name mapping
      * @param batchSize  Current batch size
      * @param lowerSampleIndex  0-based Lower bound of sample index -- inclusive
      * @return  Feature readers to be imported in the current batch, sorted by sample name
      */
-    private SortedMap<String, FeatureReader<VariantContext>> getFeatureReadersInParallel(
+    private SortedMap<String, FeatureReader<VariantContext>> getFeatureReadersInParallel(final ChromosomeInterval interval,
             final SortedMap<String, Path> sampleNametoPath, final int batchSize, final int lowerSampleIndex) {
         final SortedMap<String, FeatureReader<VariantContext>> sampleToReaderMap = new TreeMap<>();
         logger.info("Starting batch input file preload");
@@ -597,7 +695,7 @@ public final class GenomicsDBImport extends GATKTool {
             futures.put(sampleName, inputPreloadExecutorService.submit(() -> {
                 final Path variantPath = sampleNametoPath.get(sampleName);
                 try {
-                    return new InitializedQueryWrapper(getReaderFromPath(variantPath), intervals.get(0));
+                    return new InitializedQueryWrapper(getReaderFromPath(variantPath), interval);
                 } catch (final IOException e) {
                     throw new UserException.CouldNotReadInputFile("Couldn't read file: " + variantPath.toUri(), e);
                 }
@@ -614,11 +712,12 @@ public final class GenomicsDBImport extends GATKTool {
             }
         });
         logger.info("Finished batch preload");
-        logger.info("Importing batch " + this.batchCount + " with " + sampleToReaderMap.size() + " samples");
+        logBatchStart(interval, sampleToReaderMap.size(), batchSize, lowerSampleIndex);
         return sampleToReaderMap;
     }
 
-    private SortedMap<String, FeatureReader<VariantContext>> getFeatureReadersSerially(final Map<String, Path> sampleNameToPath,
+    private SortedMap<String, FeatureReader<VariantContext>> getFeatureReadersSerially(final ChromosomeInterval interval,
+                                                                                 final Map<String, Path> sampleNameToPath,
                                                                                  final int batchSize, final int lowerSampleIndex){
         final SortedMap<String, FeatureReader<VariantContext>> sampleToReaderMap = new TreeMap<>();
         final List<String> sampleNames = new ArrayList<>(sampleNameToPath.keySet());
@@ -627,10 +726,14 @@ public final class GenomicsDBImport extends GATKTool {
             final FeatureReader<VariantContext> reader = getReaderFromPath(sampleNameToPath.get(sampleName));
             sampleToReaderMap.put(sampleName, reader);
         }
-        logger.info("Importing batch " + this.batchCount + " with " + sampleToReaderMap.size() + " samples");
+        logBatchStart(interval, sampleToReaderMap.size(), batchSize, lowerSampleIndex);
         return sampleToReaderMap;
     }
 
+    private void logBatchStart(final ChromosomeInterval interval, final int sampleCount, final int batchSize, final int lowerSampleIndex) {
+        logger.info("Importing batch " + (lowerSampleIndex / batchSize + 1) + " of interval " + IntervalUtils.locatableToString(interval) + " with " + sampleCount + " samples");
+    }
+
     /**
      * Creates a feature reader object from a given VCF URI (can also be
      * a local file path) and returns it
@@ -769,6 +872,9 @@ public final class GenomicsDBImport extends GATKTool {
 
     @Override
     public void onShutdown(){
+        if(intervalImportExecutorService != null) {
+            intervalImportExecutorService.shutdownNow();
+        }
         if(inputPreloadExecutorService != null) {
             inputPreloadExecutorService.shutdownNow();
         }
@@ -8,6 +8,7 @@ import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
@@ -28,9 +29,11 @@ import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationReport;
 import org.broadinstitute.hellbender.utils.variant.GATKVariant;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesIndex;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 
 import java.io.PrintStream;
+import java.util.ArrayList;
 import java.util.List;
 
 /**
@@ -82,6 +85,12 @@ import java.util.List;
  *   --sparkRunner GCS \
  *   --cluster my-dataproc-cluster
  * </pre>
+ *
+ * <p>
+ * Large databases of known sites, such as dbSNP, can be indexed once with CreateKnownSitesIndex and given with
+ * --known-sites-index instead. Each executor then memory-maps the index from local disk, copying it there first if it
+ * is on remote storage, rather than parsing the database into its heap. Indexes cannot be used with the SHUFFLE join strategy.
+ * </p>
  */
 
 @CommandLineProgramProperties(
@@ -115,8 +124,11 @@ public class BaseRecalibratorSpark extends GATKSparkTool {
         return BaseRecalibrator.getStandardBQSRReadFilterList();
     }
 
-    @Argument(doc = "the known variants", fullName = BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, optional = false)
-    private List<String> knownVariants;
+    @Argument(doc = "the known variants", fullName = BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, optional = true)
+    private List<String> knownVariants = new ArrayList<>();
+
+    @Argument(doc = "known sites indexes, as made by CreateKnownSitesIndex, used like the known variants", fullName = BaseRecalibrator.KNOWN_SITES_INDEX_ARG_FULL_NAME, optional = true)
+    private List<String> knownSitesIndexes = new ArrayList<>();
 
     @Argument(doc = "the join strategy for reference bases and known variants", fullName = "join-strategy", optional = true)
     private JoinStrategy joinStrategy = JoinStrategy.BROADCAST;
@@ -139,6 +151,23 @@ public class BaseRecalibratorSpark extends GATKSparkTool {
 
     @Override
     protected void runTool( JavaSparkContext ctx ) {
+        if (knownVariants.isEmpty() && knownSitesIndexes.isEmpty()) {
+            throw new CommandLineException.MissingArgument(BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME,
+                    "At least one --" + BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME + " or --" + BaseRecalibrator.KNOWN_SITES_INDEX_ARG_FULL_NAME + " is required.");
+        }
+
+        if (joinStrategy == JoinStrategy.SHUFFLE && !knownSitesIndexes.isEmpty()) {
+            throw new CommandLineException.BadArgumentValue(BaseRecalibrator.KNOWN_SITES_INDEX_ARG_FULL_NAME,
+                    "known sites indexes cannot be used with the " + JoinStrategy.SHUFFLE + " join strategy");
+        }
+
+        for (final String index : knownSitesIndexes) {
+            if (!index.endsWith(KnownSitesIndex.FILE_EXTENSION)) {
+                throw new CommandLineException.BadArgumentValue(BaseRecalibrator.KNOWN_SITES_INDEX_ARG_FULL_NAME, index,
+                        "known sites indexes must have the " + KnownSitesIndex.FILE_EXTENSION + " extension");
+            }
+        }
+
         if (joinStrategy == JoinStrategy.BROADCAST && ! getReference().isCompatibleWithSparkBroadcast()){
             throw new UserException.Require2BitReferenceForBroadcast();
         }
@@ -149,11 +178,15 @@ public class BaseRecalibratorSpark extends GATKSparkTool {
 
         JavaRDD<GATKRead> initialReads = getReads();
         VariantsSparkSource variantsSparkSource = new VariantsSparkSource(ctx);
-        JavaRDD<GATKVariant> bqsrKnownVariants = variantsSparkSource.getParallelVariants(knownVariants, getIntervals());
+        JavaRDD<GATKVariant> bqsrKnownVariants = knownSitesIndexes.isEmpty() ? variantsSparkSource.getParallelVariants(knownVariants, getIntervals()) : null;
+
+        // the executors load or map the known sites from their paths, except with the shuffle strategy which joins bqsrKnownVariants
+        final List<String> knownSitesPaths = new ArrayList<>(knownVariants);
+        knownSitesPaths.addAll(knownSitesIndexes);
 
         // TODO: Look into broadcasting the reference to all of the workers. This would make AddContextDataToReadSpark
         // TODO: and ApplyBQSRStub simpler (#855).
-        JavaPairRDD<GATKRead, ReadContextData> rddReadContext = AddContextDataToReadSpark.add(ctx, initialReads, getReference(), bqsrKnownVariants, knownVariants, joinStrategy, getHeaderForReads().getSequenceDictionary(), readShardSize, readShardPadding);
+        JavaPairRDD<GATKRead, ReadContextData> rddReadContext = AddContextDataToReadSpark.add(ctx, initialReads, getReference(), bqsrKnownVariants, knownSitesPaths, joinStrategy, getHeaderForReads().getSequenceDictionary(), readShardSize, readShardPadding);
 
         // TODO: broadcast the reads header?
         final RecalibrationReport bqsrReport = BaseRecalibratorSparkFn.apply(rddReadContext, getHeaderForReads(), getReferenceSequenceDictionary(), bqsrArgs);
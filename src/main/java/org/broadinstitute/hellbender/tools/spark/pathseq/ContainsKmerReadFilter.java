@@ -15,6 +15,10 @@ public class ContainsKmerReadFilter extends ReadFilter {
     protected final Logger logger = LogManager.getLogger(this.getClass());
 
     private static final long serialVersionUID = 1L;
+    private static final int KMER_BATCH_SIZE = 16;
+    //Per-thread batch buffers, since a filter instance may be shared by several threads
+    private static final ThreadLocal<SVKmerShort[]> kmerBatchBuffer = ThreadLocal.withInitial(() -> new SVKmerShort[KMER_BATCH_SIZE]);
+    private static final ThreadLocal<boolean[]> isKmerFoundBuffer = ThreadLocal.withInitial(() -> new boolean[KMER_BATCH_SIZE]);
     private static volatile PSKmerCollection kmerLib = null; //Must be volatile for proper initialization
     private final int kSize, kmerCountThreshold;
 
@@ -32,13 +36,24 @@ public class ContainsKmerReadFilter extends ReadFilter {
         kSize = kmerLib.kmerSize();
     }
 
+    /**
+     * Kmers are looked up in batches, so that a blocked Bloom filter can overlap their cache misses, while still
+     * stopping early on host reads once the threshold is reached.
+     */
     @Override
     public boolean test(final GATKRead read) {
         final SVKmerizer kmers = new SVKmerizer(read.getBases(), kSize, 1, new SVKmerShort(kSize));
+        final SVKmerShort[] kmerBatch = kmerBatchBuffer.get();
+        final boolean[] isKmerFound = isKmerFoundBuffer.get();
         int numKmersFound = 0;
         while (kmers.hasNext()) {
-            if (kmerLib.contains(((SVKmerShort)kmers.next()))) {
-                if (++numKmersFound >= kmerCountThreshold) {
+            int batchSize = 0;
+            while (batchSize < KMER_BATCH_SIZE && kmers.hasNext()) {
+                kmerBatch[batchSize++] = (SVKmerShort) kmers.next();
+            }
+            kmerLib.contains(kmerBatch, batchSize, isKmerFound);
+            for (int i = 0; i < batchSize; i++) {
+                if (isKmerFound[i] && ++numKmersFound >= kmerCountThreshold) {
                     return false;
                 }
             }
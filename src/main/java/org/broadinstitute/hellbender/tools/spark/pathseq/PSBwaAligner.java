@@ -22,11 +22,20 @@ public final class PSBwaAligner {
     private final BwaMemIndex bwaIndex;
     private final PSBwaArgumentCollection bwaArgs;
     private final boolean pairedAlignment;
+    private final int numThreads;
 
     public PSBwaAligner(final PSBwaArgumentCollection bwaArgs, final boolean pairedAlignment) {
+        this(bwaArgs, pairedAlignment, bwaArgs.bwaThreads);
+    }
+
+    /**
+     * Aligns with numThreads Bwa threads instead of bwaArgs.bwaThreads, for callers which run several aligners at once
+     */
+    public PSBwaAligner(final PSBwaArgumentCollection bwaArgs, final boolean pairedAlignment, final int numThreads) {
         this.bwaIndex = BwaMemIndexCache.getInstance(bwaArgs.bwaImage);
         this.bwaArgs = bwaArgs;
         this.pairedAlignment = pairedAlignment;
+        this.numThreads = numThreads;
     }
 
     private static GATKRead applyAlignments(GATKRead read, final List<BwaMemAlignment> alignmentList,
@@ -65,7 +74,7 @@ public final class PSBwaAligner {
         aligner.setMaxXAHitsOption(bwaArgs.maxAlternateHits);
         aligner.setMinSeedLengthOption(bwaArgs.seedLength);
         aligner.setOutputScoreThresholdOption(bwaArgs.scoreThreshold);
-        aligner.setNThreadsOption(bwaArgs.bwaThreads);
+        aligner.setNThreadsOption(numThreads);
 
         //Get list of reads on the partition
         final List<GATKRead> reads = new ArrayList<>();
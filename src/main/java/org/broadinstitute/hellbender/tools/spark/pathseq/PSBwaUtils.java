@@ -47,7 +47,22 @@ public final class PSBwaUtils {
     static SAMFileHeader removeUnmappedHeaderSequences(final SAMFileHeader header,
                                                        final JavaRDD<GATKRead> reads,
                                                        final Logger logger) {
-        final List<String> usedSequences = PSBwaUtils.getAlignedSequenceNames(reads);
+        return keepHeaderSequences(header, PSBwaUtils.getAlignedSequenceNames(reads), logger);
+    }
+
+    /**
+     * Non-Spark counterpart of removeUnmappedHeaderSequences(), given the sequence names collected with
+     * getSequenceNames() as the reads were aligned
+     */
+    static SAMFileHeader removeUnmappedHeaderSequences(final SAMFileHeader header,
+                                                       final Collection<String> usedSequences,
+                                                       final Logger logger) {
+        return keepHeaderSequences(header, new ArrayList<>(usedSequences), logger);
+    }
+
+    private static SAMFileHeader keepHeaderSequences(final SAMFileHeader header,
+                                                     final List<String> usedSequences,
+                                                     final Logger logger) {
         final List<SAMSequenceRecord> usedSequenceRecords = usedSequences.stream()
                 .map(seqName -> header.getSequence(seqName))
                 .filter(seq -> {
@@ -70,7 +85,7 @@ public final class PSBwaUtils {
     /**
      * Returns set of sequence names of the read
      */
-    private static Iterator<String> getSequenceNames(final GATKRead read) {
+    static Iterator<String> getSequenceNames(final GATKRead read) {
         if (read.isUnmapped() || read.getAssignedContig().equals("*")) return Collections.emptyIterator();
         if (!read.hasAttribute("SA")) return Collections.singleton(read.getAssignedContig()).iterator();
         final String[] saTokens = read.getAttributeAsString("SA").split(";");
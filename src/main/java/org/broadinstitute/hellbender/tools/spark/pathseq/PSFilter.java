@@ -33,6 +33,12 @@ public final class PSFilter implements AutoCloseable {
     private final JavaSparkContext ctx;
     private final PSFilterArgumentCollection filterArgs;
     private final SAMFileHeader header;
+    private final int bwaThreads;
+
+    // the read kept among duplicate sequences: unpaired if possible, then the one with the lowest name, then the first of a pair
+    private static final Comparator<GATKRead> DUPLICATE_TO_KEEP_ORDER = Comparator.comparing(GATKRead::isPaired)
+            .thenComparing(GATKRead::getName)
+            .thenComparing(read -> !read.isFirstOfPair());
 
     private static final List<String> ADAPTER_SEQUENCES = CollectionUtil.makeList(
             IlluminaAdapterPair.SINGLE_END.get5PrimeAdapter(),
@@ -57,6 +63,20 @@ public final class PSFilter implements AutoCloseable {
         this.ctx = ctx;
         this.filterArgs = filterArgs;
         this.header = header;
+        this.bwaThreads = filterArgs.bwaThreads;
+    }
+
+    /**
+     * For filtering without Spark using filterBatch(), setPairFlags(List), filterDuplicateSequences(List) and
+     * splitPairedAndUnpaired(). The Bwa threads are divided among the numWorkers threads that call filterBatch().
+     */
+    public PSFilter(final PSFilterArgumentCollection filterArgs, final SAMFileHeader header, final int numWorkers) {
+        Utils.nonNull(filterArgs, "Filter arguments cannot be null");
+        Utils.validateArg(numWorkers > 0, "Number of workers must be positive");
+        this.ctx = null;
+        this.filterArgs = filterArgs;
+        this.header = header;
+        this.bwaThreads = Math.max(1, filterArgs.bwaThreads / numWorkers);
     }
 
     @VisibleForTesting
@@ -97,6 +117,15 @@ public final class PSFilter implements AutoCloseable {
         return newRead;
     }
 
+    /**
+     * Non-Spark counterpart of setPairFlags()
+     */
+    static List<GATKRead> setPairFlags(final List<GATKRead> reads) {
+        final List<GATKRead> newReads = new ArrayList<>(reads.size());
+        setPartitionUnpairedFlags(reads.iterator(), reads.size()).forEachRemaining(newReads::add);
+        return newReads;
+    }
+
     /**
      * Sets proper pairedness flags
      */
@@ -155,7 +184,8 @@ public final class PSFilter implements AutoCloseable {
     }
 
     /**
-     * Preferentially filters unpaired reads, when possible. Assumes reads have pairedness flags set properly
+     * Preferentially filters unpaired reads, when possible, and otherwise keeps the read with the lowest name so that
+     * the choice does not depend on the order of the reads. Assumes reads have pairedness flags set properly
      */
     @VisibleForTesting
     static JavaRDD<GATKRead> filterDuplicateSequences(final JavaRDD<GATKRead> reads) {
@@ -163,13 +193,30 @@ public final class PSFilter implements AutoCloseable {
                 .groupByKey()
                 .values()
                 .map(iter -> {
+                    GATKRead keptRead = null;
                     for (final GATKRead read : iter) {
-                        if (!read.isPaired()) return read;
+                        if (keptRead == null || DUPLICATE_TO_KEEP_ORDER.compare(read, keptRead) < 0) keptRead = read;
                     }
-                    return iter.iterator().next();
+                    return keptRead;
                 });
     }
 
+    /**
+     * Non-Spark counterpart of filterDuplicateSequences(), which keeps the same read of each set of duplicates. Kept
+     * reads are in the input order of the first read of their set.
+     */
+    static List<GATKRead> filterDuplicateSequences(final List<GATKRead> reads) {
+        final Map<Long, GATKRead> keptReads = new LinkedHashMap<>(SVUtils.hashMapCapacity(reads.size()));
+        for (final GATKRead read : reads) {
+            final Long sequenceId = canonicalizeRead(read)._1;
+            final GATKRead keptRead = keptReads.get(sequenceId);
+            if (keptRead == null || DUPLICATE_TO_KEEP_ORDER.compare(read, keptRead) < 0) {
+                keptReads.put(sequenceId, read);
+            }
+        }
+        return new ArrayList<>(keptReads.values());
+    }
+
     /**
      * Pairs reads with canonical Long ID using the lesser 64-bit hash of the sequence and its reverse complement
      */
@@ -285,11 +332,123 @@ public final class PSFilter implements AutoCloseable {
     }
 
     /**
-     * After doFilter(), this should be run after a Spark action (e.g. write bam) has been invoked on both output RDDs
+     * Reads of a batch that passed filterBatch(), along with the read counts that doFilter() logs after the
+     * corresponding steps
+     */
+    static final class FilteredBatch {
+        private final List<GATKRead> reads;
+        private final long numPrimaryReads;
+        private final long numReadsAfterPrealignedHostFilter;
+        private final long numReadsAfterQualityFilter;
+
+        private FilteredBatch(final List<GATKRead> reads, final long numPrimaryReads,
+                              final long numReadsAfterPrealignedHostFilter, final long numReadsAfterQualityFilter) {
+            this.reads = reads;
+            this.numPrimaryReads = numPrimaryReads;
+            this.numReadsAfterPrealignedHostFilter = numReadsAfterPrealignedHostFilter;
+            this.numReadsAfterQualityFilter = numReadsAfterQualityFilter;
+        }
+
+        /**
+         * Reads that passed all the filters, including the host filters, in input order
+         */
+        List<GATKRead> getReads() {
+            return reads;
+        }
+
+        long getNumPrimaryReads() {
+            return numPrimaryReads;
+        }
+
+        long getNumReadsAfterPrealignedHostFilter() {
+            return numReadsAfterPrealignedHostFilter;
+        }
+
+        long getNumReadsAfterQualityFilter() {
+            return numReadsAfterQualityFilter;
+        }
+    }
+
+    /**
+     * Non-Spark counterpart of the steps of doFilter() up to and including the host filters, applied to one batch of
+     * reads. Only the host Bwa filter needs to see the whole batch, so batches can be filtered concurrently. The
+     * remaining steps need all the reads that pass and are done by setPairFlags(List), filterDuplicateSequences(List)
+     * and splitPairedAndUnpaired().
+     */
+    FilteredBatch filterBatch(final List<GATKRead> batch) {
+        Utils.nonNull(batch, "Input reads cannot be null");
+        final HostAlignmentReadFilter prealignedHostFilter = filterArgs.alignedInput ? new HostAlignmentReadFilter(filterArgs.minIdentity) : null;
+        final ReadTransformer stripMateNumberTransformer = new StripMateNumberTransformer();
+        final ReadTransformer maskingTransformer = new AdapterTrimTransformer(filterArgs.maxAdapterMismatches, filterArgs.minAdapterLength, ADAPTER_SEQUENCES)
+                .andThen(new SimpleRepeatMaskTransformer(MAX_AT_CONTENT_1, MAX_GC_CONTENT_1, REPEAT_WINDOW_SIZE_1))
+                .andThen(new SimpleRepeatMaskTransformer(MAX_AT_CONTENT_2, MAX_GC_CONTENT_2, REPEAT_WINDOW_SIZE_2))
+                .andThen(new DUSTReadTransformer(filterArgs.dustMask, filterArgs.dustW, filterArgs.dustT))
+                .andThen(new BaseQualityClipReadTransformer(filterArgs.readTrimThresh));
+        final ReadLengthReadFilter readLengthFilter = new ReadLengthReadFilter(filterArgs.minReadLength, Integer.MAX_VALUE);
+        final ReadTransformer baseQualityTransformer = new BaseQualityReadTransformer(filterArgs.qualPhredThresh);
+        final AmbiguousBaseReadFilter ambiguousBaseFilter = new AmbiguousBaseReadFilter(filterArgs.maxAmbiguousBases);
+        final ContainsKmerReadFilter kmerFilter = filterArgs.kmerFilePath != null ? new ContainsKmerReadFilter(filterArgs.kmerFilePath, filterArgs.hostKmerThresh) : null;
+
+        long numPrimaryReads = 0;
+        long numReadsAfterPrealignedHostFilter = 0;
+        long numReadsAfterQualityFilter = 0;
+        List<GATKRead> reads = new ArrayList<>(batch.size());
+        for (final GATKRead inputRead : batch) {
+            if (inputRead.isSecondaryAlignment() || inputRead.isSupplementaryAlignment()) continue;
+            numPrimaryReads++;
+            if (prealignedHostFilter != null && !prealignedHostFilter.test(inputRead)) continue;
+            numReadsAfterPrealignedHostFilter++;
+            GATKRead read = stripMateNumberTransformer.apply(clearReadAlignment(inputRead, header));
+            if (!filterArgs.skipFilters) {
+                read = maskingTransformer.apply(read);
+                if (!readLengthFilter.test(read)) continue;
+                read = baseQualityTransformer.apply(read);
+                if (!ambiguousBaseFilter.test(read)) continue;
+            }
+            numReadsAfterQualityFilter++;
+            if (kmerFilter != null && !kmerFilter.test(read)) continue;
+            reads.add(read);
+        }
+
+        if (filterArgs.indexImageFile != null && !reads.isEmpty()) {
+            final Iterator<GATKRead> hostFilteredReads = new PSBwaFilter(filterArgs.indexImageFile, filterArgs.minIdentity,
+                    filterArgs.minSeedLength, bwaThreads, false).apply(reads.iterator());
+            reads = new ArrayList<>(reads.size());
+            hostFilteredReads.forEachRemaining(reads::add);
+        }
+        return new FilteredBatch(reads, numPrimaryReads, numReadsAfterPrealignedHostFilter, numReadsAfterQualityFilter);
+    }
+
+    /**
+     * Non-Spark counterpart of the last steps of doFilter(), which set the pairedness flags, clear the alignments and
+     * return a tuple containing the paired reads, with mates adjacent, and the unpaired reads.
+     */
+    Tuple2<List<GATKRead>, List<GATKRead>> splitPairedAndUnpaired(final List<GATKRead> reads) {
+        final Tuple2<List<GATKRead>, List<GATKRead>> lists = getPairedAndUnpairedLists(reads.iterator(), reads.size());
+        final List<GATKRead> pairedReads = new ArrayList<>(lists._1.size());
+        final List<GATKRead> unpairedReads = new ArrayList<>(lists._2.size());
+        for (final GATKRead read : lists._1) {
+            pairedReads.add(clearReadAlignment(read, header));
+        }
+        for (final GATKRead read : lists._2) {
+            read.setIsPaired(false);
+            unpairedReads.add(clearReadAlignment(read, header));
+        }
+        return new Tuple2<>(pairedReads, unpairedReads);
+    }
+
+    /**
+     * After doFilter(), this should be run after a Spark action (e.g. write bam) has been invoked on both output RDDs.
+     * Without Spark, this should be run once all batches have been filtered.
      */
     public void close() {
-        BwaMemIndexCache.closeAllDistributedInstances(ctx);
-        ContainsKmerReadFilterSpark.closeAllDistributedInstances(ctx);
+        if (ctx != null) {
+            BwaMemIndexCache.closeAllDistributedInstances(ctx);
+            ContainsKmerReadFilterSpark.closeAllDistributedInstances(ctx);
+        } else {
+            BwaMemIndexCache.closeInstances();
+            ContainsKmerReadFilter.closeKmerLib();
+        }
     }
 
 }
@@ -0,0 +1,135 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
+import org.broadinstitute.hellbender.tools.spark.utils.LongBlockedBloomFilter;
+import org.broadinstitute.hellbender.utils.Utils;
+
+/**
+ * Kmer blocked Bloom filter class that encapsulates the filter, kmer size, and kmer mask
+ */
+@DefaultSerializer(PSKmerBlockedBloomFilter.Serializer.class)
+public final class PSKmerBlockedBloomFilter extends PSKmerCollection {
+
+    //Scratch space of the batch queries, per thread since the filter may be queried by several threads at once
+    private static final ThreadLocal<long[]> maskedKmerBuffer = ThreadLocal.withInitial(() -> new long[LongBlockedBloomFilter.QUERY_BATCH_SIZE]);
+
+    private final LongBlockedBloomFilter kmerSet;
+    private final int kmerSize;
+    private final SVKmerShort kmerMask;
+    private final double falsePositiveProbability;
+
+    /**
+     * Note values in the Bloom filter should have been run through PSKmerCollection's canonicalizeAndMask()
+     */
+    public PSKmerBlockedBloomFilter(final LongBlockedBloomFilter maskedKmerBloomFilter, final int kmerSize,
+                                    final SVKmerShort kmerMask, final long numElements) {
+        Utils.nonNull(maskedKmerBloomFilter);
+        Utils.nonNull(kmerMask);
+        this.kmerSet = maskedKmerBloomFilter;
+        this.kmerSize = kmerSize;
+        this.kmerMask = kmerMask;
+        this.falsePositiveProbability = kmerSet.getTheoreticalFPP(numElements);
+    }
+
+    private PSKmerBlockedBloomFilter(final Kryo kryo, final Input input) {
+        this.kmerSize = input.readInt();
+        this.kmerMask = new SVKmerShort(input.readLong());
+        this.kmerSet = kryo.readObject(input, LongBlockedBloomFilter.class);
+        this.falsePositiveProbability = input.readDouble();
+    }
+
+    /**
+     * Input should not be canonicalized/masked
+     */
+    @Override
+    public boolean contains(final SVKmerShort rawKmer) {
+        return kmerSet.contains(canonicalizeAndMask(rawKmer, kmerSize, kmerMask));
+    }
+
+    /**
+     * Input should not be canonicalized/masked. Queries the whole batch at once so that the cache misses of its kmers
+     * overlap.
+     */
+    @Override
+    void contains(final SVKmerShort[] rawKmers, final int numKmers, final boolean[] result) {
+        final long[] maskedKmers = maskedKmerBuffer.get();
+        for (int start = 0; start < numKmers; start += maskedKmers.length) {
+            final int batchSize = Math.min(maskedKmers.length, numKmers - start);
+            for (int i = 0; i < batchSize; i++) {
+                maskedKmers[i] = canonicalizeAndMask(rawKmers[start + i], kmerSize, kmerMask);
+            }
+            kmerSet.contains(maskedKmers, batchSize, result, start);
+        }
+    }
+
+    @Override
+    public int kmerSize() {
+        return kmerSize;
+    }
+
+    @Override
+    public SVKmerShort getMask() {
+        return kmerMask;
+    }
+
+    @Override
+    public double getFalsePositiveProbability() {
+        return falsePositiveProbability;
+    }
+
+    /**
+     * Returns the false positive probability estimated from the bits set in the filter
+     */
+    public double getEstimatedFalsePositiveProbability() {
+        return kmerSet.getEstimatedFPP();
+    }
+
+    public long getNumBits() {
+        return kmerSet.getNumBits();
+    }
+
+    private void serialize(final Kryo kryo, final Output output) {
+        output.writeInt(kmerSize);
+        output.writeLong(kmerMask.getLong());
+        kryo.writeObject(output, kmerSet);
+        output.writeDouble(falsePositiveProbability);
+        output.close();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PSKmerBlockedBloomFilter)) return false;
+
+        final PSKmerBlockedBloomFilter psKmerSet = (PSKmerBlockedBloomFilter) o;
+
+        if (kmerSize != psKmerSet.kmerSize) return false;
+        if (!kmerSet.equals(psKmerSet.kmerSet)) return false;
+        return kmerMask.equals(psKmerSet.kmerMask);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = kmerSet.hashCode();
+        result = 31 * result + kmerSize;
+        result = 31 * result + kmerMask.hashCode();
+        return result;
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<PSKmerBlockedBloomFilter> {
+        @Override
+        public void write(final Kryo kryo, final Output output, final PSKmerBlockedBloomFilter kmerSet) {
+            kmerSet.serialize(kryo, output);
+        }
+
+        @Override
+        public PSKmerBlockedBloomFilter read(final Kryo kryo, final Input input, final Class<PSKmerBlockedBloomFilter> klass) {
+            return new PSKmerBlockedBloomFilter(kryo, input);
+        }
+    }
+
+}
@@ -12,6 +12,16 @@ public abstract class PSKmerCollection {
     abstract SVKmerShort getMask();
     abstract double getFalsePositiveProbability();
 
+    /**
+     * Tests a batch of kmers, such as those of a read, setting result[i] to whether rawKmers[i] is in the collection
+     * for i < numKmers. Input should not be canonicalized/masked.
+     */
+    void contains(final SVKmerShort[] rawKmers, final int numKmers, final boolean[] result) {
+        for (int i = 0; i < numKmers; i++) {
+            result[i] = contains(rawKmers[i]);
+        }
+    }
+
     /**
      * Definition for the order of canonicalization and masking
      */
@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerizer;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.LongBlockedBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
 import org.broadinstitute.hellbender.utils.reference.ReferenceBases;
@@ -27,6 +28,7 @@ public class PSKmerUtils {
 
     public static final String HOPSCOTCH_SET_EXTENSION = ".hss";
     public static final String BLOOM_FILTER_EXTENSION = ".bfi";
+    public static final String BLOCKED_BLOOM_FILTER_EXTENSION = ".bbfi";
     private static final Logger logger = LogManager.getLogger(PSKmerUtils.class);
 
     /**
@@ -101,6 +103,19 @@ public class PSKmerUtils {
         return bloomFilter;
     }
 
+    /**
+     * Converts a Collection of Lists of Longs's into a blocked Bloom filter
+     */
+    protected static LongBlockedBloomFilter longArrayCollectionToBlockedBloomFilter(final Collection<long[]> longs, final long numLongs, final double bloomFpp) {
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(numLongs, bloomFpp);
+        final ProgressCounter counter = new ProgressCounter(numLongs, 1e6, "million kmers", logger);
+        for (final long[] array : longs) {
+            bloomFilter.addAll(array);
+            counter.update(array.length);
+        }
+        return bloomFilter;
+    }
+
     /**
      * Writes an object to a URI using Kryo serialization.
      */
@@ -127,6 +142,14 @@ public class PSKmerUtils {
         writeKryoObject(bloomFilter, filePath);
     }
 
+    public static void writeKmerBlockedBloomFilter(final String uri, final PSKmerBlockedBloomFilter bloomFilter) {
+        String filePath = uri;
+        if (!uri.toLowerCase().endsWith(BLOCKED_BLOOM_FILTER_EXTENSION.toLowerCase())) {
+            filePath = filePath + BLOCKED_BLOOM_FILTER_EXTENSION;
+        }
+        writeKryoObject(bloomFilter, filePath);
+    }
+
     public static PSKmerCollection readKmerFilter(final String uri) {
         final Input input = new Input(BucketUtils.openFile(uri));
         final Kryo kryo = new Kryo();
@@ -134,6 +157,8 @@ public class PSKmerUtils {
             return kryo.readObject(input, PSKmerSet.class);
         } else if (uri.endsWith(BLOOM_FILTER_EXTENSION)) {
             return kryo.readObject(input, PSKmerBloomFilter.class);
+        } else if (uri.endsWith(BLOCKED_BLOOM_FILTER_EXTENSION)) {
+            return kryo.readObject(input, PSKmerBlockedBloomFilter.class);
         }
         throw new UserException.BadInput("Unknown kmer set extension in file name " + uri);
     }
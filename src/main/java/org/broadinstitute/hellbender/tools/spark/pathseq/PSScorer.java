@@ -67,16 +67,40 @@ public final class PSScorer {
         final JavaPairRDD<Integer, PSPathogenTaxonScore> taxScoresRdd = alignmentHits
                 .mapPartitionsToPair(iter -> computeTaxScores(iter, taxonomyDatabaseBroadcast.value(), divideByGenomeLength));
 
-        //Reduce scores by taxon and compute normalized scores
-        Map<Integer, PSPathogenTaxonScore> taxScoresMap = new HashMap<>(taxScoresRdd.reduceByKey(PSPathogenTaxonScore::add).collectAsMap());
-        taxScoresMap = computeNormalizedScores(taxScoresMap, taxDB.tree, scoreArgs.notNormalizedByKingdom);
-
-        //Write scores to file
-        writeScoresFile(taxScoresMap, taxDB.tree, scoreArgs.scoresPath);
+        //Reduce scores by taxon, then normalize and write them
+        writeScores(taxScoresRdd.reduceByKey(PSPathogenTaxonScore::add).collectAsMap(), taxDB);
 
         return readsFinal;
     }
 
+    /**
+     * Non-Spark counterpart of scoreReads() for one batch of aligned reads, which must either all be paired, with mates
+     * adjacent, or all be unpaired. Sets the HITS_TAG of the reads and returns the taxonomic scores of the batch. Scores
+     * of all the batches are to be summed by taxon with PSPathogenTaxonScore::add and passed to writeScores().
+     */
+    Map<Integer, PSPathogenTaxonScore> scoreBatch(final List<GATKRead> reads, final boolean paired,
+                                                  final PSTaxonomyDatabase taxDB) {
+        final Iterator<Iterable<GATKRead>> groupedReads = paired ? groupPairedReadsPartition(reads.iterator(), reads.size())
+                : reads.stream().map(read -> (Iterable<GATKRead>) Collections.singletonList(read)).iterator();
+        final List<PSPathogenAlignmentHit> alignmentHits = new ArrayList<>(reads.size());
+        while (groupedReads.hasNext()) {
+            alignmentHits.add(getAlignmentHit(groupedReads.next(), scoreArgs.minIdentity, scoreArgs.identityMargin, taxDB));
+        }
+        final Map<Integer, PSPathogenTaxonScore> taxScores = new HashMap<>();
+        computeTaxScores(alignmentHits.iterator(), taxDB, scoreArgs.divideByGenomeLength)
+                .forEachRemaining(score -> taxScores.merge(score._1, score._2, PSPathogenTaxonScore::add));
+        return taxScores;
+    }
+
+    /**
+     * Computes normalized scores from the taxonomic scores summed over all reads and writes them to the scores file
+     */
+    void writeScores(final Map<Integer, PSPathogenTaxonScore> taxScores, final PSTaxonomyDatabase taxDB) {
+        final Map<Integer, PSPathogenTaxonScore> taxScoresMap = computeNormalizedScores(new HashMap<>(taxScores),
+                taxDB.tree, scoreArgs.notNormalizedByKingdom);
+        writeScoresFile(taxScoresMap, taxDB.tree, scoreArgs.scoresPath);
+    }
+
     /**
      * Collects the second elements of all tuples in an RDD
      */
@@ -168,43 +192,51 @@ public final class PSScorer {
                                                                                             final double minIdentity,
                                                                                             final double identityMargin,
                                                                                             final Broadcast<PSTaxonomyDatabase> taxonomyDatabaseBroadcast) {
-        return pairs.map(readIter -> {
+        return pairs.map(readIter -> new Tuple2<>(readIter,
+                getAlignmentHit(readIter, minIdentity, identityMargin, taxonomyDatabaseBroadcast.value())));
+    }
 
-            //Number of reads in the pair (1 for unpaired reads)
-            final int numReads = (int) Utils.stream(readIter).count();
+    /**
+     * Helper for mapGroupedReadsToTax() that gets the hits of a single read or pair and sets their HITS_TAG
+     */
+    private static PSPathogenAlignmentHit getAlignmentHit(final Iterable<GATKRead> readIter,
+                                                          final double minIdentity,
+                                                          final double identityMargin,
+                                                          final PSTaxonomyDatabase taxonomyDatabase) {
 
-            //Get tax IDs of all alignments in all reads that meet the coverage/identity criteria.
-            final Stream<Integer> taxIds = Utils.stream(readIter)
-                    .flatMap(read -> getValidHits(read, taxonomyDatabaseBroadcast.value(), minIdentity, identityMargin).stream());
+        //Number of reads in the pair (1 for unpaired reads)
+        final int numReads = (int) Utils.stream(readIter).count();
 
-            //Get list of tax IDs that are hits in all reads
-            final List<Integer> hitTaxIds;
-            if (numReads > 1) {
+        //Get tax IDs of all alignments in all reads that meet the coverage/identity criteria.
+        final Stream<Integer> taxIds = Utils.stream(readIter)
+                .flatMap(read -> getValidHits(read, taxonomyDatabase, minIdentity, identityMargin).stream());
 
-                //Group the flattened stream by tax id, e.g. 3453 -> {3453, 3453}, 938 -> {938}, etc., so that the
-                // length of the list is the number of reads with that tax ID. Then map the lists to list lengths.
-                final Map<Integer, Long> taxIdCounts = taxIds.collect(Collectors.groupingBy(e -> e, Collectors.counting()));
+        //Get list of tax IDs that are hits in all reads
+        final List<Integer> hitTaxIds;
+        if (numReads > 1) {
 
-                //Filter hits that didn't occur in all reads
-                hitTaxIds = taxIdCounts.entrySet().stream().map(entry -> entry.getValue() == numReads ? entry.getKey() : null)
-                        .filter(Objects::nonNull).collect(Collectors.toList());
+            //Group the flattened stream by tax id, e.g. 3453 -> {3453, 3453}, 938 -> {938}, etc., so that the
+            // length of the list is the number of reads with that tax ID. Then map the lists to list lengths.
+            final Map<Integer, Long> taxIdCounts = taxIds.collect(Collectors.groupingBy(e -> e, Collectors.counting()));
 
-            } else {
-                //Unpaired reads
-                hitTaxIds = taxIds.collect(Collectors.toList());
-            }
+            //Filter hits that didn't occur in all reads
+            hitTaxIds = taxIdCounts.entrySet().stream().map(entry -> entry.getValue() == numReads ? entry.getKey() : null)
+                    .filter(Objects::nonNull).collect(Collectors.toList());
 
-            final PSPathogenAlignmentHit info = new PSPathogenAlignmentHit(hitTaxIds, numReads);
+        } else {
+            //Unpaired reads
+            hitTaxIds = taxIds.collect(Collectors.toList());
+        }
 
-            //If there was at least one hit, append a tag to each read with the list of hits
-            if (hitTaxIds.size() > 0) {
-                final String hitString = String.join(",", hitTaxIds.stream().map(String::valueOf).collect(Collectors.toList()));
-                Utils.stream(readIter).forEach(read -> read.setAttribute(HITS_TAG, hitString));
-            }
-            return new Tuple2<>(readIter, info);
-        });
-    }
+        final PSPathogenAlignmentHit info = new PSPathogenAlignmentHit(hitTaxIds, numReads);
 
+        //If there was at least one hit, append a tag to each read with the list of hits
+        if (hitTaxIds.size() > 0) {
+            final String hitString = String.join(",", hitTaxIds.stream().map(String::valueOf).collect(Collectors.toList()));
+            Utils.stream(readIter).forEach(read -> read.setAttribute(HITS_TAG, hitString));
+        }
+        return info;
+    }
 
     /**
      * Gets set of sufficiently well-mapped hits
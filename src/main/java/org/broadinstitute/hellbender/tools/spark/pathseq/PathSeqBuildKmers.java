@@ -9,6 +9,7 @@ import org.broadinstitute.hellbender.cmdline.programgroups.MetagenomicsProgramGr
 import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceFileSparkSource;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.LongBlockedBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 
 import java.util.Collection;
@@ -29,6 +30,11 @@ import java.util.Collection;
  * read is < 1.5%, but the amount of memory used is reduced 4-fold compared to a hash table. For this reason, Bloom
  * filters are generally recommended.</p>
  *
+ * <p>With --blocked-bloom-filter, the Bloom filter is instead a blocked Bloom filter, which sets all the bits of a
+ * k-mer within one 512-bit block. The PathSeq filter then looks up each k-mer with one cache miss rather than one per
+ * hash function, which speeds up host k-mer filtering, but the filter needs somewhat more memory for the same false
+ * positive probability (about 8% more for p = 0.001, and 17% more for p = 0.0001).</p>
+ *
  * <p>Note that the file formats used for storing these k-mer data structures are only readable by the PathSeq tools.</p>
  *
  * <h3>Input</h3>
@@ -62,6 +68,17 @@ import java.util.Collection;
  *   --kmer-size 31
  * </pre>
  *
+ * <h4>Builds a blocked Bloom filter with false positive probability p < 0.001.</h4>
+ * <pre>
+ * gatk PathSeqBuildKmers  \
+ *   --reference host_reference.fasta \
+ *   --output host_reference.bbfi \
+ *   --bloom-false-positive-probability 0.001 \
+ *   --blocked-bloom-filter \
+ *   --kmer-mask 16 \
+ *   --kmer-size 31
+ * </pre>
+ *
  * <h3>Notes</h3>
  *
  * <p>For most references, the Java VM will run out of memory with the default settings. The Java heap size limit should
@@ -86,10 +103,12 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
     public static final String KMER_MASK_SHORT_NAME = "M";
     public static final String KMER_SPACING_LONG_NAME = "kmer-spacing";
     public static final String KMER_SPACING_SHORT_NAME = "SP";
+    public static final String BLOCKED_BLOOM_FILTER_LONG_NAME = "blocked-bloom-filter";
 
     @Argument(doc = "File for k-mer set output. Extension will be automatically added if not present ("
             + PSKmerUtils.HOPSCOTCH_SET_EXTENSION + " for hash set or "
-            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter)",
+            + PSKmerUtils.BLOOM_FILTER_EXTENSION + " for Bloom filter or "
+            + PSKmerUtils.BLOCKED_BLOOM_FILTER_EXTENSION + " for blocked Bloom filter)",
             shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
             fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME)
     public String outputFile;
@@ -112,6 +131,15 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
             optional = true)
     public double bloomFpp = 0;
 
+    /**
+     * A blocked Bloom filter is faster to query than a standard one, but needs more memory for the same false positive
+     * probability. Only used when building a Bloom filter.
+     */
+    @Argument(doc = "Build a cache-efficient blocked Bloom filter instead of a standard one",
+            fullName = BLOCKED_BLOOM_FILTER_LONG_NAME,
+            optional = true)
+    public boolean blockedBloomFilter = false;
+
     /**
      * Reducing the k-mer length will increase the number of host reads subtracted in the
      * filtering phase of the pipeline, but it may also increase the number of non-host (i.e. microbial)
@@ -160,7 +188,15 @@ public final class PathSeqBuildKmers extends CommandLineProgram {
         logger.info("Loading reference kmers...");
         final Collection<long[]> maskedKmerCollection = PSKmerUtils.getMaskedKmersFromLocalReference(reference, kmerSize, kmerSpacing, kmerMask);
         final long numLongs = PSKmerUtils.longArrayCollectionSize(maskedKmerCollection);
-        if (bloomFpp > 0) {
+        if (bloomFpp > 0 && blockedBloomFilter) {
+            logger.info("Building blocked Bloom filter with false positive probability " + bloomFpp + "...");
+            final LongBlockedBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBlockedBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
+            final PSKmerBlockedBloomFilter kmerBloomFilter = new PSKmerBlockedBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
+            logger.info("Blocked Bloom filter size: " + kmerBloomFilter.getNumBits() + " bits (" + ((double) kmerBloomFilter.getNumBits() / numLongs) + " bits per kmer)");
+            logger.info("Theoretical Bloom filter false positive probability: " + kmerBloomFilter.getFalsePositiveProbability());
+            logger.info("Estimated Bloom filter false positive probability from bits set: " + kmerBloomFilter.getEstimatedFalsePositiveProbability());
+            PSKmerUtils.writeKmerBlockedBloomFilter(outputFile, kmerBloomFilter);
+        } else if (bloomFpp > 0) {
             logger.info("Building Bloom filter with false positive probability " + bloomFpp + "...");
             final LongBloomFilter bloomFilter = PSKmerUtils.longArrayCollectionToBloomFilter(maskedKmerCollection, numLongs, bloomFpp);
             final PSKmerBloomFilter kmerBloomFilter = new PSKmerBloomFilter(bloomFilter, kmerSize, kmerMask, numLongs);
@@ -0,0 +1,294 @@
+package org.broadinstitute.hellbender.tools.spark.pathseq;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordQueryNameComparator;
+import htsjdk.samtools.metrics.MetricsFile;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.GATKPlugin.GATKReadFilterPluginDescriptor;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.programgroups.MetagenomicsProgramGroup;
+import org.broadinstitute.hellbender.engine.GATKTool;
+import org.broadinstitute.hellbender.engine.TraversalWorkerPool;
+import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceWindowFunctions;
+import org.broadinstitute.hellbender.metrics.MetricsUtils;
+import org.broadinstitute.hellbender.tools.spark.pathseq.loggers.PSFilterMetrics;
+import org.broadinstitute.hellbender.tools.spark.pathseq.loggers.PSScoreMetrics;
+import org.broadinstitute.hellbender.utils.bwa.BwaMemIndexCache;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import scala.Tuple2;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Performs all PathSeq steps on a single machine without Spark, producing the same scores, metrics and reads as
+ * {@link PathSeqPipelineSpark}. See that tool for a description of the pipeline and its inputs and outputs.
+ *
+ * <p>Reads are streamed through the pipeline in batches, which are processed concurrently by worker threads with a
+ * bounded number of batches in flight:</p>
+ * <ol>
+ *     <li>Each batch of input reads is quality filtered and host filtered (k-mers and BWA-MEM).</li>
+ *     <li>The reads that pass are deduplicated and their mates are found. This needs all of them at once, just as the
+ *     Spark pipeline needs a shuffle, and the host BWA image and k-mer file are then unloaded.</li>
+ *     <li>Each batch of remaining paired or unpaired reads is aligned to the microbe reference and scored, and the
+ *     scores of the batches are summed. The aligned reads are spilled to disk until the output header, which only
+ *     keeps the microbe sequences they are aligned to, is known.</li>
+ * </ol>
+ *
+ * <p>This avoids the Spark startup, serialization and shuffling overheads, which dominate the run time for a single
+ * sample on a single machine. Pathogen scores and metrics are the same as those of the Spark pipeline, except that
+ * BWA-MEM estimates the insert size distribution of paired reads over each batch, as it does over each Spark
+ * partition. The BWA-MEM threads are divided among the worker threads.</p>
+ *
+ * <h3>Usage example</h3>
+ *
+ * <pre>
+ * gatk PathSeqPipeline  \
+ *   --input input_reads.bam \
+ *   --kmer-file host_kmers.bfi \
+ *   --filter-bwa-image host_reference.img \
+ *   --microbe-bwa-image microbe_reference.img \
+ *   --microbe-fasta reference.fa \
+ *   --taxonomy-file taxonomy.db \
+ *   --min-clipped-read-length 60 \
+ *   --min-score-identity 0.90 \
+ *   --identity-margin 0.02 \
+ *   --scores-output scores.txt \
+ *   --output output_reads.bam \
+ *   --filter-metrics filter_metrics.txt \
+ *   --score-metrics score_metrics.txt \
+ *   --threads 8
+ * </pre>
+ */
+@DocumentedFeature
+@CommandLineProgramProperties(summary = "Combined tool that performs all PathSeq steps on a single machine, like PathSeqPipelineSpark but without Spark",
+        oneLineSummary = "PathSeqPipelineSpark without Spark",
+        programGroup = MetagenomicsProgramGroup.class)
+@BetaFeature
+public final class PathSeqPipeline extends GATKTool {
+
+    public static final String READS_PER_BATCH_LONG_NAME = "pipeline-reads-per-batch";
+
+    private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
+    private static final int MAX_RECORDS_IN_RAM = 500_000;
+
+    @ArgumentCollection
+    public PSFilterArgumentCollection filterArgs = new PSFilterArgumentCollection();
+
+    @ArgumentCollection
+    public PSBwaArgumentCollection bwaArgs = new PSBwaArgumentCollection();
+
+    @ArgumentCollection
+    public PSScoreArgumentCollection scoreArgs = new PSScoreArgumentCollection();
+
+    @Argument(doc = "Output BAM",
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            optional = true)
+    public String outputPath = null;
+
+    /**
+     * Plays the role of the number of reads per partition of PathSeqPipelineSpark, which is also the number of reads
+     * over which BWA-MEM estimates the insert size distribution of paired reads.
+     */
+    @Argument(doc = "Number of reads handed to a worker thread at a time for filtering, alignment and scoring.",
+            fullName = READS_PER_BATCH_LONG_NAME,
+            optional = true,
+            minValue = 100)
+    public int readsPerBatch = 5000;
+
+    @Argument(fullName = StandardArgumentDefinitions.THREADS_LONG_NAME, doc = "Number of worker threads used to filter, align and score batches of reads", optional = true, minValue = 1)
+    public int threads = 1;
+
+    private SAMFileHeader header;
+    private final PSFilterMetrics filterMetrics = new PSFilterMetrics();
+    private final PSScoreMetrics scoreMetrics = new PSScoreMetrics();
+
+    // the microbe sequences the reads are aligned to, in the order they are first seen
+    private final Set<String> usedSequences = new LinkedHashSet<>();
+    // the aligned reads in queryname order, if they are output
+    private SortingCollection<SAMRecord> outputReads;
+
+    @Override
+    public boolean requiresReads() {
+        return true;
+    }
+
+    @Override
+    public void onTraversalStart() {
+        filterArgs.doReadFilterArgumentWarnings(getCommandLineParser().getPluginDescriptor(GATKReadFilterPluginDescriptor.class), logger);
+        header = PSUtils.checkAndClearHeaderSequences(getHeaderForReads(), filterArgs, logger);
+    }
+
+    @Override
+    public void traverse() {
+        try (final TraversalWorkerPool workers = new TraversalWorkerPool(this, threads,
+                threads * BATCHES_IN_FLIGHT_PER_THREAD, "PathSeqWorker", 0)) {
+
+            //Filter
+            final PSFilter filter = new PSFilter(filterArgs, header, threads);
+            final Tuple2<List<GATKRead>, List<GATKRead>> filterResult = pairAndDeduplicate(filter, filterReads(filter, workers));
+
+            //Closes Bwa image and kmer filter
+            //Note the host Bwa image must be unloaded before trying to load the pathogen image
+            filter.close();
+
+            //Bwa pathogen alignment and scoring
+            PSBwaUtils.addReferenceSequencesToHeader(header, bwaArgs.referencePath, ReferenceWindowFunctions.IDENTITY_FUNCTION);
+            final PSScorer scorer = new PSScorer(scoreArgs);
+            final PSTaxonomyDatabase taxDB = PSScorer.readTaxonomyDatabase(scoreArgs.taxonomyDatabasePath);
+            if (scoreArgs.headerWarningFile != null) {
+                PSScorer.writeMissingReferenceAccessions(scoreArgs.headerWarningFile, header, taxDB, logger);
+            }
+            if (outputPath != null) {
+                // the header is pruned in place below, so the spilled records get a copy of it
+                outputReads = SortingCollection.newInstance(SAMRecord.class, new BAMRecordCodec(header.clone()), new SAMRecordQueryNameComparator(), MAX_RECORDS_IN_RAM);
+            }
+            scoreMetrics.MAPPED_READS = 0L;
+            scoreMetrics.UNMAPPED_READS = 0L;
+            final Map<Integer, PSPathogenTaxonScore> taxScores = new HashMap<>();
+            alignAndScoreReads(filterResult._1, true, scorer, taxDB, workers, taxScores);
+            alignAndScoreReads(filterResult._2, false, scorer, taxDB, workers, taxScores);
+            workers.drain();
+            BwaMemIndexCache.closeInstances();
+            scorer.writeScores(taxScores, taxDB);
+
+            //Clean up header
+            header = PSBwaUtils.removeUnmappedHeaderSequences(header, usedSequences, logger);
+
+            writeMetrics();
+            if (outputReads != null) {
+                writeReads();
+            }
+        }
+    }
+
+    /**
+     * Returns the input reads that pass the quality and host filters, in input order
+     */
+    private List<GATKRead> filterReads(final PSFilter filter, final TraversalWorkerPool workers) {
+        final List<GATKRead> hostFilteredReads = new ArrayList<>();
+        filterMetrics.PRIMARY_READS = 0L;
+        filterMetrics.READS_AFTER_PREALIGNED_HOST_FILTER = 0L;
+        filterMetrics.READS_AFTER_QUALITY_AND_COMPLEXITY_FILTER = 0L;
+        final Iterator<GATKRead> readIterator = getTransformedReadStream(makeReadFilter()).iterator();
+        while (readIterator.hasNext()) {
+            final List<GATKRead> batch = nextBatch(readIterator);
+            workers.submit(() -> filter.filterBatch(batch), filteredBatch -> {
+                hostFilteredReads.addAll(filteredBatch.getReads());
+                filterMetrics.PRIMARY_READS += filteredBatch.getNumPrimaryReads();
+                filterMetrics.READS_AFTER_PREALIGNED_HOST_FILTER += filteredBatch.getNumReadsAfterPrealignedHostFilter();
+                filterMetrics.READS_AFTER_QUALITY_AND_COMPLEXITY_FILTER += filteredBatch.getNumReadsAfterQualityFilter();
+                batch.forEach(read -> progressMeter.update(read.isUnmapped() ? null : read));
+            });
+        }
+        workers.drain();
+        return hostFilteredReads;
+    }
+
+    /**
+     * Deduplicates the reads, if requested, and returns a tuple containing the paired and unpaired reads
+     */
+    private Tuple2<List<GATKRead>, List<GATKRead>> pairAndDeduplicate(final PSFilter filter, List<GATKRead> reads) {
+        filterMetrics.READS_AFTER_HOST_FILTER = (long) reads.size();
+        if (filterArgs.filterDuplicates) {
+            reads = PSFilter.filterDuplicateSequences(PSFilter.setPairFlags(reads));
+        }
+        filterMetrics.READS_AFTER_DEDUPLICATION = (long) reads.size();
+        final Tuple2<List<GATKRead>, List<GATKRead>> result = filter.splitPairedAndUnpaired(reads);
+        filterMetrics.FINAL_PAIRED_READS = (long) result._1.size();
+        return result;
+    }
+
+    /**
+     * Aligns and scores reads in batches, summing the scores into taxScores. Batches of paired reads are kept even
+     * so that no pair is split across them.
+     */
+    private void alignAndScoreReads(final List<GATKRead> reads, final boolean paired, final PSScorer scorer,
+                                    final PSTaxonomyDatabase taxDB, final TraversalWorkerPool workers,
+                                    final Map<Integer, PSPathogenTaxonScore> taxScores) {
+        final int batchSize = paired ? readsPerBatch & ~1 : readsPerBatch;
+        final int bwaThreads = Math.max(1, bwaArgs.bwaThreads / threads);
+        for (int start = 0; start < reads.size(); start += batchSize) {
+            final List<GATKRead> batch = reads.subList(start, Math.min(start + batchSize, reads.size()));
+            workers.submit(() -> {
+                final List<GATKRead> alignedReads = new ArrayList<>(batch.size());
+                new PSBwaAligner(bwaArgs, paired, bwaThreads).apply(batch.iterator(), header).forEachRemaining(alignedReads::add);
+                return new Tuple2<>(alignedReads, scorer.scoreBatch(alignedReads, paired, taxDB));
+            }, result -> {
+                result._1.forEach(this::addAlignedRead);
+                result._2.forEach((taxId, score) -> taxScores.merge(taxId, score, PSPathogenTaxonScore::add));
+            });
+        }
+    }
+
+    /**
+     * Records the microbe sequences and the score metrics of an aligned read, and adds it to the output reads
+     */
+    private void addAlignedRead(final GATKRead read) {
+        PSBwaUtils.getSequenceNames(read).forEachRemaining(usedSequences::add);
+        if (read.hasAttribute(PSScorer.HITS_TAG)) {
+            scoreMetrics.MAPPED_READS++;
+        } else {
+            scoreMetrics.UNMAPPED_READS++;
+        }
+        if (outputReads != null) {
+            outputReads.add(read.convertToSAMRecord(header));
+        }
+    }
+
+    private List<GATKRead> nextBatch(final Iterator<GATKRead> readIterator) {
+        final List<GATKRead> batch = new ArrayList<>(readsPerBatch);
+        while (readIterator.hasNext() && batch.size() < readsPerBatch) {
+            batch.add(readIterator.next());
+        }
+        return batch;
+    }
+
+    private void writeMetrics() {
+        if (filterArgs.filterMetricsFileUri != null) {
+            filterMetrics.computeDerivedMetrics();
+            final MetricsFile<PSFilterMetrics, Long> metricsFile = getMetricsFile();
+            metricsFile.addMetric(filterMetrics);
+            MetricsUtils.saveMetrics(metricsFile, filterArgs.filterMetricsFileUri);
+        }
+        if (scoreArgs.scoreMetricsFileUri != null) {
+            final MetricsFile<PSScoreMetrics, Long> metricsFile = getMetricsFile();
+            metricsFile.addMetric(scoreMetrics);
+            MetricsUtils.saveMetrics(metricsFile, scoreArgs.scoreMetricsFileUri);
+        }
+    }
+
+    /**
+     * Writes the spilled reads with the pruned header. They are in queryname order, and are sorted again by the
+     * writer only if the header says they are coordinate sorted, as they are by PathSeqPipelineSpark.
+     */
+    private void writeReads() {
+        outputReads.doneAdding();
+        final boolean presorted = header.getSortOrder() != SAMFileHeader.SortOrder.coordinate;
+        try (final SAMFileGATKReadWriter writer = new SAMFileGATKReadWriter(ReadUtils.createCommonSAMWriter(
+                IOUtils.getPath(outputPath), null, header, presorted, createOutputBamIndex, createOutputBamMD5));
+             final CloseableIterator<SAMRecord> iterator = outputReads.iterator()) {
+            iterator.forEachRemaining(record -> writer.addRead(new SAMRecordToGATKReadAdapter(record)));
+        } finally {
+            outputReads.cleanup();
+        }
+    }
+}
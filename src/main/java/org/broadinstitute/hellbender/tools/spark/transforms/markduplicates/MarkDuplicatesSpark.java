@@ -3,6 +3,7 @@ package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 import htsjdk.samtools.Defaults;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.metrics.MetricsFile;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
 import org.apache.spark.Partitioner;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
@@ -32,9 +33,7 @@ import picard.sam.markduplicates.util.OpticalDuplicateFinder;
 import scala.Tuple2;
 
 import java.util.Collections;
-import java.util.HashMap;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 @DocumentedFeature
@@ -97,30 +96,37 @@ public final class MarkDuplicatesSpark extends GATKSparkTool {
         // If the input isn't queryname sorted, sort it before duplicate marking
         final JavaRDD<GATKRead> sortedReadsForMarking = querynameSortReadsIfNecessary(reads, numReducers, headerForTool);
 
-        final JavaPairRDD<MarkDuplicatesSparkUtils.IndexPair<String>, Integer> namesOfNonDuplicates = MarkDuplicatesSparkUtils.transformToDuplicateNames(headerForTool, scoringStrategy, opticalDuplicateFinder, sortedReadsForMarking, numReducers);
+        final JavaPairRDD<Long, Integer> nonDuplicateTemplates = MarkDuplicatesSparkUtils.transformToNonDuplicateTemplates(headerForTool, scoringStrategy, opticalDuplicateFinder, sortedReadsForMarking, numReducers);
 
-        // Here we explicitly repartition the read names of the unmarked reads to match the partitioning of the original bam
-        final JavaRDD<Tuple2<String,Integer>> repartitionedReadNames = namesOfNonDuplicates
-                .mapToPair(pair -> new Tuple2<>(pair._1.getIndex(), new Tuple2<>(pair._1.getValue(),pair._2)))
+        // Here we explicitly repartition the templates of the unmarked reads to match the partitioning of the original bam,
+        // packing the offset of each template within its partition and its optical duplicate count into a long
+        final JavaRDD<Long> repartitionedTemplates = nonDuplicateTemplates
+                .mapToPair(pair -> new Tuple2<>(MarkDuplicatesSparkUtils.getPartitionIndex(pair._1),
+                        (((long) MarkDuplicatesSparkUtils.getTemplateOffset(pair._1)) << 32) | (pair._2 & 0xFFFFFFFFL)))
                 .partitionBy(new KnownIndexPartitioner(sortedReadsForMarking.getNumPartitions()))
                 .values();
 
-        // Here we combine the original bam with the repartitioned unmarked readnames to produce our marked reads
-        return sortedReadsForMarking.zipPartitions(repartitionedReadNames, (readsIter, readNamesIter)  -> {
-            final Map<String,Integer> namesOfNonDuplicateReadsAndOpticalCounts = new HashMap<>();
-            readNamesIter.forEachRemaining(tup -> { if (namesOfNonDuplicateReadsAndOpticalCounts.putIfAbsent(tup._1,tup._2)!=null) {
-                throw new GATKException(String.format("Detected multiple mark duplicate records objects corresponding to read with name '%s', this could be the result of the file sort order being incorrect or that a previous tool has let readnames span multiple partitions",tup._1()));
-            }
-                });
+        // Here we combine the original bam with the repartitioned unmarked templates to produce our marked reads
+        return sortedReadsForMarking.zipPartitions(repartitionedTemplates, (readsIter, templatesIter)  -> {
+            final Int2IntOpenHashMap nonDuplicateTemplateOffsetsAndOpticalCounts = new Int2IntOpenHashMap();
+            templatesIter.forEachRemaining(packed -> {
+                final int templateOffset = (int) (packed >>> 32);
+                if (nonDuplicateTemplateOffsetsAndOpticalCounts.containsKey(templateOffset)) {
+                    throw new GATKException(String.format("Detected multiple mark duplicate records objects corresponding to the template at offset %d of its partition, this could be the result of the file sort order being incorrect or that a previous tool has let readnames span multiple partitions", templateOffset));
+                }
+                nonDuplicateTemplateOffsetsAndOpticalCounts.put(templateOffset, (int) (long) packed);
+            });
 
+            final MarkDuplicatesSparkUtils.TemplateOffsetTracker templateOffsets = new MarkDuplicatesSparkUtils.TemplateOffsetTracker();
             return Utils.stream(readsIter)
                     .peek(read -> read.setIsDuplicate(false))
                     .peek(read -> {
+                final int templateOffset = templateOffsets.next(read);
                 // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
-                if (namesOfNonDuplicateReadsAndOpticalCounts.containsKey(read.getName())) {
+                if (nonDuplicateTemplateOffsetsAndOpticalCounts.containsKey(templateOffset)) {
                     read.setIsDuplicate(false);
                     if (markUnmappedMates || !read.isUnmapped()) {
-                        int dupCount = namesOfNonDuplicateReadsAndOpticalCounts.replace(read.getName(), -1);
+                        int dupCount = nonDuplicateTemplateOffsetsAndOpticalCounts.put(templateOffset, -1);
                         if (dupCount > -1) {
                             ((SAMRecordToGATKReadAdapter) read).setTransientAttribute(MarkDuplicatesSparkUtils.OPTICAL_DUPLICATE_TOTAL_ATTRIBUTE_NAME, dupCount);
                         }
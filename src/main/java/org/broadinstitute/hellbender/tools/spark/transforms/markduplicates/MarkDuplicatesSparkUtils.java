@@ -1,12 +1,17 @@
 package org.broadinstitute.hellbender.tools.spark.transforms.markduplicates;
 
 import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
 import com.esotericsoftware.kryo.serializers.FieldSerializer;
 import com.google.common.annotations.VisibleForTesting;
 import com.google.common.collect.*;
 import htsjdk.samtools.SAMFileHeader;
 import htsjdk.samtools.SAMReadGroupRecord;
 import htsjdk.samtools.metrics.MetricsFile;
+import it.unimi.dsi.fastutil.bytes.ByteArrayList;
+import it.unimi.dsi.fastutil.longs.LongArrayList;
 import org.apache.spark.api.java.JavaPairRDD;
 import org.apache.spark.api.java.JavaRDD;
 import org.apache.spark.api.java.JavaSparkContext;
@@ -23,6 +28,7 @@ import org.broadinstitute.hellbender.utils.read.markduplicates.*;
 import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.*;
 import picard.sam.markduplicates.util.OpticalDuplicateFinder;
 import picard.sam.markduplicates.util.ReadEnds;
+import picard.sam.util.PhysicalLocation;
 import scala.Tuple2;
 
 import java.io.Serializable;
@@ -68,24 +74,25 @@ public class MarkDuplicatesSparkUtils {
     /**
      * Wrapper object used for storing an object and some type of index information.
      *
-     * MarkDuplicates uses this object remember which partition of the original bam each read came from in order to
-     * efficiently zip their duplicate marked data back into the correct place without shuffling the original bam.
+     * MarkDuplicates uses this object remember the template index (see {@link #getTemplateIndex}) of each read in the
+     * original bam in order to efficiently zip their duplicate marked data back into the correct place without shuffling
+     * the original bam.
      */
     @DefaultSerializer(FieldSerializer.class)
     public static class IndexPair<T>{
         private final T value;
-        private final int index;
+        private final long index;
 
         public T getValue() {
             return value;
         }
 
-        public int getIndex() {
+        public long getIndex() {
             return index;
         }
 
         @VisibleForTesting
-        IndexPair(T value, int index) {
+        IndexPair(T value, long index) {
             this.value = value;
             this.index = index;
         }
@@ -97,104 +104,184 @@ public class MarkDuplicatesSparkUtils {
     }
 
     /**
-     * (0) filter: remove unpaired reads and reads with an unmapped mate.
-     * (1) keyReadsByName: label each read with its read group and read name.
-     * (2) GroupByKey: group together reads with the same group and name.
-     * (3) keyMarkDuplicatesSparkRecords with alignment info:
+     * Packs the index of a partition of the original bam and the offset within that partition of the first read of
+     * a template into a single long, which identifies the template in place of its read name.
+     */
+    static long getTemplateIndex(final int partitionIndex, final int templateOffset) {
+        return (((long) partitionIndex) << 32) | (templateOffset & 0xFFFFFFFFL);
+    }
+
+    static int getPartitionIndex(final long templateIndex) {
+        return (int) (templateIndex >>> 32);
+    }
+
+    static int getTemplateOffset(final long templateIndex) {
+        return (int) templateIndex;
+    }
+
+    /**
+     * Computes the offset of the first read of the template of each read of a partition of a queryname grouped bam,
+     * that is the offset of the first read of the run of consecutive reads with the same name it belongs to.
+     */
+    static final class TemplateOffsetTracker {
+        private int offset = -1;
+        private int templateOffset = -1;
+        private String templateName = null;
+
+        /**
+         * @param read the next read of the partition
+         * @return the offset within the partition of the first read of the template of {@code read}
+         */
+        int next(final GATKRead read) {
+            offset++;
+            if (templateName == null || !templateName.equals(read.getName())) {
+                templateName = read.getName();
+                templateOffset = offset;
+            }
+            return templateOffset;
+        }
+    }
+
+    /**
+     * (0) index: label each read with the index of its template (see {@link #getTemplateIndex}).
+     * (1) filter: remove unmapped reads.
+     * (2) keyReadsByName: label each read with its read group and read name.
+     * (3) GroupByKey: group together reads with the same group and name.
+     * (4) keyMarkDuplicatesSparkRecords with alignment info:
      *   (a) Generate a fragment or emptyFragment from each read if it's unpaired.
      *   (b) Pair grouped reads into MarkDuplicatesSparkRecord. In most cases there will only be two reads
      *       with the same name. Mapped reads missing mates will be emitted as fragments, more than two reads will cause an exception.
      *   (c) Label each read with alignment information: Library, reference index,
      *       stranded unclipped start and reverse strand.
      *   (d) Unmapped Pairs, Templates of entirely non-primary reads, etc are passed through as unmarked reads
-     * (4) GroupByKey: Group MarkDuplicatesSparkRecord that share alignment information. These pairs
-     *     are duplicates of each other.
-     * (5) markDuplicatePairs:
-     *   (a) For each group created by (4), sort the pairs by score and mark all but the
-     *       highest scoring as duplicates.
-     *   (b) Determine which duplicates are optical duplicates and increase the overall count.
+     * (5) combineByKey: Summarize the MarkDuplicatesSparkRecord that share alignment information, which are duplicates
+     *     of each other, into a {@link DuplicateGroup} holding the highest scoring of them and the physical locations
+     *     needed to find optical duplicates. Passthroughs are not duplicate marked, so skip this step.
+     * (6) markDuplicateRecords: For each group, emit the template of the highest scoring record (all others are
+     *     duplicates), with the number of optical duplicates among the pairs.
+     *
+     * @return the template index (see {@link #getTemplateIndex}) of each template whose reads are not duplicates, with
+     *         the number of optical duplicates to report on its reads, or -1 if there are none to report
      */
-    static JavaPairRDD<IndexPair<String>, Integer> transformToDuplicateNames(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder, final JavaRDD<GATKRead>  reads, final int numReducers) {
+    static JavaPairRDD<Long, Integer> transformToNonDuplicateTemplates(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy, final OpticalDuplicateFinder finder, final JavaRDD<GATKRead>  reads, final int numReducers) {
+        final JavaRDD<IndexPair<GATKRead>> indexedReads = reads.mapPartitionsWithIndex(
+                (index, iter) -> {
+                    final TemplateOffsetTracker templateOffsets = new TemplateOffsetTracker();
+                    return Utils.stream(iter).map(read -> {
+                        if (!(read.getClass() == SAMRecordToGATKReadAdapter.class)) {
+                            throw new GATKException(String.format("MarkDuplicatesSpark currently only supports SAMRecords as an underlying reads data source class, %s found instead",
+                                    read.getClass().toString()));
+                        }
+                        return new IndexPair<>(read, getTemplateIndex(index, templateOffsets.next(read)));
+                    }).iterator();
+                }, false);
+
         // we treat these specially and don't mark them as duplicates
-        final JavaRDD<GATKRead> mappedReads = reads.filter(ReadFilterLibrary.MAPPED::test);
+        final JavaRDD<IndexPair<GATKRead>> mappedReads = indexedReads.filter(readWithIndex -> ReadFilterLibrary.MAPPED.test(readWithIndex.getValue()));
 
-        final JavaPairRDD<String, Iterable<IndexPair<GATKRead>>> keyedReads = getReadsGroupedByName(header, mappedReads, numReducers);
+        final JavaPairRDD<String, Iterable<IndexPair<GATKRead>>> keyedReads = getReadsGroupedByName(header, mappedReads);
 
         final Broadcast<Map<String, Short>> headerReadGroupIndexMap = JavaSparkContext.fromSparkContext(reads.context()).broadcast( getHeaderReadGroupIndexMap(header));
         final Broadcast<Map<String, Byte>> libraryIndex = JavaSparkContext.fromSparkContext(reads.context()).broadcast( constructLibraryIndex(header));
 
         // Place all the reads into a single RDD of MarkDuplicatesSparkRecord objects
         final JavaPairRDD<ReadsKey, MarkDuplicatesSparkRecord> pairedEnds = keyedReads.flatMapToPair(keyedRead -> {
-            final List<Tuple2<ReadsKey, MarkDuplicatesSparkRecord>> out = Lists.newArrayList();
-            final IndexPair<?>[] hadNonPrimaryRead = {null};
-
-            final List<IndexPair<GATKRead>> primaryReads = Utils.stream(keyedRead._2())
-                    ////// Making The Fragments //////
-                    // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
-                    .peek(readWithIndex -> {
-                        final GATKRead read = readWithIndex.getValue();
-                        if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
-                            PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
-                                    MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex.getValue()) :
-                                    MarkDuplicatesSparkRecord.newFragment(read, header, readWithIndex.getIndex(), scoringStrategy, libraryIndex.getValue());
-
-                            out.add(new Tuple2<>(fragment.key(), fragment));
-                        } else {
-                            hadNonPrimaryRead[0] = readWithIndex;
-                        }
-                    })
-                    .filter(indexPair -> !(indexPair.getValue().isSecondaryAlignment()||indexPair.getValue().isSupplementaryAlignment()))
-                    .collect(Collectors.toList());
-
-            // Catching the case where there are only secondary and supplementary reads in the readname group
-            if (primaryReads.isEmpty()) {
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough((GATKRead)hadNonPrimaryRead[0].getValue(), hadNonPrimaryRead[0].getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
-                return out.iterator();
-
-                // Mark duplicates cant properly handle templates with more than two reads in a pair
-            } else if (primaryReads.size()>2) {
-                throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
-                        " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
-            }
+            final List<IndexPair<GATKRead>> template = Lists.newArrayList(keyedRead._2());
+            return generateRecordsForTemplate(header, scoringStrategy, headerReadGroupIndexMap.getValue(), libraryIndex.getValue(),
+                    Lists.transform(template, IndexPair::getValue), template.get(0).getIndex())
+                    .stream()
+                    .map(record -> new Tuple2<>(record.key(), record))
+                    .iterator();
+        });
 
-            ////// Making The Paired Reads //////
-            // Write each paired read with a mapped mate as a pair
-            final List<IndexPair<GATKRead>> mappedPair = primaryReads.stream()
-                    .filter(readWithIndex -> ReadUtils.readHasMappedMate(readWithIndex.getValue()))
-                    .collect(Collectors.toList());
-
-            // If there are two primary reads in the group pass them as a pair
-            if (mappedPair.size()==2) {
-                final GATKRead firstRead = mappedPair.get(0).getValue();
-                final IndexPair<GATKRead> secondRead = mappedPair.get(1);
-                final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, secondRead.getValue(), header, secondRead.getIndex(), scoringStrategy, libraryIndex.getValue());
-                // Validate and add the read group to the pair
-                final Short readGroup = headerReadGroupIndexMap.getValue().get(firstRead.getReadGroup());
-                if (readGroup != null) {
-                    pair.setReadGroup(readGroup);
-                } else {
-                    throw (firstRead.getReadGroup()==null) ?
-                            new UserException.ReadMissingReadGroup(firstRead) :
-                            new UserException.HeaderMissingReadGroup(firstRead);
-                }
-                out.add(new Tuple2<>(pair.key(), pair));
+        // Passthroughs are never duplicates, so need not be grouped with anything
+        final JavaPairRDD<Long, Integer> passthroughs = pairedEnds.values()
+                .filter(record -> record.getType() == MarkDuplicatesSparkRecord.Type.PASSTHROUGH)
+                .mapToPair(record -> new Tuple2<>(record.getTemplateIndex(), -1));
+
+        final JavaPairRDD<ReadsKey, DuplicateGroup> duplicateGroups = pairedEnds
+                .filter(keyedRecord -> keyedRecord._2().getType() != MarkDuplicatesSparkRecord.Type.PASSTHROUGH)
+                .combineByKey(
+                        record -> new DuplicateGroup(finder).add(record, finder),
+                        (group, record) -> group.add(record, finder),
+                        DuplicateGroup::merge);
+
+        return markDuplicateRecords(duplicateGroups, finder).union(passthroughs);
+    }
 
-                // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
-            } else if (mappedPair.size()==1) {
-                final IndexPair<GATKRead> firstRead = mappedPair.get(0);
-                final MarkDuplicatesSparkRecord pass = MarkDuplicatesSparkRecord.getPassthrough(firstRead.getValue(), firstRead.getIndex());
-                out.add(new Tuple2<>(pass.key(), pass));
+    /**
+     * Makes the MarkDuplicatesSparkRecords of the mapped reads of a template:
+     *   (a) A fragment or emptyFragment from each primary read, depending on whether its mate is mapped.
+     *   (b) A pair of the two primary reads with mapped mates, if there are two of them. Mapped reads missing mates are
+     *       passed through, more than two primary reads will cause an exception.
+     *   (c) A passthrough for templates made entirely of non-primary reads.
+     *
+     * Each record is labeled with its alignment information by its {@link MarkDuplicatesSparkRecord#key()}.
+     *
+     * @param mappedReads the mapped reads of a template, must not be empty
+     * @param templateIndex the index identifying the template when its records are marked
+     */
+    public static List<MarkDuplicatesSparkRecord> generateRecordsForTemplate(final SAMFileHeader header, final MarkDuplicatesScoringStrategy scoringStrategy,
+                                                                             final Map<String, Short> headerReadGroupIndexMap, final Map<String, Byte> libraryIndex,
+                                                                             final List<GATKRead> mappedReads, final long templateIndex) {
+        final List<MarkDuplicatesSparkRecord> out = Lists.newArrayList();
+        GATKRead hadNonPrimaryRead = null;
+
+        ////// Making The Fragments //////
+        // Make a PairedEnd object with no second read for each fragment (and an empty one for each paired read)
+        final List<GATKRead> primaryReads = new ArrayList<>(2);
+        for (final GATKRead read : mappedReads) {
+            if (!(read.isSecondaryAlignment()||read.isSupplementaryAlignment())) {
+                final PairedEnds fragment = (ReadUtils.readHasMappedMate(read)) ?
+                        MarkDuplicatesSparkRecord.newEmptyFragment(read, header, libraryIndex) :
+                        MarkDuplicatesSparkRecord.newFragment(read, header, templateIndex, scoringStrategy, libraryIndex);
+                out.add(fragment);
+                primaryReads.add(read);
+            } else {
+                hadNonPrimaryRead = read;
             }
-            // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
-            // and added to out. So we just pass through and return.
+        }
 
-            return out.iterator();
-        });
+        // Catching the case where there are only secondary and supplementary reads in the readname group
+        if (primaryReads.isEmpty()) {
+            out.add(MarkDuplicatesSparkRecord.getPassthrough(hadNonPrimaryRead, templateIndex));
+            return out;
 
-        final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs = pairedEnds.groupByKey(); //TODO evaluate replacing this with a smart aggregate by key.
+            // Mark duplicates cant properly handle templates with more than two reads in a pair
+        } else if (primaryReads.size()>2) {
+            throw new UserException.UnimplementedFeature(String.format("MarkDuplicatesSpark only supports singleton fragments and pairs. We found the following group with >2 primary reads: ( %d number of reads)." +
+                    " \n%s.", primaryReads.size(), primaryReads.stream().map(Object::toString).collect(Collectors.joining("\n"))));
+        }
+
+        ////// Making The Paired Reads //////
+        // Write each paired read with a mapped mate as a pair
+        final List<GATKRead> mappedPair = primaryReads.stream()
+                .filter(ReadUtils::readHasMappedMate)
+                .collect(Collectors.toList());
 
-        return markDuplicateRecords(keyedPairs, finder);
+        // If there are two primary reads in the group pass them as a pair
+        if (mappedPair.size()==2) {
+            final GATKRead firstRead = mappedPair.get(0);
+            final Pair pair = MarkDuplicatesSparkRecord.newPair(firstRead, mappedPair.get(1), header, templateIndex, scoringStrategy, libraryIndex);
+            // Validate and add the read group to the pair
+            final Short readGroup = headerReadGroupIndexMap.get(firstRead.getReadGroup());
+            if (readGroup != null) {
+                pair.setReadGroup(readGroup);
+            } else {
+                throw (firstRead.getReadGroup()==null) ?
+                        new UserException.ReadMissingReadGroup(firstRead) :
+                        new UserException.HeaderMissingReadGroup(firstRead);
+            }
+            out.add(pair);
+
+            // If there is one paired read in the template this probably means the bam is missing its mate, don't duplicate mark it
+        } else if (mappedPair.size()==1) {
+            out.add(MarkDuplicatesSparkRecord.getPassthrough(mappedPair.get(0), templateIndex));
+        }
+        // If mappedPair is empty here, it probably means that we had a fragment with an unmapped mate, which has already been built
+        // and added to out. So we just pass through and return.
+
+        return out;
     }
 
     /**
@@ -216,7 +303,7 @@ public class MarkDuplicatesSparkUtils {
     /**
      * Method which generates a map of the readgroups from the header so they can be serialized as indexes
      */
-    private static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
+    public static Map<String, Short> getHeaderReadGroupIndexMap(final SAMFileHeader header) {
         final List<SAMReadGroupRecord> readGroups = header.getReadGroups();
         if (readGroups.size() > 65535) {
             throw new GATKException("Detected too many read groups in the header, currently MarkDuplicatesSpark only supports up to 65535 unique readgroup IDs but " + readGroups.size() + " were found");
@@ -229,20 +316,13 @@ public class MarkDuplicatesSparkUtils {
     }
 
     /**
-     * Method that ensures the reads are grouped together keyed by their readname groups with indexpairs represeting the source partition.
+     * Method that ensures the reads are grouped together keyed by their readname groups with indexpairs represeting the source template.
      * If the bam is querygrouped/queryname sorted then it calls spanReadsByKey to perform the mapping operation
      * If the bam is sorted in some other way it performs a groupBy operation on the key
      */
-    private static JavaPairRDD<String, Iterable<IndexPair<GATKRead>>> getReadsGroupedByName(SAMFileHeader header, JavaRDD<GATKRead> reads, int numReducers) {
+    private static JavaPairRDD<String, Iterable<IndexPair<GATKRead>>> getReadsGroupedByName(SAMFileHeader header, JavaRDD<IndexPair<GATKRead>> indexedReads) {
 
         final JavaPairRDD<String, Iterable<IndexPair<GATKRead>>> keyedReads;
-        final JavaRDD<IndexPair<GATKRead>> indexedReads = reads.mapPartitionsWithIndex(
-                (index, iter) -> Utils.stream(iter).map(read -> {
-                    if (!(read.getClass() == SAMRecordToGATKReadAdapter.class)) {
-                        throw new GATKException(String.format("MarkDuplicatesSpark currently only supports SAMRecords as an underlying reads data source class, %s found instead",
-                                read.getClass().toString()));
-                    }
-                    return new IndexPair<>(read, index);}).iterator(), false);
         if (ReadUtils.isReadNameGroupedBam(header)) {
             // reads are already grouped by name, so perform grouping within the partition (no shuffle)
             keyedReads = spanReadsByKey(indexedReads);
@@ -324,40 +404,27 @@ public class MarkDuplicatesSparkUtils {
     }
 
     /**
-     * Primary landing point for MarkDuplicateSparkRecords:
-     *  - Handles separating out hashed keys into into groups by start position/readgroup
-     *  - Further separates out MarkDuplicatesSparkRecord by their record objects
-     *  - Farms out to methods which handles each group
-     *  - Collects the results and returns an iterator
+     * Primary landing point for the groups of duplicate MarkDuplicateSparkRecords:
+     *  - Emits the best fragment of each group of fragments, unless there is a mapped read from a pair at the same site
+     *  - Emits the best pair of each group of pairs, with the number of optical duplicates in the group
      */
-    @SuppressWarnings("unchecked")
-    private static JavaPairRDD<IndexPair<String>, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, Iterable<MarkDuplicatesSparkRecord>> keyedPairs,
-                                                                                final OpticalDuplicateFinder finder) {
-        return keyedPairs.flatMapToPair(keyedPair -> {
-            Iterable<MarkDuplicatesSparkRecord> pairGroups = keyedPair._2();
-
-            final List<Tuple2<IndexPair<String>, Integer>> nonDuplicates = Lists.newArrayList();
-            final Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> stratifiedByType = splitByType(pairGroups);
+    private static JavaPairRDD<Long, Integer> markDuplicateRecords(final JavaPairRDD<ReadsKey, DuplicateGroup> duplicateGroups,
+                                                                    final OpticalDuplicateFinder finder) {
+        return duplicateGroups.flatMapToPair(keyedGroup -> {
+            final DuplicateGroup group = keyedGroup._2();
+            final List<Tuple2<Long, Integer>> nonDuplicates = new ArrayList<>(2);
 
             // Each key corresponds to either fragments or paired ends, not a mixture of both.
-            final List<MarkDuplicatesSparkRecord> emptyFragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.EMPTY_FRAGMENT);
-            final List<MarkDuplicatesSparkRecord> fragments = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.FRAGMENT);
-            final List<Pair> pairs = (List<Pair>)(List)stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PAIR);
-            final List<MarkDuplicatesSparkRecord> passthroughs = stratifiedByType.get(MarkDuplicatesSparkRecord.Type.PASSTHROUGH);
-
             //empty MarkDuplicatesSparkRecord signify that a pair has a mate somewhere else
-            // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise compute the best score
-            if (Utils.isNonEmpty(fragments) && !Utils.isNonEmpty(emptyFragments)) {
-                final Tuple2<IndexPair<String>, Integer> bestFragment = handleFragments(fragments, finder);
-                nonDuplicates.add(bestFragment);
-            }
-
-            if (Utils.isNonEmpty(pairs)) {
-                nonDuplicates.add(handlePairs(pairs, finder));
+            // If there are any non-fragment placeholders at this site, mark everything as duplicates, otherwise keep the best fragment
+            final Fragment nonDuplicateFragment = group.getNonDuplicateFragment();
+            if (nonDuplicateFragment != null) {
+                nonDuplicates.add(new Tuple2<>(nonDuplicateFragment.getTemplateIndex(), -1));
             }
 
-            if (Utils.isNonEmpty(passthroughs)) {
-                nonDuplicates.addAll(handlePassthroughs(passthroughs));
+            final Pair nonDuplicatePair = group.getNonDuplicatePair();
+            if (nonDuplicatePair != null) {
+                nonDuplicates.add(new Tuple2<>(nonDuplicatePair.getTemplateIndex(), group.countOpticalDuplicates(finder)));
             }
 
             return nonDuplicates.iterator();
@@ -365,79 +432,286 @@ public class MarkDuplicatesSparkUtils {
     }
 
     /**
-     * split MarkDuplicatesSparkRecord into groups by their type
+     * Summary of a group of MarkDuplicatesSparkRecord sharing the same {@link ReadsKey}, which is all that is needed to
+     * duplicate mark them: the highest scoring fragment and pair according to PAIRED_ENDS_SCORE_COMPARATOR, whether there
+     * was an empty fragment, and for optical duplicate detection the physical location and orientation of every pair,
+     * each packed into primitives, in the order in which the pairs were added.
+     *
+     * This is the state of the combineByKey in {@link #transformToNonDuplicateTemplates}, which unlike a groupByKey
+     * never holds or shuffles the whole records of a group. It is also used to summarize the runs of records sharing a
+     * key in the sorted key table of the non-Spark MarkDuplicatesGATK.
+     *
+     * Note: This class is intended for internal MarkDuplicatesSpark purposes, it is only exposed so it can
+     *       be accessed by {@link org.broadinstitute.hellbender.engine.spark.GATKRegistrator} for kryo serialization
      */
-    private static Map<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> splitByType(Iterable<MarkDuplicatesSparkRecord> duplicateGroup) {
-        final EnumMap<MarkDuplicatesSparkRecord.Type, List<MarkDuplicatesSparkRecord>> byType = new EnumMap<>(MarkDuplicatesSparkRecord.Type.class);
-        for(MarkDuplicatesSparkRecord pair: duplicateGroup) {
-            byType.compute(pair.getType(), (key, value) -> {
-                if (value == null) {
-                    final ArrayList<MarkDuplicatesSparkRecord> pairedEnds = new ArrayList<>();
-                    pairedEnds.add(pair);
-                    return pairedEnds;
-                } else {
-                    value.add(pair);
-                    return value;
+    @DefaultSerializer(DuplicateGroup.Serializer.class)
+    public static final class DuplicateGroup {
+        private boolean hasEmptyFragment = false;
+
+        private Fragment bestFragment = null;
+        private long bestFragmentLocation;
+
+        private Pair bestPair = null;
+        private long bestPairLocation;
+        private int bestPairIndex;
+        private int numPairs = 0;
+        // only kept if there is an optical duplicate finder
+        private final LongArrayList pairLocations;
+        private final ByteArrayList pairOrientations;
+
+        /**
+         * @param finder the optical duplicate finder, or null if optical duplicates are not counted
+         */
+        public DuplicateGroup(final OpticalDuplicateFinder finder) {
+            this(finder != null ? new LongArrayList() : null, finder != null ? new ByteArrayList() : null);
+        }
+
+        private DuplicateGroup(final LongArrayList pairLocations, final ByteArrayList pairOrientations) {
+            this.pairLocations = pairLocations;
+            this.pairOrientations = pairOrientations;
+        }
+
+        /**
+         * Adds a record, parsing its physical location from its read name with {@code finder}, if there is one.
+         */
+        public DuplicateGroup add(final MarkDuplicatesSparkRecord record, final OpticalDuplicateFinder finder) {
+            if (finder != null && (record.getType() == MarkDuplicatesSparkRecord.Type.FRAGMENT || record.getType() == MarkDuplicatesSparkRecord.Type.PAIR)) {
+                finder.addLocationInformation(record.getName(), (PhysicalLocation) record);
+            }
+            return addWithPhysicalLocation(record);
+        }
+
+        /**
+         * Adds a record whose physical location has already been parsed, if it is needed (ie if this group was made
+         * with an optical duplicate finder).
+         */
+        public DuplicateGroup addWithPhysicalLocation(final MarkDuplicatesSparkRecord record) {
+            switch (record.getType()) {
+                case EMPTY_FRAGMENT:
+                    hasEmptyFragment = true;
+                    break;
+                case FRAGMENT: {
+                    final Fragment fragment = (Fragment) record;
+                    if (bestFragment == null || PAIRED_ENDS_SCORE_COMPARATOR.compare(bestFragment, fragment) < 0) {
+                        bestFragment = fragment;
+                        bestFragmentLocation = packLocation(fragment);
+                    }
+                    break;
+                }
+                case PAIR: {
+                    final Pair pair = (Pair) record;
+                    if (pairLocations != null) {
+                        pairLocations.add(packLocation(pair));
+                        pairOrientations.add(pair.getOrientationForOpticalDuplicates());
+                    }
+                    if (bestPair == null || PAIRED_ENDS_SCORE_COMPARATOR.compare(bestPair, pair) < 0) {
+                        bestPair = pair;
+                        bestPairLocation = packLocation(pair);
+                        bestPairIndex = numPairs;
+                    }
+                    numPairs++;
+                    break;
                 }
-            });
+                default:
+                    throw new GATKException.ShouldNeverReachHereException("Unexpected record in a group of duplicates: " + record.getType());
+            }
+            return this;
         }
-        return byType;
-    }
 
-    private static List<Tuple2<IndexPair<String>,Integer>> handlePassthroughs(List<MarkDuplicatesSparkRecord> passthroughs) {
-        // Emit the passthrough reads as non-duplicates.
-        return passthroughs.stream()
-                .map(pair -> new Tuple2<>(new IndexPair<>(pair.getName(), pair.getPartitionIndex()), -1))
-                .collect(Collectors.toList());
-    }
+        /**
+         * Adds the records of another group, which come after the records of this group.
+         */
+        DuplicateGroup merge(final DuplicateGroup other) {
+            hasEmptyFragment |= other.hasEmptyFragment;
+            if (other.bestFragment != null && (bestFragment == null || PAIRED_ENDS_SCORE_COMPARATOR.compare(bestFragment, other.bestFragment) < 0)) {
+                bestFragment = other.bestFragment;
+                bestFragmentLocation = other.bestFragmentLocation;
+            }
+            if (other.bestPair != null && (bestPair == null || PAIRED_ENDS_SCORE_COMPARATOR.compare(bestPair, other.bestPair) < 0)) {
+                bestPair = other.bestPair;
+                bestPairLocation = other.bestPairLocation;
+                bestPairIndex = numPairs + other.bestPairIndex;
+            }
+            numPairs += other.numPairs;
+            if (pairLocations != null) {
+                pairLocations.addAll(other.pairLocations);
+                pairOrientations.addAll(other.pairOrientations);
+            }
+            return this;
+        }
 
-    private static Tuple2<IndexPair<String>, Integer> handlePairs(List<Pair> pairs, OpticalDuplicateFinder finder) {
-        // save ourselves the trouble when there are no optical duplicates to worry about
-        if (pairs.size() == 1) {
-            return (new Tuple2<>(new IndexPair<>(pairs.get(0).getName(), pairs.get(0).getPartitionIndex()), 0));
+        /**
+         * @return the highest scoring fragment of this group, unless there is a mapped read from a pair at the same
+         *         site (in which case all the fragments are duplicates), or null if there is none
+         */
+        public Fragment getNonDuplicateFragment() {
+            return hasEmptyFragment ? null : bestFragment;
         }
 
-        final Pair bestPair = pairs.stream()
-                .peek(pair -> finder.addLocationInformation(pair.getName(), pair))
-                .max(PAIRED_ENDS_SCORE_COMPARATOR)
-                .orElseThrow(() -> new GATKException.ShouldNeverReachHereException("There was no best pair because the stream was empty, but it shouldn't have been empty."));
-
-        // Split by orientation and count duplicates in each group separately.
-        final Map<Byte, List<Pair>> groupByOrientation = pairs.stream()
-                .collect(Collectors.groupingBy(Pair::getOrientationForOpticalDuplicates));
-        final int numOpticalDuplicates;
-        //todo do we not have to split the reporting of these by orientation?
-        if (groupByOrientation.containsKey(ReadEnds.FR) && groupByOrientation.containsKey(ReadEnds.RF)) {
-            final List<Pair> peFR = new ArrayList<>(groupByOrientation.get(ReadEnds.FR));
-            final List<Pair> peRF = new ArrayList<>(groupByOrientation.get(ReadEnds.RF));
-            numOpticalDuplicates = countOpticalDuplicates(finder, peFR, bestPair) + countOpticalDuplicates(finder, peRF, bestPair);
-        } else {
-            numOpticalDuplicates = countOpticalDuplicates(finder, pairs, bestPair);
+        /**
+         * @return the highest scoring pair of this group, or null if there is none
+         */
+        public Pair getNonDuplicatePair() {
+            return bestPair;
         }
-        return (new Tuple2<>(new IndexPair<>(bestPair.getName(), bestPair.getPartitionIndex()), numOpticalDuplicates));
-    }
 
-    private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<Pair> scored, Pair best) {
-        final boolean[] opticalDuplicateFlags = finder.findOpticalDuplicates(scored, best);
-        int numOpticalDuplicates = 0;
-        for (final boolean b : opticalDuplicateFlags) {
-            if (b) {
-                numOpticalDuplicates++;
+        /**
+         * @return the number of optical duplicates of the best pair among the pairs of this group
+         */
+        public int countOpticalDuplicates(final OpticalDuplicateFinder finder) {
+            // save ourselves the trouble when there are no optical duplicates to worry about
+            if (numPairs == 1 || finder == null) {
+                return 0;
+            }
+
+            final List<PhysicalLocation> locations = new ArrayList<>(numPairs);
+            for (int i = 0; i < numPairs; i++) {
+                locations.add(new PackedPhysicalLocation(pairLocations.getLong(i)));
+            }
+            final PhysicalLocation best = locations.get(bestPairIndex);
+
+            // Split by orientation and count duplicates in each group separately.
+            //todo do we not have to split the reporting of these by orientation?
+            if (pairOrientations.contains(ReadEnds.FR) && pairOrientations.contains(ReadEnds.RF)) {
+                return countOpticalDuplicates(finder, locationsWithOrientation(locations, ReadEnds.FR), best) +
+                        countOpticalDuplicates(finder, locationsWithOrientation(locations, ReadEnds.RF), best);
+            } else {
+                return countOpticalDuplicates(finder, locations, best);
+            }
+        }
+
+        private List<PhysicalLocation> locationsWithOrientation(final List<PhysicalLocation> locations, final byte orientation) {
+            final List<PhysicalLocation> result = new ArrayList<>();
+            for (int i = 0; i < locations.size(); i++) {
+                if (pairOrientations.getByte(i) == orientation) {
+                    result.add(locations.get(i));
+                }
+            }
+            return result;
+        }
+
+        private static int countOpticalDuplicates(OpticalDuplicateFinder finder, List<PhysicalLocation> scored, PhysicalLocation best) {
+            final boolean[] opticalDuplicateFlags = finder.findOpticalDuplicates(scored, best);
+            int numOpticalDuplicates = 0;
+            for (final boolean b : opticalDuplicateFlags) {
+                if (b) {
+                    numOpticalDuplicates++;
+                }
+            }
+            return numOpticalDuplicates;
+        }
+
+        /**
+         * Packs the read group, tile, x and y of a physical location (all of which are stored as shorts) into a long.
+         */
+        private static long packLocation(final PhysicalLocation location) {
+            return ((location.getReadGroup() & 0xFFFFL) << 48) |
+                    ((location.getTile() & 0xFFFFL) << 32) |
+                    ((location.getX() & 0xFFFFL) << 16) |
+                    (location.getY() & 0xFFFFL);
+        }
+
+        /**
+         * Restores the physical location of a record read back by kryo, as it is not serialized with the record.
+         */
+        private static void unpackLocation(final long packedLocation, final PhysicalLocation location) {
+            location.setReadGroup((short) (packedLocation >>> 48));
+            location.setTile((short) (packedLocation >>> 32));
+            location.setX((short) (packedLocation >>> 16));
+            location.setY((short) packedLocation);
+        }
+
+        public static final class Serializer extends com.esotericsoftware.kryo.Serializer<DuplicateGroup> {
+            @Override
+            public void write(final Kryo kryo, final Output output, final DuplicateGroup group) {
+                output.writeBoolean(group.hasEmptyFragment);
+                kryo.writeObjectOrNull(output, group.bestFragment, Fragment.class);
+                output.writeLong(group.bestFragmentLocation);
+                kryo.writeObjectOrNull(output, group.bestPair, Pair.class);
+                output.writeLong(group.bestPairLocation);
+                output.writeInt(group.bestPairIndex, true);
+                output.writeInt(group.numPairs, true);
+                output.writeBoolean(group.pairLocations != null);
+                if (group.pairLocations != null) {
+                    output.writeLongs(group.pairLocations.toLongArray());
+                    output.writeBytes(group.pairOrientations.toByteArray());
+                }
+            }
+
+            @Override
+            public DuplicateGroup read(final Kryo kryo, final Input input, final Class<DuplicateGroup> klass) {
+                final boolean hasEmptyFragment = input.readBoolean();
+                final Fragment bestFragment = kryo.readObjectOrNull(input, Fragment.class);
+                final long bestFragmentLocation = input.readLong();
+                final Pair bestPair = kryo.readObjectOrNull(input, Pair.class);
+                final long bestPairLocation = input.readLong();
+                final int bestPairIndex = input.readInt(true);
+                final int numPairs = input.readInt(true);
+                final DuplicateGroup group = input.readBoolean() ?
+                        new DuplicateGroup(new LongArrayList(input.readLongs(numPairs)), new ByteArrayList(input.readBytes(numPairs))) :
+                        new DuplicateGroup(null, null);
+
+                group.hasEmptyFragment = hasEmptyFragment;
+                group.bestFragment = bestFragment;
+                group.bestFragmentLocation = bestFragmentLocation;
+                if (bestFragment != null) {
+                    unpackLocation(bestFragmentLocation, bestFragment);
+                }
+                group.bestPair = bestPair;
+                group.bestPairLocation = bestPairLocation;
+                if (bestPair != null) {
+                    unpackLocation(bestPairLocation, bestPair);
+                }
+                group.bestPairIndex = bestPairIndex;
+                group.numPairs = numPairs;
+                return group;
             }
         }
-        return numOpticalDuplicates;
     }
 
     /**
-     * If there are fragments with no non-fragments overlapping at a site, select the best one according to PAIRED_ENDS_SCORE_COMPARATOR
+     * A physical location unpacked from {@link DuplicateGroup}, for the optical duplicate finder.
      */
-    private static Tuple2<IndexPair<String>, Integer> handleFragments(List<MarkDuplicatesSparkRecord> duplicateFragmentGroup, OpticalDuplicateFinder finder) {
-        return duplicateFragmentGroup.stream()
-                .map(f -> (Fragment)f)
-                .peek(f -> finder.addLocationInformation(f.getName(), f))
-                .max(PAIRED_ENDS_SCORE_COMPARATOR)
-                .map(best -> new Tuple2<>(new IndexPair<>(best.getName(), best.getPartitionIndex()), -1))
-                .orElse(null);
+    private static final class PackedPhysicalLocation implements PhysicalLocation {
+        private short readGroup;
+        private short tile;
+        private short x;
+        private short y;
+        private short libraryId = -1;
+
+        private PackedPhysicalLocation(final long packedLocation) {
+            DuplicateGroup.unpackLocation(packedLocation, this);
+        }
+
+        @Override
+        public short getReadGroup() { return readGroup; }
+
+        @Override
+        public void setReadGroup(final short readGroup) { this.readGroup = readGroup; }
+
+        @Override
+        public short getTile() { return tile; }
+
+        @Override
+        public void setTile(final short tile) { this.tile = tile; }
+
+        @Override
+        public int getX() { return x; }
+
+        @Override
+        public void setX(final int x) { this.x = (short)x; }
+
+        @Override
+        public int getY() { return y; }
+
+        @Override
+        public void setY(final int y) { this.y = (short)y; }
+
+        @Override
+        public short getLibraryId() { return libraryId; }
+
+        @Override
+        public void setLibraryId(final short libraryId) { this.libraryId = libraryId; }
     }
 
     static JavaPairRDD<String, GATKDuplicationMetrics> generateMetrics(final SAMFileHeader header, final JavaRDD<GATKRead> reads) {
@@ -463,19 +737,25 @@ public class MarkDuplicatesSparkUtils {
                     }
                     return metricsSum;
                 })
-                .mapValues(metrics -> {
-                    final GATKDuplicationMetrics copy = metrics.copy();
-                    // Divide these by 2 because they are counted for each read
-                    // when they should be counted by pair.
-                    copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
-                    copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
-
-                    copy.calculateDerivedFields();
-                    if (copy.ESTIMATED_LIBRARY_SIZE == null) {
-                        copy.ESTIMATED_LIBRARY_SIZE = 0L;
-                    }
-                    return copy;
-                });
+                .mapValues(MarkDuplicatesSparkUtils::finalizeMetrics);
+    }
+
+    /**
+     * @param metrics the sum of the metrics of each read of a library, updated with {@link GATKDuplicationMetrics#updateMetrics(GATKRead)}
+     * @return a copy of the metrics with pairs counted once and the derived fields calculated
+     */
+    public static GATKDuplicationMetrics finalizeMetrics(final GATKDuplicationMetrics metrics) {
+        final GATKDuplicationMetrics copy = metrics.copy();
+        // Divide these by 2 because they are counted for each read
+        // when they should be counted by pair.
+        copy.READ_PAIRS_EXAMINED = metrics.READ_PAIRS_EXAMINED / 2;
+        copy.READ_PAIR_DUPLICATES = metrics.READ_PAIR_DUPLICATES / 2;
+
+        copy.calculateDerivedFields();
+        if (copy.ESTIMATED_LIBRARY_SIZE == null) {
+            copy.ESTIMATED_LIBRARY_SIZE = 0L;
+        }
+        return copy;
     }
 
     /**
@@ -484,9 +764,18 @@ public class MarkDuplicatesSparkUtils {
      * @param result metrics object, potentially pre-initialized with headers,
      */
     public static void saveMetricsRDD(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final JavaPairRDD<String, GATKDuplicationMetrics> metricsRDD, final String metricsOutputPath) {
+        saveMetrics(result, header, metricsRDD.collectAsMap(), metricsOutputPath);
+    }
+
+    /**
+     * Saves the metrics to a file.
+     * Note: the SamFileHeader is needed in order to include libraries that didn't have any duplicates.
+     * @param result metrics object, potentially pre-initialized with headers,
+     * @param nonEmptyMetricsByLibrary the finalized (see {@link #finalizeMetrics}) metrics of each library with reads
+     */
+    public static void saveMetrics(final MetricsFile<GATKDuplicationMetrics, Double> result, final SAMFileHeader header, final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary, final String metricsOutputPath) {
         final LibraryIdGenerator libraryIdGenerator = new LibraryIdGenerator(header);
 
-        final Map<String, GATKDuplicationMetrics> nonEmptyMetricsByLibrary = metricsRDD.collectAsMap();           //Unknown Library
         final Map<String, GATKDuplicationMetrics> emptyMapByLibrary = libraryIdGenerator.getMetricsByLibraryMap();//with null
 
         final List<String> sortedListOfLibraryNames = new ArrayList<>(Sets.union(emptyMapByLibrary.keySet(), nonEmptyMetricsByLibrary.keySet()));
@@ -0,0 +1,320 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.DefaultSerializer;
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.tools.spark.sv.utils.SVUtils;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.Arrays;
+
+/**
+ * Blocked Bloom filter for primitive longs. Where {@link LongBloomFilter} sets bits scattered across the whole filter,
+ * and so takes a cache miss per hash function on every query, this sets all the bits of a value within one 512-bit
+ * block, the size of a cache line, so that a query touches a single block. A batch of queries can be made with
+ * {@link #contains(long[], int, boolean[])}, which locates the blocks of all the values before reading any of them so
+ * that their cache misses overlap.
+ *
+ * The price is a higher false positive probability than that of a LongBloomFilter of the same size, since values are
+ * not spread evenly over the blocks. The number of blocks is therefore chosen so that the theoretical false positive
+ * probability of the blocked filter, not that of a standard one, meets the given false positive probability. See
+ * reference:
+ * <p>
+ * Putze, Sanders and Singler. 2009. Cache-, hash-, and space-efficient Bloom filters. Journal of Experimental
+ * Algorithmics. 14, 4.4.
+ */
+@DefaultSerializer(LongBlockedBloomFilter.Serializer.class)
+public final class LongBlockedBloomFilter {
+
+    private final transient Logger logger = LogManager.getLogger(this.getClass());
+
+    public static final int BLOCK_BITS = 512;
+    private static final int BLOCK_LONGS = BLOCK_BITS / Long.SIZE;
+    private static final int BLOCK_BIT_SHIFT = Long.SIZE - Integer.numberOfTrailingZeros(BLOCK_BITS);
+    private static final int LOG_BLOCKS_PER_ARRAY = 24; //Arrays of 2^27 longs
+    private static final int BLOCKS_PER_ARRAY = 1 << LOG_BLOCKS_PER_ARRAY;
+
+    //Factor by which the number of blocks is grown until the filter meets its false positive probability
+    private static final double BLOCK_GROWTH_FACTOR = 1.02;
+
+    /**
+     * Batch queries locate the blocks of at most this many keys at a time, so that their scratch space has a fixed size
+     */
+    public static final int QUERY_BATCH_SIZE = 16;
+
+    //Scratch space of the batch queries, per thread since a filter may be queried by several threads at once
+    private static final ThreadLocal<long[]> blockIndexBuffer = ThreadLocal.withInitial(() -> new long[QUERY_BATCH_SIZE]);
+
+    private final static long HASH_SEED_2 = 0x6cebe6dca7f118a6L;
+    private final static long BIT_HASH_MULTIPLIER = 0x9e3779b97f4a7c15L;
+
+    private final long numBlocks; //Number of 512-bit blocks
+    private final int numHashes; //Number of bits set per value within its block
+    private final long[][] blocks; //Blocks, BLOCKS_PER_ARRAY to each array (except the last one)
+
+    public LongBlockedBloomFilter(final long numElements, final double fpp) {
+        Utils.validateArg(numElements > 0, "Number of elements must be greater than 0");
+        Utils.validateArg(fpp > 0 && fpp < 1, "False positive probability must be between 0 and 1");
+
+        final int optimalNumberOfHashes = (int) Math.ceil(-Math.log(fpp) / Math.log(2));
+        numHashes = optimalNumberOfHashes > 0 ? optimalNumberOfHashes : 1;
+
+        final long optimalNumberOfBits = LongBloomFilter.getOptimalNumberOfBits(numElements, fpp);
+        long blocksNeeded = Math.max(1, (optimalNumberOfBits + BLOCK_BITS - 1) / BLOCK_BITS);
+        while (getTheoreticalFPP(blocksNeeded, numHashes, numElements) > fpp) {
+            blocksNeeded = Math.max(blocksNeeded + 1, (long) Math.ceil(blocksNeeded * BLOCK_GROWTH_FACTOR));
+        }
+        numBlocks = blocksNeeded;
+        blocks = allocateBlocks(numBlocks);
+    }
+
+    private LongBlockedBloomFilter(final Kryo kryo, final Input input) {
+        numBlocks = input.readLong();
+        numHashes = input.readInt();
+        blocks = new long[getNumBlockArrays(numBlocks)][];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = input.readLongs(getBlockArraySize(numBlocks, i));
+        }
+
+        if (logger.isDebugEnabled()) {
+            logger.debug("Deserialized: numBlocks : " + numBlocks + ", numHashes: " + numHashes + ", estimated false positive probability: " + getEstimatedFPP());
+        }
+    }
+
+    private void serialize(final Kryo kryo, final Output output) {
+        output.writeLong(numBlocks);
+        output.writeInt(numHashes);
+        for (final long[] array : blocks) {
+            output.writeLongs(array);
+        }
+    }
+
+    private static int getNumBlockArrays(final long numBlocks) {
+        return (int) ((numBlocks - 1) >>> LOG_BLOCKS_PER_ARRAY) + 1;
+    }
+
+    private static int getBlockArraySize(final long numBlocks, final int arrayIndex) {
+        final long blocksInArray = Math.min(BLOCKS_PER_ARRAY, numBlocks - ((long) arrayIndex << LOG_BLOCKS_PER_ARRAY));
+        return (int) blocksInArray * BLOCK_LONGS;
+    }
+
+    private static long[][] allocateBlocks(final long numBlocks) {
+        final long[][] blocks = new long[getNumBlockArrays(numBlocks)][];
+        for (int i = 0; i < blocks.length; i++) {
+            blocks[i] = new long[getBlockArraySize(numBlocks, i)];
+        }
+        return blocks;
+    }
+
+    /**
+     * Theoretical false positive probability of a blocked filter of numBlocks blocks holding numElements values. The
+     * number of values in the block of a query is Poisson-distributed, and the query is a false positive with the
+     * probability of a standard Bloom filter of one block holding that many values.
+     */
+    private static double getTheoreticalFPP(final long numBlocks, final int numHashes, final long numElements) {
+        final double lambda = numElements / (double) numBlocks;
+        final double logLambda = Math.log(lambda);
+        final double logBitClearPerHash = Math.log1p(-1.0 / BLOCK_BITS);
+        double logPoisson = -lambda;
+        double fpp = 0;
+        for (long i = 0; ; i++) {
+            if (i > 0) {
+                logPoisson += logLambda - Math.log(i);
+            }
+            final double poisson = Math.exp(logPoisson);
+            final double blockFpp = Math.pow(-Math.expm1(numHashes * i * logBitClearPerHash), numHashes);
+            fpp += poisson * blockFpp;
+            if (i > lambda && poisson < 1e-12 * fpp) {
+                return fpp;
+            }
+        }
+    }
+
+    public double getTheoreticalFPP(final long numElements) {
+        return getTheoreticalFPP(numBlocks, numHashes, numElements);
+    }
+
+    /**
+     * Returns an estimate of the false positive probability from the bits that are set, i.e. the mean over blocks of
+     * the probability that all the bits a query tests in the block are set
+     */
+    public double getEstimatedFPP() {
+        final double[] blockFpps = new double[BLOCK_BITS + 1];
+        for (int bitsSet = 0; bitsSet <= BLOCK_BITS; bitsSet++) {
+            blockFpps[bitsSet] = Math.pow(bitsSet / (double) BLOCK_BITS, numHashes);
+        }
+        double sum = 0;
+        for (final long[] array : blocks) {
+            for (int offset = 0; offset < array.length; offset += BLOCK_LONGS) {
+                int bitsSet = 0;
+                for (int i = 0; i < BLOCK_LONGS; i++) {
+                    bitsSet += Long.bitCount(array[offset + i]);
+                }
+                sum += blockFpps[bitsSet];
+            }
+        }
+        return sum / numBlocks;
+    }
+
+    /**
+     * Returns the size of the filter in bits
+     */
+    public long getNumBits() {
+        return numBlocks * BLOCK_BITS;
+    }
+
+    public boolean add(final long entryValue) {
+        final long blockIndex = getBlockIndex(entryValue);
+        final long[] array = blocks[getBlockArray(blockIndex)];
+        final int offset = getBlockOffset(blockIndex);
+        long hash = SVUtils.fnvLong64(HASH_SEED_2, entryValue);
+        for (int i = 0; i < numHashes; i++) {
+            final int blockBit = getBlockBit(hash);
+            array[offset + (blockBit >>> 6)] |= 1L << blockBit;
+            hash *= BIT_HASH_MULTIPLIER;
+        }
+        return true;
+    }
+
+    public boolean contains(final long key) {
+        final long blockIndex = getBlockIndex(key);
+        return isSetInBlock(blocks[getBlockArray(blockIndex)], getBlockOffset(blockIndex), key);
+    }
+
+    /**
+     * Queries a batch of keys, setting result[i] to whether keys[i] may be in the set, for i < numKeys. Each key is
+     * hashed to its block before any block is read, so that the memory accesses of the batch are independent of one
+     * another and can be in flight together.
+     */
+    public void contains(final long[] keys, final int numKeys, final boolean[] result) {
+        contains(keys, numKeys, result, 0);
+    }
+
+    /**
+     * Same as {@link #contains(long[], int, boolean[])}, but sets result[resultOffset + i] instead of result[i]
+     */
+    public void contains(final long[] keys, final int numKeys, final boolean[] result, final int resultOffset) {
+        Utils.validateArg(numKeys <= keys.length && resultOffset >= 0 && resultOffset + numKeys <= result.length,
+                "Not enough keys or results for the batch");
+        final long[] blockIndices = blockIndexBuffer.get();
+        for (int start = 0; start < numKeys; start += QUERY_BATCH_SIZE) {
+            final int end = Math.min(numKeys, start + QUERY_BATCH_SIZE);
+            locateBlocks(keys, start, end, blockIndices);
+            for (int i = start; i < end; i++) {
+                final long blockIndex = blockIndices[i - start];
+                result[resultOffset + i] = isSetInBlock(blocks[getBlockArray(blockIndex)], getBlockOffset(blockIndex), keys[i]);
+            }
+        }
+    }
+
+    public void addAll(final long[] entryValues) {
+        for (final long val : entryValues) {
+            add(val);
+        }
+    }
+
+    public boolean containsAll(final long[] vals) {
+        final long[] blockIndices = blockIndexBuffer.get();
+        for (int start = 0; start < vals.length; start += QUERY_BATCH_SIZE) {
+            final int end = Math.min(vals.length, start + QUERY_BATCH_SIZE);
+            locateBlocks(vals, start, end, blockIndices);
+            for (int i = start; i < end; i++) {
+                final long blockIndex = blockIndices[i - start];
+                if (!isSetInBlock(blocks[getBlockArray(blockIndex)], getBlockOffset(blockIndex), vals[i]))
+                    return false;
+            }
+        }
+        return true;
+    }
+
+    private void locateBlocks(final long[] keys, final int start, final int end, final long[] blockIndices) {
+        for (int i = start; i < end; i++) {
+            blockIndices[i - start] = getBlockIndex(keys[i]);
+        }
+    }
+
+    private boolean isSetInBlock(final long[] array, final int offset, final long key) {
+        long hash = SVUtils.fnvLong64(HASH_SEED_2, key);
+        for (int i = 0; i < numHashes; i++) {
+            final int blockBit = getBlockBit(hash);
+            if ((array[offset + (blockBit >>> 6)] & (1L << blockBit)) == 0) return false;
+            hash *= BIT_HASH_MULTIPLIER;
+        }
+        return true;
+    }
+
+    /**
+     * The block of a value is given by one hash. Its bits within the block are the top 9 bits of another hash h and of
+     * its successive products h * m^i with an odd multiplier m (i.e. Fibonacci hashing). Unlike double hashing modulo
+     * the block size, which could only produce a few hundred thousand distinct sets of bits, this draws the bits of
+     * each value from the whole 64-bit hash.
+     */
+    private long getBlockIndex(final long value) {
+        return Math.floorMod(SVUtils.fnvLong64(value), numBlocks);
+    }
+
+    private static int getBlockBit(final long hash) {
+        return (int) (hash >>> BLOCK_BIT_SHIFT);
+    }
+
+    private static int getBlockArray(final long blockIndex) {
+        return (int) (blockIndex >>> LOG_BLOCKS_PER_ARRAY);
+    }
+
+    private static int getBlockOffset(final long blockIndex) {
+        return (int) (blockIndex & (BLOCKS_PER_ARRAY - 1)) * BLOCK_LONGS;
+    }
+
+    public void clear() {
+        for (final long[] array : blocks) {
+            Arrays.fill(array, 0L);
+        }
+    }
+
+    public boolean isEmpty() {
+        for (final long[] array : blocks) {
+            for (final long word : array) {
+                if (word != 0) return false;
+            }
+        }
+        return true;
+    }
+
+    @SuppressWarnings("SimplifiableIfStatement")
+    @Override
+    public boolean equals(final Object o) {
+        if (this == o) return true;
+        if (!(o instanceof LongBlockedBloomFilter)) return false;
+
+        final LongBlockedBloomFilter that = (LongBlockedBloomFilter) o;
+
+        if (numBlocks != that.numBlocks) return false;
+        if (numHashes != that.numHashes) return false;
+        return Arrays.deepEquals(blocks, that.blocks);
+    }
+
+    @Override
+    public int hashCode() {
+        int result = (int) (numBlocks ^ (numBlocks >>> 32));
+        result = 31 * result + numHashes;
+        for (final long[] array : blocks) {
+            result = 31 * result + Arrays.hashCode(array);
+        }
+        return result;
+    }
+
+    public static final class Serializer extends com.esotericsoftware.kryo.Serializer<LongBlockedBloomFilter> {
+        @Override
+        public void write(final Kryo kryo, final Output output, final LongBlockedBloomFilter bloomFilter) {
+            bloomFilter.serialize(kryo, output);
+        }
+
+        @Override
+        public LongBlockedBloomFilter read(final Kryo kryo, final Input input, final Class<LongBlockedBloomFilter> klass) {
+            return new LongBlockedBloomFilter(kryo, input);
+        }
+    }
+}
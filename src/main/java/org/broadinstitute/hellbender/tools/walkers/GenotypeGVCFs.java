@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.cmdline.*;
 import org.broadinstitute.hellbender.cmdline.argumentcollections.DbsnpArgumentCollection;
 import org.broadinstitute.hellbender.cmdline.programgroups.ShortVariantDiscoveryProgramGroup;
 import org.broadinstitute.hellbender.engine.*;
+import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.tools.walkers.annotator.*;
 import org.broadinstitute.hellbender.tools.walkers.annotator.allelespecific.AS_RMSMappingQuality;
 import org.broadinstitute.hellbender.tools.walkers.genotyper.*;
@@ -65,6 +66,24 @@ import java.util.*;
  *   --tmp-dir=/path/to/large/tmp
  * </pre>
  *
+ * <h4>Incrementally joint genotype a cohort after adding new samples to it</h4>
+ * <p>
+ * When the input holds the samples of a previous joint callset plus newly added ones, passing that callset with
+ * `--previous-joint-calls` restricts genotyping to the sites which were called before or where a new sample may carry a
+ * non-reference allele. These sites are fully re-genotyped, so their QUAL, genotypes and cohort annotations are
+ * computed over all the samples. The other sites are skipped without running the genotyper, which is an approximation
+ * of a from-scratch run: weak alternate likelihoods of new samples whose most likely genotype is hom-ref, and the
+ * prior of the larger cohort, can push a borderline site which was not called before over the calling threshold, and
+ * such a call is missing from the output. This mode cannot be combined with `--include-non-variant-sites`.
+ * </p>
+ * <pre>
+ * gatk --java-options "-Xmx4g" GenotypeGVCFs \
+ *   -R Homo_sapiens_assembly38.fasta \
+ *   -V gendb://my_database \
+ *   --previous-joint-calls previous.vcf.gz \
+ *   -O output.vcf.gz
+ * </pre>
+ *
  * <h3>Caveats</h3>
  * <ul>
  *   <li>Only GVCF files produced by HaplotypeCaller (or CombineGVCFs) can be used as input for this tool. Some other
@@ -88,6 +107,7 @@ public final class GenotypeGVCFs extends VariantWalker {
     public static final String PHASED_HOM_VAR_STRING = "1|1";
     public static final String ONLY_OUTPUT_CALLS_STARTING_IN_INTERVALS_FULL_NAME = "only-output-calls-starting-in-intervals";
     public static final String ALL_SITES_LONG_NAME = "include-non-variant-sites";
+    public static final String PREVIOUS_JOINT_CALLS_LONG_NAME = "previous-joint-calls";
     private static final String GVCF_BLOCK = "GVCFBlock";
 
     @Argument(fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
@@ -117,6 +137,18 @@ public final class GenotypeGVCFs extends VariantWalker {
     @ArgumentCollection
     private final DbsnpArgumentCollection dbsnp = new DbsnpArgumentCollection();
 
+    /**
+     * A VCF previously output by this tool for a subset of the samples in the input. Any input sample missing from it
+     * is considered newly added, and only the sites called in this VCF or at which a new sample may be non-reference
+     * are genotyped. A site which was not called before, but which a from-scratch run over all the samples would call
+     * due to weak evidence in the new samples, is missed.
+     */
+    @Argument(fullName = PREVIOUS_JOINT_CALLS_LONG_NAME,
+            doc="Joint calls previously made on a subset of the input samples, to skip the sites which neither they nor the new samples call. " +
+                    "Approximate: borderline sites which only the new samples' weak evidence would push over the calling threshold are missed",
+            optional=true)
+    private FeatureInput<VariantContext> previousJointCalls;
+
     // the genotyping engine
     private GenotypingEngine<?> genotypingEngine;
     // the annotation engine
@@ -129,6 +161,9 @@ public final class GenotypeGVCFs extends VariantWalker {
     /** these are used when {@link #onlyOutputCallsStartingInIntervals) is true */
     private List<SimpleInterval> intervals;
 
+    /** the input samples which are not in {@link #previousJointCalls}, empty if it was not provided */
+    private List<String> newSamples = Collections.emptyList();
+
     @Override
     public boolean requiresReference() {
         return true;
@@ -163,9 +198,33 @@ public final class GenotypeGVCFs extends VariantWalker {
 
         merger = new ReferenceConfidenceVariantContextMerger(annotationEngine, getHeaderForVariants());
 
+        if ( previousJointCalls != null ) {
+            if ( includeNonVariants ) {
+                throw new CommandLineException("--" + ALL_SITES_LONG_NAME + " cannot be used with --" + PREVIOUS_JOINT_CALLS_LONG_NAME
+                        + ", since the sites skipped in incremental mode would be missing from the output");
+            }
+            newSamples = findNewSamples(samples);
+        }
+
         setupVCFWriter(inputVCFHeader, samples);
     }
 
+    private List<String> findNewSamples(final SampleList samples) {
+        final Object header = getHeaderForFeatures(previousJointCalls);
+        if ( !(header instanceof VCFHeader) ) {
+            throw new UserException.BadInput("The previous joint calls " + previousJointCalls.getName() + " are not in VCF format");
+        }
+        final Set<String> previousSamples = new LinkedHashSet<>(((VCFHeader) header).getGenotypeSamples());
+        final Set<String> inputSamples = samples.asSetOfSamples();
+        previousSamples.removeAll(inputSamples);
+        if ( !previousSamples.isEmpty() ) {
+            throw new UserException.BadInput("The previous joint calls " + previousJointCalls.getName() + " contain samples which are not in the input: " + previousSamples);
+        }
+        final List<String> result = new ArrayList<>(inputSamples);
+        result.removeAll(((VCFHeader) header).getGenotypeSamples());
+        return result;
+    }
+
     private static boolean annotationShouldBeSkippedForHomRefSites(VariantAnnotation annotation) {
         return annotation instanceof RankSumTest || annotation instanceof RMSMappingQuality || annotation instanceof AS_RMSMappingQuality;
     }
@@ -198,15 +257,42 @@ public final class GenotypeGVCFs extends VariantWalker {
 
     @Override
     public void apply(VariantContext variant, ReadsContext reads, ReferenceContext ref, FeatureContext features) {
+        if ( previousJointCalls != null && features.getValues(previousJointCalls, variant.getStart()).isEmpty()
+                && newSamples.stream().noneMatch(sample -> isPossiblyNonReference(variant.getGenotype(sample))) ) {
+            // the site was not called before, and no new sample is likely variant; borderline sites are missed here
+            return;
+        }
+
         ref.setWindow(10, 10); //TODO this matches the gatk3 behavior but may be unnecessary
         final VariantContext mergedVC = merger.merge(Collections.singletonList(variant), variant, includeNonVariants ? ref.getBase() : null, true, false);
         final VariantContext regenotypedVC = regenotypeVC(mergedVC, ref, features, includeNonVariants);
         if (regenotypedVC != null) {
-            final SimpleInterval variantStart = new SimpleInterval(regenotypedVC.getContig(), regenotypedVC.getStart(), regenotypedVC.getStart());
-            if (!onlyOutputCallsStartingInIntervals || intervals.stream().anyMatch(interval -> interval.contains    (variantStart))) {
-                vcfWriter.add(regenotypedVC);
-            }
+            writeIfStartingInIntervals(regenotypedVC);
+        }
+    }
+
+    private void writeIfStartingInIntervals(final VariantContext vc) {
+        final SimpleInterval variantStart = new SimpleInterval(vc.getContig(), vc.getStart(), vc.getStart());
+        if (!onlyOutputCallsStartingInIntervals || intervals.stream().anyMatch(interval -> interval.contains    (variantStart))) {
+            vcfWriter.add(vc);
+        }
+    }
+
+    /**
+     * Determines whether a sample of an input GVCF record might get a non-reference genotype once joint genotyped,
+     * i.e. whether it is called with an alternate allele other than {@code <NON_REF>}, or hom-ref is not (one of) its
+     * most likely genotype(s).
+     *
+     * @param genotype the genotype of the sample in the input GVCF record
+     * @return true if the sample may change the joint calls at this site
+     */
+    @VisibleForTesting
+    static boolean isPossiblyNonReference(final Genotype genotype) {
+        Utils.nonNull(genotype);
+        if ( genotype.hasPL() && genotype.getPL()[0] > 0 ) {
+            return true;
         }
+        return genotype.getAlleles().stream().anyMatch(allele -> allele.isNonReference() && !allele.isNoCall() && !allele.equals(Allele.NON_REF_ALLELE));
     }
 
 
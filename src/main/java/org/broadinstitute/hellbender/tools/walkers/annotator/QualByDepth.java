@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.annotator;
 
 import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.util.Locatable;
 import htsjdk.variant.variantcontext.Allele;
 import htsjdk.variant.variantcontext.Genotype;
 import htsjdk.variant.variantcontext.GenotypesContext;
@@ -109,7 +110,7 @@ public final class QualByDepth extends InfoFieldAnnotation implements StandardAn
         double QD = qual / depth;
 
         // Hack: see note in the fixTooHighQD method below
-        QD = fixTooHighQD(QD);
+        QD = fixTooHighQD(QD, vc, 0);
 
         return Collections.singletonMap(getKeyNames().get(0), String.format("%.2f", QD));
     }
@@ -120,14 +121,19 @@ public final class QualByDepth extends InfoFieldAnnotation implements StandardAn
      * and VQSR will filter these out.  This code looks at the QD value, and if it is above
      * threshold we map it down to the mean high QD value, with some jittering
      *
+     * The jitter is drawn from a random generator seeded by the site, so that it does not depend on
+     * the order in which sites are annotated.
+     *
      * @param QD the raw QD score
+     * @param site the site being annotated
+     * @param index distinguishes several QD values at the same site, e.g. one per alternate allele
      * @return a QD value
      */
-    public static double fixTooHighQD(final double QD) {
+    public static double fixTooHighQD(final double QD, final Locatable site, final int index) {
         if ( QD < MAX_QD_BEFORE_FIXING ) {
             return QD;
         } else {
-            return IDEAL_HIGH_QD + Utils.getRandomGenerator().nextGaussian() * JITTER_SIGMA;
+            return IDEAL_HIGH_QD + Utils.getRandomGeneratorForSite(site.getContig(), site.getStart(), index).nextGaussian() * JITTER_SIGMA;
         }
     }
 
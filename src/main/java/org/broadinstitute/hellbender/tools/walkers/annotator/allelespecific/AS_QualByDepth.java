@@ -138,7 +138,7 @@ public class AS_QualByDepth extends InfoFieldAnnotation implements ReducibleAnno
         for (int i = 0; i < alleleQualList.size(); i++) {
             double AS_QD = -10.0 * alleleQualList.get(i) / ((double)standardDepth.get(i+1) + refDepth); //+1 to skip the reference field of the AD, add ref counts to each to match biallelic case
             // Hack: see note in the fixTooHighQD method below
-            AS_QD = QualByDepth.fixTooHighQD(AS_QD);
+            AS_QD = QualByDepth.fixTooHighQD(AS_QD, vc, i);
             QDlist.add(AS_QD);
         }
 
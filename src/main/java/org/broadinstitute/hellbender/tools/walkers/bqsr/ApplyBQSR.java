@@ -70,7 +70,7 @@ import java.io.File;
         programGroup = ReadDataManipulationProgramGroup.class
 )
 @DocumentedFeature
-public final class ApplyBQSR extends ReadWalker{
+public final class ApplyBQSR extends ReadWalker implements ReadWalker.ThreadedTraversal {
     static final String USAGE_ONE_LINE_SUMMARY = "Apply base quality score recalibration";
     static final String USAGE_SUMMARY = "Apply a linear base quality recalibration model trained with the BaseRecalibrator tool.";
 
@@ -114,6 +114,14 @@ public final class ApplyBQSR extends ReadWalker{
         outputWriter.addRead(read);
     }
 
+    /**
+     * The recalibration itself happens in the post-transformer, of which each worker thread has its own copy.
+     */
+    @Override
+    public Runnable applyConcurrently( GATKRead read, ReferenceContext referenceContext, FeatureContext featureContext ) {
+        return () -> outputWriter.addRead(read);
+    }
+
     @Override
     public void closeTool() {
         if ( outputWriter != null ) {
@@ -1,9 +1,11 @@
 package org.broadinstitute.hellbender.tools.walkers.bqsr;
 
+import htsjdk.samtools.util.Locatable;
 import htsjdk.tribble.Feature;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.barclay.help.DocumentedFeature;
@@ -13,12 +15,14 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.recalibration.BaseRecalibrationEngine;
 import org.broadinstitute.hellbender.utils.recalibration.QuantizationInfo;
 import org.broadinstitute.hellbender.utils.recalibration.RecalUtils;
 import org.broadinstitute.hellbender.utils.recalibration.RecalibrationArgumentCollection;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesIndex;
 import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
 
 import java.io.File;
@@ -26,6 +30,7 @@ import java.io.IOException;
 import java.io.PrintStream;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * First pass of the base quality score recalibration.
@@ -72,6 +77,11 @@ import java.util.List;
  *   --known-sites another/optional/setOfSitesToMask.vcf \
  *   -O recal_data.table
  * </pre>
+ *
+ * <p>
+ * Large databases of known sites, such as dbSNP, can be indexed once with CreateKnownSitesIndex and given with
+ * --known-sites-index instead, which memory-maps the sites rather than parsing them at every run.
+ * </p>
  */
 
 @CommandLineProgramProperties(
@@ -80,13 +90,14 @@ import java.util.List;
         programGroup = ReadDataManipulationProgramGroup.class
 )
 @DocumentedFeature
-public final class BaseRecalibrator extends ReadWalker {
+public final class BaseRecalibrator extends ReadWalker implements ReadWalker.ThreadedTraversal {
     public static final String USAGE_ONE_LINE_SUMMARY = "Generates recalibration table for Base Quality Score Recalibration (BQSR)";
     public static final String USAGE_SUMMARY = "First pass of the Base Quality Score Recalibration (BQSR)" +
             " -- Generates recalibration table based on various user-specified covariates " +
             "(such as read group, reported quality score, machine cycle, and nucleotide context).";
 
     public static final String KNOWN_SITES_ARG_FULL_NAME = "known-sites";
+    public static final String KNOWN_SITES_INDEX_ARG_FULL_NAME = "known-sites-index";
 
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrator.class);
 
@@ -102,9 +113,20 @@ public final class BaseRecalibrator extends ReadWalker {
      * Feature-containing files (VCF, BCF, BED, etc.) for use as this database. For users wishing to exclude an interval list of known variation simply
      * use -XL my.interval.list to skip over processing those sites. Please note however that the statistics reported by the tool will not accurately
      * reflected those sites skipped by the -XL argument.
+     *
+     * Either this argument or --known-sites-index must be given.
      */
-    @Argument(fullName = KNOWN_SITES_ARG_FULL_NAME, doc = "One or more databases of known polymorphic sites used to exclude regions around known polymorphisms from analysis.", optional = false)
-    private List<FeatureInput<Feature>> knownSites;
+    @Argument(fullName = KNOWN_SITES_ARG_FULL_NAME, doc = "One or more databases of known polymorphic sites used to exclude regions around known polymorphisms from analysis.", optional = true)
+    private List<FeatureInput<Feature>> knownSites = new ArrayList<>();
+
+    /**
+     * Known sites indexes made by CreateKnownSitesIndex, which are memory-mapped rather than parsed and are used
+     * along with any --known-sites databases.
+     */
+    @Argument(fullName = KNOWN_SITES_INDEX_ARG_FULL_NAME, doc = "One or more known sites indexes, as made by CreateKnownSitesIndex, used like --known-sites.", optional = true)
+    private List<String> knownSitesIndexPaths = new ArrayList<>();
+
+    private List<KnownSitesIndex> knownSitesIndexes;
 
     /**
      * After the header, data records occur one per line until the end of the file. The first several items on a line are the
@@ -135,13 +157,24 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void onTraversalStart() {
+        if (knownSites.isEmpty() && knownSitesIndexPaths.isEmpty()) {
+            throw new CommandLineException.MissingArgument(KNOWN_SITES_ARG_FULL_NAME,
+                    "At least one --" + KNOWN_SITES_ARG_FULL_NAME + " or --" + KNOWN_SITES_INDEX_ARG_FULL_NAME + " is required.");
+        }
+        if (getTraversalThreads() > 1 && recalArgs.enableBAQ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.THREADS_LONG_NAME, String.valueOf(getTraversalThreads()),
+                    "threaded traversal cannot be combined with --enable-baq");
+        }
+        knownSitesIndexes = knownSitesIndexPaths.stream().map(KnownSitesIndex::open).collect(Collectors.toList());
+
         if (recalArgs.FORCE_PLATFORM != null) {
             recalArgs.DEFAULT_PLATFORM = recalArgs.FORCE_PLATFORM;
         }
 
         Utils.warnOnNonIlluminaReadGroups(getHeaderForReads(), logger);
 
-        recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads());
+        // with several traversal threads the engine accumulates into lock-free tables that the workers can share
+        recalibrationEngine = new BaseRecalibrationEngine(recalArgs, getHeaderForReads(), getTraversalThreads() > 1);
         recalibrationEngine.logCovariatesUsed();
         referenceDataSource = ReferenceDataSource.of(referenceArguments.getReferencePath());
     }
@@ -182,7 +215,32 @@ public final class BaseRecalibrator extends ReadWalker {
      */
     @Override
     public void apply( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
-        recalibrationEngine.processRead(read, referenceDataSource, featureContext.getValues(knownSites));
+        recalibrationEngine.processRead(read, referenceDataSource, getKnownSites(featureContext));
+    }
+
+    /**
+     * @return the known sites of the databases and of the indexes that overlap the read of featureContext
+     */
+    private List<? extends Locatable> getKnownSites( final FeatureContext featureContext ) {
+        final List<Feature> features = featureContext.getValues(knownSites);
+        final SimpleInterval interval = featureContext.getInterval();
+        if ( knownSitesIndexes.isEmpty() || interval == null ) {
+            return features;
+        }
+        final List<Locatable> sites = new ArrayList<>(features);
+        for ( final KnownSitesIndex index : knownSitesIndexes ) {
+            sites.addAll(index.getOverlapping(interval));
+        }
+        return sites;
+    }
+
+    /**
+     * All threads update the same concurrent recalibration engine, so there is nothing to emit.
+     */
+    @Override
+    public Runnable applyConcurrently( GATKRead read, ReferenceContext ref, FeatureContext featureContext ) {
+        recalibrationEngine.processRead(read, getWorkerReference(), getKnownSites(featureContext));
+        return null;
     }
 
     @Override
@@ -0,0 +1,77 @@
+package org.broadinstitute.hellbender.tools.walkers.bqsr;
+
+import htsjdk.tribble.Feature;
+import htsjdk.variant.variantcontext.VariantContext;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesIndex;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+
+import java.util.List;
+
+/**
+ * Builds a known sites index from the databases of known polymorphic sites given to BaseRecalibrator, to be given to
+ * BaseRecalibrator and BaseRecalibratorSpark with --known-sites-index instead.
+ *
+ * <p>
+ * The index holds the position and type of every site in compact arrays that the tools memory-map, rather than parse
+ * the databases into objects on the heap at every run (in every executor, for Spark). Build it once, with enough heap
+ * to hold 8 bytes per site, and keep it next to the databases it was made from. A Spark tool given an index on
+ * remote storage copies it to the local disk of each executor.
+ * </p>
+ *
+ * <h3>Example</h3>
+ * <pre>
+ * gatk CreateKnownSitesIndex \
+ *   --known-sites dbsnp.vcf.gz \
+ *   --known-sites another/optional/setOfSitesToMask.vcf \
+ *   -O known_sites.ksi
+ * </pre>
+ */
+@CommandLineProgramProperties(
+        summary = "Builds a memory-mappable index of the known sites of variation used by base quality score recalibration.",
+        oneLineSummary = "Builds a known sites index for BaseRecalibrator and BaseRecalibratorSpark",
+        programGroup = ReadDataManipulationProgramGroup.class
+)
+@DocumentedFeature
+public final class CreateKnownSitesIndex extends CommandLineProgram {
+    private static final Logger logger = LogManager.getLogger(CreateKnownSitesIndex.class);
+
+    @Argument(fullName = BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, doc = "One or more databases of known polymorphic sites to index.")
+    private List<String> knownSites;
+
+    @Argument(shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME, fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME,
+            doc = "The known sites index to create, which should have the " + KnownSitesIndex.FILE_EXTENSION + " extension")
+    private String output;
+
+    @Override
+    protected Object doWork() {
+        final KnownSitesIndex.Builder builder = new KnownSitesIndex.Builder();
+        long count = 0;
+        for (final String path : knownSites) {
+            try ( final FeatureDataSource<Feature> dataSource = new FeatureDataSource<>(path) ) {
+                for (final Feature feature : dataSource) {
+                    if (count++ % 1000000 == 0) {
+                        logger.info("Number of known sites read: " + count);
+                    }
+                    if (feature instanceof VariantContext) {
+                        final VariantContext vc = (VariantContext) feature;
+                        builder.add(vc, vc.isSNP(), vc.isIndel());
+                    } else {
+                        builder.add(feature, false, false);
+                    }
+                }
+            }
+        }
+
+        logger.info("Writing " + count + " known sites to " + output);
+        builder.write(output);
+        return count;
+    }
+}
@@ -16,7 +16,6 @@ import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.engine.filters.WellformedReadFilter;
 import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.GATKProtectedVariantContextUtils;
-import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -106,7 +105,7 @@ import java.util.List;
         programGroup = CoverageAnalysisProgramGroup.class)
 @BetaFeature
 @DocumentedFeature
-public class GetPileupSummaries extends LocusWalker {
+public class GetPileupSummaries extends LocusWalker implements LocusWalker.ThreadedTraversal {
 
     public static final String MAX_SITE_AF_LONG_NAME = "maximum-population-allele-frequency";
     public static final String MIN_SITE_AF_LONG_NAME = "minimum-population-allele-frequency";
@@ -192,17 +191,44 @@ public class GetPileupSummaries extends LocusWalker {
 
     @Override
     public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+        final Runnable emitter = applyConcurrently(alignmentContext, referenceContext, featureContext);
+        if (emitter != null) {
+            emitter.run();
+        }
+    }
+
+    /**
+     * Summarizes the pileup at a common biallelic SNP. Whether allele frequencies were seen is only recorded by the
+     * returned action, so that this may run on several threads.
+     */
+    @Override
+    public Runnable applyConcurrently(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
         final List<VariantContext> vcs = featureContext.getValues(variants);
         if (vcs.isEmpty()) {
-            return;
+            return null;
         }
         final VariantContext vc = vcs.get(0);
 
-        if ( vc.isBiallelic() && vc.isSNP() && alleleFrequencyInRange(vc) ) {
-            final ReadPileup pileup = alignmentContext.getBasePileup()
-                    .makeFilteredPileup(pe -> pe.getRead().getMappingQuality() >= minMappingQuality);
-            pileupSummaries.add(new PileupSummary(vc, pileup));
+        if ( !vc.isBiallelic() || !vc.isSNP() ) {
+            return null;
+        } else if (!vc.hasAttribute(VCFConstants.ALLELE_FREQUENCY_KEY)) {
+            return () -> {
+                if (!sawVariantsWithoutAlleleFrequency) {
+                    logger.warn(String.format("Variant context at %s:%d lacks allele frequency (AF) field.", vc.getContig(), vc.getStart()));
+                    sawVariantsWithoutAlleleFrequency = true;
+                }
+            };
         }
+
+        final double alleleFrequency = vc.getAttributeAsDouble(VCFConstants.ALLELE_FREQUENCY_KEY, -1.0);
+        final PileupSummary pileupSummary = minPopulationAlleleFrequency < alleleFrequency && alleleFrequency < maxPopulationAlleleFrequency ?
+                new PileupSummary(vc, alignmentContext.getBasePileup().makeFilteredPileup(pe -> pe.getRead().getMappingQuality() >= minMappingQuality)) : null;
+        return () -> {
+            sawVariantsWithAlleleFrequency = true;
+            if (pileupSummary != null) {
+                pileupSummaries.add(pileupSummary);
+            }
+        };
     }
 
     @Override
@@ -213,18 +239,4 @@ public class GetPileupSummaries extends LocusWalker {
         PileupSummary.writeToFile(pileupSummaries, outputTable);
         return "SUCCESS";
     }
-
-    private boolean alleleFrequencyInRange(final VariantContext vc) {
-        if (!vc.hasAttribute(VCFConstants.ALLELE_FREQUENCY_KEY)) {
-            if (!sawVariantsWithoutAlleleFrequency) {
-                logger.warn(String.format("Variant context at %s:%d lacks allele frequency (AF) field.", vc.getContig(), vc.getStart()));
-                sawVariantsWithoutAlleleFrequency = true;
-            }
-            return false;
-        } else {
-            sawVariantsWithAlleleFrequency = true;
-            final double alleleFrequency = vc.getAttributeAsDouble(VCFConstants.ALLELE_FREQUENCY_KEY, -1.0);
-            return minPopulationAlleleFrequency < alleleFrequency && alleleFrequency < maxPopulationAlleleFrequency;
-        }
-    }
 }
@@ -164,7 +164,7 @@ public final class AssemblyBasedCallerUtils {
 
         switch ( likelihoodArgs.likelihoodEngineImplementation) {
             case PairHMM:
-                return new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel, likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD);
+                return new PairHMMLikelihoodCalculationEngine((byte) likelihoodArgs.gcpHMM, likelihoodArgs.pairHMMNativeArgs.getPairHMMArgs(), likelihoodArgs.pairHMM, log10GlobalReadMismappingRate, likelihoodArgs.pcrErrorModel, likelihoodArgs.BASE_QUALITY_SCORE_THRESHOLD, likelihoodArgs.pairHMMLikelihoodCacheSizeMb);
             case Random:
                 return new RandomLikelihoodCalculationEngine();
             default:
@@ -181,6 +181,7 @@ public final class AssemblyBasedCallerUtils {
         assemblyEngine.setDebugGraphTransformations(rtaac.debugGraphTransformations);
         assemblyEngine.setRecoverDanglingBranches(!rtaac.doNotRecoverDanglingBranches);
         assemblyEngine.setMinDanglingBranchLength(rtaac.minDanglingBranchLength);
+        assemblyEngine.setUsePackedKmerGraph(rtaac.usePackedKmerGraph);
         assemblyEngine.setMinBaseQualityToUseInAssembly(args.minBaseQualityScore);
 
         if ( rtaac.graphOutput != null ) {
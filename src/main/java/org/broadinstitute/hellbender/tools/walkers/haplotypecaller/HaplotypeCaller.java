@@ -1,6 +1,7 @@
 package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
 
 import htsjdk.samtools.SAMSequenceDictionary;
+import htsjdk.variant.variantcontext.VariantContext;
 import htsjdk.variant.variantcontext.writer.VariantContextWriter;
 import org.broadinstitute.barclay.argparser.Argument;
 import org.broadinstitute.barclay.argparser.ArgumentCollection;
@@ -18,7 +19,9 @@ import org.broadinstitute.hellbender.utils.fasta.CachingIndexedFastaSequenceFile
 import org.broadinstitute.hellbender.utils.io.IOUtils;
 
 import java.nio.file.Path;
+import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 
 
@@ -136,7 +139,7 @@ import java.util.List;
         programGroup = ShortVariantDiscoveryProgramGroup.class
 )
 @DocumentedFeature
-public final class HaplotypeCaller extends AssemblyRegionWalker {
+public final class HaplotypeCaller extends AssemblyRegionWalker implements AssemblyRegionWalker.ThreadedTraversal {
 
     //NOTE: many of these settings are referenced by HaplotypeCallerSpark
     public static final int DEFAULT_MIN_ASSEMBLY_REGION_SIZE = 50;
@@ -158,6 +161,13 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
 
     private HaplotypeCallerEngine hcEngine;
 
+    /**
+     * Private engines used by the worker threads when running with more than one traversal thread
+     * (the engine and its assembly/likelihood/genotyping machinery are not thread-safe).
+     */
+    private final List<HaplotypeCallerEngine> workerEngines = Collections.synchronizedList(new ArrayList<>());
+    private ThreadLocal<HaplotypeCallerEngine> workerEngine;
+
     @Override
     protected int defaultMinAssemblyRegionSize() { return DEFAULT_MIN_ASSEMBLY_REGION_SIZE; }
 
@@ -220,9 +230,17 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             logger.warn("*************************************************************************");
         }
 
-        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
-                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE);
-        hcEngine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        if ( getTraversalThreads() > 1 && hcArgs.bamOutputPath != null ) {
+            throw new CommandLineException.BadArgumentValue(StandardArgumentDefinitions.THREADS_LONG_NAME, String.valueOf(getTraversalThreads()),
+                    "threaded traversal cannot be combined with --" + AssemblyBasedCallerArgumentCollection.BAM_OUTPUT_LONG_NAME);
+        }
+
+        hcEngine = makeEngine();
+        workerEngine = ThreadLocal.withInitial(() -> {
+            final HaplotypeCallerEngine engine = makeEngine();
+            workerEngines.add(engine);
+            return engine;
+        });
 
         // The HC engine will make the right kind (VCF or GVCF) of writer for us
         final SAMSequenceDictionary sequenceDictionary = getHeaderForReads().getSequenceDictionary();
@@ -230,6 +248,15 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         hcEngine.writeHeader(vcfWriter, sequenceDictionary, getDefaultToolVCFHeaderLines());
     }
 
+    private HaplotypeCallerEngine makeEngine() {
+        final VariantAnnotatorEngine variantAnnotatorEngine = new VariantAnnotatorEngine(makeVariantAnnotations(),
+                hcArgs.dbsnp.dbsnp, hcArgs.comps,  hcArgs.emitReferenceConfidence != ReferenceConfidenceMode.NONE);
+        final HaplotypeCallerEngine engine = new HaplotypeCallerEngine(hcArgs, createOutputBamIndex, createOutputBamMD5, getHeaderForReads(), getReferenceReader(referenceArguments), variantAnnotatorEngine);
+        // all the calls go to the writer of hcEngine, which bands runs of reference confidence sites itself
+        engine.setGroupReferenceConfidenceSites(true);
+        return engine;
+    }
+
     private static CachingIndexedFastaSequenceFile getReferenceReader(ReferenceInputArgumentCollection referenceArguments) {
         final Path reference = IOUtils.getPath(referenceArguments.getReferenceFileName());
         return new CachingIndexedFastaSequenceFile(reference);
@@ -240,6 +267,12 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
         hcEngine.callRegion(region, featureContext).forEach(vcfWriter::add);
     }
 
+    @Override
+    public Runnable applyConcurrently(final AssemblyRegion region, final ReferenceContext referenceContext, final FeatureContext featureContext ) {
+        final List<VariantContext> calls = workerEngine.get().callRegion(region, featureContext);
+        return calls.isEmpty() ? null : () -> calls.forEach(vcfWriter::add);
+    }
+
     @Override
     public void closeTool() {
         if ( vcfWriter != null ) {
@@ -250,5 +283,10 @@ public final class HaplotypeCaller extends AssemblyRegionWalker {
             hcEngine.shutdown();
         }
 
+        synchronized ( workerEngines ) {
+            workerEngines.forEach(HaplotypeCallerEngine::shutdown);
+            workerEngines.clear();
+        }
+
     }
 }
@@ -366,6 +366,18 @@ public final class HaplotypeCallerEngine implements AssemblyRegionEvaluator {
         return writer;
     }
 
+    /**
+     * In GVCF mode, have {@link #callRegion} return the reference confidence sites between calls as
+     * {@link org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSites} runs, which the writer
+     * from {@link #makeVCFWriter} bands without making a VariantContext per site. Only for callers that write the
+     * results of {@link #callRegion} to that writer.
+     *
+     * @param groupSites true to group reference confidence sites into runs
+     */
+    public void setGroupReferenceConfidenceSites( final boolean groupSites ) {
+        referenceConfidenceModel.setGroupSites(groupSites && hcArgs.emitReferenceConfidence == ReferenceConfidenceMode.GVCF);
+    }
+
     /**
      * Create a VCF header.
      *
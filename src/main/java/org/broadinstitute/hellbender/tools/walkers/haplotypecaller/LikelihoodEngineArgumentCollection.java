@@ -38,6 +38,15 @@ public final class LikelihoodEngineArgumentCollection implements Serializable {
     @Argument(fullName = "pair-hmm-implementation", shortName = "pairHMM", doc = "The PairHMM implementation to use for genotype likelihood calculations", optional = true)
     public PairHMM.Implementation pairHMM = PairHMM.Implementation.FASTEST_AVAILABLE;
 
+    /**
+     * With assembly region padding the same reads are often evaluated again in neighbouring active regions, against
+     * some of the same haplotypes. When this is greater than 0, read x haplotype likelihoods are kept in an LRU cache
+     * of approximately this many megabytes and reused instead of being recomputed. Cache statistics are logged at the end of the run.
+     */
+    @Advanced
+    @Argument(fullName = "pair-hmm-likelihood-cache-size", doc = "Approximate size in megabytes of the cache used to reuse PairHMM likelihoods across overlapping regions (0 to disable)", optional = true, minValue = 0)
+    public int pairHMMLikelihoodCacheSizeMb = 0;
+
     /**
      * When calculating the likelihood of variants, we can try to correct for PCR errors that cause indel artifacts.
      * The correction is based on the reference context, and acts specifically around repetitive sequences that tend
@@ -0,0 +1,140 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of PairHMM log10 likelihoods, keyed by a 64-bit hash of a processed read (bases and base, insertion
+ * and deletion qualities) together with a 64-bit hash of a haplotype's bases.
+ *
+ * With assembly region padding the same reads are often scored again in the neighbouring active region, against
+ * haplotypes that are frequently identical over the shared span, so reusing their likelihoods avoids recomputing whole
+ * PairHMM matrices. The cache is sized by an approximate memory cap and keeps hit/miss counts for the final log.
+ *
+ * Not thread-safe: each {@link PairHMMLikelihoodCalculationEngine} owns its own cache.
+ */
+final class PairHMMLikelihoodCache {
+
+    /**
+     * Approximate heap footprint of one cache entry: the LinkedHashMap entry, the key and the boxed likelihood.
+     */
+    static final int APPROXIMATE_BYTES_PER_ENTRY = 112;
+
+    private static final long FNV_OFFSET_BASIS = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+
+    private final LinkedHashMap<Key, Double> likelihoods;
+    private final int maxEntries;
+    private long hits = 0;
+    private long misses = 0;
+
+    /**
+     * @param maxBytes approximate upper bound on the memory used by the cache; must allow at least one entry
+     */
+    PairHMMLikelihoodCache(final long maxBytes) {
+        Utils.validateArg(maxBytes >= APPROXIMATE_BYTES_PER_ENTRY, "the likelihood cache must be large enough to hold at least one entry");
+        maxEntries = (int) Math.min(Integer.MAX_VALUE - 1, maxBytes / APPROXIMATE_BYTES_PER_ENTRY);
+        // unlike LRUCache, start small and grow on demand rather than presizing the table for the maximum capacity
+        likelihoods = new LinkedHashMap<Key, Double>(16, 0.75f, true) {
+            private static final long serialVersionUID = 1L;
+
+            @Override
+            protected boolean removeEldestEntry(final Map.Entry<Key, Double> eldest) {
+                return size() > maxEntries;
+            }
+        };
+    }
+
+    /**
+     * @return the cached likelihood of the read given the haplotype, or null if it's not in the cache
+     */
+    Double get(final long readKey, final long haplotypeKey) {
+        final Double result = likelihoods.get(new Key(readKey, haplotypeKey));
+        if ( result == null ) {
+            misses++;
+        } else {
+            hits++;
+        }
+        return result;
+    }
+
+    void put(final long readKey, final long haplotypeKey, final double log10Likelihood) {
+        likelihoods.put(new Key(readKey, haplotypeKey), log10Likelihood);
+    }
+
+    long getHits() { return hits; }
+
+    long getMisses() { return misses; }
+
+    int size() { return likelihoods.size(); }
+
+    String getSummaryLine() {
+        final long lookups = hits + misses;
+        return String.format("PairHMM likelihood cache: %d hits, %d misses (%.2f%% hit rate), %d of at most %d entries in use",
+                hits, misses, lookups == 0 ? 0.0 : 100.0 * hits / lookups, likelihoods.size(), maxEntries);
+    }
+
+    /**
+     * Hash everything about a processed read that affects its PairHMM likelihoods.
+     */
+    static long hashRead(final byte[] bases, final byte[] quals, final byte[] insertionQuals, final byte[] deletionQuals) {
+        long hash = FNV_OFFSET_BASIS;
+        hash = hashBytes(hash, bases);
+        hash = hashBytes(hash, quals);
+        hash = hashBytes(hash, insertionQuals);
+        hash = hashBytes(hash, deletionQuals);
+        return finalizeHash(hash);
+    }
+
+    static long hashHaplotype(final byte[] bases) {
+        return finalizeHash(hashBytes(FNV_OFFSET_BASIS, bases));
+    }
+
+    // FNV-1a over the bytes, preceded by the array length so that concatenations of different arrays don't collide
+    private static long hashBytes(long hash, final byte[] bytes) {
+        hash = (hash ^ bytes.length) * FNV_PRIME;
+        for ( final byte b : bytes ) {
+            hash = (hash ^ (b & 0xff)) * FNV_PRIME;
+        }
+        return hash;
+    }
+
+    // MurmurHash3 64-bit finalizer, to spread the FNV state across all bits
+    private static long finalizeHash(long hash) {
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    private static final class Key {
+        private final long readKey;
+        private final long haplotypeKey;
+
+        Key(final long readKey, final long haplotypeKey) {
+            this.readKey = readKey;
+            this.haplotypeKey = haplotypeKey;
+        }
+
+        @Override
+        public boolean equals(final Object o) {
+            if ( this == o ) {
+                return true;
+            }
+            if ( !(o instanceof Key) ) {
+                return false;
+            }
+            final Key other = (Key) o;
+            return readKey == other.readKey && haplotypeKey == other.haplotypeKey;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(readKey * 31 + haplotypeKey);
+        }
+    }
+}
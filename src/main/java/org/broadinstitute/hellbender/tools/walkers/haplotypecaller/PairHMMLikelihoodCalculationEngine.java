@@ -73,6 +73,19 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
     
     private final byte baseQualityScoreThreshold;
 
+    // optional cache of likelihoods reused across (overlapping) regions, or null if disabled
+    private final PairHMMLikelihoodCache likelihoodCache;
+
+    // buffers reused across regions: constant gap continuation penalties indexed by read length, PairHMM inputs
+    // (the processed bases and qualities of the reads of a sample, grown as needed) and PairHMM output
+    private byte[][] gapContinuationPenaltiesByLength = new byte[0][];
+    private byte[][] readBasesBuffer = new byte[0][];
+    private byte[][] readQualsBuffer = new byte[0][];
+    private byte[][] readInsQualsBuffer = new byte[0][];
+    private byte[][] readDelQualsBuffer = new byte[0][];
+    private byte[][] readGCPsBuffer = new byte[0][];
+    private double[] likelihoodsBuffer = new double[0];
+
     /**
      * The expected rate of random sequencing errors for a read originating from its true haplotype.
      *
@@ -126,6 +139,28 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
                                               final double log10globalReadMismappingRate,
                                               final PCRErrorModel pcrErrorModel,
                                               final byte baseQualityScoreThreshold) {
+        this( constantGCP, arguments, hmmType, log10globalReadMismappingRate, pcrErrorModel, baseQualityScoreThreshold, 0 );
+    }
+
+    /**
+     * Create a new PairHMMLikelihoodCalculationEngine using provided parameters and hmm to do its calculations
+     *
+     * @param constantGCP the gap continuation penalty to use with the PairHMM
+     * @param hmmType the type of the HMM to use
+     * @param log10globalReadMismappingRate the global mismapping probability, in log10(prob) units.
+     * @param pcrErrorModel model to correct for PCR indel artifacts
+     * @param baseQualityScoreThreshold Base qualities below this threshold will be reduced to the minimum usable base
+     *                                  quality.
+     * @param likelihoodCacheSizeMb approximate memory, in megabytes, of the cache that reuses read x haplotype likelihoods
+     *                              across regions. 0 disables the cache.
+     */
+    public PairHMMLikelihoodCalculationEngine(final byte constantGCP,
+                                              final PairHMMNativeArguments arguments,
+                                              final PairHMM.Implementation hmmType,
+                                              final double log10globalReadMismappingRate,
+                                              final PCRErrorModel pcrErrorModel,
+                                              final byte baseQualityScoreThreshold,
+                                              final int likelihoodCacheSizeMb) {
         Utils.nonNull(hmmType, "hmmType is null");
         Utils.nonNull(pcrErrorModel, "pcrErrorModel is null");
         if (constantGCP < 0){
@@ -147,6 +182,11 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
             throw new IllegalArgumentException("baseQualityScoreThreshold must be greater than or equal to " + QualityUtils.MIN_USABLE_Q_SCORE + " (QualityUtils.MIN_USABLE_Q_SCORE)");
         }
         this.baseQualityScoreThreshold = baseQualityScoreThreshold;
+
+        if (likelihoodCacheSizeMb < 0) {
+            throw new IllegalArgumentException("likelihoodCacheSizeMb must be non-negative");
+        }
+        this.likelihoodCache = likelihoodCacheSizeMb == 0 ? null : new PairHMMLikelihoodCache(likelihoodCacheSizeMb * 1024L * 1024L);
     }
 
     private PrintStream makeLikelihoodStream() {
@@ -157,8 +197,16 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         }
     }
 
+    @VisibleForTesting
+    PairHMMLikelihoodCache getLikelihoodCache() {
+        return likelihoodCache;
+    }
+
     @Override
     public void close() {
+        if ( likelihoodCache != null ) {
+            logger.info(likelihoodCache.getSummaryLine());
+        }
         if ( likelihoodsStream != null ) {
             likelihoodsStream.close();
         }
@@ -174,8 +222,6 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         final List<Haplotype> haplotypeList = assemblyResultSet.getHaplotypeList();
         final AlleleList<Haplotype> haplotypes = new IndexedAlleleList<>(haplotypeList);
 
-        initializePairHMM(haplotypeList, perSampleReadList);
-
         // Add likelihoods for each sample's reads to our result
         final ReadLikelihoods<Haplotype> result = new ReadLikelihoods<>(samples, haplotypes, perSampleReadList);
         final int sampleCount = result.numberOfSamples();
@@ -188,99 +234,185 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         return result;
     }
 
-    /**
-     * Creates a new GATKRead with the source read's header, read group and mate
-     * information, but with the following fields set to user-supplied values:
-     *  - Read Bases
-     *  - Base Qualities
-     *  - Base Insertion Qualities
-     *  - Base Deletion Qualities
-     *
-     *  Cigar string is empty (not-null)
-     *
-     * Use this method if you want to create a new GATKRead based on
-     * another GATKRead, but with modified bases and qualities
-     *
-     * @param read a read to copy the header from
-     * @param readBases an array containing the new bases you wish use in place of the originals
-     * @param baseQualities an array containing the new base qualities you wish use in place of the originals
-     * @param baseInsertionQualities an array containing the new base insertion qaulities
-     * @param baseDeletionQualities an array containing the new base deletion qualities
-     * @return a read with modified bases and qualities, safe for the GATK
-     */
-    private static GATKRead createQualityModifiedRead(final GATKRead read,
-                                                      final byte[] readBases,
-                                                      final byte[] baseQualities,
-                                                      final byte[] baseInsertionQualities,
-                                                      final byte[] baseDeletionQualities) {
-        Utils.validateArg( baseQualities.length == readBases.length && baseInsertionQualities.length == readBases.length && baseDeletionQualities.length == readBases.length,
-                () -> String.format("Read bases and read quality arrays aren't the same size: Bases: %d vs Base Q's: %d vs Insert Q's: %d vs Delete Q's: %d.",
-                        readBases.length, baseQualities.length, baseInsertionQualities.length, baseDeletionQualities.length));
-
-        final GATKRead processedRead = ReadUtils.emptyRead(read);
-        processedRead.setBases(readBases);
-        processedRead.setBaseQualities(baseQualities);
-        ReadUtils.setInsertionBaseQualities(processedRead, baseInsertionQualities);
-        ReadUtils.setDeletionBaseQualities(processedRead, baseDeletionQualities);
-        return processedRead;
-    }
-
-    /**
-     * Initialize our pairHMM with parameters appropriate to the haplotypes and reads we're going to evaluate
-     *
-     * After calling this routine the PairHMM will be configured to best evaluate all reads in the samples
-     * against the set of haplotypes
-     *
-     * @param haplotypes a non-null list of haplotypes
-     * @param perSampleReadList a mapping from sample -> reads
-     */
-    private void initializePairHMM(final List<Haplotype> haplotypes, final Map<String, List<GATKRead>> perSampleReadList) {
-        final int readMaxLength = perSampleReadList.entrySet().stream().flatMap(e -> e.getValue().stream()).mapToInt(read -> read.getLength()).max().orElse(0);
-        final int haplotypeMaxLength = haplotypes.stream().mapToInt(h -> h.getBases().length).max().orElse(0);
-
-        // initialize arrays to hold the probabilities of being in the match, insertion and deletion cases
-        pairHMM.initialize(haplotypes, perSampleReadList, readMaxLength, haplotypeMaxLength);
-    }
-
     private void computeReadLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
+        final List<GATKRead> reads = likelihoods.reads();
+        final int readCount = reads.size();
+        if (readCount == 0) {
+            return;
+        }
+        final List<Haplotype> haplotypes = likelihoods.alleles();
+        final int haplotypeCount = haplotypes.size();
+        final byte[][] haplotypeBases = new byte[haplotypeCount][];
+        for (int h = 0; h < haplotypeCount; h++) {
+            haplotypeBases[h] = haplotypes.get(h).getBases();
+        }
+
         // Modify the read qualities by applying the PCR error model and capping the minimum base,insertion,deletion qualities
-        final List<GATKRead> processedReads = modifyReadQualities(likelihoods.reads());
+        if (readBasesBuffer.length < readCount) {
+            readBasesBuffer = new byte[readCount][];
+            readQualsBuffer = new byte[readCount][];
+            readInsQualsBuffer = new byte[readCount][];
+            readDelQualsBuffer = new byte[readCount][];
+            readGCPsBuffer = new byte[readCount][];
+        }
+        final byte[][] readBases = readBasesBuffer;
+        final byte[][] readQuals = readQualsBuffer;
+        final byte[][] readInsQuals = readInsQualsBuffer;
+        final byte[][] readDelQuals = readDelQualsBuffer;
+        final byte[][] readGCPs = readGCPsBuffer;
+        for (int r = 0; r < readCount; r++) {
+            modifyReadQualities(reads.get(r), r, readBases, readQuals, readInsQuals, readDelQuals);
+            readGCPs[r] = getGapContinuationPenalties(readBases[r].length);
+        }
 
-        final Map<GATKRead, byte[]> gapContinuationPenalties = buildGapContinuationPenalties(processedReads, constantGCP);
+        if (likelihoodCache != null) {
+            computeReadLikelihoodsUsingCache(likelihoods, haplotypeBases, readBases, readQuals, readInsQuals, readDelQuals, readGCPs, readCount);
+            writeDebugLikelihoods(likelihoods, readBases, readQuals, readInsQuals, readDelQuals);
+            return;
+        }
 
         // Run the PairHMM to calculate the log10 likelihood of each (processed) reads' arising from each haplotype
-        pairHMM.computeLog10Likelihoods(likelihoods, processedReads, gapContinuationPenalties);
+        if (likelihoodsBuffer.length < readCount * haplotypeCount) {
+            likelihoodsBuffer = new double[readCount * haplotypeCount];
+        }
+        pairHMM.computeLog10Likelihoods(haplotypeBases, readBases, readQuals, readInsQuals, readDelQuals, readGCPs, readCount, likelihoodsBuffer);
 
-        writeDebugLikelihoods(likelihoods);
+        int idx = 0;
+        for (int r = 0; r < readCount; r++) {
+            for (int h = 0; h < haplotypeCount; h++) {
+                likelihoods.set(h, r, likelihoodsBuffer[idx++]);
+            }
+        }
+
+        writeDebugLikelihoods(likelihoods, readBases, readQuals, readInsQuals, readDelQuals);
     }
 
     /**
-     * Pre-processing of the reads to be evaluated at the current location from the current sample.
-     * We apply the PCR Error Model, and cap the minimum base, insertion, and deletion qualities of each read.
-     * Modified copies of reads are packed into a new list, while original reads are retained for downstream use
+     * Fill in the likelihoods from the cache where possible, then run the PairHMM once, as a single batch, over the
+     * reads and haplotypes that had any miss, adding the new results to the cache.
      *
-     * @param reads The original list of unmodified reads
-     * @return processedReads. A new list of reads, in the same order, whose qualities have been altered by PCR error model and minimal quality thresholding
+     * The batch covers every pair of a read with a miss and a haplotype with a miss, which may include a few pairs
+     * that were found in the cache. This is cheap compared to one PairHMM call per read, since misses usually come from
+     * whole new reads or whole new haplotypes.
      */
-    private List<GATKRead> modifyReadQualities(final List<GATKRead> reads) {
-        final List<GATKRead> result = new ArrayList<>(reads.size());
+    private void computeReadLikelihoodsUsingCache(final LikelihoodMatrix<Haplotype> likelihoods, final byte[][] haplotypeBases,
+                                                  final byte[][] readBases, final byte[][] readQuals, final byte[][] readInsQuals,
+                                                  final byte[][] readDelQuals, final byte[][] readGCPs, final int readCount) {
+        final int haplotypeCount = haplotypeBases.length;
+        final long[] haplotypeKeys = new long[haplotypeCount];
+        for (int h = 0; h < haplotypeCount; h++) {
+            haplotypeKeys[h] = PairHMMLikelihoodCache.hashHaplotype(haplotypeBases[h]);
+        }
 
-        for (final GATKRead read : reads) {
-            final byte[] readBases = read.getBases();
+        final long[] readKeys = new long[readCount];
+        final boolean[] isMissing = new boolean[readCount * haplotypeCount];
+        final boolean[] isMissingHaplotype = new boolean[haplotypeCount];
+        final int[] missingReadIndices = new int[readCount];
+        int missingReadCount = 0;
+        for (int r = 0; r < readCount; r++) {
+            readKeys[r] = PairHMMLikelihoodCache.hashRead(readBases[r], readQuals[r], readInsQuals[r], readDelQuals[r]);
+            boolean isMissingRead = false;
+            for (int h = 0; h < haplotypeCount; h++) {
+                final Double cached = likelihoodCache.get(readKeys[r], haplotypeKeys[h]);
+                if (cached == null) {
+                    isMissing[r * haplotypeCount + h] = true;
+                    isMissingHaplotype[h] = true;
+                    isMissingRead = true;
+                } else {
+                    likelihoods.set(h, r, cached);
+                }
+            }
+            if (isMissingRead) {
+                missingReadIndices[missingReadCount++] = r;
+            }
+        }
+        if (missingReadCount == 0) {
+            return;
+        }
 
-            // NOTE -- must clone anything that gets modified here so we don't screw up future uses of the read
-            //Using close here is justified - it's an array of primitives.
-            final byte[] readQuals = read.getBaseQualities().clone();
-            final byte[] readInsQuals = ReadUtils.getBaseInsertionQualities(read).clone();
-            final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read).clone();
+        final int[] missingHaplotypeIndices = new int[haplotypeCount];
+        int missingHaplotypeCount = 0;
+        for (int h = 0; h < haplotypeCount; h++) {
+            if (isMissingHaplotype[h]) {
+                missingHaplotypeIndices[missingHaplotypeCount++] = h;
+            }
+        }
+        final byte[][] missingHaplotypes = new byte[missingHaplotypeCount][];
+        for (int m = 0; m < missingHaplotypeCount; m++) {
+            missingHaplotypes[m] = haplotypeBases[missingHaplotypeIndices[m]];
+        }
+        final byte[][] missingReadBases = new byte[missingReadCount][];
+        final byte[][] missingReadQuals = new byte[missingReadCount][];
+        final byte[][] missingReadInsQuals = new byte[missingReadCount][];
+        final byte[][] missingReadDelQuals = new byte[missingReadCount][];
+        final byte[][] missingReadGCPs = new byte[missingReadCount][];
+        for (int m = 0; m < missingReadCount; m++) {
+            final int r = missingReadIndices[m];
+            missingReadBases[m] = readBases[r];
+            missingReadQuals[m] = readQuals[r];
+            missingReadInsQuals[m] = readInsQuals[r];
+            missingReadDelQuals[m] = readDelQuals[r];
+            missingReadGCPs[m] = readGCPs[r];
+        }
 
-            applyPCRErrorModel(readBases, readInsQuals, readDelQuals);
-            capMinimumReadQualities(read, readQuals, readInsQuals, readDelQuals, baseQualityScoreThreshold);
+        if (likelihoodsBuffer.length < missingReadCount * missingHaplotypeCount) {
+            likelihoodsBuffer = new double[missingReadCount * missingHaplotypeCount];
+        }
+        pairHMM.computeLog10Likelihoods(missingHaplotypes, missingReadBases, missingReadQuals, missingReadInsQuals,
+                missingReadDelQuals, missingReadGCPs, likelihoodsBuffer);
+
+        int idx = 0;
+        for (int m = 0; m < missingReadCount; m++) {
+            final int r = missingReadIndices[m];
+            for (int n = 0; n < missingHaplotypeCount; n++) {
+                final int h = missingHaplotypeIndices[n];
+                final double likelihood = likelihoodsBuffer[idx++];
+                if (isMissing[r * haplotypeCount + h]) {
+                    likelihoods.set(h, r, likelihood);
+                    likelihoodCache.put(readKeys[r], haplotypeKeys[h], likelihood);
+                }
+            }
+        }
+    }
+
+    /**
+     * Pre-processing of a read to be evaluated at the current location from the current sample.
+     * We apply the PCR Error Model, and cap the minimum base, insertion, and deletion qualities of the read.
+     * The read itself is not modified: the processed bases and qualities are stored at {@code index} in the given arrays.
+     *
+     * @param read The original, unmodified read
+     * @param index where to store the processed values for this read
+     */
+    private void modifyReadQualities(final GATKRead read, final int index, final byte[][] readBasesOut,
+                                     final byte[][] readQualsOut, final byte[][] readInsQualsOut, final byte[][] readDelQualsOut) {
+        final byte[] readBases = read.getBases();
+
+        // NOTE -- must clone anything that gets modified here so we don't screw up future uses of the read
+        //Using close here is justified - it's an array of primitives.
+        final byte[] readQuals = read.getBaseQualities().clone();
+        final byte[] readInsQuals = ReadUtils.getBaseInsertionQualities(read).clone();
+        final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read).clone();
+
+        applyPCRErrorModel(readBases, readInsQuals, readDelQuals);
+        capMinimumReadQualities(read, readQuals, readInsQuals, readDelQuals, baseQualityScoreThreshold);
+
+        readBasesOut[index] = readBases;
+        readQualsOut[index] = readQuals;
+        readInsQualsOut[index] = readInsQuals;
+        readDelQualsOut[index] = readDelQuals;
+    }
 
-            // Create a new copy of the read and sets its base qualities to the modified versions.
-            result.add(createQualityModifiedRead(read, readBases, readQuals, readInsQuals, readDelQuals));
+    /**
+     * @return an array of {@link #constantGCP} of the given length, shared across reads and regions (callers must not modify it)
+     */
+    private byte[] getGapContinuationPenalties(final int readLength) {
+        if (readLength >= gapContinuationPenaltiesByLength.length) {
+            gapContinuationPenaltiesByLength = Arrays.copyOf(gapContinuationPenaltiesByLength, Math.max(readLength + 1, 2 * gapContinuationPenaltiesByLength.length));
         }
-        return result;
+        if (gapContinuationPenaltiesByLength[readLength] == null) {
+            gapContinuationPenaltiesByLength[readLength] = Utils.dupBytes(constantGCP, readLength);
+        }
+        return gapContinuationPenaltiesByLength[readLength];
     }
 
     private static void capMinimumReadQualities(final GATKRead read, final byte[] readQuals, final byte[] readInsQuals, final byte[] readDelQuals, final byte baseQualityScoreThreshold) {
@@ -296,39 +428,29 @@ public final class PairHMMLikelihoodCalculationEngine implements ReadLikelihoodC
         return currentVal < minQual ? fixedQual : currentVal;
     }
 
-    private static Map<GATKRead, byte[]> buildGapContinuationPenalties(final List<GATKRead> reads, final byte gapPenalty) {
-        final Map<GATKRead, byte[]> result = new HashMap<>(reads.size());
-        reads.stream().forEach(read -> result.put(read, Utils.dupBytes(gapPenalty, read.getLength())));
-        return result;
-    }
-
-    private void writeDebugLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods) {
+    private void writeDebugLikelihoods(final LikelihoodMatrix<Haplotype> likelihoods, final byte[][] readBases, final byte[][] readQuals,
+                                       final byte[][] readInsQuals, final byte[][] readDelQuals) {
         if (!writeLikelihoodsToFile || likelihoodsStream == null) {
             return;
         }
 
-        final List<GATKRead> reads = likelihoods.reads();
         final List<Haplotype> haplotypes = likelihoods.alleles();
-        for (int i = 0; i < reads.size(); i++) {
+        for (int i = 0; i < likelihoods.numberOfReads(); i++) {
             for (int j = 0; j < haplotypes.size(); j++) {
-                writeDebugLikelihoods(reads.get(i), haplotypes.get(j), likelihoods.get(j, i));
+                // Note: the precision of log10l in the debug output is only ~6 digits (ie., not all digits are necessarily printed)
+                likelihoodsStream.printf("%s %s %s %s %s %s %f%n",
+                        haplotypes.get(j).getBaseString(),
+                        new String(readBases[i]),
+                        SAMUtils.phredToFastq(readQuals[i]),
+                        SAMUtils.phredToFastq(readInsQuals[i]),
+                        SAMUtils.phredToFastq(readDelQuals[i]),
+                        SAMUtils.phredToFastq(constantGCP),
+                        likelihoods.get(j, i));
             }
         }
         likelihoodsStream.flush();
     }
 
-    private void writeDebugLikelihoods(final GATKRead processedRead, final Haplotype haplotype, final double log10l){
-        // Note: the precision of log10l in the debug output is only ~6 digits (ie., not all digits are necessarily printed)
-        likelihoodsStream.printf("%s %s %s %s %s %s %f%n",
-                haplotype.getBaseString(),
-                new String(processedRead.getBases()),
-                SAMUtils.phredToFastq(processedRead.getBaseQualities()),
-                SAMUtils.phredToFastq(ReadUtils.getBaseInsertionQualities(processedRead)),
-                SAMUtils.phredToFastq(ReadUtils.getBaseDeletionQualities(processedRead)),
-                SAMUtils.phredToFastq(constantGCP),
-                log10l);
-    }
-
     /* --------------------------------------------------------------------------------
     *
     * Experimental attempts at PCR error rate modeling
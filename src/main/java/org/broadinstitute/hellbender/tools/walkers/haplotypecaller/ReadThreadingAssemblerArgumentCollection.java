@@ -111,6 +111,15 @@ public final class ReadThreadingAssemblerArgumentCollection implements Serializa
     @Argument(fullName="min-pruning", doc = "Minimum support to not prune paths in the graph", optional = true)
     public int minPruneFactor = 2;
 
+    /**
+     * Thread reads into the assembly graph using kmers packed into longs, open-addressing hash tables and array-based
+     * adjacency lists, rather than one object per kmer and per edge.  The assembled haplotypes are identical; this only
+     * reduces the time and garbage collection spent building the graph.  Kmer sizes above 31 always use the default graph.
+     */
+    @Advanced
+    @Argument(fullName="use-packed-kmer-graph", doc = "Build the read threading graph with packed kmers and primitive adjacency arrays", optional = true)
+    public boolean usePackedKmerGraph = false;
+
     @Hidden
     @Argument(fullName="debug-graph-transformations", doc="Write DOT formatted graph files out of the assembler for only this graph size", optional = true)
     public boolean debugGraphTransformations = false;
@@ -27,6 +27,7 @@ import org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSites;
 
 import java.util.*;
 import java.util.stream.Collectors;
@@ -47,6 +48,8 @@ public final class ReferenceConfidenceModel {
 
     private final PosteriorProbabilitiesUtils.PosteriorProbabilitiesOptions options;
 
+    private boolean groupSites = false;
+
     /**
      * Surrogate quality score for no base calls.
      * <p>
@@ -56,6 +59,8 @@ public final class ReferenceConfidenceModel {
      */
     private static final byte REF_MODEL_DELETION_QUAL = 30;
 
+    private static final String REFERENCE_CONFIDENCE_SOURCE = "HC";
+
     /**
      * Base calls with quality threshold lower than this number won't be considered when assessing the
      * confidence on the hom-ref call.
@@ -185,6 +190,17 @@ public final class ReferenceConfidenceModel {
                 useFlatPriorsForIndels);
     }
 
+    /**
+     * Have {@link #calculateRefConfidence} return each run of reference confidence sites between calls as one
+     * {@link ReferenceConfidenceSites}, rather than a VariantContext per site, when no priors are applied.
+     *
+     * Only the {@link org.broadinstitute.hellbender.utils.variant.writers.GVCFWriter} bands the sites of a run, so this
+     * is only for callers writing the results to one.
+     */
+    public void setGroupSites(final boolean groupSites) {
+        this.groupSites = groupSites;
+    }
+
     /**
      * Get the VCF header lines to include when emitting reference confidence values via {@link #calculateRefConfidence}.
      * @return a non-null set of VCFHeaderLines
@@ -254,6 +270,8 @@ public final class ReferenceConfidenceModel {
         final String sampleName = readLikelihoods.getSample(0);
 
         final int globalRefOffset = refSpan.getStart() - activeRegion.getExtendedSpan().getStart();
+        final boolean groupSitesIntoRuns = groupSites && !applyPriors && ploidy > 0;
+        ReferenceConfidenceSites.Builder run = null;
         for ( final ReadPileup pileup : refPileups ) {
             final Locatable curPos = pileup.getLocation();
             final int offset = curPos.getStart() - refSpan.getStart();
@@ -261,6 +279,10 @@ public final class ReferenceConfidenceModel {
             final VariantContext overlappingSite = getOverlappingVariantContext(curPos, variantCalls);
             final List<VariantContext> currentPriors = getMatchingPriors(curPos, overlappingSite, VCpriors);
             if ( overlappingSite != null && overlappingSite.getStart() == curPos.getStart() ) {
+                if ( run != null ) {
+                    results.add(run.make());
+                    run = null;
+                }
                 if (applyPriors) {
                     results.add(PosteriorProbabilitiesUtils.calculatePosteriorProbs(overlappingSite, currentPriors,
                             numRefSamplesForPrior, options));
@@ -268,15 +290,36 @@ public final class ReferenceConfidenceModel {
                 else {
                     results.add(overlappingSite);
                 }
+            } else if ( groupSitesIntoRuns ) {
+                if ( run == null ) {
+                    run = new ReferenceConfidenceSites.Builder(REFERENCE_CONFIDENCE_SOURCE, curPos.getContig(), curPos.getStart(), sampleName, ploidy);
+                }
+                addReferenceConfidenceSite(run, ploidy, ref, globalRefOffset, pileup, offset);
             } else {
                 // otherwise emit a reference confidence variant context
                 results.add(makeReferenceConfidenceVariantContext(ploidy, ref, sampleName, globalRefOffset, pileup, curPos, offset, applyPriors, currentPriors));
             }
         }
+        if ( run != null ) {
+            results.add(run.make());
+        }
 
         return results;
     }
 
+    private void addReferenceConfidenceSite(final ReferenceConfidenceSites.Builder run,
+                                            final int ploidy,
+                                            final byte[] ref,
+                                            final int globalRefOffset,
+                                            final ReadPileup pileup,
+                                            final int offset) {
+        final int refOffset = offset + globalRefOffset;
+        final byte refBase = ref[refOffset];
+        final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null, true);
+        final int[] pls = calcReferenceConfidencePLs(ploidy, ref, refOffset, pileup, homRefCalc);
+        run.add(refBase, homRefCalc.refDepth, homRefCalc.nonRefDepth, GATKVariantContextUtils.calculateGQFromPLs(pls), pls);
+    }
+
 
    private VariantContext makeReferenceConfidenceVariantContext(final int ploidy,
                                                                  final byte[] ref,
@@ -292,13 +335,28 @@ public final class ReferenceConfidenceModel {
         final byte refBase = ref[refOffset];
         final RefVsAnyResult homRefCalc = calcGenotypeLikelihoodsOfRefVsAny(ploidy, pileup, refBase, BASE_QUAL_THRESHOLD, null, true);
 
-        final Allele refAllele = Allele.create(refBase, true);
-        final List<Allele> refSiteAlleles = Arrays.asList(refAllele, Allele.NON_REF_ALLELE);
-        final VariantContextBuilder vcb = new VariantContextBuilder("HC", curPos.getContig(), curPos.getStart(), curPos.getStart(), refSiteAlleles);
-        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
-        gb.AD(homRefCalc.getAD());
-        gb.DP(homRefCalc.getDP());
+        final int[] leastConfidenceGLsAsPLs = calcReferenceConfidencePLs(ploidy, ref, refOffset, pileup, homRefCalc);
+        final VariantContext vc = ReferenceConfidenceSites.makeSiteVariantContext(REFERENCE_CONFIDENCE_SOURCE, curPos.getContig(),
+                curPos.getStart(), sampleName, ploidy, refBase, homRefCalc.refDepth, homRefCalc.nonRefDepth,
+                GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs), leastConfidenceGLsAsPLs);
 
+        if(!applyPriors) {
+            return vc;
+        }
+        else {
+            return PosteriorProbabilitiesUtils.calculatePosteriorProbs(vc, VCpriors, numRefSamplesForPrior, options);
+            //TODO FIXME: after new-qual refactoring, these should be static calls to AF calculator
+        }
+    }
+
+    /**
+     * Calculate the PLs of the hom-ref call at a site, from whichever of its SNP and indel likelihoods is the least confident
+     */
+    private int[] calcReferenceConfidencePLs(final int ploidy,
+                                             final byte[] ref,
+                                             final int refOffset,
+                                             final ReadPileup pileup,
+                                             final RefVsAnyResult homRefCalc) {
         // genotype likelihood calculation
         final GenotypeLikelihoods snpGLs = GenotypeLikelihoods.fromLog10Likelihoods(homRefCalc.getGenotypeLikelihoodsCappedByHomRefLikelihood());
         final int nIndelInformativeReads = calcNIndelInformativeReads(pileup, refOffset, ref, indelInformativeDepthIndelSize);
@@ -312,17 +370,7 @@ public final class ReferenceConfidenceModel {
         // as our GLs for the site.
         final GenotypeLikelihoods leastConfidenceGLs = getGLwithWorstGQ(indelGLs, snpGLs);
 
-        final int[] leastConfidenceGLsAsPLs = leastConfidenceGLs.getAsPLs();
-        gb.GQ(GATKVariantContextUtils.calculateGQFromPLs(leastConfidenceGLsAsPLs));
-        gb.PL(leastConfidenceGLsAsPLs);
-
-        if(!applyPriors) {
-            return vcb.genotypes(gb.make()).make();
-        }
-        else {
-            return PosteriorProbabilitiesUtils.calculatePosteriorProbs(vcb.genotypes(gb.make()).make(), VCpriors, numRefSamplesForPrior, options);
-            //TODO FIXME: after new-qual refactoring, these should be static calls to AF calculator
-        }
+        return leastConfidenceGLs.getAsPLs();
     }
 
     /**
@@ -0,0 +1,394 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import it.unimi.dsi.fastutil.longs.Long2IntOpenHashMap;
+import it.unimi.dsi.fastutil.longs.LongIterator;
+import it.unimi.dsi.fastutil.longs.LongOpenHashSet;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.util.*;
+
+/**
+ * Allocation-light de Bruijn graph used by {@link ReadThreadingGraph} to thread its pending sequences.
+ *
+ * <p>
+ *     Kmers are packed two bits per base into a long, so kmers of up to {@link #MAX_KMER_SIZE} bases made only of
+ *     A, C, G and T are supported. Vertices and edges are int indexes into parallel primitive arrays, the adjacency
+ *     of each vertex is an intrusive linked list of edge indexes kept in insertion order, and the unique and
+ *     non-unique kmers live in open-addressing hash tables. No objects are created per kmer or per edge query.
+ * </p>
+ *
+ * <p>
+ *     Threading follows exactly the same rules, and visits vertices and edges in exactly the same order, as
+ *     {@link ReadThreadingGraph}, so that the graph built by {@link ReadThreadingGraph#buildGraphIfNecessary()} from
+ *     this one is identical to the graph it would have threaded itself.
+ * </p>
+ */
+final class PackedKmerGraph {
+
+    /**
+     * Largest kmer that fits in a long at two bits per base
+     */
+    static final int MAX_KMER_SIZE = 31;
+
+    private static final int NO_ENTRY = -1;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    private final int kmerSize;
+    private final long kmerMask;
+    private final boolean startThreadingOnlyAtExistingVertex;
+    private final boolean increaseCountsThroughBranches;
+
+    // kmer -> vertex index, for the kmers that can be used as merge points
+    private final Long2IntOpenHashMap uniqueKmers = new Long2IntOpenHashMap();
+    private final LongOpenHashSet nonUniqueKmers = new LongOpenHashSet();
+    // non-unique kmers that contain other bases than ACGT; they can never be threaded but they count as non-unique
+    private final Set<Kmer> unpackableNonUniqueKmers = new HashSet<>();
+
+    private boolean hasRefSource = false;
+    private long refSource;
+
+    // vertices
+    private int vertexCount = 0;
+    private long[] vertexKmers = new long[INITIAL_CAPACITY];
+    private int[] inDegree = new int[INITIAL_CAPACITY];
+    private int[] firstOutgoingEdge = new int[INITIAL_CAPACITY];
+    private int[] lastOutgoingEdge = new int[INITIAL_CAPACITY];
+    private int[] firstIncomingEdge = new int[INITIAL_CAPACITY];
+    private int[] lastIncomingEdge = new int[INITIAL_CAPACITY];
+
+    // edges
+    private int edgeCount = 0;
+    private int[] edgeSource = new int[INITIAL_CAPACITY];
+    private int[] edgeTarget = new int[INITIAL_CAPACITY];
+    private boolean[] edgeIsRef = new boolean[INITIAL_CAPACITY];
+    private int[] edgeInitialMultiplicity = new int[INITIAL_CAPACITY];
+    private int[] edgeSingleSampleMultiplicity = new int[INITIAL_CAPACITY];
+    private int[] nextOutgoingEdge = new int[INITIAL_CAPACITY];
+    private int[] nextIncomingEdge = new int[INITIAL_CAPACITY];
+
+    // the single sample multiplicity of every edge at the end of each sample, indexed by sample and then by edge
+    private final List<int[]> flushedSingleSampleMultiplicities = new ArrayList<>();
+
+    /**
+     * @param kmerSize the kmer size, between 1 and {@link #MAX_KMER_SIZE}
+     * @param startThreadingOnlyAtExistingVertex see {@link ReadThreadingGraph#setThreadingStartOnlyAtExistingVertex(boolean)}
+     * @param increaseCountsThroughBranches whether to increase counts backwards through branching vertices
+     */
+    PackedKmerGraph(final int kmerSize, final boolean startThreadingOnlyAtExistingVertex, final boolean increaseCountsThroughBranches) {
+        Utils.validateArg(kmerSize > 0 && kmerSize <= MAX_KMER_SIZE, () -> "kmer size must be between 1 and " + MAX_KMER_SIZE + " but got " + kmerSize);
+        this.kmerSize = kmerSize;
+        this.kmerMask = (1L << (2 * kmerSize)) - 1;
+        this.startThreadingOnlyAtExistingVertex = startThreadingOnlyAtExistingVertex;
+        this.increaseCountsThroughBranches = increaseCountsThroughBranches;
+        uniqueKmers.defaultReturnValue(NO_ENTRY);
+    }
+
+    /**
+     * Can all of these sequences be threaded with packed kmers of size kmerSize?
+     *
+     * Only the threaded span of each sequence needs to be made of A, C, G and T: [start, stop) for reads, and everything
+     * up to stop for the reference, which is always threaded from its first base.
+     */
+    static boolean canThread(final Collection<ReadThreadingGraph.SequenceForKmers> sequences, final int kmerSize) {
+        if ( kmerSize > MAX_KMER_SIZE ) {
+            return false;
+        }
+        for ( final ReadThreadingGraph.SequenceForKmers sequence : sequences ) {
+            if ( ! isPackable(sequence.sequence, sequence.isRef ? 0 : sequence.start, sequence.stop) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collect the kmers that occur more than once within any single sequence.
+     *
+     * Same as {@link ReadThreadingGraph#determineNonUniqueKmers}, this looks at all kmers ending before the sequence stop,
+     * including those before its start.
+     */
+    void determineNonUniqueKmers(final Collection<ReadThreadingGraph.SequenceForKmers> sequences) {
+        final LongOpenHashSet kmersInSequence = new LongOpenHashSet();
+        for ( final ReadThreadingGraph.SequenceForKmers sequenceForKmers : sequences ) {
+            if ( ! isPackable(sequenceForKmers.sequence, 0, sequenceForKmers.stop) ) {
+                for ( final Kmer kmer : ReadThreadingGraph.determineNonUniqueKmers(sequenceForKmers, kmerSize) ) {
+                    if ( isPackable(kmer.bases(), 0, kmerSize) ) {
+                        nonUniqueKmers.add(encode(kmer.bases(), 0));
+                    } else {
+                        unpackableNonUniqueKmers.add(kmer);
+                    }
+                }
+                continue;
+            }
+
+            kmersInSequence.clear();
+            final byte[] sequence = sequenceForKmers.sequence;
+            long kmer = 0;
+            for ( int i = 0; i < sequenceForKmers.stop; i++ ) {
+                kmer = ((kmer << 2) | baseToCode(sequence[i])) & kmerMask;
+                if ( i >= kmerSize - 1 && ! kmersInSequence.add(kmer) ) {
+                    nonUniqueKmers.add(kmer);
+                }
+            }
+        }
+    }
+
+    /**
+     * Thread sequence seqForKmers through the graph; see ReadThreadingGraph#threadSequence
+     */
+    void threadSequence(final ReadThreadingGraph.SequenceForKmers seqForKmers) {
+        final byte[] sequence = seqForKmers.sequence;
+        final int uniqueStartPos = findStart(seqForKmers);
+        if ( uniqueStartPos == -1 ) {
+            return;
+        }
+
+        long kmer = encode(sequence, uniqueStartPos);
+        final int startingVertex = getOrCreateKmerVertex(kmer);
+
+        // increase the counts of all edges incoming into the starting vertex supported by going back in sequence
+        increaseCountsInMatchedKmers(seqForKmers.count, startingVertex, kmer, kmerSize - 2);
+
+        if ( seqForKmers.isRef ) {
+            if ( hasRefSource ) {
+                throw new IllegalStateException("Found two refSources! prev: " + new String(decode(refSource)) + ", new: " + new String(decode(kmer)));
+            }
+            refSource = encode(sequence, seqForKmers.start);
+            hasRefSource = true;
+        }
+
+        int vertex = startingVertex;
+        for ( int i = uniqueStartPos + 1; i <= seqForKmers.stop - kmerSize; i++ ) {
+            kmer = ((kmer << 2) | baseToCode(sequence[i + kmerSize - 1])) & kmerMask;
+            vertex = extendChainByOne(vertex, kmer, seqForKmers.count, seqForKmers.isRef);
+        }
+    }
+
+    /**
+     * Record the single sample multiplicity of every edge and reset it, at the end of each sample
+     */
+    void flushSingleSampleMultiplicities() {
+        flushedSingleSampleMultiplicities.add(Arrays.copyOf(edgeSingleSampleMultiplicity, edgeCount));
+        Arrays.fill(edgeSingleSampleMultiplicity, 0, edgeCount, 0);
+    }
+
+    int getVertexCount() { return vertexCount; }
+
+    byte[] getVertexSequence(final int vertex) { return decode(vertexKmers[vertex]); }
+
+    /**
+     * @return true if the vertex is the one that the unique kmer table maps its kmer to
+     */
+    boolean isUniqueKmerVertex(final int vertex) { return uniqueKmers.get(vertexKmers[vertex]) == vertex; }
+
+    int getEdgeCount() { return edgeCount; }
+
+    int getEdgeSource(final int edge) { return edgeSource[edge]; }
+
+    int getEdgeTarget(final int edge) { return edgeTarget[edge]; }
+
+    boolean isRefEdge(final int edge) { return edgeIsRef[edge]; }
+
+    /**
+     * @return the multiplicity the edge was created with
+     */
+    int getInitialMultiplicity(final int edge) { return edgeInitialMultiplicity[edge]; }
+
+    int getNumberOfFlushedSamples() { return flushedSingleSampleMultiplicities.size(); }
+
+    /**
+     * @return the multiplicity of the edge within the given sample, including its initial multiplicity if it was created
+     * in that sample, or -1 if the edge didn't exist yet
+     */
+    int getSingleSampleMultiplicity(final int sample, final int edge) {
+        final int[] multiplicities = flushedSingleSampleMultiplicities.get(sample);
+        return edge < multiplicities.length ? multiplicities[edge] : -1;
+    }
+
+    Set<Kmer> getNonUniqueKmers() {
+        final Set<Kmer> result = new HashSet<>(unpackableNonUniqueKmers);
+        for ( final LongIterator it = nonUniqueKmers.iterator(); it.hasNext(); ) {
+            result.add(new Kmer(decode(it.nextLong())));
+        }
+        return result;
+    }
+
+    /**
+     * @return the reference source kmer, or null if no reference sequence was threaded
+     */
+    Kmer getRefSource() {
+        return hasRefSource ? new Kmer(decode(refSource)) : null;
+    }
+
+    private int findStart(final ReadThreadingGraph.SequenceForKmers seqForKmers) {
+        if ( seqForKmers.isRef ) {
+            return 0;
+        }
+
+        final byte[] sequence = seqForKmers.sequence;
+        final int lastStart = seqForKmers.stop - kmerSize;
+        long kmer = 0;
+        for ( int i = seqForKmers.start; i < seqForKmers.stop; i++ ) {
+            kmer = ((kmer << 2) | baseToCode(sequence[i])) & kmerMask;
+            final int kmerStart = i - kmerSize + 1;
+            if ( kmerStart >= lastStart ) {
+                break;
+            }
+            if ( kmerStart >= seqForKmers.start && isThreadingStart(kmer) ) {
+                return kmerStart;
+            }
+        }
+        return -1;
+    }
+
+    private boolean isThreadingStart(final long kmer) {
+        return startThreadingOnlyAtExistingVertex ? uniqueKmers.containsKey(kmer) : ! nonUniqueKmers.contains(kmer);
+    }
+
+    private int getOrCreateKmerVertex(final long kmer) {
+        final int vertex = uniqueKmers.get(kmer);
+        return vertex != NO_ENTRY ? vertex : createVertex(kmer);
+    }
+
+    private int createVertex(final long kmer) {
+        if ( vertexCount == vertexKmers.length ) {
+            final int capacity = 2 * vertexCount;
+            vertexKmers = Arrays.copyOf(vertexKmers, capacity);
+            inDegree = Arrays.copyOf(inDegree, capacity);
+            firstOutgoingEdge = Arrays.copyOf(firstOutgoingEdge, capacity);
+            lastOutgoingEdge = Arrays.copyOf(lastOutgoingEdge, capacity);
+            firstIncomingEdge = Arrays.copyOf(firstIncomingEdge, capacity);
+            lastIncomingEdge = Arrays.copyOf(lastIncomingEdge, capacity);
+        }
+
+        final int vertex = vertexCount++;
+        vertexKmers[vertex] = kmer;
+        inDegree[vertex] = 0;
+        firstOutgoingEdge[vertex] = lastOutgoingEdge[vertex] = NO_ENTRY;
+        firstIncomingEdge[vertex] = lastIncomingEdge[vertex] = NO_ENTRY;
+
+        if ( ! nonUniqueKmers.contains(kmer) && ! uniqueKmers.containsKey(kmer) ) {
+            uniqueKmers.put(kmer, vertex);
+        }
+        return vertex;
+    }
+
+    private void addEdge(final int source, final int target, final boolean isRef, final int multiplicity) {
+        if ( edgeCount == edgeSource.length ) {
+            final int capacity = 2 * edgeCount;
+            edgeSource = Arrays.copyOf(edgeSource, capacity);
+            edgeTarget = Arrays.copyOf(edgeTarget, capacity);
+            edgeIsRef = Arrays.copyOf(edgeIsRef, capacity);
+            edgeInitialMultiplicity = Arrays.copyOf(edgeInitialMultiplicity, capacity);
+            edgeSingleSampleMultiplicity = Arrays.copyOf(edgeSingleSampleMultiplicity, capacity);
+            nextOutgoingEdge = Arrays.copyOf(nextOutgoingEdge, capacity);
+            nextIncomingEdge = Arrays.copyOf(nextIncomingEdge, capacity);
+        }
+
+        final int edge = edgeCount++;
+        edgeSource[edge] = source;
+        edgeTarget[edge] = target;
+        edgeIsRef[edge] = isRef;
+        edgeInitialMultiplicity[edge] = multiplicity;
+        edgeSingleSampleMultiplicity[edge] = multiplicity;
+        nextOutgoingEdge[edge] = NO_ENTRY;
+        nextIncomingEdge[edge] = NO_ENTRY;
+
+        // append, so that the adjacency lists are iterated in insertion order like the JGraphT edge sets
+        if ( lastOutgoingEdge[source] == NO_ENTRY ) {
+            firstOutgoingEdge[source] = edge;
+        } else {
+            nextOutgoingEdge[lastOutgoingEdge[source]] = edge;
+        }
+        lastOutgoingEdge[source] = edge;
+
+        if ( lastIncomingEdge[target] == NO_ENTRY ) {
+            firstIncomingEdge[target] = edge;
+        } else {
+            nextIncomingEdge[lastIncomingEdge[target]] = edge;
+        }
+        lastIncomingEdge[target] = edge;
+        inDegree[target]++;
+    }
+
+    private void incMultiplicity(final int edge, final int count) {
+        edgeSingleSampleMultiplicity[edge] += count;
+    }
+
+    private void increaseCountsInMatchedKmers(final int count, final int vertex, final long originalKmer, final int offset) {
+        if ( offset == -1 ) {
+            return;
+        }
+
+        final long seqBase = (originalKmer >>> (2 * (kmerSize - 1 - offset))) & 3;
+        for ( int edge = firstIncomingEdge[vertex]; edge != NO_ENTRY; edge = nextIncomingEdge[edge] ) {
+            final int prev = edgeSource[edge];
+            if ( (vertexKmers[prev] & 3) == seqBase && (increaseCountsThroughBranches || inDegree[vertex] == 1) ) {
+                incMultiplicity(edge, count);
+                increaseCountsInMatchedKmers(count, prev, originalKmer, offset - 1);
+            }
+        }
+    }
+
+    private int extendChainByOne(final int prevVertex, final long kmer, final int count, final boolean isRef) {
+        final long suffix = kmer & 3;
+        for ( int edge = firstOutgoingEdge[prevVertex]; edge != NO_ENTRY; edge = nextOutgoingEdge[edge] ) {
+            final int target = edgeTarget[edge];
+            if ( (vertexKmers[target] & 3) == suffix ) {
+                // we've got a match in the chain, so simply increase the count of the edge by 1 and continue
+                incMultiplicity(edge, count);
+                return target;
+            }
+        }
+
+        // none of our outgoing edges had our unique suffix base, so we check for an opportunity to merge back in
+        final int uniqueMergeVertex = hasRefSource && kmer == refSource ? NO_ENTRY : uniqueKmers.get(kmer);
+        if ( isRef && uniqueMergeVertex != NO_ENTRY ) {
+            throw new IllegalStateException("Found a unique vertex to merge into the reference graph " + new String(decode(vertexKmers[prevVertex])) + " -> " + new String(decode(kmer)));
+        }
+
+        final int nextVertex = uniqueMergeVertex == NO_ENTRY ? createVertex(kmer) : uniqueMergeVertex;
+        addEdge(prevVertex, nextVertex, isRef, count);
+        return nextVertex;
+    }
+
+    private long encode(final byte[] sequence, final int start) {
+        long kmer = 0;
+        for ( int i = start; i < start + kmerSize; i++ ) {
+            kmer = (kmer << 2) | baseToCode(sequence[i]);
+        }
+        return kmer;
+    }
+
+    private byte[] decode(final long kmer) {
+        final byte[] bases = new byte[kmerSize];
+        for ( int i = 0; i < kmerSize; i++ ) {
+            bases[i] = BASES[(int) ((kmer >>> (2 * (kmerSize - 1 - i))) & 3)];
+        }
+        return bases;
+    }
+
+    private static boolean isPackable(final byte[] sequence, final int start, final int stop) {
+        for ( int i = start; i < stop; i++ ) {
+            if ( baseToCode(sequence[i]) < 0 ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return the two bit code of an upper case A, C, G or T, or -1 for any other base
+     */
+    private static int baseToCode(final byte base) {
+        switch ( base ) {
+            case 'A': return 0;
+            case 'C': return 1;
+            case 'G': return 2;
+            case 'T': return 3;
+            default: return -1;
+        }
+    }
+}
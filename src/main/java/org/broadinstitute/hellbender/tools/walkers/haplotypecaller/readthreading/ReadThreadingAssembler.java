@@ -56,6 +56,7 @@ public final class ReadThreadingAssembler {
     private boolean debugGraphTransformations = false;
     private boolean recoverDanglingBranches = true;
     private int minDanglingBranchLength = 0;
+    private boolean usePackedKmerGraph = false;
     
     protected byte minBaseQualityToUseInAssembly = DEFAULT_MIN_BASE_QUALITY_TO_USE;
     private int pruneFactor = 2;
@@ -444,6 +445,7 @@ public final class ReadThreadingAssembler {
         final ReadThreadingGraph rtgraph = new ReadThreadingGraph(kmerSize, debugGraphTransformations, minBaseQualityToUseInAssembly, numPruningSamples);
 
         rtgraph.setThreadingStartOnlyAtExistingVertex(!recoverDanglingBranches);
+        rtgraph.setUsePackedKmerGraph(usePackedKmerGraph);
 
         // add the reference sequence to the graph
         rtgraph.addSequence("ref", refHaplotype.getBases(), true);
@@ -624,6 +626,13 @@ public final class ReadThreadingAssembler {
         this.minDanglingBranchLength = minDanglingBranchLength;
     }
 
+    /**
+     * Build the read threading graphs with a primitive, packed-kmer graph when possible.  See {@link ReadThreadingGraph#setUsePackedKmerGraph(boolean)}.
+     */
+    public void setUsePackedKmerGraph(final boolean usePackedKmerGraph) {
+        this.usePackedKmerGraph = usePackedKmerGraph;
+    }
+
     @VisibleForTesting
     void setJustReturnRawGraph(final boolean justReturnRawGraph) {
         this.justReturnRawGraph = justReturnRawGraph;
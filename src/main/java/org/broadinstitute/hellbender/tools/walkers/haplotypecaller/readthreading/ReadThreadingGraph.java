@@ -47,6 +47,8 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
 
     private boolean startThreadingOnlyAtExistingVertex = false;
 
+    private boolean usePackedKmerGraph = false;
+
     /** for debugging info printing */
     private static int counter = 0;
 
@@ -300,6 +302,19 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
         startThreadingOnlyAtExistingVertex = value;
     }
 
+    /**
+     * Changes whether the pending sequences are threaded with a {@link PackedKmerGraph} when possible.
+     *
+     * The resulting graph is the same either way, but the packed graph avoids allocating objects for every kmer
+     * and edge lookup while threading.  It is only used when the kmer size is at most {@link PackedKmerGraph#MAX_KMER_SIZE},
+     * the threaded bases are all A, C, G or T, the graph is still empty and graph transformations are not being debugged.
+     *
+     * @param value {@code true} to use the packed kmer graph, {@code false} to always thread into this graph directly.
+     */
+    public final void setUsePackedKmerGraph(final boolean value) {
+        usePackedKmerGraph = value;
+    }
+
     /**
      * Build the read threaded assembly graph if it hasn't already been constructed from the sequences that have
      * been added to the graph.
@@ -309,6 +324,24 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
             return;
         }
 
+        if ( usePackedKmerGraph && ! debugGraphTransformations && vertexSet().isEmpty() && PackedKmerGraph.canThread(getAllPendingSequences(), kmerSize) ) {
+            threadPendingSequencesWithPackedKmerGraph();
+        } else {
+            threadPendingSequences();
+        }
+
+        // clear
+        pending.clear();
+        alreadyBuilt = true;
+        for (final MultiDeBruijnVertex v : uniqueKmers.values()) {
+            v.setAdditionalInfo(v.getAdditionalInfo() + '+');
+        }
+    }
+
+    /**
+     * Thread all of the pending sequences directly into this graph
+     */
+    private void threadPendingSequences() {
         // determine the kmer size we'll use, and capture the set of nonUniques for that kmer size
         final NonUniqueResult result = determineKmerSizeAndNonUniques(kmerSize, kmerSize);
         nonUniqueKmers = result.nonUniques;
@@ -331,12 +364,47 @@ public class ReadThreadingGraph extends BaseGraph<MultiDeBruijnVertex, MultiSamp
                 e.flushSingleSampleMultiplicity();
             }
         }
+    }
 
-        // clear
-        pending.clear();
-        alreadyBuilt = true;
-        for (final MultiDeBruijnVertex v : uniqueKmers.values()) {
-            v.setAdditionalInfo(v.getAdditionalInfo() + '+');
+    /**
+     * Thread all of the pending sequences through a {@link PackedKmerGraph}, then add its vertices and edges to this
+     * (empty) graph in the order in which they were created, replaying the per-sample edge multiplicities.
+     */
+    private void threadPendingSequencesWithPackedKmerGraph() {
+        final PackedKmerGraph packedGraph = new PackedKmerGraph(kmerSize, startThreadingOnlyAtExistingVertex, increaseCountsThroughBranches);
+        packedGraph.determineNonUniqueKmers(getAllPendingSequences());
+        for ( final List<SequenceForKmers> sequencesForSample : pending.values() ) {
+            for ( final SequenceForKmers sequenceForKmers : sequencesForSample ) {
+                packedGraph.threadSequence(sequenceForKmers);
+            }
+            packedGraph.flushSingleSampleMultiplicities();
+        }
+
+        nonUniqueKmers = packedGraph.getNonUniqueKmers();
+        refSource = packedGraph.getRefSource();
+
+        final MultiDeBruijnVertex[] vertices = new MultiDeBruijnVertex[packedGraph.getVertexCount()];
+        for ( int v = 0; v < vertices.length; v++ ) {
+            vertices[v] = new MultiDeBruijnVertex(packedGraph.getVertexSequence(v));
+            addVertex(vertices[v]);
+            if ( packedGraph.isUniqueKmerVertex(v) ) {
+                uniqueKmers.put(new Kmer(vertices[v].getSequence()), vertices[v]);
+            }
+        }
+
+        final MyEdgeFactory edgeFactory = (MyEdgeFactory) getEdgeFactory();
+        for ( int e = 0; e < packedGraph.getEdgeCount(); e++ ) {
+            final MultiSampleEdge edge = edgeFactory.createEdge(packedGraph.isRefEdge(e), packedGraph.getInitialMultiplicity(e));
+            int currentSingleSampleMultiplicity = packedGraph.getInitialMultiplicity(e);
+            for ( int sample = 0; sample < packedGraph.getNumberOfFlushedSamples(); sample++ ) {
+                final int singleSampleMultiplicity = packedGraph.getSingleSampleMultiplicity(sample, e);
+                if ( singleSampleMultiplicity >= 0 ) {
+                    edge.incMultiplicity(singleSampleMultiplicity - currentSingleSampleMultiplicity);
+                    edge.flushSingleSampleMultiplicity();
+                    currentSingleSampleMultiplicity = 0;
+                }
+            }
+            addEdge(vertices[packedGraph.getEdgeSource(e)], vertices[packedGraph.getEdgeTarget(e)], edge);
         }
     }
 
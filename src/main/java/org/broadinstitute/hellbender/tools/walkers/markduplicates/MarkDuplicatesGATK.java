@@ -0,0 +1,434 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMRecordQueryNameComparator;
+import htsjdk.samtools.metrics.MetricsFile;
+import htsjdk.samtools.util.CloseableIterator;
+import htsjdk.samtools.util.SortingCollection;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import org.broadinstitute.barclay.argparser.Argument;
+import org.broadinstitute.barclay.argparser.ArgumentCollection;
+import org.broadinstitute.barclay.argparser.BetaFeature;
+import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
+import org.broadinstitute.barclay.help.DocumentedFeature;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.MarkDuplicatesSparkArgumentCollection;
+import org.broadinstitute.hellbender.cmdline.argumentcollections.OpticalDuplicatesArgumentCollection;
+import org.broadinstitute.hellbender.engine.GATKTool;
+import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSparkUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.broadinstitute.hellbender.utils.read.SAMFileGATKReadWriter;
+import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
+import org.broadinstitute.hellbender.utils.read.markduplicates.GATKDuplicationMetrics;
+import org.broadinstitute.hellbender.utils.read.markduplicates.LibraryIdGenerator;
+import org.broadinstitute.hellbender.utils.read.markduplicates.SerializableOpticalDuplicatesFinder;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.Fragment;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecord;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.MarkDuplicatesSparkRecordCodec;
+import org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords.Pair;
+import picard.cmdline.programgroups.ReadDataManipulationProgramGroup;
+import picard.sam.markduplicates.util.OpticalDuplicateFinder;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+
+/**
+ * Marks duplicate reads on a single machine without Spark, producing the same duplicate flags and metrics as
+ * {@link MarkDuplicatesSpark}.
+ *
+ * <p>The reads are read twice in queryname order (if the input is not queryname sorted or grouped, they are first sorted
+ * into a temporary file):</p>
+ * <ol>
+ *     <li>The fragments and pairs of each template are built and scored on worker threads, and their keys spilled into
+ *     a sorted table on disk, which is then scanned to find the best scoring template of each group of duplicates.</li>
+ *     <li>The reads are marked, and written out in coordinate order.</li>
+ * </ol>
+ *
+ * <h3>Usage example</h3>
+ * <pre>
+ * gatk MarkDuplicatesGATK \
+ *   -I input.bam \
+ *   -O marked_duplicates.bam \
+ *   -M marked_dup_metrics.txt \
+ *   --threads 4
+ * </pre>
+ */
+@DocumentedFeature
+@CommandLineProgramProperties(
+        summary = "Marks duplicate reads on a single machine, like MarkDuplicatesSpark but without Spark",
+        oneLineSummary = "MarkDuplicates without Spark",
+        programGroup = ReadDataManipulationProgramGroup.class)
+@BetaFeature
+public final class MarkDuplicatesGATK extends GATKTool {
+    public static final String MAX_RECORDS_IN_RAM_LONG_NAME = "max-records-in-ram";
+
+    // number of templates handed to a worker thread at a time
+    private static final int TEMPLATES_PER_BATCH = 10_000;
+    private static final int BATCHES_IN_FLIGHT_PER_THREAD = 2;
+
+    // order of the sorted key table: records with the same key are contiguous, in the order of their templates in the input
+    private static final Comparator<MarkDuplicatesSparkRecord> KEY_TABLE_ORDER = Comparator
+            .comparing(MarkDuplicatesSparkRecord::key)
+            .thenComparingLong(MarkDuplicatesSparkRecord::getTemplateIndex)
+            .thenComparing(MarkDuplicatesSparkRecord::getType);
+
+    @Argument(doc = "the output bam", shortName = StandardArgumentDefinitions.OUTPUT_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.OUTPUT_LONG_NAME, optional = false)
+    protected String output;
+
+    @Argument(doc = "Path to write duplication metrics to.", optional=true,
+            shortName = StandardArgumentDefinitions.METRICS_FILE_SHORT_NAME,
+            fullName = StandardArgumentDefinitions.METRICS_FILE_LONG_NAME)
+    protected String metricsFile;
+
+    @Argument(fullName = StandardArgumentDefinitions.THREADS_LONG_NAME, doc = "Number of worker threads used to build and score the duplicate marking records of templates", optional = true, minValue = 1)
+    protected int threads = 1;
+
+    @Argument(fullName = MAX_RECORDS_IN_RAM_LONG_NAME, doc = "Number of reads, or of duplicate marking records, to hold in memory when sorting them before spilling to disk", optional = true, minValue = 1)
+    protected int maxRecordsInRam = 500_000;
+
+    @ArgumentCollection
+    protected MarkDuplicatesSparkArgumentCollection markDuplicatesArgumentCollection = new MarkDuplicatesSparkArgumentCollection();
+
+    @ArgumentCollection
+    protected OpticalDuplicatesArgumentCollection opticalDuplicatesArgumentCollection = new OpticalDuplicatesArgumentCollection();
+
+    private SAMFileHeader header;
+    private OpticalDuplicateFinder finder;
+    private Map<String, Short> headerReadGroupIndexMap;
+    private Map<String, Byte> libraryIndex;
+
+    // the input reads in queryname order, if the input is not already queryname sorted or grouped
+    private SortingCollection<SAMRecord> querynameSortedReads;
+
+    // the fragments, empty fragments and pairs of all the templates, sorted by key
+    private SortingCollection<MarkDuplicatesSparkRecord> keyTable;
+
+    // optical duplicate finders of the worker threads, as they keep state while parsing read names
+    private ThreadLocal<OpticalDuplicateFinder> workerFinders;
+    private ExecutorService workers;
+    private final Deque<Future<List<MarkDuplicatesSparkRecord>>> pendingBatches = new ArrayDeque<>();
+
+    // indexed by template (see TemplateIndexer)
+    private final BitSet nonDuplicateTemplates = new BitSet();
+    private final Int2IntOpenHashMap opticalDuplicateCounts = new Int2IntOpenHashMap();
+
+    @Override
+    public boolean requiresReads() { return true; }
+
+    @Override
+    public List<ReadFilter> getDefaultReadFilters() {
+        return Collections.singletonList(ReadFilterLibrary.ALLOW_ALL_READS);
+    }
+
+    @Override
+    protected SAMFileHeader getHeaderForSAMWriter() {
+        final SAMFileHeader outputHeader = super.getHeaderForSAMWriter().clone();
+        outputHeader.setSortOrder(SAMFileHeader.SortOrder.coordinate);
+        return outputHeader;
+    }
+
+    @Override
+    public void onTraversalStart() {
+        header = getHeaderForReads();
+        finder = opticalDuplicatesArgumentCollection.READ_NAME_REGEX != null ? newOpticalDuplicateFinder() : null;
+        headerReadGroupIndexMap = MarkDuplicatesSparkUtils.getHeaderReadGroupIndexMap(header);
+        libraryIndex = MarkDuplicatesSparkUtils.constructLibraryIndex(header);
+        opticalDuplicateCounts.defaultReturnValue(-1);
+
+        workerFinders = ThreadLocal.withInitial(() -> finder != null ? newOpticalDuplicateFinder() : null);
+        if (threads > 1) {
+            workers = Executors.newFixedThreadPool(threads, runnable -> {
+                final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+                thread.setName("MarkDuplicatesGATK-" + thread.getName());
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    private OpticalDuplicateFinder newOpticalDuplicateFinder() {
+        return new SerializableOpticalDuplicatesFinder(opticalDuplicatesArgumentCollection.READ_NAME_REGEX, opticalDuplicatesArgumentCollection.OPTICAL_DUPLICATE_PIXEL_DISTANCE);
+    }
+
+    @Override
+    public void traverse() {
+        if (!ReadUtils.isReadNameGroupedBam(header)) {
+            logger.info("Input is " + header.getSortOrder() + " sorted, sorting the reads by queryname");
+            final SAMFileHeader querynameHeader = header.clone();
+            querynameHeader.setSortOrder(SAMFileHeader.SortOrder.queryname);
+            querynameSortedReads = SortingCollection.newInstance(SAMRecord.class, new BAMRecordCodec(querynameHeader), new SAMRecordQueryNameComparator(), maxRecordsInRam);
+            getTransformedReadStream(makeReadFilter()).forEach(read -> querynameSortedReads.add(read.convertToSAMRecord(querynameHeader)));
+            querynameSortedReads.doneAdding();
+        }
+
+        findNonDuplicateTemplates();
+        markAndWriteReads();
+    }
+
+    /**
+     * Iterate over the input reads in queryname order. Can be called more than once.
+     */
+    private void forEachReadInQuerynameOrder(final Consumer<GATKRead> action) {
+        if (querynameSortedReads == null) {
+            getTransformedReadStream(makeReadFilter()).forEach(action);
+        } else {
+            try (final CloseableIterator<SAMRecord> iterator = querynameSortedReads.iterator()) {
+                iterator.forEachRemaining(record -> action.accept(new SAMRecordToGATKReadAdapter(record)));
+            }
+        }
+    }
+
+    /**
+     * Assigns consecutive indices to the templates of reads in queryname order, that is to the runs of consecutive
+     * reads with the same name. The same reads give the same indices every time they are read.
+     */
+    private static final class TemplateIndexer {
+        private int templateIndex = -1;
+        private String templateName = null;
+
+        /**
+         * @return the index of the template of {@code read}, which is the next read in queryname order
+         */
+        int next(final GATKRead read) {
+            if (templateName == null || !templateName.equals(read.getName())) {
+                if (templateIndex == Integer.MAX_VALUE - 1) {
+                    throw new UserException("MarkDuplicatesGATK supports at most " + Integer.MAX_VALUE + " templates");
+                }
+                templateName = read.getName();
+                templateIndex++;
+            }
+            return templateIndex;
+        }
+    }
+
+    /**
+     * The mapped reads of a template, which are all that is needed to find out whether it is a duplicate.
+     */
+    private static final class Template {
+        private final int index;
+        private final List<GATKRead> mappedReads = new ArrayList<>(2);
+
+        private Template(final int index) {
+            this.index = index;
+        }
+    }
+
+    /**
+     * First pass over the reads: find the templates which are not duplicates, and the number of optical duplicates of
+     * each of them with any.
+     */
+    private void findNonDuplicateTemplates() {
+        keyTable = SortingCollection.newInstance(MarkDuplicatesSparkRecord.class, new MarkDuplicatesSparkRecordCodec(), KEY_TABLE_ORDER, maxRecordsInRam);
+
+        final TemplateIndexer templateIndexer = new TemplateIndexer();
+        final List<Template> batch = new ArrayList<>(TEMPLATES_PER_BATCH);
+        final Template[] template = {null};
+        forEachReadInQuerynameOrder(read -> {
+            final int templateIndex = templateIndexer.next(read);
+            if (template[0] == null || template[0].index != templateIndex) {
+                if (template[0] != null && !template[0].mappedReads.isEmpty()) {
+                    batch.add(template[0]);
+                    if (batch.size() == TEMPLATES_PER_BATCH) {
+                        submitBatch(new ArrayList<>(batch));
+                        batch.clear();
+                    }
+                }
+                template[0] = new Template(templateIndex);
+            }
+            // we treat these specially and don't mark them as duplicates
+            if (ReadFilterLibrary.MAPPED.test(read)) {
+                template[0].mappedReads.add(read);
+            }
+        });
+        if (template[0] != null && !template[0].mappedReads.isEmpty()) {
+            batch.add(template[0]);
+        }
+        submitBatch(batch);
+        while (!pendingBatches.isEmpty()) {
+            addToKeyTable(getResult(pendingBatches.remove()));
+        }
+
+        keyTable.doneAdding();
+        try (final CloseableIterator<MarkDuplicatesSparkRecord> records = keyTable.iterator()) {
+            MarkDuplicatesSparkUtils.DuplicateGroup group = null;
+            MarkDuplicatesSparkRecord groupStart = null;
+            while (records.hasNext()) {
+                final MarkDuplicatesSparkRecord record = records.next();
+                if (groupStart == null || !groupStart.key().equals(record.key())) {
+                    if (group != null) {
+                        addNonDuplicates(group);
+                    }
+                    group = new MarkDuplicatesSparkUtils.DuplicateGroup(finder);
+                    groupStart = record;
+                }
+                group.addWithPhysicalLocation(record);
+            }
+            if (group != null) {
+                addNonDuplicates(group);
+            }
+        }
+        keyTable.cleanup();
+    }
+
+    /**
+     * Build the records of a batch of templates on a worker thread, if there are any, adding them to the key table
+     * once they are done.
+     */
+    private void submitBatch(final List<Template> batch) {
+        if (workers == null) {
+            addToKeyTable(makeRecords(batch));
+            return;
+        }
+
+        pendingBatches.add(workers.submit(() -> makeRecords(batch)));
+        while (!pendingBatches.isEmpty() && (pendingBatches.size() >= threads * BATCHES_IN_FLIGHT_PER_THREAD || pendingBatches.peek().isDone())) {
+            addToKeyTable(getResult(pendingBatches.remove()));
+        }
+    }
+
+    private static List<MarkDuplicatesSparkRecord> getResult(final Future<List<MarkDuplicatesSparkRecord>> batch) {
+        try {
+            return batch.get();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for a worker thread", e);
+        } catch (final ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new GATKException("Error in worker thread", e.getCause());
+        }
+    }
+
+    /**
+     * Makes the records of a batch of templates, with their physical locations parsed if optical duplicates are counted.
+     */
+    private List<MarkDuplicatesSparkRecord> makeRecords(final List<Template> batch) {
+        final OpticalDuplicateFinder workerFinder = workerFinders.get();
+        final List<MarkDuplicatesSparkRecord> records = new ArrayList<>(batch.size() * 3);
+        for (final Template template : batch) {
+            for (final MarkDuplicatesSparkRecord record : MarkDuplicatesSparkUtils.generateRecordsForTemplate(header,
+                    markDuplicatesArgumentCollection.duplicatesScoringStrategy, headerReadGroupIndexMap, libraryIndex,
+                    template.mappedReads, template.index)) {
+                if (workerFinder != null && record.getType() == MarkDuplicatesSparkRecord.Type.FRAGMENT) {
+                    workerFinder.addLocationInformation(record.getName(), (Fragment) record);
+                } else if (workerFinder != null && record.getType() == MarkDuplicatesSparkRecord.Type.PAIR) {
+                    workerFinder.addLocationInformation(record.getName(), (Pair) record);
+                }
+                records.add(record);
+            }
+        }
+        return records;
+    }
+
+    private void addToKeyTable(final List<MarkDuplicatesSparkRecord> records) {
+        for (final MarkDuplicatesSparkRecord record : records) {
+            // Passthroughs are never duplicates, so need not be grouped with anything
+            if (record.getType() == MarkDuplicatesSparkRecord.Type.PASSTHROUGH) {
+                nonDuplicateTemplates.set((int) record.getTemplateIndex());
+            } else {
+                keyTable.add(record);
+            }
+        }
+    }
+
+    private void addNonDuplicates(final MarkDuplicatesSparkUtils.DuplicateGroup group) {
+        final Fragment nonDuplicateFragment = group.getNonDuplicateFragment();
+        if (nonDuplicateFragment != null) {
+            nonDuplicateTemplates.set((int) nonDuplicateFragment.getTemplateIndex());
+        }
+
+        final Pair nonDuplicatePair = group.getNonDuplicatePair();
+        if (nonDuplicatePair != null) {
+            final int templateIndex = (int) nonDuplicatePair.getTemplateIndex();
+            nonDuplicateTemplates.set(templateIndex);
+            final int opticalDuplicates = group.countOpticalDuplicates(finder);
+            if (opticalDuplicates > 0) {
+                opticalDuplicateCounts.put(templateIndex, opticalDuplicates);
+            }
+        }
+    }
+
+    /**
+     * Second pass over the reads: mark them as {@link MarkDuplicatesSpark#mark} does, and write them out.
+     */
+    private void markAndWriteReads() {
+        final boolean markUnmappedMates = !markDuplicatesArgumentCollection.dontMarkUnmappedMates;
+        final Map<String, GATKDuplicationMetrics> metricsByLibrary = new HashMap<>();
+
+        final TemplateIndexer templateIndexer = new TemplateIndexer();
+        try (final SAMFileGATKReadWriter writer = createSAMWriter(IOUtils.getPath(output), false)) {
+            forEachReadInQuerynameOrder(read -> {
+                final int templateIndex = templateIndexer.next(read);
+                int opticalDuplicates = 0;
+                // Handle reads that have been marked as non-duplicates (which also get tagged with optical duplicate summary statistics)
+                if (nonDuplicateTemplates.get(templateIndex)) {
+                    read.setIsDuplicate(false);
+                    if (markUnmappedMates || !read.isUnmapped()) {
+                        opticalDuplicates = Math.max(opticalDuplicateCounts.remove(templateIndex), 0);
+                    }
+                    // Mark unmapped read pairs as non-duplicates
+                } else if (ReadUtils.readAndMateAreUnmapped(read)) {
+                    read.setIsDuplicate(false);
+                    // Everything else is a duplicate
+                } else {
+                    read.setIsDuplicate(markUnmappedMates || !read.isUnmapped());
+                }
+
+                if (metricsFile != null) {
+                    final GATKDuplicationMetrics metrics = metricsByLibrary.computeIfAbsent(LibraryIdGenerator.getLibraryName(header, read.getReadGroup()), library -> {
+                        final GATKDuplicationMetrics libraryMetrics = new GATKDuplicationMetrics();
+                        libraryMetrics.LIBRARY = library;
+                        return libraryMetrics;
+                    });
+                    metrics.updateMetrics(read);
+                    metrics.READ_PAIR_OPTICAL_DUPLICATES += opticalDuplicates;
+                }
+
+                writer.addRead(read);
+                progressMeter.update(read.isUnmapped() ? null : read);
+            });
+        }
+
+        if (metricsFile != null) {
+            metricsByLibrary.replaceAll((library, metrics) -> MarkDuplicatesSparkUtils.finalizeMetrics(metrics));
+            final MetricsFile<GATKDuplicationMetrics, Double> resultMetrics = getMetricsFile();
+            MarkDuplicatesSparkUtils.saveMetrics(resultMetrics, header, metricsByLibrary, metricsFile);
+        }
+    }
+
+    @Override
+    public void closeTool() {
+        if (workers != null) {
+            workers.shutdownNow();
+        }
+        if (querynameSortedReads != null) {
+            querynameSortedReads.cleanup();
+        }
+        if (keyTable != null) {
+            keyTable.cleanup();
+        }
+    }
+}
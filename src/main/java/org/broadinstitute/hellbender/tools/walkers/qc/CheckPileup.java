@@ -107,6 +107,11 @@ public final class CheckPileup extends LocusWalker {
         return defaultFilters;
     }
 
+    @Override
+    protected boolean usePooledPileups() {
+        return true;
+    }
+
     @Override
     public boolean requiresReference() {
         return true;
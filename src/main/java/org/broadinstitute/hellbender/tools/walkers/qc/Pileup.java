@@ -131,6 +131,11 @@ public final class Pileup extends LocusWalker {
         return false;
     }
 
+    @Override
+    protected boolean usePooledPileups() {
+        return true;
+    }
+
     @Override
     public List<ReadFilter> getDefaultReadFilters() {
         final List<ReadFilter> defaultFilters = super.getDefaultReadFilters();
@@ -10,6 +10,9 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveAction;
 
 import Jama.Matrix;
 
@@ -17,6 +20,9 @@ class GaussianMixtureModel {
 
     protected final static Logger logger = LogManager.getLogger(GaussianMixtureModel.class);
 
+    // number of data evaluated by each task of the expectation step and of the k-means assignment
+    private final static int DATA_BLOCK_SIZE = 1024;
+
     private final List<MultivariateGaussian> gaussians;
     private final double shrinkage;
     private final double dirichletParameter;
@@ -59,7 +65,10 @@ class GaussianMixtureModel {
 
     }
 
-    public void initializeRandomModel( final List<VariantDatum> data, final int numKMeansIterations ) {
+    /**
+     * @param data row-major annotation matrix of the training data (see {@link VariantDataManager#getAnnotationMatrix})
+     */
+    public void initializeRandomModel( final double[] data, final int numKMeansIterations ) {
 
         // initialize random Gaussian means // BUGBUG: this is broken up this way to match the order of calls to rand.nextDouble() in the old code
         for( final MultivariateGaussian gaussian : gaussians ) {
@@ -81,71 +90,121 @@ class GaussianMixtureModel {
         }
     }
 
-    private void initializeMeansUsingKMeans( final List<VariantDatum> data, final int numIterations ) {
+    private void initializeMeansUsingKMeans( final double[] data, final int numIterations ) {
+        final int numAnnotations = getNumAnnotations();
+        final int[] assignments = new int[data.length / numAnnotations];
+        final int[] numAssigned = new int[gaussians.size()];
 
         int ttt = 0;
         while( ttt++ < numIterations ) {
             // E step: assign each variant to the nearest cluster
-            for( final VariantDatum datum : data ) {
-                double minDistance = Double.MAX_VALUE;
-                MultivariateGaussian minGaussian = null;
-                datum.assignment = minGaussian;
-                for( final MultivariateGaussian gaussian : gaussians ) {
-                    final double dist = gaussian.calculateDistanceFromMeanSquared( datum );
-                    if( dist < minDistance ) {
-                        minDistance = dist;
-                        minGaussian = gaussian;
+            forEachInRange(assignments.length, DATA_BLOCK_SIZE, (from, to) -> {
+                for( int datumIndex = from; datumIndex < to; datumIndex++ ) {
+                    double minDistance = Double.MAX_VALUE;
+                    int minGaussian = -1;
+                    for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                        final double dist = gaussians.get(gaussianIndex).calculateDistanceFromMeanSquared( data, datumIndex * numAnnotations );
+                        if( dist < minDistance ) {
+                            minDistance = dist;
+                            minGaussian = gaussianIndex;
+                        }
                     }
+                    assignments[datumIndex] = minGaussian;
                 }
-                datum.assignment = minGaussian;
-            }
+            });
 
             // M step: update gaussian means based on assigned variants
-            for( final MultivariateGaussian gaussian : gaussians ) {
-                gaussian.zeroOutMu();
-                int numAssigned = 0;
-
-                for( final VariantDatum datum : data ) {
-                    if( datum.assignment.equals(gaussian) ) {
-                        numAssigned++;
-                        gaussian.incrementMu( datum );
+            forEachInRange(gaussians.size(), 1, (from, to) -> {
+                for( int gaussianIndex = from; gaussianIndex < to; gaussianIndex++ ) {
+                    final MultivariateGaussian gaussian = gaussians.get(gaussianIndex);
+                    gaussian.zeroOutMu();
+                    numAssigned[gaussianIndex] = 0;
+                    for( int datumIndex = 0; datumIndex < assignments.length; datumIndex++ ) {
+                        if( assignments[datumIndex] == gaussianIndex ) {
+                            numAssigned[gaussianIndex]++;
+                            gaussian.incrementMu( data, datumIndex * numAnnotations, 1.0 );
+                        }
                     }
                 }
-                if( numAssigned != 0 ) {
-                    gaussian.divideEqualsMu( ((double) numAssigned) );
+            });
+            // serially, in order to keep the order of the calls to the random generator
+            for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                if( numAssigned[gaussianIndex] != 0 ) {
+                    gaussians.get(gaussianIndex).divideEqualsMu( ((double) numAssigned[gaussianIndex]) );
                 } else {
-                    gaussian.initializeRandomMu( Utils.getRandomGenerator() );
+                    gaussians.get(gaussianIndex).initializeRandomMu( Utils.getRandomGenerator() );
                 }
             }
         }
     }
 
-    public void expectationStep( final List<VariantDatum> data ) {
+    /**
+     * @param data row-major annotation matrix of the training data (see {@link VariantDataManager#getAnnotationMatrix})
+     */
+    public void expectationStep( final double[] data ) {
 
         for( final MultivariateGaussian gaussian : gaussians ) {
             gaussian.precomputeDenominatorForVariationalBayes( getSumHyperParameterLambda() );
         }
 
-        for( final VariantDatum datum : data ) {
-            final double[] pVarInGaussianLog10 = gaussians.stream().mapToDouble(g -> g.evaluateDatumLog10(datum)).toArray();
-            final double[] pVarInGaussianNormalized = MathUtils.normalizeLog10DeleteMePlease( pVarInGaussianLog10, false);
-            int gaussianIndex = 0;
-            for( final MultivariateGaussian gaussian : gaussians ) {
-                gaussian.assignPVarInGaussian( pVarInGaussianNormalized[gaussianIndex++] );
+        final int numAnnotations = getNumAnnotations();
+        forEachInRange(data.length / numAnnotations, DATA_BLOCK_SIZE, (from, to) -> {
+            final double[] pVarInGaussianLog10 = new double[gaussians.size()];
+            final double[] crossProdTmp = new double[numAnnotations];
+            for( int datumIndex = from; datumIndex < to; datumIndex++ ) {
+                for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                    pVarInGaussianLog10[gaussianIndex] = gaussians.get(gaussianIndex).evaluateDatumLog10( data, datumIndex * numAnnotations, crossProdTmp );
+                }
+                // same as MathUtils.normalizeLog10DeleteMePlease, without allocating
+                final double maxValue = MathUtils.arrayMax( pVarInGaussianLog10 );
+                double sum = 0.0;
+                for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                    pVarInGaussianLog10[gaussianIndex] = Math.pow(10.0, pVarInGaussianLog10[gaussianIndex] - maxValue);
+                    sum += pVarInGaussianLog10[gaussianIndex];
+                }
+                for( int gaussianIndex = 0; gaussianIndex < gaussians.size(); gaussianIndex++ ) {
+                    gaussians.get(gaussianIndex).setPVarInGaussian( datumIndex, pVarInGaussianLog10[gaussianIndex] / sum );
+                }
             }
-        }
+        });
+    }
+
+    /**
+     * @param data row-major annotation matrix of the training data (see {@link VariantDataManager#getAnnotationMatrix})
+     */
+    public void maximizationStep( final double[] data ) {
+        estimateMuAndSigma( data, 1E-10 );
+        gaussians.forEach(g -> g.maximizeGaussian( empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
     }
 
-    public void maximizationStep( final List<VariantDatum> data ) {
-        gaussians.forEach(g -> g.maximizeGaussian( data, empiricalMu, empiricalSigma, shrinkage, dirichletParameter, priorCounts));
+    /**
+     * Estimates the mu and the unnormalized sigma of each Gaussian from the probabilities assigned by the last expectation step.
+     * The sums over the data are taken in the order of the data, whatever the parallelism, so that results are reproducible.
+     */
+    private void estimateMuAndSigma( final double[] data, final double initialSumProb ) {
+        final int numAnnotations = getNumAnnotations();
+        forEachInRange(gaussians.size(), 1, (from, to) -> {
+            for( int gaussianIndex = from; gaussianIndex < to; gaussianIndex++ ) {
+                gaussians.get(gaussianIndex).estimateMu( data, initialSumProb );
+            }
+        });
+        forEachInRange(gaussians.size() * numAnnotations, 1, (from, to) -> {
+            for( int row = from; row < to; row++ ) {
+                gaussians.get(row / numAnnotations).estimateSigmaRow( data, row % numAnnotations );
+            }
+        });
     }
 
     private double getSumHyperParameterLambda() {
         return gaussians.stream().mapToDouble(g -> g.hyperParameter_lambda).sum();
     }
 
-    public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
-        gaussians.forEach(g -> g.evaluateFinalModelParameters(data));
+    /**
+     * @param data row-major annotation matrix of the training data (see {@link VariantDataManager#getAnnotationMatrix})
+     */
+    public void evaluateFinalModelParameters( final double[] data ) {
+        estimateMuAndSigma( data, 0.0 );
+        gaussians.forEach(MultivariateGaussian::evaluateFinalModelParameters);
         normalizePMixtureLog10();
     }
 
@@ -247,4 +306,48 @@ class GaussianMixtureModel {
     protected List<MultivariateGaussian> getModelGaussians() {return Collections.unmodifiableList(gaussians);}
 
     protected int getNumAnnotations() {return empiricalMu.length;}
+
+    @FunctionalInterface
+    private interface RangeAction {
+        void apply( int from, int to );
+    }
+
+    /**
+     * Runs {@code action} over consecutive ranges of [0, numItems) of at most {@code grainSize} items.
+     * When called from within a {@link ForkJoinPool} (see {@link VariantRecalibratorEngine}) the ranges are run
+     * concurrently on the threads of the pool, otherwise they are run serially on the calling thread.
+     */
+    private static void forEachInRange( final int numItems, final int grainSize, final RangeAction action ) {
+        if( ForkJoinTask.inForkJoinPool() ) {
+            new RangeTask(0, numItems, grainSize, action).invoke();
+        } else {
+            action.apply(0, numItems);
+        }
+    }
+
+    private static final class RangeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final int from;
+        private final int to;
+        private final int grainSize;
+        private final RangeAction action;
+
+        private RangeTask( final int from, final int to, final int grainSize, final RangeAction action ) {
+            this.from = from;
+            this.to = to;
+            this.grainSize = grainSize;
+            this.action = action;
+        }
+
+        @Override
+        protected void compute() {
+            if( to - from <= grainSize ) {
+                action.apply(from, to);
+            } else {
+                final int middle = (from + to) >>> 1;
+                invokeAll(new RangeTask(from, middle, grainSize, action), new RangeTask(middle, to, grainSize, action));
+            }
+        }
+    }
 }
\ No newline at end of file
@@ -7,7 +7,6 @@ import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.collections.ExpandingArrayList;
 
 import java.util.Arrays;
-import java.util.List;
 import java.util.Random;
 
 import Jama.Matrix;
@@ -22,14 +21,14 @@ class MultivariateGaussian {
     public double hyperParameter_lambda;
     private double cachedDenomLog10;
     private Matrix cachedSigmaInverse;
+    // cachedSigmaInverse transposed into a row-major array, so that evaluating a datum reads it sequentially
+    private double[] cachedSigmaInverseTransposed;
     final private double[] pVarInGaussian;
-    int pVarInGaussianIndex;
 
     public MultivariateGaussian( final int numVariants, final int numAnnotations  ) {
         mu = new double[numAnnotations];
         sigma = new Matrix(numAnnotations, numAnnotations);
         pVarInGaussian = new double[numVariants];
-        pVarInGaussianIndex = 0;
     }
 
     public void zeroOutMu() {
@@ -71,6 +70,18 @@ class MultivariateGaussian {
         return MathUtils.distanceSquared( datum.annotations, mu );
     }
 
+    /**
+     * Same as {@link #calculateDistanceFromMeanSquared(VariantDatum)}, for the datum starting at {@code offset} in a
+     * row-major annotation matrix (see {@link VariantDataManager#getAnnotationMatrix}).
+     */
+    public double calculateDistanceFromMeanSquared( final double[] data, final int offset ) {
+        double result = 0;
+        for( int jjj = 0; jjj < mu.length; jjj++ ) {
+            result += MathUtils.square( data[offset + jjj] - mu[jjj] );
+        }
+        return result;
+    }
+
     public void incrementMu( final VariantDatum datum ) {
         incrementMu( datum, 1.0 );
     }
@@ -81,6 +92,12 @@ class MultivariateGaussian {
         }
     }
 
+    public void incrementMu( final double[] data, final int offset, final double prob ) {
+        for( int jjj = 0; jjj < mu.length; jjj++ ) {
+            mu[jjj] += prob * data[offset + jjj];
+        }
+    }
+
     public void divideEqualsMu( final double x ) {
         for( int jjj = 0; jjj < mu.length; jjj++ ) {
             mu[jjj] /= x;
@@ -90,6 +107,7 @@ class MultivariateGaussian {
     private void precomputeInverse() {
         try {
             cachedSigmaInverse = sigma.inverse();
+            cachedSigmaInverseTransposed = new double[mu.length * mu.length];
         } catch( Exception e ) {
             //TODO: there must be something narrower than Exception to catch here
             throw new UserException(
@@ -102,8 +120,17 @@ class MultivariateGaussian {
     }
 
 
+    private void cacheSigmaInverseTransposed() {
+        for( int iii = 0; iii < mu.length; iii++ ) {
+            for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                cachedSigmaInverseTransposed[iii * mu.length + jjj] = cachedSigmaInverse.get(jjj, iii);
+            }
+        }
+    }
+
     public void precomputeDenominatorForEvaluation() {
         precomputeInverse();
+        cacheSigmaInverseTransposed();
         cachedDenomLog10 = Math.log10(Math.pow(2.0 * Math.PI, -1.0 * ((double) mu.length) / 2.0)) + Math.log10(Math.pow(sigma.det(), -0.5)) ;
     }
 
@@ -112,6 +139,7 @@ class MultivariateGaussian {
         // Variational Bayes calculations from Bishop
         precomputeInverse();
         cachedSigmaInverse.timesEquals( hyperParameter_a );
+        cacheSigmaInverseTransposed();
         double sum = 0.0;
         for(int jjj = 1; jjj <= mu.length; jjj++) {
             sum += Gamma.digamma( (hyperParameter_a + 1.0 - jjj) / 2.0 );
@@ -125,45 +153,79 @@ class MultivariateGaussian {
     }
 
     public double evaluateDatumLog10( final VariantDatum datum ) {
+        return evaluateDatumLog10( datum.annotations, 0, new double[mu.length] );
+    }
+
+    /**
+     * Evaluates the datum starting at {@code offset} in a row-major annotation matrix
+     * (see {@link VariantDataManager#getAnnotationMatrix}).
+     *
+     * @param crossProdTmp scratch space of at least as many elements as there are annotations, so that the caller can reuse it
+     */
+    public double evaluateDatumLog10( final double[] data, final int offset, final double[] crossProdTmp ) {
         double sumKernel = 0.0;
-        final double[] crossProdTmp = new double[mu.length];
-        Arrays.fill(crossProdTmp, 0.0);
         for( int iii = 0; iii < mu.length; iii++ ) {
+            double crossProd = 0.0;
+            final int inverseOffset = iii * mu.length;
             for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                crossProdTmp[iii] += (datum.annotations[jjj] - mu[jjj]) * cachedSigmaInverse.get(jjj, iii);
+                crossProd += (data[offset + jjj] - mu[jjj]) * cachedSigmaInverseTransposed[inverseOffset + jjj];
             }
+            crossProdTmp[iii] = crossProd;
         }
         for( int iii = 0; iii < mu.length; iii++ ) {
-            sumKernel += crossProdTmp[iii] * (datum.annotations[iii] - mu[iii]);
+            sumKernel += crossProdTmp[iii] * (data[offset + iii] - mu[iii]);
         }
 
         return (( -0.5 * sumKernel ) / Math.log(10.0)) + cachedDenomLog10; // This is the definition of a Gaussian PDF Log10
     }
 
-    public void assignPVarInGaussian( final double pVar ) {
-        pVarInGaussian[pVarInGaussianIndex++] = pVar;
+    public void setPVarInGaussian( final int datumIndex, final double pVar ) {
+        pVarInGaussian[datumIndex] = pVar;
     }
 
-    public void resetPVarInGaussian() {
-        Arrays.fill(pVarInGaussian, 0.0);
-        pVarInGaussianIndex = 0;
-    }
-
-    public void maximizeGaussian(final List<VariantDatum> data, final double[] empiricalMu, final Matrix empiricalSigma,
-                                 final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
-        sumProb = 1E-10;
-        final Matrix wishart = new Matrix(mu.length, mu.length);
+    /**
+     * First step of both {@link #maximizeGaussian} and {@link #evaluateFinalModelParameters}: sets mu to the mean of the data
+     * weighted by the probabilities assigned by the last expectation step, and zeroes sigma.
+     *
+     * @param data row-major annotation matrix (see {@link VariantDataManager#getAnnotationMatrix})
+     * @param initialSumProb initial value of the sum of the probabilities
+     */
+    public void estimateMu( final double[] data, final double initialSumProb ) {
+        sumProb = initialSumProb;
         zeroOutMu();
         zeroOutSigma();
 
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
+        for( int datumIndex = 0, offset = 0; offset < data.length; datumIndex++, offset += mu.length ) {
+            final double prob = pVarInGaussian[datumIndex];
             sumProb += prob;
-            incrementMu( datum, prob );
+            incrementMu( data, offset, prob );
         }
         divideEqualsMu( sumProb );
+    }
+
+    /**
+     * Second step of both {@link #maximizeGaussian} and {@link #evaluateFinalModelParameters}, after {@link #estimateMu}:
+     * adds the weighted scatter of the data around mu to the row {@code iii} of sigma.
+     * The rows of sigma are independent, so may be computed concurrently.
+     *
+     * @param data row-major annotation matrix (see {@link VariantDataManager#getAnnotationMatrix})
+     */
+    public void estimateSigmaRow( final double[] data, final int iii ) {
+        final double[] sigmaRow = sigma.getArray()[iii];
+        for( int datumIndex = 0, offset = 0; offset < data.length; datumIndex++, offset += mu.length ) {
+            final double deltaMu = pVarInGaussian[datumIndex] * (data[offset + iii] - mu[iii]);
+            for( int jjj = 0; jjj < mu.length; jjj++ ) {
+                sigmaRow[jjj] += deltaMu * (data[offset + jjj] - mu[jjj]);
+            }
+        }
+    }
 
+    /**
+     * Last step of the maximization, after {@link #estimateMu} with an initial sum of 1E-10 and {@link #estimateSigmaRow} for every row.
+     */
+    public void maximizeGaussian( final double[] empiricalMu, final Matrix empiricalSigma,
+                                  final double SHRINKAGE, final double DIRICHLET_PARAMETER, final double DEGREES_OF_FREEDOM ) {
+        final Matrix wishart = new Matrix(mu.length, mu.length);
         final double shrinkageFactor = (SHRINKAGE * sumProb) / (SHRINKAGE + sumProb);
         for( int iii = 0; iii < mu.length; iii++ ) {
             double deltaMu = shrinkageFactor * (mu[iii] - empiricalMu[iii]);
@@ -172,19 +234,6 @@ class MultivariateGaussian {
             }
         }
 
-        datumIndex = 0;
-        final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
-            for( int iii = 0; iii < mu.length; iii++ ) {
-                double deltaMu = prob * (datum.annotations[iii]-mu[iii]);
-                for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                    pVarSigma.set(iii, jjj, deltaMu * (datum.annotations[jjj]-mu[jjj]));
-                }
-            }
-            sigma.plusEquals( pVarSigma );
-        }
-
         sigma.plusEquals( empiricalSigma );
         sigma.plusEquals( wishart );
 
@@ -195,36 +244,12 @@ class MultivariateGaussian {
         hyperParameter_a = sumProb + DEGREES_OF_FREEDOM;
         hyperParameter_b = sumProb + SHRINKAGE;
         hyperParameter_lambda = sumProb + DIRICHLET_PARAMETER;
-
-        resetPVarInGaussian(); // clean up some memory
     }
 
-    public void evaluateFinalModelParameters( final List<VariantDatum> data ) {
-        sumProb = 0.0;
-        zeroOutMu();
-        zeroOutSigma();
-
-        int datumIndex = 0;
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
-            sumProb += prob;
-            incrementMu( datum, prob );
-        }
-        divideEqualsMu( sumProb );
-
-        datumIndex = 0;
-        final Matrix pVarSigma = new Matrix(mu.length, mu.length);
-        for( final VariantDatum datum : data ) {
-            final double prob = pVarInGaussian[datumIndex++];
-            for( int iii = 0; iii < mu.length; iii++ ) {
-                for( int jjj = 0; jjj < mu.length; jjj++ ) {
-                    pVarSigma.set(iii, jjj, prob * (datum.annotations[iii]-mu[iii]) * (datum.annotations[jjj]-mu[jjj]));
-                }
-            }
-            sigma.plusEquals( pVarSigma );
-        }
+    /**
+     * Last step of the final model evaluation, after {@link #estimateMu} with an initial sum of 0 and {@link #estimateSigmaRow} for every row.
+     */
+    public void evaluateFinalModelParameters() {
         sigma.timesEquals( 1.0 / sumProb );
-
-        resetPVarInGaussian(); // clean up some memory
     }
-}
\ No newline at end of file
+}
@@ -238,6 +238,25 @@ public class VariantDataManager {
         return trainingData;
     }
 
+    /**
+     * Copies the annotations of the given data into a single row-major matrix, with one row of
+     * {@link #annotationKeys annotations} per datum, for the model-building inner loops.
+     *
+     * @param data non-empty list of data, all with the same number of annotations
+     * @return the annotation of annotation index {@code j} of datum index {@code i} at index {@code i * numAnnotations + j}
+     */
+    public static double[] getAnnotationMatrix( final List<VariantDatum> data ) {
+        Utils.nonEmpty(data, "data must not be empty");
+        final int numAnnotations = data.get(0).annotations.length;
+        final double[] matrix = new double[data.size() * numAnnotations];
+        int offset = 0;
+        for( final VariantDatum datum : data ) {
+            System.arraycopy(datum.annotations, 0, matrix, offset, numAnnotations);
+            offset += numAnnotations;
+        }
+        return matrix;
+    }
+
     public List<VariantDatum> selectWorstVariants() {
         final List<VariantDatum> trainingData = new ExpandingArrayList<>();
 
@@ -85,6 +85,13 @@ final class VariantRecalibratorArgumentCollection {
     @Argument(fullName = "prior-counts", doc = "The number of prior counts to use in the variational Bayes algorithm.", optional = true)
     public double PRIOR_COUNTS = 20.0;
 
+    /**
+     * The number of threads used to build each Gaussian mixture model. The model is the same whatever the number of threads.
+     */
+    @Advanced
+    @Argument(fullName = "gmm-threads", doc = "Number of threads used to build the Gaussian mixture models", optional = true, minValue = 1)
+    public int NUM_THREADS = 1;
+
     /**
      * The number of variants to use in building the Gaussian mixture model. Training sets larger than this will be randomly downsampled.
      */
@@ -6,6 +6,8 @@ import org.apache.logging.log4j.LogManager;
 import org.broadinstitute.hellbender.utils.Utils;
 
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
 
 public class VariantRecalibratorEngine {
 
@@ -99,7 +101,22 @@ public class VariantRecalibratorEngine {
     // Private Methods used for generating a GaussianMixtureModel
     /////////////////////////////
 
-    private void variationalBayesExpectationMaximization( final GaussianMixtureModel model, final List<VariantDatum> data ) {
+    private void variationalBayesExpectationMaximization( final GaussianMixtureModel model, final List<VariantDatum> trainingData ) {
+        final double[] data = VariantDataManager.getAnnotationMatrix( trainingData );
+        if( VRAC.NUM_THREADS > 1 ) {
+            // The model spreads its work over the threads of the pool it runs in
+            final ForkJoinPool pool = new ForkJoinPool( VRAC.NUM_THREADS );
+            try {
+                pool.invoke( ForkJoinTask.adapt(() -> variationalBayesExpectationMaximization( model, data )) );
+            } finally {
+                pool.shutdown();
+            }
+        } else {
+            variationalBayesExpectationMaximization( model, data );
+        }
+    }
+
+    private void variationalBayesExpectationMaximization( final GaussianMixtureModel model, final double[] data ) {
 
         model.initializeRandomModel( data, VRAC.NUM_KMEANS_ITERATIONS );
 
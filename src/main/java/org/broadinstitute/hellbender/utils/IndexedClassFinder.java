@@ -0,0 +1,201 @@
+package org.broadinstitute.hellbender.utils;
+
+import com.google.common.annotations.VisibleForTesting;
+import htsjdk.tribble.FeatureCodec;
+import org.apache.commons.lang3.tuple.Pair;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.barclay.argparser.ClassFinder;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.config.ConfigFactory;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.lang.reflect.Modifier;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Finds the classes of a given type in a package, like Barclay's {@link ClassFinder}, but looks searches up in a class
+ * index resource when it has them. ClassFinder walks every entry of the jar for each search, which takes seconds for
+ * the GATK jar and dominates the startup time of short runs.
+ *
+ * The index is generated at build time by {@link #main} and packaged into the GATK jars. It covers the searches made
+ * at startup (see {@link #getIndexedSearches}): command line programs in the default packages of Main, and Feature
+ * codecs in the default codec packages. Other searches, and all searches when running from a build's classes directory
+ * (which has no index), scan the classpath as before. As the index only lists classes from the jar it was built for,
+ * it can be disabled by setting the environment variable or system property {@value #DISABLE_CLASS_INDEX_PROPERTY}
+ * to true, e.g. to find tools in additional jars on the classpath.
+ */
+public final class IndexedClassFinder {
+    private static final Logger logger = LogManager.getLogger(IndexedClassFinder.class);
+
+    public static final String CLASS_INDEX_RESOURCE = "org/broadinstitute/hellbender/utils/ClassIndex.tsv";
+    public static final String DISABLE_CLASS_INDEX_PROPERTY = "GATK_DISABLE_CLASS_INDEX";
+
+    /**
+     * Names of the classes found by each indexed search (see {@link #getSearchKey}), or null if there is no index
+     */
+    private static final Map<String, List<String>> CLASS_INDEX = loadClassIndex();
+
+    private final Map<String, List<String>> classIndex;
+    private final ClassLoader loader;
+    private final Set<Class<?>> classes = new LinkedHashSet<>();
+
+    public IndexedClassFinder() {
+        this(CLASS_INDEX);
+    }
+
+    @VisibleForTesting
+    IndexedClassFinder(final Map<String, List<String>> classIndex) {
+        this.classIndex = classIndex;
+        final ClassLoader contextLoader = Thread.currentThread().getContextClassLoader();
+        this.loader = contextLoader != null ? contextLoader : IndexedClassFinder.class.getClassLoader();
+    }
+
+    /**
+     * Finds the classes assignable to parentType (including parentType itself) in the package packageName or its
+     * subpackages, from the class index if it has this search, otherwise by scanning the classpath.
+     */
+    public void find(final String packageName, final Class<?> parentType) {
+        Utils.nonNull(packageName);
+        Utils.nonNull(parentType);
+        final List<String> classNames = classIndex == null ? null : classIndex.get(getSearchKey(packageName, parentType));
+        if (classNames != null) {
+            try {
+                final List<Class<?>> indexedClasses = new ArrayList<>(classNames.size());
+                for (final String className : classNames) {
+                    indexedClasses.add(Class.forName(className, false, loader));
+                }
+                classes.addAll(indexedClasses);
+                return;
+            } catch (final ClassNotFoundException | LinkageError e) {
+                logger.warn("The class index does not match the classpath, scanning the classpath instead: " + e.getMessage());
+            }
+        }
+        final ClassFinder finder = new ClassFinder();
+        finder.find(packageName, parentType);
+        classes.addAll(finder.getClasses());
+    }
+
+    /**
+     * @return the classes found by all calls to {@link #find} so far
+     */
+    public Set<Class<?>> getClasses() {
+        return classes;
+    }
+
+    /**
+     * @return the classes found by all calls to {@link #find} so far, excluding interfaces and abstract classes
+     */
+    public Set<Class<?>> getConcreteClasses() {
+        return classes.stream()
+                .filter(clazz -> !clazz.isInterface() && !Modifier.isAbstract(clazz.getModifiers()))
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+    }
+
+    /**
+     * The searches made at startup, which are the ones in the class index: command line programs in the default
+     * packages of Main.getPackageList(), and Feature codecs in the default codec packages of FeatureManager
+     */
+    @VisibleForTesting
+    static List<Pair<String, Class<?>>> getIndexedSearches() {
+        final List<Pair<String, Class<?>>> searches = new ArrayList<>();
+        for (final String commandLineProgramPackage : Arrays.asList("org.broadinstitute.hellbender", "picard")) {
+            searches.add(Pair.of(commandLineProgramPackage, picard.cmdline.CommandLineProgram.class));
+            searches.add(Pair.of(commandLineProgramPackage, CommandLineProgram.class));
+        }
+        for (final String codecPackage : ConfigFactory.getInstance().getGATKConfig().codec_packages()) {
+            searches.add(Pair.of(codecPackage, FeatureCodec.class));
+        }
+        return searches;
+    }
+
+    private static String getSearchKey(final String packageName, final Class<?> parentType) {
+        return parentType.getName() + '\t' + packageName;
+    }
+
+    private static Map<String, List<String>> loadClassIndex() {
+        if (Boolean.parseBoolean(System.getenv(DISABLE_CLASS_INDEX_PROPERTY)) || Boolean.getBoolean(DISABLE_CLASS_INDEX_PROPERTY)) {
+            return null;
+        }
+        final InputStream indexStream = IndexedClassFinder.class.getClassLoader().getResourceAsStream(CLASS_INDEX_RESOURCE);
+        if (indexStream == null) {
+            return null;
+        }
+        try {
+            return readClassIndex(indexStream);
+        } catch (final GATKException | UncheckedIOException e) {
+            logger.warn("Could not read the class index, scanning the classpath instead", e);
+            return null;
+        }
+    }
+
+    /**
+     * Reads a class index, which has one line per search: the name of the parent type, the package name and the
+     * comma-separated names of the classes found, separated by tabs
+     */
+    @VisibleForTesting
+    static Map<String, List<String>> readClassIndex(final InputStream indexStream) {
+        final Map<String, List<String>> classIndex = new HashMap<>();
+        try (final BufferedReader reader = new BufferedReader(new InputStreamReader(indexStream, StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split("\t", -1);
+                if (fields.length != 3) {
+                    throw new GATKException("Malformed class index line: " + line);
+                }
+                final List<String> classNames = fields[2].isEmpty() ? Collections.emptyList() : Arrays.asList(fields[2].split(","));
+                classIndex.put(fields[0] + '\t' + fields[1], classNames);
+            }
+        } catch (final IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return classIndex;
+    }
+
+    /**
+     * Writes the class index of the searches in {@link #getIndexedSearches} by scanning the classpath
+     */
+    @VisibleForTesting
+    static void writeClassIndex(final Path indexPath) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        for (final Pair<String, Class<?>> search : getIndexedSearches()) {
+            final ClassFinder finder = new ClassFinder();
+            finder.find(search.getLeft(), search.getRight());
+            final List<String> classNames = finder.getClasses().stream().map(Class::getName).sorted().collect(Collectors.toList());
+            lines.add(getSearchKey(search.getLeft(), search.getRight()) + '\t' + String.join(",", classNames));
+        }
+        if (indexPath.getParent() != null) {
+            Files.createDirectories(indexPath.getParent());
+        }
+        Files.write(indexPath, lines, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Generates the class index at build time. Must be run on the runtime classpath of the jar the index is packaged in.
+     *
+     * @param args the path of the class index file to write
+     */
+    public static void main(final String[] args) throws IOException {
+        if (args.length != 1) {
+            throw new IllegalArgumentException("Usage: IndexedClassFinder <class index output file>");
+        }
+        writeClassIndex(Paths.get(args[0]));
+    }
+}
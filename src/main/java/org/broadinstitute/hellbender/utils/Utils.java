@@ -66,6 +66,30 @@ public final class Utils {
         randomDataGenerator.reSeed(GATK_RANDOM_SEED);
     }
 
+    /**
+     * Returns a new random generator seeded from the GATK random seed and a site. Values drawn from it depend only on
+     * the site, not on how many values were drawn before, so they are the same whatever order sites are processed in
+     * (e.g. by several threads).
+     *
+     * @param contig contig of the site
+     * @param start start position of the site
+     * @param index distinguishes independent generators for the same site
+     */
+    public static Random getRandomGeneratorForSite(final String contig, final int start, final int index) {
+        nonNull(contig);
+        long seed = mixRandomSeed(GATK_RANDOM_SEED + contig.hashCode());
+        seed = mixRandomSeed(seed + start);
+        seed = mixRandomSeed(seed + index);
+        return new Random(seed);
+    }
+
+    // the 64-bit finalizer of SplittableRandom, so that neighbouring sites get unrelated seeds
+    private static long mixRandomSeed(long seed) {
+        seed = (seed ^ (seed >>> 30)) * 0xbf58476d1ce4e5b9L;
+        seed = (seed ^ (seed >>> 27)) * 0x94d049bb133111ebL;
+        return seed ^ (seed >>> 31);
+    }
+
     private static final int TEXT_WARNING_WIDTH = 68;
     private static final String TEXT_WARNING_PREFIX = "* ";
     private static final String TEXT_WARNING_BORDER = StringUtils.repeat('*', TEXT_WARNING_PREFIX.length() + TEXT_WARNING_WIDTH);
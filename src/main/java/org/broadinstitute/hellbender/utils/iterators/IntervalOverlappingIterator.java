@@ -14,6 +14,9 @@ import java.util.NoSuchElementException;
  * Wraps an iterator of {@link htsjdk.samtools.util.Locatable} with a list of sorted intervals
  * to return only the objects which overlaps with them
  *
+ * The underlying iterator is only advanced past the object returned last when this iterator is advanced again, so
+ * that the returned object stays valid until then even if the underlying iterator recycles its objects.
+ *
  * @author Daniel Gomez-Sanchez (magicDGS)
  */
 public class IntervalOverlappingIterator<T extends Locatable> implements Iterator<T> {
@@ -33,6 +36,9 @@ public class IntervalOverlappingIterator<T extends Locatable> implements Iterato
     // the next object to return
     private T next;
 
+    // whether next must be looked up before it can be returned
+    private boolean isAdvancePending = false;
+
     /**
      * Wraps an iterator to be filtered by a sorted list of intervals
      *
@@ -54,6 +60,10 @@ public class IntervalOverlappingIterator<T extends Locatable> implements Iterato
 
     @Override
     public boolean hasNext() {
+        if (isAdvancePending) {
+            isAdvancePending = false;
+            advance();
+        }
         return next != null;
     }
 
@@ -63,7 +73,8 @@ public class IntervalOverlappingIterator<T extends Locatable> implements Iterato
             throw new NoSuchElementException();
         }
         T toReturn = next;
-        advance();
+        next = null;
+        isAdvancePending = true;
         return toReturn;
     }
 
@@ -0,0 +1,415 @@
+package org.broadinstitute.hellbender.utils.iterators;
+
+import htsjdk.samtools.BAMRecordCodec;
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMFormatException;
+import htsjdk.samtools.SAMRecord;
+import htsjdk.samtools.SAMUtils;
+import htsjdk.samtools.SAMValidationError;
+import htsjdk.samtools.ValidationStringency;
+import htsjdk.samtools.util.BinaryCodec;
+import htsjdk.samtools.util.CloseableIterator;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.Logger;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.Utils;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Iterator over all the records of a BAM file that inflates and decodes the file on a pool of threads.
+ *
+ * A producer thread reads the raw BGZF blocks of the file and hands them to the pool to be inflated, keeping a bounded
+ * number of blocks in flight. It then splits the inflated stream into records and hands them, in batches, back to the
+ * pool to be fully decoded (see {@link SAMRecord#eagerDecode}) and validated. The decoded batches are fed, in file order,
+ * through a bounded queue to the thread consuming this iterator, which therefore sees exactly the same records in the
+ * same order as a single-threaded htsjdk iteration over the file.
+ *
+ * Only whole-file traversals are supported (there is no index-based seeking), and unlike the records produced by
+ * htsjdk's BAM reader the records have no file source.
+ */
+public final class ParallelBamRecordIterator implements CloseableIterator<SAMRecord> {
+    private static final Logger logger = LogManager.getLogger(ParallelBamRecordIterator.class);
+
+    private static final byte[] BAM_MAGIC = "BAM\1".getBytes();
+    private static final int BGZF_ID1 = 31;
+    private static final int BGZF_ID2 = 139;
+    private static final int BGZF_FIXED_HEADER_LENGTH = 12;
+    private static final int BGZF_FOOTER_LENGTH = 8;
+    private static final int COMPRESSED_STREAM_BUFFER_SIZE = 1 << 20;
+
+    /**
+     * Number of records fully decoded by each unit of work on the pool
+     */
+    private static final int RECORDS_PER_BATCH = 256;
+
+    /**
+     * Number of blocks being inflated, and of batches of records queued, per thread of the pool
+     */
+    private static final int UNITS_IN_FLIGHT_PER_THREAD = 4;
+
+    /**
+     * Marks the end of the decoded batches in {@link #decodedBatches}
+     */
+    private static final Future<List<SAMRecord>> END_OF_RECORDS = CompletableFuture.completedFuture(Collections.emptyList());
+
+    private final Path bamPath;
+    private final SAMFileHeader header;
+    private final ValidationStringency validationStringency;
+    private final int maxBlocksInFlight;
+
+    private final ExecutorService decoders;
+    private final Thread producer;
+    private final BlockingQueue<Future<List<SAMRecord>>> decodedBatches;
+
+    private volatile boolean closed = false;
+    private boolean exhausted = false;
+    private Iterator<SAMRecord> currentBatch = Collections.emptyIterator();
+
+    /**
+     * Start inflating and decoding the records of a BAM file in the background.
+     *
+     * @param bamPath BAM file to iterate over
+     * @param header header of the BAM file, assigned to all of its records
+     * @param validationStringency validation stringency of the records, as in {@link htsjdk.samtools.SamReaderFactory#validationStringency}
+     * @param numThreads number of threads that inflate and decode the file, must be > 0
+     */
+    public ParallelBamRecordIterator(final Path bamPath, final SAMFileHeader header, final ValidationStringency validationStringency, final int numThreads) {
+        this.bamPath = Utils.nonNull(bamPath);
+        this.header = Utils.nonNull(header);
+        this.validationStringency = Utils.nonNull(validationStringency);
+        Utils.validateArg(numThreads > 0, "numThreads must be > 0");
+
+        maxBlocksInFlight = numThreads * UNITS_IN_FLIGHT_PER_THREAD;
+        decodedBatches = new ArrayBlockingQueue<>(numThreads * UNITS_IN_FLIGHT_PER_THREAD);
+        decoders = Executors.newFixedThreadPool(numThreads, runnable -> {
+            final Thread thread = Executors.defaultThreadFactory().newThread(runnable);
+            thread.setName("BamDecoder-" + thread.getName());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        producer = new Thread(this::produceBatches, "BamReader-" + bamPath.getFileName());
+        producer.setDaemon(true);
+        producer.start();
+    }
+
+    @Override
+    public boolean hasNext() {
+        while ( ! currentBatch.hasNext() ) {
+            if ( exhausted || closed ) {
+                return false;
+            }
+
+            final Future<List<SAMRecord>> nextBatch;
+            try {
+                nextBatch = decodedBatches.take();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new GATKException("Interrupted while waiting for records from " + bamPath.toUri(), e);
+            }
+
+            if ( nextBatch == END_OF_RECORDS ) {
+                exhausted = true;
+                return false;
+            }
+            currentBatch = getBatch(nextBatch).iterator();
+        }
+        return true;
+    }
+
+    @Override
+    public SAMRecord next() {
+        if ( ! hasNext() ) {
+            throw new NoSuchElementException("No more records in " + bamPath.toUri());
+        }
+        return currentBatch.next();
+    }
+
+    @Override
+    public void close() {
+        if ( closed ) {
+            return;
+        }
+        closed = true;
+        producer.interrupt();
+        decoders.shutdownNow();
+        // unblock the producer if it is waiting for room in the queue
+        decodedBatches.clear();
+    }
+
+    private List<SAMRecord> getBatch(final Future<List<SAMRecord>> batch) {
+        try {
+            return batch.get();
+        } catch ( final InterruptedException e ) {
+            Thread.currentThread().interrupt();
+            throw new GATKException("Interrupted while waiting for records from " + bamPath.toUri(), e);
+        } catch ( final ExecutionException e ) {
+            final Throwable cause = e.getCause();
+            if ( cause instanceof IOException ) {
+                throw new UserException.CouldNotReadInputFile(bamPath, (IOException)cause);
+            }
+            if ( cause instanceof RuntimeException ) {
+                throw (RuntimeException)cause;
+            }
+            throw new GATKException("Error decoding records from " + bamPath.toUri(), cause);
+        }
+    }
+
+    /**
+     * Body of the producer thread: splits the inflated file into records, and queues them in batches to be decoded.
+     */
+    private void produceBatches() {
+        try ( final InflatedBlockStream inflatedStream = new InflatedBlockStream(
+                new DataInputStream(new BufferedInputStream(Files.newInputStream(bamPath), COMPRESSED_STREAM_BUFFER_SIZE))) ) {
+            skipBamHeader(inflatedStream);
+
+            final BAMRecordCodec recordCodec = new BAMRecordCodec(header);
+            recordCodec.setInputStream(inflatedStream);
+
+            long recordIndex = 0;
+            List<SAMRecord> batch = new ArrayList<>(RECORDS_PER_BATCH);
+            SAMRecord record;
+            while ( ! closed && (record = recordCodec.decode()) != null ) {
+                batch.add(record);
+                if ( batch.size() == RECORDS_PER_BATCH ) {
+                    queueBatch(batch, recordIndex);
+                    recordIndex += batch.size();
+                    batch = new ArrayList<>(RECORDS_PER_BATCH);
+                }
+            }
+            if ( ! batch.isEmpty() ) {
+                queueBatch(batch, recordIndex);
+            }
+            decodedBatches.put(END_OF_RECORDS);
+        } catch ( final InterruptedException | InterruptedIOException e ) {
+            // only expected when this iterator has been closed
+        } catch ( final Throwable t ) {
+            if ( closed ) {
+                logger.debug("Error in reader thread after close", t);
+                return;
+            }
+            // hand the error over to the consuming thread, after all the records decoded before it
+            final CompletableFuture<List<SAMRecord>> failure = new CompletableFuture<>();
+            failure.completeExceptionally(t);
+            try {
+                decodedBatches.put(failure);
+            } catch ( final InterruptedException e ) {
+                // only expected when this iterator has been closed
+            }
+        }
+    }
+
+    private void queueBatch(final List<SAMRecord> batch, final long firstRecordIndex) throws InterruptedException {
+        decodedBatches.put(decoders.submit(() -> decodeBatch(batch, firstRecordIndex)));
+    }
+
+    private List<SAMRecord> decodeBatch(final List<SAMRecord> batch, final long firstRecordIndex) {
+        long recordIndex = firstRecordIndex;
+        for ( final SAMRecord record : batch ) {
+            record.setValidationStringency(validationStringency);
+            record.eagerDecode();
+            // same checks as htsjdk's BAM reader
+            if ( validationStringency != ValidationStringency.SILENT ) {
+                final List<SAMValidationError> validationErrors = record.isValid(validationStringency == ValidationStringency.STRICT);
+                if ( validationErrors != null ) {
+                    SAMUtils.processValidationErrors(validationErrors, recordIndex, validationStringency);
+                }
+            }
+            ++recordIndex;
+        }
+        return batch;
+    }
+
+    /**
+     * Skips the header of the BAM file (which was already parsed by htsjdk) at the start of the inflated stream.
+     */
+    private void skipBamHeader(final InputStream inflatedStream) {
+        final BinaryCodec codec = new BinaryCodec(inflatedStream);
+        final byte[] magic = new byte[BAM_MAGIC.length];
+        codec.readBytes(magic);
+        if ( ! Arrays.equals(magic, BAM_MAGIC) ) {
+            throw new SAMFormatException("Invalid BAM file header in " + bamPath.toUri());
+        }
+
+        codec.readBytes(new byte[codec.readInt()]);
+        final int numReferences = codec.readInt();
+        for ( int i = 0; i < numReferences; i++ ) {
+            codec.readBytes(new byte[codec.readInt()]);
+            codec.readInt();
+        }
+    }
+
+    /**
+     * Reads the next raw BGZF block from the compressed stream.
+     *
+     * @return the whole block, including its header and footer, or null at the end of the stream
+     */
+    private byte[] readCompressedBlock(final DataInputStream compressedStream) throws IOException {
+        final int firstByte = compressedStream.read();
+        if ( firstByte == -1 ) {
+            return null;
+        }
+
+        final byte[] fixedHeader = new byte[BGZF_FIXED_HEADER_LENGTH];
+        fixedHeader[0] = (byte)firstByte;
+        compressedStream.readFully(fixedHeader, 1, BGZF_FIXED_HEADER_LENGTH - 1);
+        if ( (fixedHeader[0] & 0xff) != BGZF_ID1 || (fixedHeader[1] & 0xff) != BGZF_ID2 || (fixedHeader[3] & 4) == 0 ) {
+            throw new SAMFormatException("Invalid BGZF block header in " + bamPath.toUri());
+        }
+
+        final int extraLength = readUnsignedShort(fixedHeader, 10);
+        final byte[] extraFields = new byte[extraLength];
+        compressedStream.readFully(extraFields);
+
+        // the BC extra subfield holds the total size of the block minus 1
+        int blockSize = -1;
+        for ( int offset = 0; offset + 4 <= extraLength; offset += 4 + readUnsignedShort(extraFields, offset + 2) ) {
+            if ( extraFields[offset] == 'B' && extraFields[offset + 1] == 'C' && readUnsignedShort(extraFields, offset + 2) == 2 ) {
+                blockSize = readUnsignedShort(extraFields, offset + 4) + 1;
+                break;
+            }
+        }
+        if ( blockSize < BGZF_FIXED_HEADER_LENGTH + extraLength + BGZF_FOOTER_LENGTH ) {
+            throw new SAMFormatException("Missing or invalid BGZF block size in " + bamPath.toUri());
+        }
+
+        final byte[] block = new byte[blockSize];
+        System.arraycopy(fixedHeader, 0, block, 0, BGZF_FIXED_HEADER_LENGTH);
+        System.arraycopy(extraFields, 0, block, BGZF_FIXED_HEADER_LENGTH, extraLength);
+        compressedStream.readFully(block, BGZF_FIXED_HEADER_LENGTH + extraLength, blockSize - BGZF_FIXED_HEADER_LENGTH - extraLength);
+        return block;
+    }
+
+    /**
+     * Inflates a raw BGZF block returned by {@link #readCompressedBlock}. Runs on the pool.
+     */
+    private static byte[] inflateBlock(final byte[] block) throws IOException {
+        final int dataStart = BGZF_FIXED_HEADER_LENGTH + readUnsignedShort(block, 10);
+        final int dataLength = block.length - dataStart - BGZF_FOOTER_LENGTH;
+        final int inflatedSize = (readUnsignedShort(block, block.length - 2) << 16) | readUnsignedShort(block, block.length - 4);
+        final byte[] inflated = new byte[inflatedSize];
+        if ( inflatedSize == 0 ) {
+            return inflated;
+        }
+
+        final Inflater inflater = new Inflater(true);
+        try {
+            inflater.setInput(block, dataStart, dataLength);
+            if ( inflater.inflate(inflated) != inflatedSize ) {
+                throw new IOException("BGZF block inflated to fewer bytes than expected");
+            }
+        } catch ( final DataFormatException e ) {
+            throw new IOException("Corrupt BGZF block", e);
+        } finally {
+            inflater.end();
+        }
+        return inflated;
+    }
+
+    private static int readUnsignedShort(final byte[] bytes, final int offset) {
+        return (bytes[offset] & 0xff) | ((bytes[offset + 1] & 0xff) << 8);
+    }
+
+    /**
+     * Inflated contents of the BGZF blocks of a compressed stream, inflated on the pool a bounded number of blocks ahead
+     * of the reader of this stream.
+     */
+    private final class InflatedBlockStream extends InputStream {
+        private final DataInputStream compressedStream;
+        private final Deque<Future<byte[]>> blocksInFlight = new ArrayDeque<>(maxBlocksInFlight);
+        private boolean compressedStreamExhausted = false;
+        private byte[] currentBlock = new byte[0];
+        private int positionInBlock = 0;
+
+        private InflatedBlockStream(final DataInputStream compressedStream) {
+            this.compressedStream = compressedStream;
+        }
+
+        /**
+         * Makes sure there is at least one byte left in the current block, unless the stream is exhausted.
+         *
+         * @return false if the stream is exhausted
+         */
+        private boolean advance() throws IOException {
+            while ( positionInBlock >= currentBlock.length ) {
+                while ( ! compressedStreamExhausted && blocksInFlight.size() < maxBlocksInFlight ) {
+                    final byte[] compressedBlock = readCompressedBlock(compressedStream);
+                    if ( compressedBlock == null ) {
+                        compressedStreamExhausted = true;
+                    } else {
+                        blocksInFlight.add(decoders.submit(() -> inflateBlock(compressedBlock)));
+                    }
+                }
+                if ( blocksInFlight.isEmpty() ) {
+                    return false;
+                }
+                currentBlock = getInflatedBlock(blocksInFlight.remove());
+                positionInBlock = 0;
+            }
+            return true;
+        }
+
+        private byte[] getInflatedBlock(final Future<byte[]> block) throws IOException {
+            try {
+                return block.get();
+            } catch ( final InterruptedException e ) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException();
+            } catch ( final ExecutionException e ) {
+                if ( e.getCause() instanceof IOException ) {
+                    throw (IOException)e.getCause();
+                }
+                throw new IOException(e.getCause());
+            }
+        }
+
+        @Override
+        public int read() throws IOException {
+            return advance() ? currentBlock[positionInBlock++] & 0xff : -1;
+        }
+
+        @Override
+        public int read(final byte[] buffer, final int offset, final int length) throws IOException {
+            if ( length == 0 ) {
+                return 0;
+            }
+            if ( ! advance() ) {
+                return -1;
+            }
+            final int numBytes = Math.min(length, currentBlock.length - positionInBlock);
+            System.arraycopy(currentBlock, positionInBlock, buffer, offset, numBytes);
+            positionInBlock += numBytes;
+            return numBytes;
+        }
+
+        @Override
+        public void close() throws IOException {
+            compressedStream.close();
+        }
+    }
+}
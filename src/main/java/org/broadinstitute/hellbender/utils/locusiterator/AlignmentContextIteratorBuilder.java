@@ -12,6 +12,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.iterators.IntervalLocusIterator;
 import org.broadinstitute.hellbender.utils.iterators.IntervalOverlappingIterator;
+import org.broadinstitute.hellbender.utils.pileup.PileupElementPool;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 import java.util.Iterator;
@@ -30,8 +31,13 @@ public class AlignmentContextIteratorBuilder {
     private boolean isKeepUniqueReadListInLibs;
     private boolean isIncludeDeletions;
     private boolean isIncludeNs;
+    private boolean isPooledPileups;
     private LIBSDownsamplingInfo downsamplingInfo;
 
+    // LocusIteratorByState and the interval iterators only advance past the alignment context they returned last when
+    // they are advanced themselves, so the pileup element pool need only keep the latest pileup valid.
+    private static final int POOLED_PILEUP_COLUMNS = 1;
+
     public boolean isEmitEmptyLoci() {
         return isEmitEmptyLoci;
     }
@@ -64,6 +70,18 @@ public class AlignmentContextIteratorBuilder {
         isIncludeNs = includeNs;
     }
 
+    public boolean isPooledPileups() {
+        return isPooledPileups;
+    }
+
+    /**
+     * @param pooledPileups if true, the storage of the pileups is recycled across loci, so that an AlignmentContext and
+     *                      its pileup are only valid until the iterator is advanced again (by hasNext() or next())
+     */
+    public void setPooledPileups(boolean pooledPileups) {
+        isPooledPileups = pooledPileups;
+    }
+
     public LIBSDownsamplingInfo getDownsamplingInfo() {
         return downsamplingInfo;
     }
@@ -77,6 +95,7 @@ public class AlignmentContextIteratorBuilder {
         isKeepUniqueReadListInLibs = false;
         isIncludeDeletions = true;
         isIncludeNs = false;
+        isPooledPileups = false;
         downsamplingInfo = LocusIteratorByState.NO_DOWNSAMPLING;
     }
 
@@ -95,7 +114,7 @@ public class AlignmentContextIteratorBuilder {
         Utils.nonNull(readIterator, "Read iterator cannot be null");
         final boolean isDefinitelyReference = (dictionary != null) && isReference ;
         return createAlignmentContextIterator(intervalsForTraversal, header, readIterator, dictionary, downsamplingInfo,
-                isDefinitelyReference, isEmitEmptyLoci, isKeepUniqueReadListInLibs, isIncludeDeletions, isIncludeNs);
+                isDefinitelyReference, isEmitEmptyLoci, isKeepUniqueReadListInLibs, isIncludeDeletions, isIncludeNs, isPooledPileups);
     }
 
     /**
@@ -114,6 +133,7 @@ public class AlignmentContextIteratorBuilder {
      *                                       available via the transferReadsFromAllPreviousPileups interface (this parameter is specific to {@link LocusIteratorByState})
      * @param isIncludeDeletions include reads with deletion on the loci in question
      * @param isIncludeNs include reads with N on the loci in question
+     * @param isPooledPileups recycle the pileup elements across loci (this parameter is specific to {@link LocusIteratorByState})
      * @return iterator that produces AlignmentContexts ready for consumption (e.g. by a {@link org.broadinstitute.hellbender.engine.LocusWalker})
      */
     private static Iterator<AlignmentContext> createAlignmentContextIterator(final List<SimpleInterval> intervalsForTraversal,
@@ -125,7 +145,8 @@ public class AlignmentContextIteratorBuilder {
                                                                                boolean emitEmptyLoci,
                                                                                boolean isKeepUniqueReadListInLibs,
                                                                                boolean isIncludeDeletions,
-                                                                               boolean isIncludeNs) {
+                                                                               boolean isIncludeNs,
+                                                                               boolean isPooledPileups) {
 
         // get the samples from the read groups
         final Set<String> samples = header.getReadGroups().stream()
@@ -133,7 +154,8 @@ public class AlignmentContextIteratorBuilder {
                 .collect(Collectors.toSet());
 
         // get the LIBS
-        final LocusIteratorByState libs = new LocusIteratorByState(readIterator, downsamplingInfo, isKeepUniqueReadListInLibs, samples, header, isIncludeDeletions, isIncludeNs);
+        final LocusIteratorByState libs = new LocusIteratorByState(readIterator, downsamplingInfo, isKeepUniqueReadListInLibs, samples, header, isIncludeDeletions, isIncludeNs,
+                isPooledPileups ? new PileupElementPool(POOLED_PILEUP_COLUMNS) : null);
 
         List<SimpleInterval> finalIntervals = intervalsForTraversal;
         validateEmitEmptyLociParameters(emitEmptyLoci, dictionary, intervalsForTraversal, isReference);
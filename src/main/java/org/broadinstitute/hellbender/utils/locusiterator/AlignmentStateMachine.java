@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.PileupElementPool;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 
 /**
@@ -311,5 +312,22 @@ public final class AlignmentStateMachine {
                 getCurrentCigarElementOffset(),
                 getOffsetIntoCurrentCigarElement());
     }
+
+    /**
+     * Like {@link #makePileupElement()}, but adds the element to the current column of a {@link PileupElementPool}
+     *
+     * Must not be a left or right edge
+     *
+     * @param pool the pool to add the element to the current column of
+     * @return a pileup element
+     */
+    public final PileupElement makePileupElement(final PileupElementPool pool) {
+        Utils.validate(!(isLeftEdge() || isRightEdge()), "Cannot make a pileup element from an edge alignment state");
+        return pool.add(read,
+                getReadOffset(),
+                getCurrentCigarElement(),
+                getCurrentCigarElementOffset(),
+                getOffsetIntoCurrentCigarElement());
+    }
 }
 
@@ -17,6 +17,9 @@ import java.util.NoSuchElementException;
  *
  * In other words, this will iterate over each base of each interval and emit an alignment context.  If no reads overlap,
  *  it will emit an empty alignment context.  Each empty alignment context will be a new instance.
+ *
+ * The underlying iterator is only advanced past the alignment context returned last when next() is called again, so
+ * that the returned alignment context stays valid until then even if the underlying iterator recycles its pileups.
  */
 public class IntervalAlignmentContextIterator implements Iterator<AlignmentContext> {
     private Iterator<AlignmentContext> alignmentContextIterator;
@@ -25,6 +28,9 @@ public class IntervalAlignmentContextIterator implements Iterator<AlignmentConte
     private AlignmentContext currentAlignmentContext;
     private SAMSequenceDictionary dictionary;
 
+    // whether the alignment context must be advanced to the current interval before the next one is returned
+    private boolean isAdvancePending = false;
+
 
     /**
      *  Note:  Typically, if you are calling this from a walker tool, you want to use {@link AlignmentContextIteratorBuilder}
@@ -58,6 +64,10 @@ public class IntervalAlignmentContextIterator implements Iterator<AlignmentConte
         if (!hasNext()) {
             throw new NoSuchElementException();
         }
+        if (isAdvancePending) {
+            isAdvancePending = false;
+            advanceAlignmentContextToCurrentInterval();
+        }
 
         final boolean isOverlaps = currentInterval.overlaps(currentAlignmentContext);
         AlignmentContext result;
@@ -66,7 +76,8 @@ public class IntervalAlignmentContextIterator implements Iterator<AlignmentConte
         if (isOverlaps) {
             result = currentAlignmentContext;
             advanceIntervalLocus();
-            advanceAlignmentContextToCurrentInterval();
+            // the result may be recycled by the underlying iterator, so only move past it on the next call
+            isAdvancePending = true;
         } else {
             result = createEmptyAlignmentContext(currentInterval);
             advanceIntervalLocus();
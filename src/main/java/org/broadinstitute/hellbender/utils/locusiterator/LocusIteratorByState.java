@@ -11,6 +11,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.PileupElementPool;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
@@ -78,6 +79,11 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
      */
     private final boolean includeReadsWithNsAtLoci;
 
+    /**
+     * The pool recycling the storage of the pileups across loci, or null if every pileup is newly allocated
+     */
+    private final PileupElementPool pileupElementPool;
+
     /**
      * The next alignment context.  A non-null value means that a
      * context is waiting from hasNext() for sending off to the next next() call.  A null
@@ -209,6 +215,44 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                                 final SAMFileHeader header,
                                 final boolean includeReadsWithDeletionAtLoci,
                                 final boolean includeReadsWithNsAtLoci) {
+        this(samIterator,
+                downsamplingInfo,
+                keepUniqueReadListInLIBS,
+                samples,
+                header,
+                includeReadsWithDeletionAtLoci,
+                includeReadsWithNsAtLoci,
+                null
+        );
+    }
+
+    /**
+     * Create a new LocusIteratorByState
+     *
+     * @param samIterator                    the iterator of reads to process into pileups.  Reads must be ordered
+     *                                       according to standard coordinate-sorted BAM conventions
+     * @param downsamplingInfo               meta-information about how to downsample the reads
+     * @param keepUniqueReadListInLIBS       if true, we will keep the unique reads from the samIterator and make them
+     *                                       available via the transferReadsFromAllPreviousPileups interface
+     * @param samples                        a complete list of samples present in the read groups for the reads coming from samIterator.
+     *                                       This is generally just the set of read group sample fields in the SAMFileHeader.  This
+     *                                       list of samples may contain a null element, and all reads without read groups will
+     *                                       be mapped to this null sample
+     * @param header                         header from the reads
+     * @param includeReadsWithDeletionAtLoci Include reads with deletion at loci
+     * @param includeReadsWithNsAtLoci       Include reads with Ns at loci (usually it is not needed)
+     * @param pileupElementPool              if not null, the pileups are built in the recycled columns of this pool, and
+     *                                       are only valid for as long as the pool keeps them; otherwise every pileup is
+     *                                       newly allocated
+     */
+    public LocusIteratorByState(final Iterator<GATKRead> samIterator,
+                                final LIBSDownsamplingInfo downsamplingInfo,
+                                final boolean keepUniqueReadListInLIBS,
+                                final Collection<String> samples,
+                                final SAMFileHeader header,
+                                final boolean includeReadsWithDeletionAtLoci,
+                                final boolean includeReadsWithNsAtLoci,
+                                final PileupElementPool pileupElementPool) {
         Utils.nonNull(samIterator, "samIterator cannot be null");
         Utils.nonNull(downsamplingInfo, "downsamplingInfo cannot be null");
         Utils.nonNull(samples, "Samples cannot be null");
@@ -222,6 +266,7 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
 
         this.includeReadsWithDeletionAtLoci = includeReadsWithDeletionAtLoci;
         this.includeReadsWithNsAtLoci = includeReadsWithNsAtLoci;
+        this.pileupElementPool = pileupElementPool;
         this.samples = new ArrayList<>(samples);
         this.readStates = new ReadStateManager(samIterator, this.samples, downsamplingInfo, keepUniqueReadListInLIBS, header);
     }
@@ -320,7 +365,11 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
             // since they are just going to get combined into one monolithic pileup anyway
             // when we construct the final ReadPileup below. This optimization speeds up the
             // HaplotypeCaller by quite a bit!
-            final List<PileupElement> allPileupElements = new ArrayList<>(100);
+            // When pooling, the elements are rather gathered in the current column of the pool.
+            final List<PileupElement> allPileupElements = pileupElementPool == null ? new ArrayList<>(100) : null;
+            if (pileupElementPool != null) {
+                pileupElementPool.startColumn();
+            }
 
             for (final Map.Entry<String, PerSampleReadStateManager> sampleStatePair : readStates) {
                 final PerSampleReadStateManager readState = sampleStatePair.getValue();
@@ -341,14 +390,22 @@ public final class LocusIteratorByState implements Iterator<AlignmentContext> {
                             continue;
                         }
 
-                        allPileupElements.add(state.makePileupElement());
+                        if (pileupElementPool == null) {
+                            allPileupElements.add(state.makePileupElement());
+                        } else {
+                            state.makePileupElement(pileupElementPool);
+                        }
                     }
                 }
             }
 
             readStates.updateReadStates(); // critical - must be called after we get the current state offsets and location
-            if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
-                nextAlignmentContext = new AlignmentContext(location, new ReadPileup(location, allPileupElements));
+            if (pileupElementPool == null) {
+                if (!allPileupElements.isEmpty()) { // if we got reads with non-D/N over the current position, we are done
+                    nextAlignmentContext = new AlignmentContext(location, new ReadPileup(location, allPileupElements));
+                }
+            } else if (pileupElementPool.currentColumnSize() > 0) {
+                nextAlignmentContext = new AlignmentContext(location, pileupElementPool.makePileup(location));
             }
         }
     }
@@ -0,0 +1,165 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.utils.QualityUtils;
+
+import static org.broadinstitute.hellbender.utils.pairhmm.PairHMMModel.*;
+
+/**
+ * Pure-Java implementation of the LOGLESS_CACHING PairHMM that sweeps the DP matrices along anti-diagonals.
+ *
+ * All cells on an anti-diagonal (i + j == d) depend only on the two previous anti-diagonals, so the inner loop
+ * over read positions has no loop-carried dependency and reads/writes flat, unit-stride primitive arrays. This
+ * lets the JIT's superword optimization emit packed SIMD multiplies and adds on any platform, without the native
+ * library required by {@link VectorLoglessPairHMM}. Only three anti-diagonals per state are kept, so memory is
+ * O(read length) instead of O(read length x haplotype length).
+ *
+ * Every cell is computed with exactly the same floating point operations, in the same order, as
+ * {@link LoglessPairHMM}, so the two implementations produce identical likelihoods.
+ */
+public final class AntiDiagonalLoglessPairHMM extends PairHMM {
+
+    // per-read-position transition probabilities, one flat array per transition (index 0 is unused padding)
+    private double[] matchToMatchProb;
+    private double[] indelToMatchProb;
+    private double[] matchToInsertionProb;
+    private double[] insertionToInsertionProb;
+    private double[] matchToDeletionProb;
+    private double[] deletionToDeletionProb;
+
+    // per-read-position prior probabilities for a matching and a mismatching base
+    private double[] matchPrior;
+    private double[] mismatchPrior;
+
+    // read bases shifted by one so that readBasesPadded[i] is the base for matrix row i
+    private byte[] readBasesPadded;
+    // haplotype bases reversed and padded, so that row i of anti-diagonal d sees haplotype column d - i at index i - d + offset
+    private byte[] reversedHaplotype;
+
+    // three rotating anti-diagonals for each of the match, insertion and deletion states, indexed by read position
+    private double[][] matchDiagonals;
+    private double[][] insertionDiagonals;
+    private double[][] deletionDiagonals;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void initialize( final int readMaxLength, final int haplotypeMaxLength ) {
+        super.initialize(readMaxLength, haplotypeMaxLength);
+
+        matchToMatchProb = new double[paddedMaxReadLength];
+        indelToMatchProb = new double[paddedMaxReadLength];
+        matchToInsertionProb = new double[paddedMaxReadLength];
+        insertionToInsertionProb = new double[paddedMaxReadLength];
+        matchToDeletionProb = new double[paddedMaxReadLength];
+        deletionToDeletionProb = new double[paddedMaxReadLength];
+
+        matchPrior = new double[paddedMaxReadLength];
+        mismatchPrior = new double[paddedMaxReadLength];
+        readBasesPadded = new byte[paddedMaxReadLength];
+        reversedHaplotype = new byte[paddedMaxReadLength + paddedMaxHaplotypeLength];
+
+        matchDiagonals = new double[3][paddedMaxReadLength];
+        insertionDiagonals = new double[3][paddedMaxReadLength];
+        deletionDiagonals = new double[3][paddedMaxReadLength];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public double subComputeReadLikelihoodGivenHaplotypeLog10( final byte[] haplotypeBases,
+                                                               final byte[] readBases,
+                                                               final byte[] readQuals,
+                                                               final byte[] insertionGOP,
+                                                               final byte[] deletionGOP,
+                                                               final byte[] overallGCP,
+                                                               final int hapStartIndex,
+                                                               final boolean recacheReadValues,
+                                                               final int nextHapStartIndex) {
+        final int readLength = readBases.length;
+        final int haplotypeLength = haplotypeBases.length;
+
+        if ( ! constantsAreInitialized || recacheReadValues ) {
+            initializeReadValues(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+            constantsAreInitialized = true;
+        }
+
+        // reversedHaplotype[readLength + haplotypeLength - j] holds haplotype column j (1-based); the slots
+        // outside of [readLength, readLength + haplotypeLength) are never read by the recurrence
+        for ( int j = 1; j <= haplotypeLength; j++ ) {
+            reversedHaplotype[readLength + haplotypeLength - j] = haplotypeBases[j - 1];
+        }
+
+        // free deletions in the beginning: row 0 of the deletion matrix
+        final double initialValue = LoglessPairHMM.INITIAL_CONDITION / haplotypeLength;
+
+        double[] match2 = matchDiagonals[0], match1 = matchDiagonals[1], match0 = matchDiagonals[2];
+        double[] insertion2 = insertionDiagonals[0], insertion1 = insertionDiagonals[1], insertion0 = insertionDiagonals[2];
+        double[] deletion2 = deletionDiagonals[0], deletion1 = deletionDiagonals[1], deletion0 = deletionDiagonals[2];
+
+        double finalSumProbabilities = 0.0;
+        for ( int d = 0; d <= readLength + haplotypeLength; d++ ) {
+            // boundary cells: row 0 (i == 0, j == d) and column 0 (i == d, j == 0)
+            if ( d <= haplotypeLength ) {
+                match0[0] = 0.0;
+                insertion0[0] = 0.0;
+                deletion0[0] = initialValue;
+            }
+            if ( d >= 1 && d <= readLength ) {
+                match0[d] = 0.0;
+                insertion0[d] = 0.0;
+                deletion0[d] = 0.0;
+            }
+
+            // interior cells, 1 <= i <= readLength and 1 <= j = d - i <= haplotypeLength
+            final int iStart = Math.max(1, d - haplotypeLength);
+            final int iEnd = Math.min(readLength, d - 1);
+            final int hapOffset = readLength + haplotypeLength - d;
+            for ( int i = iStart; i <= iEnd; i++ ) {
+                final byte x = readBasesPadded[i];
+                final byte y = reversedHaplotype[hapOffset + i];
+                final double prior = x == y || x == (byte) 'N' || y == (byte) 'N' ? matchPrior[i] : mismatchPrior[i];
+                match0[i] = prior * ( match2[i - 1] * matchToMatchProb[i] +
+                        insertion2[i - 1] * indelToMatchProb[i] +
+                        deletion2[i - 1] * indelToMatchProb[i] );
+                insertion0[i] = match1[i - 1] * matchToInsertionProb[i] + insertion1[i - 1] * insertionToInsertionProb[i];
+                deletion0[i] = match1[i] * matchToDeletionProb[i] + deletion1[i] * deletionToDeletionProb[i];
+            }
+
+            // the last row is reached in increasing order of j, which preserves the summation order of LoglessPairHMM
+            if ( iEnd == readLength && d - readLength >= 1 ) {
+                finalSumProbabilities += match0[readLength] + insertion0[readLength];
+            }
+
+            // rotate: the oldest diagonal becomes the scratch space for the next one
+            final double[] m = match2; match2 = match1; match1 = match0; match0 = m;
+            final double[] ins = insertion2; insertion2 = insertion1; insertion1 = insertion0; insertion0 = ins;
+            final double[] del = deletion2; deletion2 = deletion1; deletion1 = deletion0; deletion0 = del;
+        }
+
+        return Math.log10(finalSumProbabilities) - LoglessPairHMM.INITIAL_CONDITION_LOG10;
+    }
+
+    /**
+     * Cache the per-read-position priors and transition probabilities in flat arrays indexed by matrix row.
+     */
+    private void initializeReadValues(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP,
+                                      final byte[] deletionGOP, final byte[] overallGCP) {
+        final double[] transitions = new double[TRANS_PROB_ARRAY_LENGTH];
+        final double tristateCorrection = doNotUseTristateCorrection ? 1.0 : LoglessPairHMM.TRISTATE_CORRECTION;
+        for ( int i = 0; i < readBases.length; i++ ) {
+            readBasesPadded[i + 1] = readBases[i];
+            matchPrior[i + 1] = QualityUtils.qualToProb(readQuals[i]);
+            mismatchPrior[i + 1] = QualityUtils.qualToErrorProb(readQuals[i]) / tristateCorrection;
+
+            PairHMMModel.qualToTransProbs(transitions, insertionGOP[i], deletionGOP[i], overallGCP[i]);
+            matchToMatchProb[i + 1] = transitions[matchToMatch];
+            indelToMatchProb[i + 1] = transitions[indelToMatch];
+            matchToInsertionProb[i + 1] = transitions[matchToInsertion];
+            insertionToInsertionProb[i + 1] = transitions[insertionToInsertion];
+            matchToDeletionProb[i + 1] = transitions[matchToDeletion];
+            deletionToDeletionProb[i + 1] = transitions[deletionToDeletion];
+        }
+    }
+}
@@ -51,6 +51,12 @@ public abstract class PairHMM implements Closeable{
             logger.info("Using the non-hardware-accelerated Java LOGLESS_CACHING PairHMM implementation");
             return hmm;
         }),
+        /* Pure-Java implementation of LOGLESS_CACHING that sweeps anti-diagonals with flat arrays, so that the JIT can vectorize it on any platform */
+        LOGLESS_ANTI_DIAGONAL(args -> {
+            final AntiDiagonalLoglessPairHMM hmm = new AntiDiagonalLoglessPairHMM();
+            logger.info("Using the non-native Java anti-diagonal LOGLESS_ANTI_DIAGONAL PairHMM implementation");
+            return hmm;
+        }),
         /* Optimized AVX implementation of LOGLESS_CACHING called through JNI. Throws if AVX is not available */
         AVX_LOGLESS_CACHING(args -> {
             // Constructor will throw a UserException if AVX is not available
@@ -76,7 +82,7 @@ public abstract class PairHMM implements Closeable{
            Order of precedence:
             1. AVX_LOGLESS_CACHING_OMP
             2. AVX_LOGLESS_CACHING
-            3. LOGLESS_CACHING
+            3. LOGLESS_ANTI_DIAGONAL
          */
         FASTEST_AVAILABLE(args -> {
             // This try block is temporarily commented out becuase FPGA support is experimental for the time being. Once
@@ -105,8 +111,8 @@ public abstract class PairHMM implements Closeable{
             }
             catch ( UserException.HardwareFeatureException e ) {
                 logger.warn("***WARNING: Machine does not have the AVX instruction set support needed for the accelerated AVX PairHmm. " +
-                            "Falling back to the MUCH slower LOGLESS_CACHING implementation!");
-                return new LoglessPairHMM();
+                            "Falling back to the slower Java LOGLESS_ANTI_DIAGONAL implementation!");
+                return new AntiDiagonalLoglessPairHMM();
             }
         });
 
@@ -228,28 +234,36 @@ public abstract class PairHMM implements Closeable{
         final int readCount = processedReads.size();
         final List<Haplotype> alleles = logLikelihoods.alleles();
         final int alleleCount = alleles.size();
-        mLogLikelihoodArray = new double[readCount * alleleCount];
-        int idx = 0;
+        final byte[][] haplotypeBases = new byte[alleleCount][];
+        for (int a = 0; a < alleleCount; a++) {
+            haplotypeBases[a] = alleles.get(a).getBases();
+        }
+        final byte[][] readBases = new byte[readCount][];
+        final byte[][] readQuals = new byte[readCount][];
+        final byte[][] readInsQuals = new byte[readCount][];
+        final byte[][] readDelQuals = new byte[readCount][];
+        final byte[][] readGCPs = new byte[readCount][];
         int readIndex = 0;
         for(final GATKRead read : processedReads){
-            final byte[] readBases = read.getBases();
-            final byte[] readQuals = read.getBaseQualities();
-            final byte[] readInsQuals = ReadUtils.getBaseInsertionQualities(read);
-            final byte[] readDelQuals = ReadUtils.getBaseDeletionQualities(read);
-            final byte[] overallGCP = gcp.get(read);
-
-            // peek at the next haplotype in the list (necessary to get nextHaplotypeBases, which is required for caching in the array implementation)
-            final boolean isFirstHaplotype = true;
+            readBases[readIndex] = read.getBases();
+            readQuals[readIndex] = read.getBaseQualities();
+            readInsQuals[readIndex] = ReadUtils.getBaseInsertionQualities(read);
+            readDelQuals[readIndex] = ReadUtils.getBaseDeletionQualities(read);
+            readGCPs[readIndex] = gcp.get(read);
+            validateReadArrays(readBases[readIndex], readQuals[readIndex], readInsQuals[readIndex], readDelQuals[readIndex], readGCPs[readIndex]);
+            readIndex++;
+        }
+
+        if (mLogLikelihoodArray == null || mLogLikelihoodArray.length != readCount * alleleCount) {
+            mLogLikelihoodArray = new double[readCount * alleleCount];
+        }
+        computeLog10LikelihoodsUnchecked(haplotypeBases, readBases, readQuals, readInsQuals, readDelQuals, readGCPs, readCount, mLogLikelihoodArray);
+
+        int idx = 0;
+        for (int r = 0; r < readCount; r++) {
             for (int a = 0; a < alleleCount; a++) {
-                final Allele allele = alleles.get(a);
-                final byte[] alleleBases = allele.getBases();
-                final byte[] nextAlleleBases = a == alleles.size() - 1 ? null : alleles.get(a + 1).getBases();
-                final double lk = computeReadLikelihoodGivenHaplotypeLog10(alleleBases,
-                        readBases, readQuals, readInsQuals, readDelQuals, overallGCP, isFirstHaplotype, nextAlleleBases);
-                logLikelihoods.set(a, readIndex, lk);
-                mLogLikelihoodArray[idx++] = lk;
+                logLikelihoods.set(a, r, mLogLikelihoodArray[idx++]);
             }
-            readIndex++;
         }
         if(doProfiling) {
             threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
@@ -259,6 +273,125 @@ public abstract class PairHMM implements Closeable{
         }
     }
 
+    /**
+     * Batch version of {@link #computeLog10Likelihoods(LikelihoodMatrix, List, Map)} that takes the reads and haplotypes
+     * of a region as primitive arrays.
+     *
+     * All inputs are validated once up front, after which every read x haplotype pair is evaluated without further
+     * per-cell argument checks. The HMM is (re)initialized only if the inputs are longer than the ones it was last
+     * initialized for, so its buffers are reused across successive calls.
+     *
+     * @param haplotypeBases the bases of each haplotype
+     * @param readBases the bases of each read
+     * @param readQuals the phred-scaled base qualities of each read, each the same length as the read bases
+     * @param readInsQuals the phred-scaled insertion qualities of each read, each the same length as the read bases
+     * @param readDelQuals the phred-scaled deletion qualities of each read, each the same length as the read bases
+     * @param readGCPs the phred-scaled gap continuation penalties of each read, each the same length as the read bases
+     * @param destination where to store the log10 likelihoods: the likelihood of read {@code r} given haplotype {@code h}
+     *                    is stored at {@code destination[r * haplotypeBases.length + h]}
+     * @throws IllegalArgumentException if any of the inputs is null or inconsistent, or if {@code destination} is too small
+     */
+    public void computeLog10Likelihoods(final byte[][] haplotypeBases,
+                                        final byte[][] readBases,
+                                        final byte[][] readQuals,
+                                        final byte[][] readInsQuals,
+                                        final byte[][] readDelQuals,
+                                        final byte[][] readGCPs,
+                                        final double[] destination) {
+        Utils.nonNull(readBases, "readBases may not be null");
+        computeLog10Likelihoods(haplotypeBases, readBases, readQuals, readInsQuals, readDelQuals, readGCPs, readBases.length, destination);
+    }
+
+    /**
+     * Same as {@link #computeLog10Likelihoods(byte[][], byte[][], byte[][], byte[][], byte[][], byte[][], double[])},
+     * but only evaluates the first {@code readCount} reads of the read arrays, which may be longer so that callers can
+     * reuse them across batches.
+     *
+     * @param readCount the number of reads to evaluate, no more than the length of any of the read arrays
+     */
+    public void computeLog10Likelihoods(final byte[][] haplotypeBases,
+                                        final byte[][] readBases,
+                                        final byte[][] readQuals,
+                                        final byte[][] readInsQuals,
+                                        final byte[][] readDelQuals,
+                                        final byte[][] readGCPs,
+                                        final int readCount,
+                                        final double[] destination) {
+        Utils.nonNull(haplotypeBases, "haplotypeBases may not be null");
+        Utils.nonNull(readBases, "readBases may not be null");
+        Utils.nonNull(destination, "destination may not be null");
+        if (readCount < 0 || readQuals == null || readInsQuals == null || readDelQuals == null || readGCPs == null ||
+                readBases.length < readCount || readQuals.length < readCount || readInsQuals.length < readCount ||
+                readDelQuals.length < readCount || readGCPs.length < readCount) {
+            throw new IllegalArgumentException("Read bases, quals, insertion quals, deletion quals and gap continuation penalties must be provided for every read");
+        }
+        if (destination.length < readCount * haplotypeBases.length) {
+            throw new IllegalArgumentException("Destination has room for " + destination.length + " likelihoods but " + readCount * haplotypeBases.length + " are needed");
+        }
+        if (readCount == 0 || haplotypeBases.length == 0) {
+            return;
+        }
+
+        int haplotypeMaxLength = 0;
+        for (final byte[] haplotype : haplotypeBases) {
+            if (haplotype == null || haplotype.length == 0) {
+                throw new IllegalArgumentException("Haplotype bases may not be null or empty");
+            }
+            haplotypeMaxLength = Math.max(haplotypeMaxLength, haplotype.length);
+        }
+        int readMaxLength = 0;
+        for (int r = 0; r < readCount; r++) {
+            validateReadArrays(readBases[r], readQuals[r], readInsQuals[r], readDelQuals[r], readGCPs[r]);
+            readMaxLength = Math.max(readMaxLength, readBases[r].length);
+        }
+
+        if(doProfiling) {
+            startTime = System.nanoTime();
+        }
+        initializeForBatch(readMaxLength, haplotypeMaxLength);
+        computeLog10LikelihoodsUnchecked(haplotypeBases, readBases, readQuals, readInsQuals, readDelQuals, readGCPs, readCount, destination);
+        if(doProfiling) {
+            threadLocalPairHMMComputeTimeDiff = (System.nanoTime() - startTime);
+            pairHMMComputeTime += threadLocalPairHMMComputeTimeDiff;
+        }
+    }
+
+    /**
+     * Make this HMM ready to evaluate a batch of reads and haplotypes no longer than the given lengths with
+     * {@link #computeLog10LikelihoodsUnchecked}. The HMM is (re)initialized only if it was not initialized for inputs
+     * this long. Implementations whose batch kernel does not use the Java buffers may override this to skip allocating them.
+     */
+    protected void initializeForBatch(final int readMaxLength, final int haplotypeMaxLength) {
+        if (!initialized || readMaxLength > maxReadLength || haplotypeMaxLength > maxHaplotypeLength) {
+            initialize(readMaxLength, haplotypeMaxLength);
+        }
+    }
+
+    /**
+     * Evaluate each of the first readCount reads against every haplotype, assuming that the inputs have already been
+     * validated and that this HMM has been initialized for them. Implementations that evaluate a whole batch at once
+     * may override this method.
+     */
+    protected void computeLog10LikelihoodsUnchecked(final byte[][] haplotypeBases,
+                                                    final byte[][] readBases,
+                                                    final byte[][] readQuals,
+                                                    final byte[][] readInsQuals,
+                                                    final byte[][] readDelQuals,
+                                                    final byte[][] readGCPs,
+                                                    final int readCount,
+                                                    final double[] destination) {
+        final int haplotypeCount = haplotypeBases.length;
+        int idx = 0;
+        for (int r = 0; r < readCount; r++) {
+            for (int a = 0; a < haplotypeCount; a++) {
+                // peek at the next haplotype in the list (necessary to get nextHaplotypeBases, which is required for caching in the array implementation)
+                final byte[] nextHaplotypeBases = a == haplotypeCount - 1 ? null : haplotypeBases[a + 1];
+                destination[idx++] = computeReadLikelihoodGivenHaplotypeLog10Unchecked(haplotypeBases[a],
+                        readBases[r], readQuals[r], readInsQuals[r], readDelQuals[r], readGCPs[r], true, nextHaplotypeBases);
+            }
+        }
+    }
+
     /**
      * Compute the total probability of read arising from haplotypeBases given base substitution, insertion, and deletion
      * probabilities.
@@ -295,14 +428,50 @@ public abstract class PairHMM implements Closeable{
 
         Utils.validate(initialized, "Must call initialize before calling computeReadLikelihoodGivenHaplotypeLog10");
         Utils.nonNull(haplotypeBases, "haplotypeBases may not be null");
-        Utils.validateArg( haplotypeBases.length <= maxHaplotypeLength, () -> "Haplotype bases is too long, got " + haplotypeBases.length + " but max is " + maxHaplotypeLength);
+        if (haplotypeBases.length > maxHaplotypeLength) {
+            throw new IllegalArgumentException("Haplotype bases is too long, got " + haplotypeBases.length + " but max is " + maxHaplotypeLength);
+        }
+        validateReadArrays(readBases, readQuals, insertionGOP, deletionGOP, overallGCP);
+        if (readBases.length > maxReadLength) {
+            throw new IllegalArgumentException("readBases is too long, got " + readBases.length + " but max is " + maxReadLength);
+        }
+
+        return computeReadLikelihoodGivenHaplotypeLog10Unchecked(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, recacheReadValues, nextHaplotypeBases);
+    }
+
+    /**
+     * Check that the per-read arrays are non-null and all of the same length. Uses plain comparisons rather than
+     * lambda-based message suppliers, since it is called for every read.
+     */
+    private static void validateReadArrays(final byte[] readBases, final byte[] readQuals, final byte[] insertionGOP,
+                                           final byte[] deletionGOP, final byte[] overallGCP) {
         Utils.nonNull(readBases);
-        Utils.validateArg( readBases.length <= maxReadLength, () -> "readBases is too long, got " + readBases.length + " but max is " + maxReadLength);
-        Utils.validateArg(readQuals.length == readBases.length, () -> "Read bases and read quals aren't the same size: " + readBases.length + " vs " + readQuals.length);
-        Utils.validateArg( insertionGOP.length == readBases.length, () -> "Read bases and read insertion quals aren't the same size: " + readBases.length + " vs " + insertionGOP.length);
-        Utils.validateArg( deletionGOP.length == readBases.length, () -> "Read bases and read deletion quals aren't the same size: " + readBases.length + " vs " + deletionGOP.length);
-        Utils.validateArg( overallGCP.length == readBases.length, () -> "Read bases and overall GCP aren't the same size: " + readBases.length + " vs " + overallGCP.length);
+        if (readQuals.length != readBases.length) {
+            throw new IllegalArgumentException("Read bases and read quals aren't the same size: " + readBases.length + " vs " + readQuals.length);
+        }
+        if (insertionGOP.length != readBases.length) {
+            throw new IllegalArgumentException("Read bases and read insertion quals aren't the same size: " + readBases.length + " vs " + insertionGOP.length);
+        }
+        if (deletionGOP.length != readBases.length) {
+            throw new IllegalArgumentException("Read bases and read deletion quals aren't the same size: " + readBases.length + " vs " + deletionGOP.length);
+        }
+        if (overallGCP.length != readBases.length) {
+            throw new IllegalArgumentException("Read bases and overall GCP aren't the same size: " + readBases.length + " vs " + overallGCP.length);
+        }
+    }
 
+    /**
+     * Same as {@link #computeReadLikelihoodGivenHaplotypeLog10} but without validating the inputs, which must have
+     * been checked by the caller.
+     */
+    private double computeReadLikelihoodGivenHaplotypeLog10Unchecked( final byte[] haplotypeBases,
+                                                                      final byte[] readBases,
+                                                                      final byte[] readQuals,
+                                                                      final byte[] insertionGOP,
+                                                                      final byte[] deletionGOP,
+                                                                      final byte[] overallGCP,
+                                                                      final boolean recacheReadValues,
+                                                                      final byte[] nextHaplotypeBases) {
         paddedReadLength = readBases.length + 1;
         paddedHaplotypeLength = haplotypeBases.length + 1;
 
@@ -314,8 +483,12 @@ public abstract class PairHMM implements Closeable{
 
         final double result = subComputeReadLikelihoodGivenHaplotypeLog10(haplotypeBases, readBases, readQuals, insertionGOP, deletionGOP, overallGCP, hapStartIndex, recacheReadValues, nextHapStartIndex);
 
-        Utils.validate(result <= 0.0, () -> "PairHMM Log Probability cannot be greater than 0: " + String.format("haplotype: %s, read: %s, result: %f, PairHMM: %s", new String(haplotypeBases), new String(readBases), result, this.getClass().getSimpleName()));
-        Utils.validate(MathUtils.goodLog10Probability(result), () -> "Invalid Log Probability: " + result);
+        if (result > 0.0) {
+            throw new IllegalStateException("PairHMM Log Probability cannot be greater than 0: " + String.format("haplotype: %s, read: %s, result: %f, PairHMM: %s", new String(haplotypeBases), new String(readBases), result, this.getClass().getSimpleName()));
+        }
+        if (!MathUtils.goodLog10Probability(result)) {
+            throw new IllegalStateException("Invalid Log Probability: " + result);
+        }
 
         // Warning: This assumes no downstream modification of the haplotype bases (saves us from copying the array). It is okay for the haplotype caller.
         previousHaplotypeBases = haplotypeBases;
@@ -364,7 +537,8 @@ public abstract class PairHMM implements Closeable{
     }
 
     /**
-     * Return the results of the computeLogLikelihoods function
+     * Return the results of the computeLogLikelihoods function. The array is reused by subsequent calls with the same
+     * number of reads and haplotypes.
      */
     public double[] getLogLikelihoodArray() {
         return mLogLikelihoodArray;
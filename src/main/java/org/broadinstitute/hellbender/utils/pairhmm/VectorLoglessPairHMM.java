@@ -171,6 +171,47 @@ public final class VectorLoglessPairHMM extends LoglessPairHMM {
     }
 
 
+    /**
+     * {@inheritDoc}
+     *
+     * The native implementation keeps its own buffers, so the Java match, insertion and deletion matrices are not allocated.
+     */
+    @Override
+    protected void initializeForBatch(final int readMaxLength, final int haplotypeMaxLength) {
+        // nothing to do: the whole batch is handed to the native implementation
+    }
+
+    /**
+     * {@inheritDoc}
+     *
+     * Hands the whole batch to the native implementation in a single call.
+     */
+    @Override
+    protected void computeLog10LikelihoodsUnchecked(final byte[][] haplotypeBases,
+                                                    final byte[][] readBases,
+                                                    final byte[][] readQuals,
+                                                    final byte[][] readInsQuals,
+                                                    final byte[][] readDelQuals,
+                                                    final byte[][] readGCPs,
+                                                    final int readCount,
+                                                    final double[] destination) {
+        final HaplotypeDataHolder[] haplotypeDataArray = new HaplotypeDataHolder[haplotypeBases.length];
+        for (int h = 0; h < haplotypeBases.length; h++) {
+            haplotypeDataArray[h] = new HaplotypeDataHolder();
+            haplotypeDataArray[h].haplotypeBases = haplotypeBases[h];
+        }
+        final ReadDataHolder[] readDataArray = new ReadDataHolder[readCount];
+        for (int r = 0; r < readCount; r++) {
+            readDataArray[r] = new ReadDataHolder();
+            readDataArray[r].readBases = readBases[r];
+            readDataArray[r].readQuals = readQuals[r];
+            readDataArray[r].insertionGOP = readInsQuals[r];
+            readDataArray[r].deletionGOP = readDelQuals[r];
+            readDataArray[r].overallGCP = readGCPs[r];
+        }
+        pairHmm.computeLikelihoods(readDataArray, haplotypeDataArray, destination);
+    }
+
     @Override
     public void close() {
         pairHmm.done();
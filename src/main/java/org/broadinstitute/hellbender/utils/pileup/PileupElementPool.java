@@ -0,0 +1,150 @@
+package org.broadinstitute.hellbender.utils.pileup;
+
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Recycles the storage of the pileups built at successive loci, so that traversing deep data does not allocate new
+ * element lists and base and quality arrays at every locus.
+ *
+ * Elements are added to the current column, which {@link #makePileup(Locatable)} then publishes as a {@link ReadPileup}
+ * whose bases and qualities are also held in primitive arrays. The pool is a ring of columns: once as many more columns
+ * have been published, a column is overwritten by a new locus. Pileups made by the pool are thus only valid until then,
+ * although their elements, which are immutable, may be kept for longer.
+ */
+public final class PileupElementPool {
+    private static final int INITIAL_COLUMN_CAPACITY = 100;
+
+    private final Column[] columns;
+    private int currentColumn = 0;
+    private boolean isCurrentColumnPublished = false;
+
+    /**
+     * @param numColumns how many of the most recently published pileups remain valid, at least 1
+     */
+    public PileupElementPool(final int numColumns) {
+        Utils.validateArg(numColumns > 0, "the number of columns must be positive");
+        columns = new Column[numColumns];
+        for (int i = 0; i < numColumns; i++) {
+            columns[i] = new Column();
+        }
+    }
+
+    /**
+     * Starts a new column, which recycles the elements of the oldest column if the current one was published,
+     * or those of the current column otherwise.
+     */
+    public void startColumn() {
+        if (isCurrentColumnPublished) {
+            currentColumn = (currentColumn + 1) % columns.length;
+            isCurrentColumnPublished = false;
+        }
+        columns[currentColumn].clear();
+    }
+
+    /**
+     * Adds an element to the current column. Takes the same arguments as
+     * {@link PileupElement#PileupElement(GATKRead, int, CigarElement, int, int)}.
+     *
+     * @return the new element
+     */
+    public PileupElement add(final GATKRead read,
+                             final int baseOffset,
+                             final CigarElement currentElement,
+                             final int currentCigarOffset,
+                             final int offsetInCurrentCigar) {
+        return columns[currentColumn].add(read, baseOffset, currentElement, currentCigarOffset, offsetInCurrentCigar);
+    }
+
+    /**
+     * @return the number of elements in the current column
+     */
+    public int currentColumnSize() {
+        return columns[currentColumn].size;
+    }
+
+    /**
+     * Publishes the current column as a pileup at loc, which remains valid until as many more columns as this pool has
+     * have been published.
+     *
+     * @param loc the location of the pileup
+     * @return a pileup of the elements of the current column
+     */
+    public ReadPileup makePileup(final Locatable loc) {
+        isCurrentColumnPublished = true;
+        return columns[currentColumn].makePileup(loc);
+    }
+
+    private static final class Column {
+        private PileupElement[] elements = new PileupElement[INITIAL_COLUMN_CAPACITY];
+        private byte[] bases = new byte[INITIAL_COLUMN_CAPACITY];
+        private byte[] quals = new byte[INITIAL_COLUMN_CAPACITY];
+        private int size = 0;
+
+        private void clear() {
+            size = 0;
+        }
+
+        private PileupElement add(final GATKRead read,
+                                  final int baseOffset,
+                                  final CigarElement currentElement,
+                                  final int currentCigarOffset,
+                                  final int offsetInCurrentCigar) {
+            if (size == elements.length) {
+                elements = Arrays.copyOf(elements, 2 * size);
+                bases = Arrays.copyOf(bases, 2 * size);
+                quals = Arrays.copyOf(quals, 2 * size);
+            }
+            final PileupElement element = new PileupElement(read, baseOffset, currentElement, currentCigarOffset, offsetInCurrentCigar);
+            elements[size] = element;
+            bases[size] = element.getBase();
+            quals[size] = element.getQual();
+            size++;
+            return element;
+        }
+
+        private ReadPileup makePileup(final Locatable loc) {
+            return new ColumnReadPileup(loc, Arrays.asList(elements).subList(0, size), bases, quals);
+        }
+    }
+
+    /**
+     * A pileup over a column of the pool, answering for its bases and qualities from the primitive arrays of the column
+     * rather than from its elements.
+     */
+    private static final class ColumnReadPileup extends ReadPileup {
+        private final byte[] bases;
+        private final byte[] quals;
+
+        private ColumnReadPileup(final Locatable loc, final List<PileupElement> elements, final byte[] bases, final byte[] quals) {
+            super(loc, elements);
+            this.bases = bases;
+            this.quals = quals;
+        }
+
+        @Override
+        public byte[] getBases() {
+            return Arrays.copyOf(bases, size());
+        }
+
+        @Override
+        public byte[] getBaseQuals() {
+            return Arrays.copyOf(quals, size());
+        }
+
+        @Override
+        public void fixOverlaps() {
+            super.fixOverlaps();
+            // the qualities of the reads have been changed under us
+            int i = 0;
+            for (final PileupElement element : this) {
+                quals[i++] = element.getQual();
+            }
+        }
+    }
+}
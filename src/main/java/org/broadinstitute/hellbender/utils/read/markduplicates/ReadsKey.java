@@ -5,6 +5,9 @@ import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkD
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Objects;
 
@@ -13,8 +16,11 @@ import java.util.Objects;
  *
  * This class was changed to primarily operate on key hashing instead of generating long string keys as it was discovered
  * that it had performance implications for serialization in MarkDuplicatesSpark. 
+ *
+ * Keys are ordered (fragment keys first) so that the non-Spark MarkDuplicatesGATK can gather together records with the
+ * same key by sorting them on disk, for which they can also be written to and read from a stream.
  */
-public abstract class ReadsKey {
+public abstract class ReadsKey implements Comparable<ReadsKey> {
 
     /**
      * Makes a unique key for the read.
@@ -45,6 +51,19 @@ public abstract class ReadsKey {
                 );
     }
 
+    /**
+     * Writes a key to a stream, to be read back with {@link #read}.
+     */
+    public abstract void write(final DataOutputStream out) throws IOException;
+
+    /**
+     * Reads a key written by {@link #write}.
+     */
+    public static ReadsKey read(final DataInputStream in) throws IOException {
+        final long keyValue = in.readLong();
+        return in.readBoolean() ? new KeyForPair(keyValue, in.readLong()) : new KeyForFragment(keyValue);
+    }
+
     /**
      * Key class for representing relevant duplicate marking identifiers into a single long key for fragment data.
      *
@@ -74,6 +93,20 @@ public abstract class ReadsKey {
         public String toString() {
             return Long.toString(keyValue);
         }
+
+        @Override
+        public int compareTo(final ReadsKey o) {
+            if (o instanceof KeyForPair) {
+                return -1;
+            }
+            return Long.compare(keyValue, ((KeyForFragment) o).keyValue);
+        }
+
+        @Override
+        public void write(final DataOutputStream out) throws IOException {
+            out.writeLong(keyValue);
+            out.writeBoolean(false);
+        }
     }
 
     /**
@@ -109,6 +142,23 @@ public abstract class ReadsKey {
         public String toString() {
             return firstReadKeyValue + " " + secondReadKeyValue;
         }
+
+        @Override
+        public int compareTo(final ReadsKey o) {
+            if (o instanceof KeyForFragment) {
+                return 1;
+            }
+            final KeyForPair that = (KeyForPair) o;
+            final int result = Long.compare(firstReadKeyValue, that.firstReadKeyValue);
+            return result != 0 ? result : Long.compare(secondReadKeyValue, that.secondReadKeyValue);
+        }
+
+        @Override
+        public void write(final DataOutputStream out) throws IOException {
+            out.writeLong(firstReadKeyValue);
+            out.writeBoolean(true);
+            out.writeLong(secondReadKeyValue);
+        }
     }
 
     // Helper methods for generating summary longs
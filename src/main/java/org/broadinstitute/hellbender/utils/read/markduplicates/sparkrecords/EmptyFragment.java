@@ -28,7 +28,7 @@ public final class EmptyFragment extends PairedEnds {
      *
      */
     public EmptyFragment(GATKRead read, SAMFileHeader header, Map<String, Byte> headerLibraryMap) {
-        super(0, null);
+        super(0L, null);
         this.R1R = read.isReverseStrand();
         this.key = ReadsKey.getKeyForFragment(ReadUtils.getStrandedUnclippedStart(read),
                 isRead1ReverseStrand(),
@@ -36,6 +36,13 @@ public final class EmptyFragment extends PairedEnds {
                 headerLibraryMap.get(MarkDuplicatesSparkUtils.getLibraryForRead(read, header, LibraryIdGenerator.UNKNOWN_LIBRARY)));
     }
 
+    // Constructor for decoding by MarkDuplicatesSparkRecordCodec
+    EmptyFragment(final ReadsKey key, final boolean R1R) {
+        super(0L, null);
+        this.key = key;
+        this.R1R = R1R;
+    }
+
     @Override
     public Type getType() {
         return Type.EMPTY_FRAGMENT;
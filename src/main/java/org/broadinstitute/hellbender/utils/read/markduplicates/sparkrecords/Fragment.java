@@ -24,8 +24,8 @@ public class Fragment extends TransientFieldPhysicalLocation {
 
     protected final short score;
 
-    public Fragment(final GATKRead first, final SAMFileHeader header, int partitionIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
-        super(partitionIndex, first.getName());
+    public Fragment(final GATKRead first, final SAMFileHeader header, long templateIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
+        super(templateIndex, first.getName());
 
         this.score = scoringStrategy.score(first);
         this.R1R = first.isReverseStrand();
@@ -35,6 +35,14 @@ public class Fragment extends TransientFieldPhysicalLocation {
                 headerLibraryMap.get(MarkDuplicatesSparkUtils.getLibraryForRead(first, header, LibraryIdGenerator.UNKNOWN_LIBRARY)));
     }
 
+    // Constructor for decoding by MarkDuplicatesSparkRecordCodec
+    Fragment(final long templateIndex, final String name, final ReadsKey key, final short score, final boolean R1R) {
+        super(templateIndex, name);
+        this.key = key;
+        this.score = score;
+        this.R1R = R1R;
+    }
+
     @Override
     public Type getType() {
       return Type.FRAGMENT;
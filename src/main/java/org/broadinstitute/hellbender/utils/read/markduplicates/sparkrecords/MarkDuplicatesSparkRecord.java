@@ -14,11 +14,13 @@ import java.util.Map;
  * The implementing classes are specific to the needs of various code paths in MarkDuplicatesSpark.
  */
 public abstract class MarkDuplicatesSparkRecord {
-    protected final int partitionIndex;
+    // partition index and offset within the partition of the first read of the template, packed into a long
+    // (see MarkDuplicatesSparkUtils.getTemplateIndex())
+    protected final long templateIndex;
     protected final String name;
-    MarkDuplicatesSparkRecord(int partitionIndex, String name) {
+    MarkDuplicatesSparkRecord(long templateIndex, String name) {
         this.name = name;
-        this.partitionIndex = partitionIndex;
+        this.templateIndex = templateIndex;
     }
 
     // Required abstract methods
@@ -28,8 +30,8 @@ public abstract class MarkDuplicatesSparkRecord {
 
 
     // A fragment containing only one read without a mapped mate
-    public static Fragment newFragment(final GATKRead first, final SAMFileHeader header, int partitionIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
-        return new Fragment (first, header, partitionIndex, scoringStrategy, headerLibraryMap);
+    public static Fragment newFragment(final GATKRead first, final SAMFileHeader header, long templateIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
+        return new Fragment (first, header, templateIndex, scoringStrategy, headerLibraryMap);
     }
 
     // An optimization for reducing the serialized data passed around when indicating that there was a mapped read at a location
@@ -38,18 +40,18 @@ public abstract class MarkDuplicatesSparkRecord {
     }
 
     // An object representing a pair of primary and secondary reads with a particular span for duplicate marking
-    public static Pair newPair(GATKRead first, GATKRead second, SAMFileHeader header, int partitionIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
-        return new Pair(first, second, header, partitionIndex, scoringStrategy, headerLibraryMap);
+    public static Pair newPair(GATKRead first, GATKRead second, SAMFileHeader header, long templateIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
+        return new Pair(first, second, header, templateIndex, scoringStrategy, headerLibraryMap);
     }
 
     // An object representing a read or group of reads that we want to pass through the tool without being duplicate marked
-    public static Passthrough getPassthrough(GATKRead read, int partitionIndex) {
-        return new Passthrough(read, partitionIndex);
+    public static Passthrough getPassthrough(GATKRead read, long templateIndex) {
+        return new Passthrough(read, templateIndex);
     }
 
 
-    public int getPartitionIndex(){
-      return partitionIndex;
+    public long getTemplateIndex(){
+      return templateIndex;
     }
 
     public String getName() {
@@ -0,0 +1,120 @@
+package org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords;
+
+import htsjdk.samtools.util.RuntimeIOException;
+import htsjdk.samtools.util.SortingCollection;
+import org.broadinstitute.hellbender.exceptions.GATKException;
+import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+/**
+ * Codec for spilling the fragments, empty fragments and pairs of duplicate marking to disk in a {@link SortingCollection},
+ * which is how the non-Spark MarkDuplicatesGATK sorts them by key.
+ *
+ * Unlike the kryo serialization of these records, their {@link MarkDuplicatesSparkRecord#key() key} and physical
+ * location are encoded too, so the decoded records are ready to be duplicate marked without the reads they came from.
+ * Passthroughs are not supported, as they need not be sorted to be marked.
+ */
+public final class MarkDuplicatesSparkRecordCodec implements SortingCollection.Codec<MarkDuplicatesSparkRecord> {
+    private DataOutputStream out;
+    private DataInputStream in;
+
+    @Override
+    public void setOutputStream(final OutputStream os) {
+        this.out = new DataOutputStream(os);
+    }
+
+    @Override
+    public void setInputStream(final InputStream is) {
+        this.in = new DataInputStream(is);
+    }
+
+    @Override
+    public void encode(final MarkDuplicatesSparkRecord record) {
+        try {
+            out.writeByte(record.getType().ordinal());
+            record.key().write(out);
+            switch (record.getType()) {
+                case EMPTY_FRAGMENT:
+                    out.writeBoolean(((EmptyFragment) record).isRead1ReverseStrand());
+                    break;
+                case FRAGMENT: {
+                    final Fragment fragment = (Fragment) record;
+                    out.writeLong(fragment.getTemplateIndex());
+                    out.writeUTF(fragment.getName());
+                    out.writeShort(fragment.getScore());
+                    out.writeBoolean(fragment.isRead1ReverseStrand());
+                    encodePhysicalLocation(fragment);
+                    break;
+                }
+                case PAIR: {
+                    final Pair pair = (Pair) record;
+                    out.writeLong(pair.getTemplateIndex());
+                    out.writeUTF(pair.getName());
+                    out.writeShort(pair.getScore());
+                    out.writeBoolean(pair.isRead1ReverseStrand());
+                    out.writeBoolean(pair.isRead2ReverseStrand());
+                    out.writeBoolean(pair.wasFlipped());
+                    encodePhysicalLocation(pair);
+                    break;
+                }
+                default:
+                    throw new GATKException.ShouldNeverReachHereException("Cannot encode a " + record.getType() + " record");
+            }
+        } catch (final IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private void encodePhysicalLocation(final TransientFieldPhysicalLocation location) throws IOException {
+        out.writeShort(location.getReadGroup());
+        out.writeShort(location.getTile());
+        out.writeShort(location.getX());
+        out.writeShort(location.getY());
+    }
+
+    @Override
+    public MarkDuplicatesSparkRecord decode() {
+        try {
+            final int type = in.read();
+            if (type == -1) {
+                return null;
+            }
+            final ReadsKey key = ReadsKey.read(in);
+            switch (MarkDuplicatesSparkRecord.Type.values()[type]) {
+                case EMPTY_FRAGMENT:
+                    return new EmptyFragment(key, in.readBoolean());
+                case FRAGMENT: {
+                    final Fragment fragment = new Fragment(in.readLong(), in.readUTF(), key, in.readShort(), in.readBoolean());
+                    decodePhysicalLocation(fragment);
+                    return fragment;
+                }
+                case PAIR: {
+                    final Pair pair = new Pair(in.readLong(), in.readUTF(), key, in.readShort(), in.readBoolean(), in.readBoolean(), in.readBoolean());
+                    decodePhysicalLocation(pair);
+                    return pair;
+                }
+                default:
+                    throw new GATKException("Unexpected record type while decoding duplicate marking records: " + type);
+            }
+        } catch (final IOException e) {
+            throw new RuntimeIOException(e);
+        }
+    }
+
+    private void decodePhysicalLocation(final TransientFieldPhysicalLocation location) throws IOException {
+        location.setReadGroup(in.readShort());
+        location.setTile(in.readShort());
+        location.setX(in.readShort());
+        location.setY(in.readShort());
+    }
+
+    @Override
+    public MarkDuplicatesSparkRecordCodec clone() {
+        return new MarkDuplicatesSparkRecordCodec();
+    }
+}
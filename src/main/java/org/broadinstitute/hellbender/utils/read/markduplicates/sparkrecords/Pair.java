@@ -30,8 +30,8 @@ public final class Pair extends TransientFieldPhysicalLocation {
     private final short score;
     private final boolean wasFlipped;
 
-    public Pair(final GATKRead read1, final GATKRead read2, final SAMFileHeader header, int partitionIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
-        super(partitionIndex, read1.getName());
+    public Pair(final GATKRead read1, final GATKRead read2, final SAMFileHeader header, long templateIndex, MarkDuplicatesScoringStrategy scoringStrategy, Map<String, Byte> headerLibraryMap) {
+        super(templateIndex, read1.getName());
 
         final String name1 = read1.getName();
         final String name2 = read2.getName();
@@ -82,7 +82,7 @@ public final class Pair extends TransientFieldPhysicalLocation {
 
     // Constructor for serialization purposes
     private Pair(Kryo kryo, Input input){
-        super(input.readInt(true), input.readString());
+        super(input.readLong(true), input.readString());
 
         // Information used to detect optical dupes
         tile = -1;
@@ -100,8 +100,19 @@ public final class Pair extends TransientFieldPhysicalLocation {
         wasFlipped = input.readBoolean();
     }
 
+    // Constructor for decoding by MarkDuplicatesSparkRecordCodec
+    Pair(final long templateIndex, final String name, final ReadsKey key, final short score,
+         final boolean isRead1ReverseStrand, final boolean isRead2ReverseStrand, final boolean wasFlipped) {
+        super(templateIndex, name);
+        this.key = key;
+        this.score = score;
+        this.isRead1ReverseStrand = isRead1ReverseStrand;
+        this.isRead2ReverseStrand = isRead2ReverseStrand;
+        this.wasFlipped = wasFlipped;
+    }
+
     protected void serialize(Kryo kryo, Output output) {
-        output.writeInt(partitionIndex, true);
+        output.writeLong(templateIndex, true);
         output.writeAscii(name);
 
         output.writeShort(score);
@@ -137,6 +148,14 @@ public final class Pair extends TransientFieldPhysicalLocation {
         return name + " score:" + score;
     }
 
+    boolean isRead2ReverseStrand() {
+        return isRead2ReverseStrand;
+    }
+
+    boolean wasFlipped() {
+        return wasFlipped;
+    }
+
     /**
      * Returns the pair orientation suitable for optical duplicates,
      * which always goes by the first then the second end for the strands.
@@ -5,8 +5,8 @@ package org.broadinstitute.hellbender.utils.read.markduplicates.sparkrecords;
  */
 public abstract class PairedEnds extends MarkDuplicatesSparkRecord {
 
-    PairedEnds(int partitionIndex, String name) {
-        super(partitionIndex, name);
+    PairedEnds(long templateIndex, String name) {
+        super(templateIndex, name);
     }
 
     public abstract short getScore();
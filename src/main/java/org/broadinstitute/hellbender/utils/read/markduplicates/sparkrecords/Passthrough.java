@@ -10,8 +10,8 @@ import org.broadinstitute.hellbender.utils.read.markduplicates.ReadsKey;
 public final class Passthrough extends MarkDuplicatesSparkRecord {
     private final transient ReadsKey key;
 
-    Passthrough(GATKRead read, int partitionIndex) {
-        super(partitionIndex, read.getName());
+    Passthrough(GATKRead read, long templateIndex) {
+        super(templateIndex, read.getName());
 
         // use a hash key here instead of a normal key because collisions don't matter here
         this.key = ReadsKey.hashKeyForPassthroughRead(read);
@@ -16,8 +16,8 @@ public abstract class TransientFieldPhysicalLocation extends PairedEnds implemen
     protected transient short y = -1;
     protected transient short libraryId = -1;
 
-    public TransientFieldPhysicalLocation(int partitionIndex, String name) {
-        super(partitionIndex, name);
+    public TransientFieldPhysicalLocation(long templateIndex, String name) {
+        super(templateIndex, name);
     }
 
     // Methods for OpticalDuplicateFinder.PhysicalLocation
@@ -28,6 +28,7 @@ import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCova
 
 import java.io.Serializable;
 import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
 
 public final class BaseRecalibrationEngine implements Serializable {
     private static final long serialVersionUID = 1L;
@@ -35,6 +36,12 @@ public final class BaseRecalibrationEngine implements Serializable {
     protected static final Logger logger = LogManager.getLogger(BaseRecalibrationEngine.class);
     private final CovariateKeyCache keyCache;
 
+    /**
+     * Per-thread key caches, used instead of keyCache when reads are processed concurrently (see {@link #isConcurrent()}).
+     * Created on first use, since ThreadLocals are not serializable and this field is null after deserialization.
+     */
+    private transient volatile ThreadLocal<CovariateKeyCache> threadKeyCaches;
+
     /*
      * Every call to EventType.values() (or any enum type) creates a new array instance but they are all equal (ie contain identical elements).
      * This is very expensive and wasteful when this array is created billions of times as in the case of BQSR.
@@ -62,6 +69,12 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     private RecalibrationTables recalTables;
 
+    /**
+     * Lock-free tables that the reads are accumulated into when they may be processed concurrently, or null otherwise.
+     * Folded into recalTables by {@link #finalizeData()}.
+     */
+    private final ConcurrentRecalibrationTables concurrentRecalTables;
+
     private SAMFileHeader readsHeader;
 
     /**
@@ -72,7 +85,7 @@ public final class BaseRecalibrationEngine implements Serializable {
     private BAQ baq; // BAQ the reads on the fly to generate the alignment uncertainty vector
     private static final byte NO_BAQ_UNCERTAINTY = (byte)'@';
 
-    private long numReadsProcessed = 0L;
+    private final AtomicLong numReadsProcessed = new AtomicLong(0L);
 
     /**
      * Has finalizeData() been called?
@@ -80,6 +93,18 @@ public final class BaseRecalibrationEngine implements Serializable {
     private boolean finalized = false;
 
     public BaseRecalibrationEngine( final RecalibrationArgumentCollection recalArgs, final SAMFileHeader readsHeader ) {
+        this(recalArgs, readsHeader, false);
+    }
+
+    /**
+     * @param recalArgs recalibration arguments
+     * @param readsHeader header of the reads to recalibrate
+     * @param concurrent if true, {@link #processRead} may be called from multiple threads at once: the observations are
+     *                   accumulated into lock-free primitive tables and folded into {@link RecalDatum}s by {@link #finalizeData()}.
+     *                   Not compatible with BAQ, whose fractional errors could not be summed independently of thread order.
+     */
+    public BaseRecalibrationEngine( final RecalibrationArgumentCollection recalArgs, final SAMFileHeader readsHeader, final boolean concurrent ) {
+        Utils.validateArg(!(concurrent && recalArgs.enableBAQ), "BAQ is not supported by a concurrent recalibration engine");
         this.recalArgs = recalArgs;
         this.readsHeader = readsHeader;
 
@@ -96,6 +121,7 @@ public final class BaseRecalibrationEngine implements Serializable {
             throw new UserException("Number of read groups must be >= 1, but is " + numReadGroups);
         }
         recalTables = new RecalibrationTables(covariates, numReadGroups);
+        concurrentRecalTables = concurrent ? new ConcurrentRecalibrationTables(covariates, numReadGroups) : null;
         keyCache = new CovariateKeyCache();
         cachedEventTypes = recalArgs.computeIndelBQSRTables ? EventType.values() : new EventType[]{EventType.BASE_SUBSTITUTION};
     }
@@ -107,9 +133,31 @@ public final class BaseRecalibrationEngine implements Serializable {
         }
     }
 
+    /**
+     * @return true if {@link #processRead} may be called from multiple threads at once
+     */
+    public boolean isConcurrent() {
+        return concurrentRecalTables != null;
+    }
+
+    private CovariateKeyCache getThreadKeyCache() {
+        ThreadLocal<CovariateKeyCache> caches = threadKeyCaches;
+        if ( caches == null ) {
+            synchronized ( this ) {
+                if ( threadKeyCaches == null ) {
+                    threadKeyCaches = ThreadLocal.withInitial(CovariateKeyCache::new);
+                }
+                caches = threadKeyCaches;
+            }
+        }
+        return caches.get();
+    }
+
     /**
      * For each read at this locus get the various covariate values and increment that location in the map based on
      * whether or not the base matches the reference at this particular location
+     *
+     * Thread-safe if this engine is {@link #isConcurrent()}, as long as each thread uses its own refDS.
      */
     public void processRead( final GATKRead originalRead, final ReferenceDataSource refDS, final Iterable<? extends Locatable> knownSites ) {
         final ReadTransformer transform = makeReadTransform();
@@ -133,7 +181,7 @@ public final class BaseRecalibrationEngine implements Serializable {
         final byte[] baqArray = (nErrors == 0 || !recalArgs.enableBAQ) ? flatBAQArray(read) : calculateBAQArray(read, refDS);
 
         if( baqArray != null ) { // some reads just can't be BAQ'ed
-            final ReadCovariates covariates = RecalUtils.computeCovariates(read, readsHeader, this.covariates, true, keyCache);
+            final ReadCovariates covariates = RecalUtils.computeCovariates(read, readsHeader, this.covariates, true, isConcurrent() ? getThreadKeyCache() : keyCache);
             final boolean[] skip = calculateSkipArray(read, knownSites); // skip known sites of variation as well as low quality and non-regular bases
             final double[] snpErrors = calculateFractionalErrorArray(isSNP, baqArray);
             final double[] insertionErrors = calculateFractionalErrorArray(isInsertion, baqArray);
@@ -144,7 +192,7 @@ public final class BaseRecalibrationEngine implements Serializable {
             updateRecalTablesForRead(info);
         }
 
-        numReadsProcessed++;
+        numReadsProcessed.incrementAndGet();
     }
 
     /**
@@ -157,6 +205,9 @@ public final class BaseRecalibrationEngine implements Serializable {
      */
     public void finalizeData() {
         Utils.validate(!finalized, "FinalizeData() has already been called");
+        if ( isConcurrent() ) {
+            recalTables = concurrentRecalTables.toRecalibrationTables();
+        }
         finalizeRecalibrationTables(recalTables);
         finalized = true;
     }
@@ -208,8 +259,13 @@ public final class BaseRecalibrationEngine implements Serializable {
 
     /**
      * Get a possibly not-final recalibration table, to deal with distributed execution.
+     *
+     * For a concurrent engine that has not been finalized yet this is a snapshot of the observations so far.
      */
     public RecalibrationTables getRecalibrationTables() {
+        if ( isConcurrent() && !finalized ) {
+            return concurrentRecalTables.toRecalibrationTables();
+        }
         return recalTables;
     }
 
@@ -232,7 +288,7 @@ public final class BaseRecalibrationEngine implements Serializable {
     }
 
     public long getNumReadsProcessed() {
-        return numReadsProcessed;
+        return numReadsProcessed.get();
     }
 
     /**
@@ -242,6 +298,11 @@ public final class BaseRecalibrationEngine implements Serializable {
     private void updateRecalTablesForRead( final ReadRecalibrationInfo recalInfo ) {
         Utils.validate(!finalized, "FinalizeData() has already been called");
 
+        if ( isConcurrent() ) {
+            updateConcurrentRecalTablesForRead(recalInfo);
+            return;
+        }
+
         final GATKRead read = recalInfo.getRead();
         final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
         final NestedIntegerArray<RecalDatum> qualityScoreTable = recalTables.getQualityScoreTable();
@@ -274,6 +335,41 @@ public final class BaseRecalibrationEngine implements Serializable {
         }
     }
 
+    /**
+     * Lock-free version of {@link #updateRecalTablesForRead} for concurrent engines
+     * @param recalInfo data structure holding information about the recalibration values for a single read
+     */
+    private void updateConcurrentRecalTablesForRead( final ReadRecalibrationInfo recalInfo ) {
+        final ReadCovariates readCovariates = recalInfo.getCovariatesValues();
+
+        final int nCovariates = covariates.size();
+        final int nSpecialCovariates = covariates.numberOfSpecialCovariates();
+        final int readLength = recalInfo.getRead().getLength();
+        for( int offset = 0; offset < readLength; offset++ ) {
+            if( ! recalInfo.skip(offset) ) {
+                for (int idx = 0; idx < cachedEventTypes.length; idx++) { //Note: we loop explicitly over cached values for speed
+                    final EventType eventType = cachedEventTypes[idx];
+                    final int[] keys = readCovariates.getKeySet(offset, eventType);
+                    final int eventIndex = eventType.ordinal();
+                    // without BAQ every observation is a whole error or none
+                    final boolean isError = recalInfo.getErrorFraction(eventType, offset) != 0.0;
+
+                    final int key0 = keys[0];
+                    final int key1 = keys[1];
+
+                    concurrentRecalTables.incrementQualityScoreTable(key0, key1, eventIndex, isError);
+
+                    for (int i = nSpecialCovariates; i < nCovariates; i++) {
+                        final int keyi = keys[i];
+                        if (keyi >= 0) {
+                            concurrentRecalTables.incrementAdditionalTable(i, key0, key1, keyi, eventIndex, isError);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
     private ReadTransformer makeReadTransform() {
         ReadTransformer f0 = BaseRecalibrationEngine::consolidateCigar;
 
@@ -0,0 +1,156 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Flat, lock-free counterpart of {@link RecalibrationTables} that many threads can update at once.
+ *
+ * For each table but the read group table (which is derived from the quality score table when the data is finalized)
+ * the number of observations and the number of mismatches of every combination of covariate keys are kept in
+ * primitive atomic arrays, indexed by the key layout of the {@link StandardCovariateList}:
+ * read group x quality score x covariate value x event type. The counts are folded into {@link RecalDatum}s only
+ * once, by {@link #toRecalibrationTables()}.
+ *
+ * Observations must be whole errors or non-errors, as they are without BAQ. Their mismatches are then exact integer
+ * counts, so the sums (and therefore the recalibration report) do not depend on the order in which the threads happen to
+ * add their observations, and are the same as those of a single-threaded {@link RecalibrationTables}.
+ *
+ * The counts of a read group are allocated the first time that read group is seen in a table, so that unused read
+ * groups in a large header do not cost any memory.
+ */
+public final class ConcurrentRecalibrationTables implements Serializable {
+    private static final long serialVersionUID = 1L;
+
+    private final StandardCovariateList covariates;
+    private final int numReadGroups;
+    private final int qualDimension;
+    private final int eventDimension = EventType.values().length;
+
+    /**
+     * Number of values of the covariate of each table; 1 for the quality score table, unused for the read group table
+     */
+    private final int[] covariateDimensions;
+
+    /**
+     * Counts of each (table, read group) pair, at index table * numReadGroups + readGroup, allocated lazily
+     */
+    private final AtomicReferenceArray<Counts> counts;
+
+    private static final class Counts implements Serializable {
+        private static final long serialVersionUID = 1L;
+
+        private final AtomicLongArray observations;
+        private final AtomicLongArray mismatches;
+
+        private Counts(final int size) {
+            observations = new AtomicLongArray(size);
+            mismatches = new AtomicLongArray(size);
+        }
+    }
+
+    public ConcurrentRecalibrationTables(final StandardCovariateList covariates, final int numReadGroups) {
+        Utils.nonNull(covariates);
+        Utils.validateArg(numReadGroups > 0, "numReadGroups must be > 0");
+        this.covariates = covariates;
+        this.numReadGroups = numReadGroups;
+        this.qualDimension = covariates.getQualityScoreCovariate().maximumKeyValue() + 1;
+
+        covariateDimensions = new int[covariates.size()];
+        covariateDimensions[1] = 1;
+        for ( int i = covariates.numberOfSpecialCovariates(); i < covariates.size(); i++ ) {
+            covariateDimensions[i] = covariates.get(i).maximumKeyValue() + 1;
+        }
+        counts = new AtomicReferenceArray<>(covariates.size() * numReadGroups);
+    }
+
+    /**
+     * Adds one observation to the quality score table. Safe to call from multiple threads.
+     *
+     * @param readGroupKey read group key of the observation
+     * @param qualKey quality score key (the reported quality) of the observation
+     * @param eventIndex ordinal of the {@link EventType} of the observation
+     * @param isError whether the observation is an error
+     */
+    public void incrementQualityScoreTable(final int readGroupKey, final int qualKey, final int eventIndex, final boolean isError) {
+        increment(1, readGroupKey, qualKey, 0, eventIndex, isError);
+    }
+
+    /**
+     * Adds one observation to the table of an additional covariate. Safe to call from multiple threads.
+     *
+     * @param covariateIndex index of the covariate in the {@link StandardCovariateList}, must be an additional covariate
+     * @param readGroupKey read group key of the observation
+     * @param qualKey quality score key (the reported quality) of the observation
+     * @param covariateKey key of the covariate value of the observation
+     * @param eventIndex ordinal of the {@link EventType} of the observation
+     * @param isError whether the observation is an error
+     */
+    public void incrementAdditionalTable(final int covariateIndex, final int readGroupKey, final int qualKey, final int covariateKey, final int eventIndex, final boolean isError) {
+        increment(covariateIndex, readGroupKey, qualKey, covariateKey, eventIndex, isError);
+    }
+
+    private void increment(final int tableIndex, final int readGroupKey, final int qualKey, final int covariateKey, final int eventIndex, final boolean isError) {
+        final Counts tableCounts = getOrCreateCounts(tableIndex, readGroupKey);
+        final int index = (qualKey * covariateDimensions[tableIndex] + covariateKey) * eventDimension + eventIndex;
+        tableCounts.observations.incrementAndGet(index);
+        if ( isError ) {
+            tableCounts.mismatches.incrementAndGet(index);
+        }
+    }
+
+    private Counts getOrCreateCounts(final int tableIndex, final int readGroupKey) {
+        final int countsIndex = tableIndex * numReadGroups + readGroupKey;
+        final Counts existing = counts.get(countsIndex);
+        if ( existing != null ) {
+            return existing;
+        }
+        // several threads may race to allocate the same counts; only the first one to get there wins
+        counts.compareAndSet(countsIndex, null, new Counts(qualDimension * covariateDimensions[tableIndex] * eventDimension));
+        return counts.get(countsIndex);
+    }
+
+    /**
+     * Folds the counts into a new set of {@link RecalibrationTables}, with one {@link RecalDatum} per combination of
+     * keys that has at least one observation. The read group table is left empty, to be filled in by
+     * {@link BaseRecalibrationEngine#finalizeRecalibrationTables}.
+     *
+     * Must not be called while other threads are still adding observations.
+     *
+     * @return newly allocated tables with the contents of these counts
+     */
+    public RecalibrationTables toRecalibrationTables() {
+        final RecalibrationTables tables = new RecalibrationTables(covariates, numReadGroups);
+        for ( int tableIndex = 1; tableIndex < covariates.size(); tableIndex++ ) {
+            final NestedIntegerArray<RecalDatum> table = tables.getTable(tableIndex);
+            final int covariateDimension = covariateDimensions[tableIndex];
+            for ( int readGroupKey = 0; readGroupKey < numReadGroups; readGroupKey++ ) {
+                final Counts tableCounts = counts.get(tableIndex * numReadGroups + readGroupKey);
+                if ( tableCounts == null ) {
+                    continue;
+                }
+                for ( int index = 0; index < tableCounts.observations.length(); index++ ) {
+                    final long numObservations = tableCounts.observations.get(index);
+                    if ( numObservations == 0 ) {
+                        continue;
+                    }
+                    final int eventIndex = index % eventDimension;
+                    final int covariateKey = (index / eventDimension) % covariateDimension;
+                    final int qual = index / eventDimension / covariateDimension;
+                    final RecalDatum datum = new RecalDatum(numObservations, tableCounts.mismatches.get(index), (byte) qual);
+                    if ( tableIndex == 1 ) {
+                        table.put(datum, readGroupKey, qual, eventIndex);
+                    } else {
+                        table.put(datum, readGroupKey, qual, covariateKey, eventIndex);
+                    }
+                }
+            }
+        }
+        return tables;
+    }
+}
@@ -51,8 +51,8 @@ public interface SmithWatermanAligner extends Closeable {
                 logger.info("Using AVX accelerated SmithWaterman implementation");
                 return aligner;
             } catch (UserException.HardwareFeatureException exception) {
-                logger.info("AVX accelerated SmithWaterman implementation is not supported, falling back to the Java implementation");
-                return SmithWatermanJavaAligner.getInstance();
+                logger.info("AVX accelerated SmithWaterman implementation is not supported, falling back to the banded Java implementation");
+                return SmithWatermanBandedAligner.getInstance();
             }
         }),
 
@@ -69,7 +69,13 @@ public interface SmithWatermanAligner extends Closeable {
         /**
          * use the pure java implementation of Smith-Waterman, works on all hardware
          */
-        JAVA(SmithWatermanJavaAligner::getInstance);
+        JAVA(SmithWatermanJavaAligner::getInstance),
+
+        /**
+         * use the pure java implementation of Smith-Waterman with reusable buffers and banding of near-identical
+         * sequences, works on all hardware and produces the same alignments as {@link #JAVA}
+         */
+        BANDED_JAVA(SmithWatermanBandedAligner::getInstance);
 
         private final Supplier<SmithWatermanAligner> alignerSupplier;
 
@@ -0,0 +1,571 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import com.google.common.annotations.VisibleForTesting;
+import htsjdk.samtools.Cigar;
+import htsjdk.samtools.CigarElement;
+import htsjdk.samtools.CigarOperator;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.AlignmentUtils;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Pairwise discrete smith-waterman alignment implemented in pure java, producing exactly the same alignments as
+ * {@link SmithWatermanJavaAligner} with much less allocation and, for near-identical sequences, much less work.
+ *
+ * The differences with {@link SmithWatermanJavaAligner} are:
+ *
+ * - only the back track matrix is kept; scores are kept for two rolling rows, the rightmost column and the bottom row.
+ *   All of these are flat arrays kept per thread and reused (grown as needed) across calls, instead of two freshly
+ *   allocated int[n][m] per call.
+ * - the horizontal gap state is kept in locals rather than in a per-row array.
+ * - with the {@link SWOverhangStrategy#INDEL}, {@link SWOverhangStrategy#SOFTCLIP} and {@link SWOverhangStrategy#IGNORE}
+ *   overhang strategies, only a band of diagonals around the diagonals joining the corners of the matrices is computed
+ *   at first. The banded alignment is returned only if its score proves that no path leaving the band could score as
+ *   high (see {@link #bandedAlignmentIsExact}), in which case it is identical to the full alignment, ties included;
+ *   otherwise the full matrices are computed.
+ *
+ * ************************************************************************
+ * ****                    IMPORTANT NOTE:                             ****
+ * ****  This class assumes that all bytes come from UPPERCASED chars! ****
+ * ************************************************************************
+ */
+public final class SmithWatermanBandedAligner implements SmithWatermanAligner {
+    private static final SmithWatermanBandedAligner ALIGNER = new SmithWatermanBandedAligner();
+
+    /**
+     * Number of diagonals computed on either side of the diagonals joining the corners of the matrices in banded mode
+     */
+    @VisibleForTesting
+    static final int BAND_HALF_WIDTH = 32;
+
+    private static final int MATRIX_MIN_CUTOFF = (int) -1.0e8;   // never let matrix elements drop below this cutoff
+    private static final int LOW_INIT_VALUE = Integer.MIN_VALUE / 2;
+
+    private static final ThreadLocal<Scratch> SCRATCH = ThreadLocal.withInitial(Scratch::new);
+
+    private final LongAdder totalComputeTime = new LongAdder();
+    private final LongAdder bandedAlignments = new LongAdder();
+    private final LongAdder fullAlignments = new LongAdder();
+
+    /**
+     * The state of a trace step through the matrix
+     */
+    private enum State {
+        MATCH,
+        INSERTION,
+        DELETION,
+        CLIP
+    }
+
+    /**
+     * Per-thread buffers, grown as needed and never shrunk
+     */
+    private static final class Scratch {
+        private int[] btrack = new int[0];
+        private int[] bestGapV = new int[0];
+        private int[] gapSizeV = new int[0];
+        private int[] rowA = new int[0];
+        private int[] rowB = new int[0];
+        private int[] lastColumn = new int[0];
+
+        private int[] btrack(final int size) {
+            if ( btrack.length < size ) {
+                btrack = new int[size];
+            }
+            return btrack;
+        }
+
+        private void ensureCapacity(final int nrow, final int ncol) {
+            if ( bestGapV.length < ncol ) {
+                bestGapV = new int[ncol];
+                gapSizeV = new int[ncol];
+                rowA = new int[ncol];
+                rowB = new int[ncol];
+            }
+            if ( lastColumn.length < nrow ) {
+                lastColumn = new int[nrow];
+            }
+        }
+    }
+
+    /**
+     * What the back track needs from a (banded or full) matrix computation: the back track matrix, stored for the band
+     * of diagonals j - i in [lowDiagonal, highDiagonal] with cell (i, j) at i * btrackStride + j + btrackOffset, and the
+     * scores of the rightmost column and of the bottom row, where alignments may end.
+     */
+    private static final class Matrices {
+        private final int refLength;
+        private final int altLength;
+        private final int lowDiagonal;
+        private final int highDiagonal;
+        private final int[] btrack;
+        private final int btrackStride;
+        private final int btrackOffset;
+        private final int[] lastColumn;
+        private final int[] bottomRow;
+
+        private Matrices(final int refLength, final int altLength, final int lowDiagonal, final int highDiagonal, final int[] btrack,
+                         final int btrackStride, final int btrackOffset, final int[] lastColumn, final int[] bottomRow) {
+            this.refLength = refLength;
+            this.altLength = altLength;
+            this.lowDiagonal = lowDiagonal;
+            this.highDiagonal = highDiagonal;
+            this.btrack = btrack;
+            this.btrackStride = btrackStride;
+            this.btrackOffset = btrackOffset;
+            this.lastColumn = lastColumn;
+            this.bottomRow = bottomRow;
+        }
+
+        private int btrack(final int i, final int j) {
+            return btrack[i * btrackStride + j + btrackOffset];
+        }
+
+        /**
+         * @return the score of cell (i, j), which must be in the rightmost column or in the bottom row
+         */
+        private int endScore(final int i, final int j) {
+            return j == altLength ? lastColumn[i] : bottomRow[j];
+        }
+    }
+
+    /**
+     * return the stateless singleton instance of SmithWatermanBandedAligner
+     */
+    public static SmithWatermanBandedAligner getInstance() {
+        return ALIGNER;
+    }
+
+    private SmithWatermanBandedAligner(){}
+
+    /**
+     * Aligns the alternate sequence to the reference sequence
+     *
+     * @param reference  ref sequence
+     * @param alternate  alt sequence
+     */
+    @Override
+    public SmithWatermanAlignment align(final byte[] reference, final byte[] alternate, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
+        final long startTime = System.nanoTime();
+
+        if ( reference == null || reference.length == 0 || alternate == null || alternate.length == 0 ) {
+            throw new IllegalArgumentException("Non-null, non-empty sequences are required for the Smith-Waterman calculation");
+        }
+        Utils.nonNull(parameters);
+        Utils.nonNull(overhangStrategy);
+
+        // avoid running full Smith-Waterman if there is an exact match of alternate in reference
+        int matchIndex = -1;
+        if (overhangStrategy == SWOverhangStrategy.SOFTCLIP || overhangStrategy == SWOverhangStrategy.IGNORE) {
+            // Use a substring search to find an exact match of the alternate in the reference
+            // NOTE: This approach only works for SOFTCLIP and IGNORE overhang strategies
+            matchIndex = Utils.lastIndexOf(reference, alternate);
+        }
+
+        SmithWatermanAlignment alignmentResult = null;
+        if (matchIndex != -1) {
+            // generate the alignment result when the substring search was successful
+            final List<CigarElement> lce = new ArrayList<>(1);
+            lce.add(makeElement(State.MATCH, alternate.length));
+            alignmentResult = new SWPairwiseAlignmentResult(AlignmentUtils.consolidateCigar(new Cigar(lce)), matchIndex);
+        } else {
+            final Scratch scratch = SCRATCH.get();
+            if ( bandingApplies(reference.length, alternate.length, parameters, overhangStrategy) ) {
+                final Matrices banded = calculateMatrices(reference, alternate, parameters, overhangStrategy, scratch, true);
+                final int[] end = findAlignmentEnd(banded, overhangStrategy);
+                if ( bandedAlignmentIsExact(banded, banded.endScore(end[0], end[1]), parameters, overhangStrategy) ) {
+                    alignmentResult = calculateCigar(banded, end, overhangStrategy);
+                }
+            }
+            if ( alignmentResult != null ) {
+                bandedAlignments.increment();
+            } else {
+                fullAlignments.increment();
+                final Matrices full = calculateMatrices(reference, alternate, parameters, overhangStrategy, scratch, false);
+                alignmentResult = calculateCigar(full, findAlignmentEnd(full, overhangStrategy), overhangStrategy);
+            }
+        }
+
+        totalComputeTime.add(System.nanoTime() - startTime);
+        return alignmentResult;
+    }
+
+    /**
+     * @return true if a banded alignment should be attempted: the overhang strategy allows it, the band is much
+     *         narrower than the matrices, gaps are penalized, and no score can reach {@link #MATRIX_MIN_CUTOFF},
+     *         below which the bounds of {@link #bandedAlignmentIsExact} would not hold.
+     */
+    private static boolean bandingApplies(final int refLength, final int altLength, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
+        if ( overhangStrategy == SWOverhangStrategy.LEADING_INDEL ) {
+            return false;
+        }
+        if ( parameters.getGapOpenPenalty() > 0 || parameters.getGapExtendPenalty() > 0 ) {
+            return false;
+        }
+        final int bandWidth = Math.abs(altLength - refLength) + 2 * BAND_HALF_WIDTH + 1;
+        if ( 2L * bandWidth > altLength ) {
+            return false;
+        }
+        final long maxPenaltyPerBase = (long)Math.abs(parameters.getGapExtendPenalty()) + Math.abs(parameters.getMismatchPenalty()) + Math.abs(parameters.getMatchValue());
+        return Math.abs((long)parameters.getGapOpenPenalty()) + (refLength + altLength + 2L) * maxPenaltyPerBase < -(long)MATRIX_MIN_CUTOFF;
+    }
+
+    /**
+     * Fills in the back track matrix, the rightmost column and the bottom row of the score matrix, over a band of
+     * diagonals or over the full matrices. The recurrence is exactly that of {@link SmithWatermanJavaAligner}, with
+     * the cells outside of the band holding {@link #LOW_INIT_VALUE}.
+     *
+     * @param banded if true, only compute the cells with diagonal j - i in [min(0, altLength - refLength) - {@link #BAND_HALF_WIDTH},
+     *               max(0, altLength - refLength) + {@link #BAND_HALF_WIDTH}]
+     */
+    private static Matrices calculateMatrices(final byte[] reference, final byte[] alternate, final SWParameters parameters,
+                                              final SWOverhangStrategy overhangStrategy, final Scratch scratch, final boolean banded) {
+        final int refLength = reference.length;
+        final int altLength = alternate.length;
+        final int nrow = refLength + 1;
+        final int ncol = altLength + 1;
+        final int lowDiagonal = banded ? Math.min(0, altLength - refLength) - BAND_HALF_WIDTH : -refLength;
+        final int highDiagonal = banded ? Math.max(0, altLength - refLength) + BAND_HALF_WIDTH : altLength;
+        // in banded mode each row of the back track matrix only holds the band
+        final int btrackStride = banded ? highDiagonal - lowDiagonal : ncol;
+        final int btrackOffset = banded ? -lowDiagonal : 0;
+        final int[] btrack = scratch.btrack(nrow * (banded ? highDiagonal - lowDiagonal + 1 : ncol));
+
+        scratch.ensureCapacity(nrow, ncol);
+        final int[] bestGapV = scratch.bestGapV;
+        final int[] gapSizeV = scratch.gapSizeV;
+        final int[] lastColumn = scratch.lastColumn;
+        Arrays.fill(bestGapV, 0, ncol, LOW_INIT_VALUE);
+        Arrays.fill(gapSizeV, 0, ncol, 0);
+
+        //access is pricey if done enough times so we extract those out
+        final int w_open = parameters.getGapOpenPenalty();
+        final int w_extend = parameters.getGapExtendPenalty();
+        final int w_match = parameters.getMatchValue();
+        final int w_mismatch = parameters.getMismatchPenalty();
+
+        // we need to initialize the first row and column with gap penalties if we want to keep track of indels at the edges of alignments
+        final boolean penalizeEdges = overhangStrategy == SWOverhangStrategy.INDEL || overhangStrategy == SWOverhangStrategy.LEADING_INDEL;
+        int[] lastRow = scratch.rowA;
+        int[] curRow = scratch.rowB;
+        Arrays.fill(lastRow, 0, ncol, LOW_INIT_VALUE);
+        Arrays.fill(curRow, 0, ncol, LOW_INIT_VALUE);
+        lastRow[0] = 0;
+        for ( int j = 1, value = w_open; j <= Math.min(altLength, highDiagonal); j++, value += w_extend ) {
+            lastRow[j] = penalizeEdges ? value : 0;
+        }
+
+        for ( int i = 1; i < nrow; i++ ) {
+            final byte a_base = reference[i - 1]; // letter in a at the current pos
+            final int firstColumn = Math.max(1, i + lowDiagonal);
+            final int lastColumnInBand = Math.min(altLength, i + highDiagonal);
+            final int btrackRow = i * btrackStride + btrackOffset;
+
+            if ( banded ) {
+                // clear what the row two rows up left in its band, so that the cells next to this row's band read low
+                Arrays.fill(curRow, Math.max(0, i - 2 + lowDiagonal), Math.min(ncol, i + highDiagonal + 1), LOW_INIT_VALUE);
+            }
+            curRow[0] = -i < lowDiagonal ? LOW_INIT_VALUE : (penalizeEdges ? w_open + (i - 1) * w_extend : 0);
+
+            // the horizontal gap state only lives within a row
+            int bestGapH = LOW_INIT_VALUE;
+            int gapSizeH = 0;
+            for ( int j = firstColumn; j <= lastColumnInBand; j++ ) {
+                final int step_diag = lastRow[j - 1] + (a_base == alternate[j - 1] ? w_match : w_mismatch);
+
+                // best gap ending here from above (the optimization only holds for linear w(k)=wopen+(k-1)*wextend)
+                int prev_gap = lastRow[j] + w_open;
+                bestGapV[j] += w_extend;
+                if ( prev_gap > bestGapV[j] ) {
+                    bestGapV[j] = prev_gap;
+                    gapSizeV[j] = 1;
+                } else {
+                    gapSizeV[j]++;
+                }
+                final int step_down = bestGapV[j];
+
+                // best gap ending here from the left
+                prev_gap = curRow[j - 1] + w_open;
+                bestGapH += w_extend;
+                if ( prev_gap > bestGapH ) {
+                    bestGapH = prev_gap;
+                    gapSizeH = 1;
+                } else {
+                    gapSizeH++;
+                }
+                final int step_right = bestGapH;
+
+                //priority here will be step diagonal, step right, step down
+                if ( step_diag >= step_down && step_diag >= step_right ) {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_diag);
+                    btrack[btrackRow + j] = 0;
+                } else if ( step_right >= step_down ) {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_right);
+                    btrack[btrackRow + j] = -gapSizeH; // negative = horizontal
+                } else {
+                    curRow[j] = Math.max(MATRIX_MIN_CUTOFF, step_down);
+                    btrack[btrackRow + j] = gapSizeV[j]; // positive = vertical
+                }
+            }
+            lastColumn[i] = curRow[altLength];
+
+            final int[] previousRow = lastRow;
+            lastRow = curRow;
+            curRow = previousRow;
+        }
+
+        return new Matrices(refLength, altLength, lowDiagonal, highDiagonal, btrack, btrackStride, btrackOffset, lastColumn, lastRow);
+    }
+
+    /**
+     * Finds the cell to start backtracking from, exactly as {@link SmithWatermanJavaAligner}
+     *
+     * @return the row and column of the cell
+     */
+    private static int[] findAlignmentEnd(final Matrices matrices, final SWOverhangStrategy overhangStrategy) {
+        final int refLength = matrices.refLength;
+        final int altLength = matrices.altLength;
+
+        // if we want to consider overhangs as legitimate operators, then just start from the corner of the matrix
+        if ( overhangStrategy == SWOverhangStrategy.INDEL ) {
+            return new int[]{refLength, altLength};
+        }
+
+        // look for the largest score on the rightmost column. we use >= combined with the traversal direction
+        // to ensure that if two scores are equal, the one closer to diagonal gets picked
+        int p1 = 0;
+        int p2 = altLength;
+        int maxscore = Integer.MIN_VALUE; // sw scores are allowed to be negative
+        for ( int i = 1; i <= refLength; i++ ) {
+            final int curScore = matrices.lastColumn[i];
+            if ( curScore >= maxscore ) {
+                p1 = i;
+                maxscore = curScore;
+            }
+        }
+        // now look for a larger score on the bottom-most row
+        if ( overhangStrategy != SWOverhangStrategy.LEADING_INDEL ) {
+            for ( int j = 1; j <= altLength; j++ ) {
+                final int curScore = matrices.bottomRow[j];
+                if ( curScore > maxscore ||
+                        (curScore == maxscore && Math.abs(refLength - j) < Math.abs(p1 - p2)) ) {
+                    p1 = refLength;
+                    p2 = j;
+                    maxscore = curScore;
+                }
+            }
+        }
+        return new int[]{p1, p2};
+    }
+
+    /**
+     * A banded alignment is identical to the full one if every path that visits a cell outside of the band, and ends
+     * at a cell where the alignment may end, scores strictly less than the banded alignment. Then every such end cell
+     * scoring at least as much as the banded alignment has the same score in the banded and in the full matrices, so
+     * the same end cell is picked, and so do the cells on the alignment and all the gaps and steps competing with it,
+     * so the back track makes the same choices, ties included.
+     *
+     * @param score score of the banded alignment
+     */
+    private static boolean bandedAlignmentIsExact(final Matrices banded, final int score, final SWParameters parameters, final SWOverhangStrategy overhangStrategy) {
+        if ( overhangStrategy == SWOverhangStrategy.INDEL ) {
+            return score > maxGlobalScoreOutsideBand(banded, parameters);
+        }
+        for ( int i = 1; i <= banded.refLength; i++ ) {
+            if ( score <= maxLocalScoreOutsideBand(i, banded.altLength, banded, parameters) ) {
+                return false;
+            }
+        }
+        for ( int j = 1; j < banded.altLength; j++ ) {
+            if ( score <= maxLocalScoreOutsideBand(banded.refLength, j, banded, parameters) ) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Upper bound on the score of any path from corner to corner (as with the {@link SWOverhangStrategy#INDEL} overhang
+     * strategy) that visits a cell outside of the band.
+     *
+     * Such a path has to both insert at least highDiagonal + 1 and delete at least 1 - lowDiagonal bases, which leaves
+     * at most min(refLength - deleted, altLength - inserted) diagonal steps.
+     */
+    private static long maxGlobalScoreOutsideBand(final Matrices banded, final SWParameters parameters) {
+        final long minInserted = banded.highDiagonal + 1L;
+        final long minDeleted = 1L - banded.lowDiagonal;
+        final long diagonalSteps = Math.min(banded.refLength - minDeleted, banded.altLength - minInserted);
+        if ( diagonalSteps < 0 ) {
+            // no path can leave the band
+            return Long.MIN_VALUE;
+        }
+        return diagonalSteps * maxDiagonalScore(parameters) + maxGapScore(minInserted, parameters) + maxGapScore(minDeleted, parameters);
+    }
+
+    /**
+     * Upper bound on the score of any path ending at cell (i, j) that visits a cell outside of the band, when paths
+     * may start anywhere on the first row or column (as with the {@link SWOverhangStrategy#SOFTCLIP} and
+     * {@link SWOverhangStrategy#IGNORE} overhang strategies).
+     *
+     * A path with k inserted or deleted bases in total has at most (i + j - k) / 2 diagonal steps. Cells outside of the
+     * band may be reached without any gap, but a path ending inside of the band after leaving it has to cross at least
+     * as many diagonals as separate (i, j) from the nearest diagonal outside of the band.
+     */
+    private static long maxLocalScoreOutsideBand(final int i, final int j, final Matrices banded, final SWParameters parameters) {
+        final int diagonal = j - i;
+        if ( diagonal < banded.lowDiagonal || diagonal > banded.highDiagonal ) {
+            return maxDiagonalScore(parameters) * Math.min(i, j);
+        }
+        final long minGapLength = Math.min(diagonal - banded.lowDiagonal + 1, banded.highDiagonal - diagonal + 1);
+        if ( i + j < minGapLength ) {
+            // no path can leave the band
+            return Long.MIN_VALUE;
+        }
+        return maxDiagonalScore(parameters) * ((i + j - minGapLength) / 2) + maxGapScore(minGapLength, parameters);
+    }
+
+    private static long maxDiagonalScore(final SWParameters parameters) {
+        return Math.max(0, Math.max(parameters.getMatchValue(), parameters.getMismatchPenalty()));
+    }
+
+    /**
+     * @return the highest score of one or more gaps of the given total length
+     */
+    private static long maxGapScore(final long totalLength, final SWParameters parameters) {
+        final long open = parameters.getGapOpenPenalty();
+        final long extend = parameters.getGapExtendPenalty();
+        return open <= extend ? open + (totalLength - 1) * extend : totalLength * open;
+    }
+
+    /*
+     * Class to store the result of calculating the CIGAR from the back track matrix
+     */
+    private static final class SWPairwiseAlignmentResult implements SmithWatermanAlignment {
+        private final Cigar cigar;
+        private final int alignmentOffset;
+
+        SWPairwiseAlignmentResult(final Cigar cigar, final int alignmentOffset) {
+            this.cigar = cigar;
+            this.alignmentOffset = alignmentOffset;
+        }
+
+        @Override
+        public Cigar getCigar() {
+            return cigar;
+        }
+
+        @Override
+        public int getAlignmentOffset() {
+            return alignmentOffset;
+        }
+    }
+
+    /**
+     * Calculates the CIGAR for the alignment from the back track matrix, exactly as {@link SmithWatermanJavaAligner}
+     *
+     * @param matrices             the matrices to use
+     * @param end                  the row and column of the cell to start backtracking from
+     * @param overhangStrategy    the strategy to use for dealing with overhangs
+     * @return non-null SWPairwiseAlignmentResult object
+     */
+    private static SWPairwiseAlignmentResult calculateCigar(final Matrices matrices, final int[] end, final SWOverhangStrategy overhangStrategy) {
+        // p holds the position we start backtracking from; we will be assembling a cigar in the backwards order
+        int p1 = end[0];
+        int p2 = end[1];
+        // length of the segment (continuous matches, insertions or deletions); the end of sequence 2 may be overhanging,
+        // in which case we will just record it as 'M' segment
+        int segment_length = matrices.altLength - p2;
+
+        final List<CigarElement> lce = new ArrayList<>(5);
+        if ( segment_length > 0 && overhangStrategy == SWOverhangStrategy.SOFTCLIP ) {
+            lce.add(makeElement(State.CLIP, segment_length));
+            segment_length = 0;
+        }
+
+        // we will be placing all insertions and deletions into sequence b, so the states are named w/regard
+        // to that sequence
+        State state = State.MATCH;
+        do {
+            final int btr = matrices.btrack(p1, p2);
+            final State new_state;
+            int step_length = 1;
+            if ( btr > 0 ) {
+                new_state = State.DELETION;
+                step_length = btr;
+            } else if ( btr < 0 ) {
+                new_state = State.INSERTION;
+                step_length = (-btr);
+            } else new_state = State.MATCH; // and step_length =1, already set above
+
+            // move to next best location in the sw matrix:
+            switch( new_state ) {
+                case MATCH:  p1--; p2--; break; // move back along the diag in the sw matrix
+                case INSERTION: p2 -= step_length; break; // move left
+                case DELETION:  p1 -= step_length; break; // move up
+            }
+
+            // now let's see if the state actually changed:
+            if ( new_state == state ) segment_length+=step_length;
+            else {
+                // state changed, lets emit previous segment, whatever it was (Insertion Deletion, or (Mis)Match).
+                lce.add(makeElement(state, segment_length));
+                segment_length = step_length;
+                state = new_state;
+            }
+        } while ( p1 > 0 && p2 > 0 );
+
+        // post-process the last segment we are still keeping (see SmithWatermanJavaAligner for the overhang conventions)
+        final int alignment_offset;
+        if ( overhangStrategy == SWOverhangStrategy.SOFTCLIP ) {
+            lce.add(makeElement(state, segment_length));
+            if ( p2 > 0 ) lce.add(makeElement(State.CLIP, p2));
+            alignment_offset = p1;
+        } else if ( overhangStrategy == SWOverhangStrategy.IGNORE ) {
+            lce.add(makeElement(state, segment_length + p2));
+            alignment_offset = p1 - p2;
+        } else {  // overhangStrategy == OverhangStrategy.INDEL || overhangStrategy == OverhangStrategy.LEADING_INDEL
+            lce.add(makeElement(state, segment_length));
+            if ( p1 > 0 ) {
+                lce.add(makeElement(State.DELETION, p1));
+            } else if ( p2 > 0 ) {
+                lce.add(makeElement(State.INSERTION, p2));
+            }
+            alignment_offset = 0;
+        }
+
+        Collections.reverse(lce);
+        return new SWPairwiseAlignmentResult(AlignmentUtils.consolidateCigar(new Cigar(lce)), alignment_offset);
+    }
+
+    private static CigarElement makeElement(final State state, final int length) {
+        CigarOperator op = null;
+        switch (state) {
+            case MATCH: op = CigarOperator.M; break;
+            case INSERTION: op = CigarOperator.I; break;
+            case DELETION: op = CigarOperator.D; break;
+            case CLIP: op = CigarOperator.S; break;
+        }
+        return new CigarElement(length, op);
+    }
+
+    /**
+     * @return the number of alignments computed over a band of the matrices only
+     */
+    @VisibleForTesting
+    long getNumBandedAlignments() {
+        return bandedAlignments.sum();
+    }
+
+    @Override
+    public void close() {
+        logger.info(String.format("Total compute time in banded java Smith-Waterman : %.2f sec (%d banded and %d full alignments)",
+                totalComputeTime.sum() * 1e-9, bandedAlignments.sum(), fullAlignments.sum()));
+    }
+}
@@ -0,0 +1,354 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import htsjdk.samtools.util.Locatable;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.gcs.BucketUtils;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A precomputed index of known sites of variation, memory-mapped from a local file rather than parsed into objects on
+ * the heap. Opening one costs neither the parse time of the VCFs the sites came from nor their heap footprint, and the
+ * pages of the file are shared by all the processes of a machine that map it.
+ *
+ * For each contig the index holds the starts, ends and types (SNP or indel) of its sites in packed arrays sorted by start.
+ * Sites longer than {@link #MAX_SHORT_SITE_LENGTH} are kept apart, with the running maximum of their ends, so that the
+ * odd long deletion does not widen the search for the sites overlapping every query.
+ *
+ * Indexes are made with a {@link Builder}, such as the CreateKnownSitesIndex tool uses to index VCFs.
+ * Queries are thread-safe.
+ */
+public final class KnownSitesIndex {
+    public static final String FILE_EXTENSION = ".ksi";
+
+    static final int MAX_SHORT_SITE_LENGTH = 1000;
+
+    private static final int MAGIC = 0x4b534931; // "KSI1"
+    private static final int VERSION = 1;
+    private static final byte SNP = 1;
+    private static final byte INDEL = 2;
+
+    private final Map<String, ContigSites> contigs;
+    private final long size;
+
+    private KnownSitesIndex(final Map<String, ContigSites> contigs) {
+        this.contigs = contigs;
+        this.size = contigs.values().stream().mapToLong(sites -> sites.size() + sites.longSize()).sum();
+    }
+
+    /**
+     * Map an index. An index on remote storage is first copied to a local temporary file, which is deleted on exit.
+     *
+     * @param path the path of the index
+     * @return the index, ready to query
+     */
+    public static KnownSitesIndex open(final String path) {
+        Utils.nonNull(path);
+        try {
+            final Path localPath;
+            if (BucketUtils.isRemoteStorageUrl(path)) {
+                final File localCopy = IOUtils.createTempFile("knownSites", FILE_EXTENSION);
+                try (final InputStream in = BucketUtils.openFile(path)) {
+                    Files.copy(in, localCopy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+                }
+                localPath = localCopy.toPath();
+            } else {
+                localPath = IOUtils.getPath(path);
+            }
+            try (final FileChannel channel = FileChannel.open(localPath, StandardOpenOption.READ)) {
+                return new KnownSitesIndex(mapContigs(path, channel));
+            }
+        } catch (final IOException e) {
+            throw new UserException.CouldNotReadInputFile("Could not map the known sites index " + path, e);
+        }
+    }
+
+    private static Map<String, ContigSites> mapContigs(final String path, final FileChannel channel) throws IOException {
+        final ByteBuffer preamble = ByteBuffer.allocate(3 * Integer.BYTES);
+        readFully(channel, preamble, 0);
+        if (preamble.getInt(0) != MAGIC || preamble.getInt(Integer.BYTES) != VERSION) {
+            throw new UserException.MalformedFile(path + " is not a known sites index of version " + VERSION);
+        }
+        final ByteBuffer header = ByteBuffer.allocate(preamble.getInt(2 * Integer.BYTES));
+        readFully(channel, header, preamble.capacity());
+
+        final Map<String, ContigSites> contigs = new HashMap<>();
+        long offset = preamble.capacity() + header.capacity();
+        try (final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()))) {
+            final int numContigs = in.readInt();
+            for (int i = 0; i < numContigs; i++) {
+                final ContigSites sites = new ContigSites(in.readUTF(), in.readInt());
+                final int numShort = in.readInt();
+                final int numLong = in.readInt();
+                sites.starts = mapInts(channel, offset, numShort);
+                sites.ends = mapInts(channel, offset += (long) numShort * Integer.BYTES, numShort);
+                sites.types = mapBytes(channel, offset += (long) numShort * Integer.BYTES, numShort);
+                sites.longStarts = mapInts(channel, offset += numShort, numLong);
+                sites.longEnds = mapInts(channel, offset += (long) numLong * Integer.BYTES, numLong);
+                sites.longReaches = mapInts(channel, offset += (long) numLong * Integer.BYTES, numLong);
+                sites.longTypes = mapBytes(channel, offset += (long) numLong * Integer.BYTES, numLong);
+                offset += numLong;
+                contigs.put(sites.contig, sites);
+            }
+        }
+        if (offset != channel.size()) {
+            throw new UserException.MalformedFile(path + " is truncated or has trailing data");
+        }
+        return contigs;
+    }
+
+    private static void readFully(final FileChannel channel, final ByteBuffer buffer, final long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new IOException("unexpected end of file");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static IntBuffer mapInts(final FileChannel channel, final long offset, final int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, (long) length * Integer.BYTES).asIntBuffer();
+    }
+
+    private static ByteBuffer mapBytes(final FileChannel channel, final long offset, final int length) throws IOException {
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset, length);
+    }
+
+    /**
+     * @return the number of sites in this index
+     */
+    public long size() {
+        return size;
+    }
+
+    /**
+     * Returns all the sites that overlap the query, sorted by start and then end. You may modify the returned list.
+     */
+    public List<GATKVariant> getOverlapping(final SimpleInterval query) {
+        Utils.nonNull(query);
+        final List<GATKVariant> result = new ArrayList<>();
+        final ContigSites sites = contigs.get(query.getContig());
+        if (sites != null) {
+            sites.addOverlapping(query.getStart(), query.getEnd(), result);
+        }
+        return result;
+    }
+
+    private static GATKVariant makeSite(final String contig, final int start, final int end, final byte type) {
+        return new MinimalVariant(new SimpleInterval(contig, start, end), (type & SNP) != 0, (type & INDEL) != 0);
+    }
+
+    /**
+     * The mapped sites of one contig, which are only read with absolute gets, so that queries need no synchronization
+     */
+    private static final class ContigSites {
+        private final String contig;
+        private final int maxShortLength;
+        private IntBuffer starts;
+        private IntBuffer ends;
+        private ByteBuffer types;
+        private IntBuffer longStarts;
+        private IntBuffer longEnds;
+        private IntBuffer longReaches; // the max end of the long sites up to each one, which never decreases
+        private ByteBuffer longTypes;
+
+        private ContigSites(final String contig, final int maxShortLength) {
+            this.contig = contig;
+            this.maxShortLength = maxShortLength;
+        }
+
+        private int size() {
+            return starts.limit();
+        }
+
+        private int longSize() {
+            return longStarts.limit();
+        }
+
+        private void addOverlapping(final int start, final int end, final List<GATKVariant> result) {
+            // a short site ending at or after start cannot start more than maxShortLength - 1 bases before it
+            for (int i = firstAtLeast(starts, start - maxShortLength + 1); i < size() && starts.get(i) <= end; i++) {
+                if (ends.get(i) >= start) {
+                    result.add(makeSite(contig, starts.get(i), ends.get(i), types.get(i)));
+                }
+            }
+
+            final int numShortSites = result.size();
+            for (int i = firstAtLeast(longReaches, start); i < longSize() && longStarts.get(i) <= end; i++) {
+                if (longEnds.get(i) >= start) {
+                    result.add(makeSite(contig, longStarts.get(i), longEnds.get(i), longTypes.get(i)));
+                }
+            }
+            if (result.size() > numShortSites && numShortSites > 0) {
+                result.sort(Comparator.comparingInt(GATKVariant::getStart).thenComparingInt(GATKVariant::getEnd));
+            }
+        }
+
+        // the index of the first value that is at least min in sorted values, or their number if there is none
+        private static int firstAtLeast(final IntBuffer values, final int min) {
+            int low = 0;
+            int high = values.limit();
+            while (low < high) {
+                final int mid = (low + high) >>> 1;
+                if (values.get(mid) < min) {
+                    low = mid + 1;
+                } else {
+                    high = mid;
+                }
+            }
+            return low;
+        }
+    }
+
+    /**
+     * Collects known sites in any order and writes them as an index. Holds 8 bytes per site until written.
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 1024;
+        private static final int MAX_LENGTH = (1 << 30) - 1;
+
+        // per contig, the sites packed as start << 32 | (end - start) << 2 | type, which sort by start and then end
+        private final Map<String, long[]> contigSites = new LinkedHashMap<>();
+        private final Map<String, Integer> contigSizes = new HashMap<>();
+
+        /**
+         * Add a site of variation
+         */
+        public Builder add(final GATKVariant site) {
+            return add(site, site.isSnp(), site.isIndel());
+        }
+
+        /**
+         * Add a site of variation with the given type
+         */
+        public Builder add(final Locatable site, final boolean isSnp, final boolean isIndel) {
+            Utils.nonNull(site);
+            Utils.validateArg(site.getStart() > 0 && site.getEnd() >= site.getStart() && site.getEnd() - site.getStart() <= MAX_LENGTH,
+                    () -> "cannot index the known site " + new SimpleInterval(site));
+            final String contig = site.getContig();
+            long[] sites = contigSites.get(contig);
+            final int size = contigSizes.getOrDefault(contig, 0);
+            if (sites == null || size == sites.length) {
+                Utils.validate(size < Integer.MAX_VALUE / 2, () -> "too many known sites on " + contig);
+                sites = sites == null ? new long[INITIAL_CAPACITY] : Arrays.copyOf(sites, 2 * size);
+                contigSites.put(contig, sites);
+            }
+            final int type = (isSnp ? SNP : 0) | (isIndel ? INDEL : 0);
+            sites[size] = (long) site.getStart() << 32 | (long) (site.getEnd() - site.getStart()) << 2 | type;
+            contigSizes.put(contig, size + 1);
+            return this;
+        }
+
+        /**
+         * Sort the sites added so far and write them as an index
+         *
+         * @param path where to write the index
+         */
+        public void write(final String path) {
+            final ByteArrayOutputStream header = new ByteArrayOutputStream();
+            try (final DataOutputStream headerOut = new DataOutputStream(header)) {
+                headerOut.writeInt(contigSites.size());
+                for (final Map.Entry<String, long[]> entry : contigSites.entrySet()) {
+                    final long[] sites = entry.getValue();
+                    final int size = contigSizes.get(entry.getKey());
+                    Arrays.sort(sites, 0, size);
+                    int numLong = 0;
+                    int maxShortLength = 0;
+                    for (int i = 0; i < size; i++) {
+                        final int length = length(sites[i]);
+                        if (length > MAX_SHORT_SITE_LENGTH) {
+                            numLong++;
+                        } else {
+                            maxShortLength = Math.max(maxShortLength, length);
+                        }
+                    }
+                    headerOut.writeUTF(entry.getKey());
+                    headerOut.writeInt(maxShortLength);
+                    headerOut.writeInt(size - numLong);
+                    headerOut.writeInt(numLong);
+                }
+            } catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(path, "could not write the known sites index", e);
+            }
+
+            try (final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(BucketUtils.createFile(path)))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(header.size());
+                header.writeTo(out);
+                for (final Map.Entry<String, long[]> entry : contigSites.entrySet()) {
+                    final long[] sites = entry.getValue();
+                    final int size = contigSizes.get(entry.getKey());
+                    writeSites(out, sites, size, false);
+                    writeSites(out, sites, size, true);
+                }
+            } catch (final IOException e) {
+                throw new UserException.CouldNotCreateOutputFile(path, "could not write the known sites index", e);
+            }
+        }
+
+        // write the starts, ends, and for long sites reaches, then types of either the short or the long sites
+        private static void writeSites(final DataOutputStream out, final long[] sites, final int size, final boolean longSites) throws IOException {
+            for (int i = 0; i < size; i++) {
+                if (isLong(sites[i]) == longSites) {
+                    out.writeInt(start(sites[i]));
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                if (isLong(sites[i]) == longSites) {
+                    out.writeInt(start(sites[i]) + length(sites[i]) - 1);
+                }
+            }
+            if (longSites) {
+                int reach = 0;
+                for (int i = 0; i < size; i++) {
+                    if (isLong(sites[i])) {
+                        reach = Math.max(reach, start(sites[i]) + length(sites[i]) - 1);
+                        out.writeInt(reach);
+                    }
+                }
+            }
+            for (int i = 0; i < size; i++) {
+                if (isLong(sites[i]) == longSites) {
+                    out.writeByte((int) (sites[i] & 3));
+                }
+            }
+        }
+
+        private static int start(final long site) {
+            return (int) (site >>> 32);
+        }
+
+        private static int length(final long site) {
+            return (int) ((site >>> 2) & MAX_LENGTH) + 1;
+        }
+
+        private static boolean isLong(final long site) {
+            return length(site) > MAX_SHORT_SITE_LENGTH;
+        }
+    }
+}
@@ -232,6 +232,11 @@ public final class GVCFWriter implements VariantContextWriter {
             sampleName = vc.getGenotype(0).getSampleName();
         }
 
+        if (vc instanceof ReferenceConfidenceSites) {
+            addReferenceConfidenceSites((ReferenceConfidenceSites) vc);
+            return;
+        }
+
         if (currentBlock != null && !currentBlock.isContiguous(vc)) {
             // we've made a non-contiguous step (across interval, onto another chr), so finalize
             emitCurrentBlock();
@@ -254,6 +259,41 @@ public final class GVCFWriter implements VariantContextWriter {
 
     }
 
+    /**
+     * Band the sites of a run one by one, as {@link #add} would their VariantContexts, but only making the
+     * VariantContext of a site when it starts a new block
+     */
+    private void addReferenceConfidenceSites(final ReferenceConfidenceSites sites) {
+        final String contig = sites.getContig();
+        for (int i = 0; i < sites.size(); i++) {
+            final int position = sites.getSitePosition(i);
+            if (currentBlock != null && !currentBlock.isContiguous(contig, position)) {
+                emitCurrentBlock();
+            }
+
+            if (nextAvailableStart != -1) {
+                // don't create blocks while the hom-ref site falls before nextAvailableStart (for deletions)
+                if (position <= nextAvailableStart && contig.equals(contigOfNextAvailableStart)) {
+                    continue;
+                }
+                nextAvailableStart = -1;
+                contigOfNextAvailableStart = null;
+            }
+
+            final int[] pls = sites.getSitePLs(i);
+            if (currentBlock != null
+                    && currentBlock.withinBounds(Math.min(sites.getSiteGQ(i), MAX_GENOTYPE_QUAL))
+                    && currentBlock.getPloidy() == sites.getPloidy()
+                    && (currentBlock.getMinPLs() == null || currentBlock.getMinPLs().length == pls.length)) {
+                currentBlock.add(position, sites.getSiteGQ(i), sites.getSiteDP(i), pls);
+            } else {
+                emitCurrentBlock();
+                final VariantContext siteVC = sites.makeSiteVariantContext(i);
+                currentBlock = createNewBlock(siteVC, siteVC.getGenotype(0));
+            }
+        }
+    }
+
     @Override
     public void setHeader(VCFHeader header) {
         underlyingWriter.setHeader(header);
@@ -14,10 +14,9 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.LinkedHashMap;
-import java.util.List;
 
 /**
  * Helper class for calculating a GQ band in the GVCF writer
@@ -30,10 +29,12 @@ import java.util.List;
 final class HomRefBlock implements Locatable {
 
     private static final int HOM_REF_PL_POSITION = 0;  //the first value in the minPL[] is always the HomRef
+    private static final int INITIAL_DP_CAPACITY = 100;
 
     private final VariantContext startingVC;
     private final int minGQ, maxGQ;
-    private final List<Integer> DPs = new ArrayList<>();
+    private int[] DPs = new int[INITIAL_DP_CAPACITY];
+    private int numDPs = 0;
     private final Allele ref;
     private final int ploidy;
 
@@ -108,26 +109,9 @@ final class HomRefBlock implements Locatable {
     public void add(final int pos, final Genotype genotype) {
         Utils.nonNull(genotype, "genotype cannot be null");
         if ( ! genotype.hasPL() ) { throw new IllegalArgumentException("genotype must have PL field");}
-        if ( pos != end + 1 ) { throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous end " + end); }
         if ( genotype.getPloidy() != ploidy) { throw new IllegalArgumentException("cannot add a genotype with a different ploidy: " + genotype.getPloidy() + " != " + ploidy); }
-        // Make sure the GQ is within the bounds of this band. Treat GQs > 99 as 99.
-        if ( !withinBounds(Math.min(genotype.getGQ(), VCFConstants.MAX_GENOTYPE_QUAL))) {
-            throw new IllegalArgumentException("cannot add a genotype with GQ=" + genotype.getGQ() + " because it's not within bounds ["
-                    + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
-        }
 
-        if( minPLs == null ) {
-            minPLs = genotype.getPL();
-        }
-        else { // otherwise take the min with the provided genotype's PLs
-            final int[] pls = genotype.getPL();
-            if (pls.length != minPLs.length) {
-                throw new GATKException("trying to merge different PL array sizes: " + pls.length + " != " + minPLs.length);
-            }
-            for (int i = 0; i < pls.length; i++) {
-                minPLs[i] = Math.min(minPLs[i], pls[i]);
-            }
-        }
+        add(pos, genotype.getGQ(), genotype.getDP(), genotype.getPL());
 
         if( genotype.hasExtendedAttribute(GATKVCFConstants.PHRED_SCALED_POSTERIORS_KEY)) {
             if (minPPs == null ) {
@@ -143,9 +127,44 @@ final class HomRefBlock implements Locatable {
                 }
             }
         }
+    }
+
+    /**
+     * Add the GQ, DP and PLs of a hom-ref genotype of the ploidy of this band, without posteriors, to this band.
+     *
+     * Treats GQ values > 99 as 99.
+     *
+     * @param pos Current genomic position. Must be 1 base after the previous position
+     * @param gq the GQ of the genotype
+     * @param dp the DP of the genotype, negative if missing
+     * @param pls the non-null PLs of the genotype, which are not modified
+     */
+    public void add(final int pos, final int gq, final int dp, final int[] pls) {
+        Utils.nonNull(pls, "pls cannot be null");
+        if ( pos != end + 1 ) { throw new IllegalArgumentException("adding genotype at pos " + pos + " isn't contiguous with previous end " + end); }
+        // Make sure the GQ is within the bounds of this band. Treat GQs > 99 as 99.
+        if ( !withinBounds(Math.min(gq, VCFConstants.MAX_GENOTYPE_QUAL))) {
+            throw new IllegalArgumentException("cannot add a genotype with GQ=" + gq + " because it's not within bounds ["
+                    + this.getGQLowerBound() + ',' + this.getGQUpperBound() + ')');
+        }
+
+        if( minPLs == null ) {
+            minPLs = pls.clone();
+        }
+        else { // otherwise take the min with the provided genotype's PLs
+            if (pls.length != minPLs.length) {
+                throw new GATKException("trying to merge different PL array sizes: " + pls.length + " != " + minPLs.length);
+            }
+            for (int i = 0; i < pls.length; i++) {
+                minPLs[i] = Math.min(minPLs[i], pls[i]);
+            }
+        }
 
         end = pos;
-        DPs.add(Math.max(genotype.getDP(), 0)); // DP must be >= 0
+        if (numDPs == DPs.length) {
+            DPs = Arrays.copyOf(DPs, 2 * numDPs);
+        }
+        DPs[numDPs++] = Math.max(dp, 0); // DP must be >= 0
     }
 
     /**
@@ -159,13 +178,19 @@ final class HomRefBlock implements Locatable {
 
     /** Get the min DP observed within this band */
     public int getMinDP() {
-        return Collections.min(DPs);
+        Utils.validate(numDPs > 0, "cannot take the min DP of an empty band");
+        int minDP = DPs[0];
+        for (int i = 1; i < numDPs; i++) {
+            minDP = Math.min(minDP, DPs[i]);
+        }
+        return minDP;
     }
 
     /** Get the median DP observed within this band
      * If there are an even number of DPs recorded in this band the median is the mean of the two middle values */
     public int getMedianDP() {
-        return (int) Math.round(MathUtils.median(DPs));
+        Utils.validate(numDPs > 0, "cannot take the median DP of an empty band");
+        return MathUtils.median(Arrays.copyOf(DPs, numDPs));
     }
 
     /** Get the min PLs observed within this band, can be null if no PLs have yet been observed */
@@ -186,7 +211,14 @@ final class HomRefBlock implements Locatable {
     }
 
     public boolean isContiguous(final VariantContext vc) {
-        return (vc.getEnd() == getEnd() + 1) && startingVC.getContig().equals(vc.getContig());
+        return isContiguous(vc.getContig(), vc.getEnd());
+    }
+
+    /**
+     * @return true if a site ending at end on contig would extend this band
+     */
+    public boolean isContiguous(final String contig, final int end) {
+        return (end == getEnd() + 1) && startingVC.getContig().equals(contig);
     }
 
     public VariantContext getStartingVC() {
@@ -0,0 +1,184 @@
+package org.broadinstitute.hellbender.utils.variant.writers;
+
+import htsjdk.variant.variantcontext.Allele;
+import htsjdk.variant.variantcontext.GenotypeBuilder;
+import htsjdk.variant.variantcontext.VariantContext;
+import htsjdk.variant.variantcontext.VariantContextBuilder;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
+
+import java.util.Arrays;
+
+import static htsjdk.variant.vcf.VCFConstants.MAX_GENOTYPE_QUAL;
+
+/**
+ * A run of contiguous single-sample reference confidence sites, whose per-site values are held in primitive arrays
+ * rather than in a VariantContext per site.
+ *
+ * On its own this is a hom-ref block over the whole run, as {@link GVCFWriter} would emit were every site in the same
+ * GQ band. The {@link GVCFWriter} instead bands the sites one by one from their values, which writes exactly what it
+ * would for the VariantContexts of {@link #makeSiteVariantContext(int)}, but only builds one where a site starts a new band.
+ */
+public final class ReferenceConfidenceSites extends VariantContext {
+    private static final long serialVersionUID = 1L;
+
+    private final String sampleName;
+    private final int ploidy;
+    private final byte[] refBases;
+    private final int[] refDepths;
+    private final int[] nonRefDepths;
+    private final int[] GQs;
+    private final int[][] PLs;
+
+    private ReferenceConfidenceSites(final VariantContext block, final Builder builder) {
+        super(block);
+        this.sampleName = builder.sampleName;
+        this.ploidy = builder.ploidy;
+        this.refBases = Arrays.copyOf(builder.refBases, builder.size);
+        this.refDepths = Arrays.copyOf(builder.refDepths, builder.size);
+        this.nonRefDepths = Arrays.copyOf(builder.nonRefDepths, builder.size);
+        this.GQs = Arrays.copyOf(builder.GQs, builder.size);
+        this.PLs = Arrays.copyOf(builder.PLs, builder.size);
+    }
+
+    /**
+     * Make the VariantContext of a single reference confidence site: a hom-ref genotype against the {@code <NON_REF>}
+     * allele, with its AD, DP, GQ and PL.
+     */
+    public static VariantContext makeSiteVariantContext(final String source,
+                                                        final String contig,
+                                                        final int position,
+                                                        final String sampleName,
+                                                        final int ploidy,
+                                                        final byte refBase,
+                                                        final int refDepth,
+                                                        final int nonRefDepth,
+                                                        final int gq,
+                                                        final int[] pls) {
+        final Allele refAllele = Allele.create(refBase, true);
+        final GenotypeBuilder gb = new GenotypeBuilder(sampleName, GATKVariantContextUtils.homozygousAlleleList(refAllele, ploidy));
+        gb.AD(new int[]{refDepth, nonRefDepth});
+        gb.DP(refDepth + nonRefDepth);
+        gb.GQ(gq);
+        gb.PL(pls);
+        return new VariantContextBuilder(source, contig, position, position, Arrays.asList(refAllele, Allele.NON_REF_ALLELE))
+                .genotypes(gb.make()).make();
+    }
+
+    /**
+     * @return the VariantContext of the i-th site of this run
+     */
+    public VariantContext makeSiteVariantContext(final int i) {
+        Utils.validIndex(i, size());
+        return makeSiteVariantContext(getSource(), getContig(), getSitePosition(i), sampleName, ploidy, refBases[i],
+                refDepths[i], nonRefDepths[i], GQs[i], PLs[i]);
+    }
+
+    /** @return the number of sites in this run */
+    public int size() {
+        return GQs.length;
+    }
+
+    public String getSampleName() {
+        return sampleName;
+    }
+
+    public int getPloidy() {
+        return ploidy;
+    }
+
+    public int getSitePosition(final int i) {
+        return getStart() + i;
+    }
+
+    public int getSiteGQ(final int i) {
+        return GQs[i];
+    }
+
+    public int getSiteDP(final int i) {
+        return refDepths[i] + nonRefDepths[i];
+    }
+
+    /** @return the PLs of the i-th site, which must not be modified */
+    public int[] getSitePLs(final int i) {
+        return PLs[i];
+    }
+
+    /**
+     * Accumulates the sites of a run, which must all be on one contig and have the same number of PLs.
+     */
+    public static final class Builder {
+        private static final int INITIAL_CAPACITY = 100;
+
+        private final String source;
+        private final String contig;
+        private final int start;
+        private final String sampleName;
+        private final int ploidy;
+
+        private byte[] refBases = new byte[INITIAL_CAPACITY];
+        private int[] refDepths = new int[INITIAL_CAPACITY];
+        private int[] nonRefDepths = new int[INITIAL_CAPACITY];
+        private int[] GQs = new int[INITIAL_CAPACITY];
+        private int[][] PLs = new int[INITIAL_CAPACITY][];
+        private int size = 0;
+
+        /**
+         * @param source the source of the run and its sites
+         * @param contig the contig of the run
+         * @param start the position of the first site of the run
+         * @param sampleName the sample of the hom-ref genotypes of the sites
+         * @param ploidy the ploidy of the hom-ref genotypes of the sites, at least 1
+         */
+        public Builder(final String source, final String contig, final int start, final String sampleName, final int ploidy) {
+            this.source = Utils.nonNull(source);
+            this.contig = Utils.nonNull(contig);
+            this.start = start;
+            this.sampleName = Utils.nonNull(sampleName);
+            Utils.validateArg(ploidy > 0, "a run of reference confidence sites must have a positive ploidy");
+            this.ploidy = ploidy;
+        }
+
+        /**
+         * Append the site following the last one added.
+         *
+         * @param pls the PLs of the site, which are kept rather than copied
+         */
+        public Builder add(final byte refBase, final int refDepth, final int nonRefDepth, final int gq, final int[] pls) {
+            Utils.nonNull(pls);
+            Utils.validateArg(size == 0 || pls.length == PLs[0].length, "all the sites of a run must have the same number of PLs");
+            if (size == GQs.length) {
+                refBases = Arrays.copyOf(refBases, 2 * size);
+                refDepths = Arrays.copyOf(refDepths, 2 * size);
+                nonRefDepths = Arrays.copyOf(nonRefDepths, 2 * size);
+                GQs = Arrays.copyOf(GQs, 2 * size);
+                PLs = Arrays.copyOf(PLs, 2 * size);
+            }
+            refBases[size] = refBase;
+            refDepths[size] = refDepth;
+            nonRefDepths[size] = nonRefDepth;
+            GQs[size] = gq;
+            PLs[size] = pls;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        /**
+         * @return the run of the sites added so far, at least one
+         */
+        public ReferenceConfidenceSites make() {
+            Utils.validate(size > 0, "a run of reference confidence sites cannot be empty");
+            final VariantContext first = makeSiteVariantContext(source, contig, start, sampleName, ploidy, refBases[0],
+                    refDepths[0], nonRefDepths[0], GQs[0], PLs[0]);
+            final HomRefBlock block = new HomRefBlock(first, 0, MAX_GENOTYPE_QUAL + 1, ploidy);
+            for (int i = 0; i < size; i++) {
+                block.add(start + i, GQs[i], refDepths[i] + nonRefDepths[i], PLs[i]);
+            }
+            return new ReferenceConfidenceSites(block.toVariantContext(sampleName), this);
+        }
+    }
+}
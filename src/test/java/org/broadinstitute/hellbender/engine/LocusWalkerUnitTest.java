@@ -1,16 +1,25 @@
 package org.broadinstitute.hellbender.engine;
 
+import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.barclay.argparser.CommandLineProgramProperties;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.cmdline.TestProgramGroup;
 import org.broadinstitute.hellbender.engine.filters.CountingReadFilter;
 import org.broadinstitute.hellbender.engine.filters.ReadFilter;
+import org.broadinstitute.hellbender.engine.filters.ReadFilterLibrary;
 import org.broadinstitute.hellbender.transformers.ReadTransformer;
+import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.testng.Assert;
+import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
 
 /**
  * @author Daniel Gomez-Sanchez (magicDGS)
@@ -133,4 +142,148 @@ public class LocusWalkerUnitTest extends CommandLineProgramTest {
         Assert.assertEquals(tool.totalApplyCalls, 10);
     }
 
+    private static class TestThreadedLocusWalker extends LocusWalker implements LocusWalker.ThreadedTraversal {
+        public final List<String> loci = new ArrayList<>();
+
+        @Override
+        public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+            applyConcurrently(alignmentContext, referenceContext, featureContext).run();
+        }
+
+        @Override
+        public Runnable applyConcurrently(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+            final String locus = alignmentContext.getContig() + ":" + alignmentContext.getPosition() + " " + alignmentContext.getBasePileup().size()
+                    + " " + (char) referenceContext.getBase();
+            return () -> loci.add(locus);
+        }
+    }
+
+    private static class TestFilteringThreadedLocusWalker extends TestThreadedLocusWalker {
+        // the first filter made by the traversal is the one whose counts are reported
+        public CountingReadFilter countedFilter = null;
+
+        @Override
+        public CountingReadFilter makeReadFilter() {
+            final CountingReadFilter filter = new CountingReadFilter(ReadFilterLibrary.FIRST_OF_PAIR);
+            if ( countedFilter == null ) {
+                countedFilter = filter;
+            }
+            return filter;
+        }
+    }
+
+    @DataProvider(name = "threadedTraversal")
+    public Object[][] threadedTraversal() {
+        return new Object[][] {
+                // the whole genome, one window per contig
+                {new String[] {}},
+                // several intervals, some in the same window
+                {new String[] {"-L", "chr2", "-L", "chr7:10-100", "-L", "chr7:200-300", "-L", "chr8"}},
+        };
+    }
+
+    @Test(dataProvider = "threadedTraversal")
+    public void testThreadedTraversalMatchesSingleThreaded(final String[] intervalArgs) {
+        final List<String> args = new ArrayList<>(Arrays.asList(
+                "-I", getTestDataDir()+ "/print_reads.sorted.bam",
+                "-R", getTestDataDir()+ "/print_reads.fasta"));
+        args.addAll(Arrays.asList(intervalArgs));
+
+        final TestThreadedLocusWalker expected = new TestThreadedLocusWalker();
+        expected.instanceMain(args.toArray(new String[0]));
+
+        args.addAll(Arrays.asList("--" + StandardArgumentDefinitions.THREADS_LONG_NAME, "3"));
+        final TestThreadedLocusWalker threaded = new TestThreadedLocusWalker();
+        threaded.instanceMain(args.toArray(new String[0]));
+
+        Assert.assertFalse(expected.loci.isEmpty());
+        Assert.assertEquals(threaded.loci, expected.loci);
+    }
+
+    @Test
+    public void testThreadedTraversalCountsFilteredReadsOnce() {
+        final List<String> args = new ArrayList<>(Arrays.asList(
+                "-I", publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/CEUTrio.HiSeq.WGS.b37.ch20.1m-1m1k.NA12878.noMD.noBQSR.bam",
+                "-R", b37_reference_20_21,
+                // crosses the boundary between two windows, so some reads overlap both
+                "-L", "20:999900-1000100"));
+
+        final TestFilteringThreadedLocusWalker expected = new TestFilteringThreadedLocusWalker();
+        expected.instanceMain(args.toArray(new String[0]));
+
+        args.addAll(Arrays.asList("--" + StandardArgumentDefinitions.THREADS_LONG_NAME, "2"));
+        final TestFilteringThreadedLocusWalker threaded = new TestFilteringThreadedLocusWalker();
+        threaded.instanceMain(args.toArray(new String[0]));
+
+        Assert.assertTrue(expected.countedFilter.getFilteredCount() > 0);
+        Assert.assertEquals(threaded.countedFilter.getFilteredCount(), expected.countedFilter.getFilteredCount());
+        Assert.assertEquals(threaded.loci, expected.loci);
+    }
+
+    private static class TestPooledPileupsLocusWalker extends LocusWalker {
+        private final boolean pooledPileups;
+        private final boolean emitEmptyLoci;
+        public final List<String> loci = new ArrayList<>();
+
+        private TestPooledPileupsLocusWalker(final boolean pooledPileups, final boolean emitEmptyLoci) {
+            this.pooledPileups = pooledPileups;
+            this.emitEmptyLoci = emitEmptyLoci;
+        }
+
+        @Override
+        protected boolean usePooledPileups() {
+            return pooledPileups;
+        }
+
+        @Override
+        public boolean emitEmptyLoci() {
+            return emitEmptyLoci;
+        }
+
+        @Override
+        public void apply(AlignmentContext alignmentContext, ReferenceContext referenceContext, FeatureContext featureContext) {
+            final ReadPileup pileup = alignmentContext.getBasePileup();
+            loci.add(alignmentContext.getContig() + ":" + alignmentContext.getPosition() + " " + new String(pileup.getBases())
+                    + " " + Arrays.toString(pileup.getBaseQuals()) + " " + Arrays.toString(pileup.getOffsets())
+                    + " " + pileup.getReads().stream().map(GATKRead::getName).collect(Collectors.joining(",")));
+        }
+    }
+
+    @DataProvider(name = "pooledPileups")
+    public Object[][] pooledPileups() {
+        return new Object[][] { {false}, {true} };
+    }
+
+    @Test(dataProvider = "pooledPileups")
+    public void testPooledPileupsWithSparseIntervals(final boolean emitEmptyLoci) {
+        // covered loci between the intervals are skipped by the interval iterators, and the last interval is not covered
+        final String[] args = {
+                "-I", publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/CEUTrio.HiSeq.WGS.b37.ch20.1m-1m1k.NA12878.noMD.noBQSR.bam",
+                "-R", b37_reference_20_21,
+                "-L", "20:999950", "-L", "20:1000000-1000002", "-L", "20:1000200", "-L", "20:1000700", "-L", "20:1003000"
+        };
+
+        final TestPooledPileupsLocusWalker expected = new TestPooledPileupsLocusWalker(false, emitEmptyLoci);
+        expected.instanceMain(args);
+        final TestPooledPileupsLocusWalker pooled = new TestPooledPileupsLocusWalker(true, emitEmptyLoci);
+        pooled.instanceMain(args);
+
+        Assert.assertEquals(expected.loci.size(), emitEmptyLoci ? 7 : 6);
+        Assert.assertEquals(pooled.loci, expected.loci);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testThreadedTraversalUnsupported() {
+        final TestEmitUncoveredLociTool tool = new TestEmitUncoveredLociTool();
+
+        final String[] args = {
+                "-I", getTestDataDir()+ "/print_reads.sorted.bam",
+                "-R", getTestDataDir()+ "/print_reads.fasta",
+                "-L", "chr7:21-30",
+                "--" + StandardArgumentDefinitions.THREADS_LONG_NAME, "2"
+        };
+
+        tool.instanceMain(args);
+    }
+
 }
\ No newline at end of file
@@ -695,4 +695,66 @@ public final class ReadsDataSourceUnitTest extends GATKBaseTest {
     public void testIdentifySortOrder(final List<SAMFileHeader> headers, final SAMFileHeader.SortOrder expected) {
         Assert.assertEquals(ReadsDataSource.identifySortOrder(headers), expected);
     }
+
+    @Test(dataProvider = "MultipleFilesCompleteTraversalData")
+    public void testMultipleFilesCompleteTraversalWithParallelDecoding(final List<Path> samFiles, final List<String> expectedReadNames) {
+        try (ReadsDataSource readsSource = new ReadsDataSource(samFiles)) {
+            readsSource.setParallelDecoding(2, ValidationStringency.SILENT);
+            List<String> readNames = new ArrayList<>();
+            for (GATKRead read : readsSource) {
+                readNames.add(read.getName());
+            }
+            Assert.assertEquals(readNames, expectedReadNames, "Wrong reads returned in parallel traversal of " + samFiles);
+        }
+    }
+
+    @DataProvider(name = "parallelDecodingData")
+    public Object[][] parallelDecodingData() {
+        final Path ceuSnippet = IOUtils.getPath(publicTestDir + "org/broadinstitute/hellbender/engine/CEUTrio.HiSeq.WGS.b37.NA12878.snippet_with_unmapped.bam");
+        final Path bqsrBam = IOUtils.getPath(publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/CEUTrio.HiSeq.WGS.b37.ch20.1m-1m1k.NA12878.noMD.noBQSR.bam");
+        return new Object[][] {
+                { ceuSnippet, 1, ValidationStringency.SILENT },
+                { ceuSnippet, 4, ValidationStringency.LENIENT },
+                { bqsrBam, 1, ValidationStringency.SILENT },
+                { bqsrBam, 4, ValidationStringency.LENIENT }
+        };
+    }
+
+    @Test(dataProvider = "parallelDecodingData")
+    public void testParallelDecodingMatchesSerialDecoding(final Path bam, final int decodingThreads, final ValidationStringency stringency) {
+        final SamReaderFactory factory = SamReaderFactory.makeDefault().validationStringency(stringency);
+        final List<String> expected = new ArrayList<>();
+        try (ReadsDataSource readsSource = new ReadsDataSource(bam, factory)) {
+            readsSource.forEach(read -> expected.add(read.convertToSAMRecord(readsSource.getHeader()).getSAMString()));
+        }
+
+        final List<String> actual = new ArrayList<>();
+        try (ReadsDataSource readsSource = new ReadsDataSource(bam, factory)) {
+            readsSource.setParallelDecoding(decodingThreads, stringency);
+            readsSource.forEach(read -> actual.add(read.convertToSAMRecord(readsSource.getHeader()).getSAMString()));
+        }
+        Assert.assertFalse(expected.isEmpty());
+        Assert.assertEquals(actual, expected);
+    }
+
+    @Test
+    public void testParallelDecodingAbandonedTraversal() {
+        final Path bqsrBam = IOUtils.getPath(publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/CEUTrio.HiSeq.WGS.b37.ch20.1m-1m1k.NA12878.noMD.noBQSR.bam");
+        try (ReadsDataSource readsSource = new ReadsDataSource(bqsrBam)) {
+            readsSource.setParallelDecoding(2, ValidationStringency.SILENT);
+            final Iterator<GATKRead> firstTraversal = readsSource.iterator();
+            final String firstRead = firstTraversal.next().getName();
+
+            // starting a new traversal closes the first one, which must shut down its threads without blocking
+            final Iterator<GATKRead> secondTraversal = readsSource.iterator();
+            Assert.assertEquals(secondTraversal.next().getName(), firstRead);
+        }
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testNegativeParallelDecodingThreads() {
+        try (ReadsDataSource readsSource = new ReadsDataSource(FIRST_TEST_BAM)) {
+            readsSource.setParallelDecoding(-1, ValidationStringency.SILENT);
+        }
+    }
 }
@@ -0,0 +1,93 @@
+package org.broadinstitute.hellbender.engine;
+
+import htsjdk.samtools.SAMSequenceRecord;
+import htsjdk.samtools.reference.ReferenceSequence;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.io.IOUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.stream.IntStream;
+
+public final class ReferenceMappedSourceUnitTest extends GATKBaseTest {
+
+    @DataProvider(name = "references")
+    public Object[][] references() {
+        return new Object[][] {
+                { IOUtils.getPath(hg19MiniReference) },
+                // lower case bases and IUPAC codes, which must be normalized the same way as by ReferenceFileSource
+                { IOUtils.getPath(publicTestDir + "iupacFASTA.fasta") }
+        };
+    }
+
+    private static List<SimpleInterval> randomIntervals(final ReferenceDataSource reference, final int numIntervals) {
+        final Random random = new Random(13);
+        final List<SimpleInterval> intervals = new ArrayList<>(numIntervals);
+        for ( final SAMSequenceRecord contig : reference.getSequenceDictionary().getSequences() ) {
+            // include the first and last bases of the contig
+            intervals.add(new SimpleInterval(contig.getSequenceName(), 1, Math.min(100, contig.getSequenceLength())));
+            intervals.add(new SimpleInterval(contig.getSequenceName(), Math.max(1, contig.getSequenceLength() - 99), contig.getSequenceLength()));
+            for ( int i = 0; i < numIntervals; i++ ) {
+                final int start = 1 + random.nextInt(contig.getSequenceLength());
+                final int end = Math.min(contig.getSequenceLength(), start + random.nextInt(500));
+                intervals.add(new SimpleInterval(contig.getSequenceName(), start, end));
+            }
+        }
+        return intervals;
+    }
+
+    @Test(dataProvider = "references")
+    public void testQueriesMatchReferenceFileSource(final Path fasta) {
+        try ( final ReferenceDataSource fileSource = new ReferenceFileSource(fasta);
+              final ReferenceMappedSource mappedSource = new ReferenceMappedSource(fasta) ) {
+            Assert.assertEquals(mappedSource.getSequenceDictionary(), fileSource.getSequenceDictionary());
+
+            for ( final SimpleInterval interval : randomIntervals(fileSource, 100) ) {
+                final ReferenceSequence expected = fileSource.queryAndPrefetch(interval);
+                final ReferenceSequence actual = mappedSource.queryAndPrefetch(interval);
+                Assert.assertEquals(actual.getName(), expected.getName());
+                Assert.assertEquals(actual.getContigIndex(), expected.getContigIndex());
+                Assert.assertEquals(actual.getBases(), expected.getBases(), "bases of " + interval);
+            }
+        }
+    }
+
+    @Test
+    public void testInstancesShareMappingAcrossThreads() {
+        final Path fasta = IOUtils.getPath(hg19MiniReference);
+        try ( final ReferenceMappedSource mappedSource = new ReferenceMappedSource(fasta) ) {
+            final List<SimpleInterval> intervals = randomIntervals(mappedSource, 200);
+            IntStream.range(0, intervals.size()).parallel().forEach(i -> {
+                // one instance per query, all served by the same mapping
+                final ReferenceMappedSource threadSource = new ReferenceMappedSource(fasta);
+                Assert.assertEquals(threadSource.queryAndPrefetch(intervals.get(i)).getBases(), mappedSource.queryAndPrefetch(intervals.get(i)).getBases());
+            });
+        }
+    }
+
+    @Test
+    public void testEmptyQuery() {
+        try ( final ReferenceMappedSource mappedSource = new ReferenceMappedSource(IOUtils.getPath(hg19MiniReference)) ) {
+            Assert.assertEquals(mappedSource.queryAndPrefetch("1", 100, 99).getBases().length, 0);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingContigInSequenceDictionary.class)
+    public void testQueryMissingContig() {
+        try ( final ReferenceMappedSource mappedSource = new ReferenceMappedSource(IOUtils.getPath(hg19MiniReference)) ) {
+            mappedSource.queryAndPrefetch("nonexistent", 1, 10);
+        }
+    }
+
+    @Test(expectedExceptions = UserException.MissingReference.class)
+    public void testMissingReference() {
+        new ReferenceMappedSource(GATKBaseTest.getSafeNonExistentPath("nonexistent.fasta"));
+    }
+}
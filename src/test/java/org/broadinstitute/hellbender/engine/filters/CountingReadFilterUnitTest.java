@@ -258,6 +258,33 @@ public final class CountingReadFilterUnitTest {
         Assert.assertEquals(isEgon.getFilteredCount(), 0);
     }
 
+    @Test
+    public void testAddFilteredCounts() {
+        final CountingReadFilter startOkCounting = new CountingReadFilter(startOk);
+        final CountingReadFilter endOkCounting = new CountingReadFilter(endOk);
+        final CountingReadFilter total = startOkCounting.and(endOkCounting.negate().negate());
+
+        final CountingReadFilter otherStartOkCounting = new CountingReadFilter(startOk);
+        final CountingReadFilter otherEndOkCounting = new CountingReadFilter(endOk);
+        final CountingReadFilter other = otherStartOkCounting.and(otherEndOkCounting.negate().negate());
+
+        Arrays.asList(goodRead, startBad, endBad).stream().filter(total).count(); // force the stream to be consumed
+        Arrays.asList(bothBad, endBad, goodRead).stream().filter(other).count();
+
+        total.addFilteredCounts(other);
+        Assert.assertEquals(total.getFilteredCount(), 4);
+        Assert.assertEquals(startOkCounting.getFilteredCount(), 2);
+        Assert.assertEquals(endOkCounting.getFilteredCount(), 2);
+        // the other filter is unchanged
+        Assert.assertEquals(other.getFilteredCount(), 2);
+        Assert.assertEquals(otherEndOkCounting.getFilteredCount(), 1);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testAddFilteredCountsOfDifferentFilter() {
+        new CountingReadFilter(startOk).addFilteredCounts(new CountingReadFilter(startOk).negate());
+    }
+
     @Test
     public void testFromListNull() {
         CountingReadFilter rf = CountingReadFilter.fromList(null, ArtificialReadUtils.createArtificialSamHeader(1, 1, 10));
@@ -324,6 +324,34 @@ public final class PrintReadsIntegrationTest extends CommandLineProgramTest{
         Assert.assertEquals(count, expectedCount);
     }
 
+    @Test(dataProvider = "readFilterTestData")
+    public void testReadFiltersWithThreadedTraversal(
+            final String input,
+            final String reference,
+            final String extOut,
+            final List<String> inputArgs,
+            final int expectedCount) throws IOException
+    {
+        final List<String> threadedArgs = new ArrayList<>(inputArgs);
+        threadedArgs.add("--" + StandardArgumentDefinitions.THREADS_LONG_NAME);
+        threadedArgs.add("4");
+        testReadFilters(input, reference, extOut, threadedArgs, expectedCount);
+    }
+
+    @Test
+    public void testThreadedTraversalPreservesReadOrder() throws Exception {
+        final File inBam = new File(TEST_DATA_DIR, "print_reads.sorted.bam");
+        final File outBam = GATKBaseTest.createTempFile("print_reads_threaded", ".bam");
+
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add("-I"); args.add(inBam.getAbsolutePath());
+        args.add("-O"); args.add(outBam.getAbsolutePath());
+        args.add("--" + StandardArgumentDefinitions.THREADS_LONG_NAME); args.add("3");
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(outBam, inBam);
+    }
+
     @Test(expectedExceptions = UserException.MissingReference.class)
     public void testNonExistentReference() throws Exception {
         final File inCram = new File(TEST_DATA_DIR, "print_reads.sorted.cram");
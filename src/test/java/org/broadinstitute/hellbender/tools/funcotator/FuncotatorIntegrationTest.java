@@ -622,6 +622,45 @@ public class FuncotatorIntegrationTest extends CommandLineProgramTest {
                 .count(), NUM_CLINVAR_HITS);
     }
 
+    @Test
+    public void testMultiThreadedAnnotationMatchesSingleThreaded() {
+        final FuncotatorArgumentDefinitions.OutputFormatType outputFormatType = FuncotatorArgumentDefinitions.OutputFormatType.VCF;
+        final File singleThreadedOutputFile = getOutputFile(outputFormatType);
+        final File multiThreadedOutputFile = getOutputFile("funcotator_tmp_out_threaded", outputFormatType.toString().toLowerCase());
+
+        runCommandLine(createBaselineArgumentsForFuncotator(
+                PIK3CA_VCF_HG38,
+                singleThreadedOutputFile,
+                hg38Chr3Ref,
+                DS_PIK3CA_DIR,
+                FuncotatorTestConstants.REFERENCE_VERSION_HG38,
+                outputFormatType,
+                false));
+
+        final ArgumentsBuilder arguments = createBaselineArgumentsForFuncotator(
+                PIK3CA_VCF_HG38,
+                multiThreadedOutputFile,
+                hg38Chr3Ref,
+                DS_PIK3CA_DIR,
+                FuncotatorTestConstants.REFERENCE_VERSION_HG38,
+                outputFormatType,
+                false);
+        arguments.addArgument(StandardArgumentDefinitions.THREADS_LONG_NAME, "4");
+        // Small batches, so that many of them are in flight at once:
+        arguments.addArgument(FuncotatorArgumentDefinitions.BATCH_WINDOW_IN_BP_NAME, "100");
+        runCommandLine(arguments);
+
+        final List<VariantContext> expected = new ArrayList<>();
+        new FeatureDataSource<VariantContext>(singleThreadedOutputFile).forEach(expected::add);
+        final List<VariantContext> actual = new ArrayList<>();
+        new FeatureDataSource<VariantContext>(multiThreadedOutputFile).forEach(actual::add);
+
+        Assert.assertEquals(actual.size(), expected.size());
+        for ( int i = 0; i < expected.size(); i++ ) {
+            VariantContextTestUtils.assertVariantContextsAreEqual(actual.get(i), expected.get(i), Collections.emptyList());
+        }
+    }
+
     @Test
     public void testExclusionFromDatasourceVcfToVcf() {
         // Clinvar datasource did  go through one round of preprocessing to make contig names "1" --> "chr1" (for example).  This is an issue with ClinVar, not GATK.
@@ -280,4 +280,34 @@ public class CosmicFuncotationFactoryUnitTest extends GATKBaseTest {
             expected
         );
     }
+
+    @Test
+    public void testCreateFuncotationsWithEvictedGenes() {
+        // Keep only one gene in memory, so that alternating between genes reloads them from the DB:
+        final CosmicFuncotationFactory cosmicFuncotationFactory = new CosmicFuncotationFactory(PATH_TO_TEST_DB, new LinkedHashMap<>(), "TEST_VERSION", 1);
+        final CosmicFuncotationFactory referenceFactory = new CosmicFuncotationFactory(PATH_TO_TEST_DB);
+
+        final Object[][] tests = provideForTestCreateFuncotations();
+        for ( int repeat = 0; repeat < 2; repeat++ ) {
+            for ( final Object[] test : tests ) {
+                @SuppressWarnings("unchecked")
+                final List<GencodeFuncotation> gencodeFuncotations = (List<GencodeFuncotation>) test[3];
+
+                // Query an unrelated gene in between to evict the previous one:
+                final List<GencodeFuncotation> withUnrelatedGene = new ArrayList<>(gencodeFuncotations);
+                withUnrelatedGene.add(new GencodeFuncotationBuilder().setHugoSymbol("NOT_A_GENE").setChromosome("chr3").setStart(1).setEnd(1).setProteinChange("p.E1K").build());
+
+                Assert.assertEquals(
+                        cosmicFuncotationFactory.createFuncotationsOnVariant((VariantContext) test[0], (ReferenceContext) test[1], Collections.emptyList(), withUnrelatedGene),
+                        test[4]
+                );
+                Assert.assertEquals(
+                        referenceFactory.createFuncotationsOnVariant((VariantContext) test[0], (ReferenceContext) test[1], Collections.emptyList(), gencodeFuncotations),
+                        test[4]
+                );
+            }
+        }
+        cosmicFuncotationFactory.close();
+        referenceFactory.close();
+    }
 }
@@ -22,8 +22,12 @@ import scala.Tuple2;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 public class PSFilterTest extends CommandLineProgramTest {
 
@@ -106,6 +110,48 @@ public class PSFilterTest extends CommandLineProgramTest {
 
     }
 
+    @Test
+    public void testSetPairFlagsList() {
+        final SAMSequenceDictionary seq = new SAMSequenceDictionary();
+        seq.addSequence(new SAMSequenceRecord("test_seq", 1000));
+        final SAMFileHeader header = new SAMFileHeader(seq);
+
+        final List<GATKRead> result = PSFilter.setPairFlags(makeReadSet(header));
+
+        Assert.assertEquals(result.size(), 6);
+        for (final GATKRead read : result) {
+            if (read.getName().equals("paired_1") || read.getName().equals("paired_2")) {
+                Assert.assertTrue(read.isPaired());
+            } else {
+                Assert.assertFalse(read.isPaired());
+            }
+        }
+    }
+
+    @Test
+    public void testSplitPairedAndUnpaired() {
+        final SAMSequenceDictionary seq = new SAMSequenceDictionary();
+        seq.addSequence(new SAMSequenceRecord("test_seq", 1000));
+        final SAMFileHeader header = new SAMFileHeader(seq);
+
+        final PSFilter filter = new PSFilter(new PSFilterArgumentCollection(), header, 1);
+        final Tuple2<List<GATKRead>, List<GATKRead>> result = filter.splitPairedAndUnpaired(makeReadSet(header));
+
+        Assert.assertEquals(result._1.size(), 4);
+        for (int i = 0; i < result._1.size(); i += 2) {
+            Assert.assertEquals(result._1.get(i).getName(), result._1.get(i + 1).getName());
+        }
+        for (final GATKRead read : result._1) {
+            Assert.assertTrue(read.isPaired());
+            Assert.assertTrue(read.isUnmapped());
+        }
+        Assert.assertEquals(result._2.size(), 2);
+        for (final GATKRead read : result._2) {
+            Assert.assertFalse(read.isPaired());
+            Assert.assertTrue(read.isUnmapped());
+        }
+    }
+
     @Test
     public void testCanonicalizeRead() {
 
@@ -221,4 +267,49 @@ public class PSFilterTest extends CommandLineProgramTest {
         Assert.assertEquals(numDup_2, 1);
     }
 
+    @Test(groups = "spark")
+    public void testFilterDuplicateSequencesList() {
+
+        final JavaSparkContext ctx = SparkContextFactory.getTestSparkContext();
+
+        final List<GATKRead> readList = new ArrayList<>();
+        final int numReads = 1000;
+        for (int i = 0; i < numReads; i++) {
+            final GATKRead read = ArtificialReadUtils.createRandomRead(100);
+            read.setBases(ArtificialReadUtils.createRandomReadBases(100, true));
+            read.setIsPaired(true);
+            readList.add(read);
+        }
+        readList.get(2).setBases(readList.get(4).getBases());
+        readList.get(2).setName("dupRead_1a");
+        readList.get(4).setName("dupRead_1b");
+
+        final byte[] bases_3 = readList.get(3).getBases();
+        readList.get(9).setBases(bases_3);
+        SequenceUtil.reverseComplement(bases_3);
+        readList.get(1).setBases(bases_3);
+        readList.get(1).setName("dupRead_2a");
+        readList.get(3).setName("dupRead_2b");
+        readList.get(9).setName("dupRead_2c");
+        readList.get(9).setIsPaired(false);
+
+        final List<GATKRead> result = PSFilter.filterDuplicateSequences(readList);
+
+        Assert.assertEquals(result.size(), numReads - 3);
+        final List<String> dupNames = new ArrayList<>();
+        for (final GATKRead read : result) {
+            if (read.getName().startsWith("dupRead")) dupNames.add(read.getName());
+        }
+        //Keeps the unpaired read of each set of duplicates, or else the lowest name, in input order of the set
+        Assert.assertEquals(dupNames, Arrays.asList("dupRead_2c", "dupRead_1a"));
+        Assert.assertEquals(result.get(0), readList.get(0));
+
+        //The Spark version keeps the same reads, whatever their order
+        final List<GATKRead> reversedReads = new ArrayList<>(readList);
+        Collections.reverse(reversedReads);
+        final Set<String> sparkResult = PSFilter.filterDuplicateSequences(ctx.parallelize(reversedReads)).map(GATKRead::getName).collect()
+                .stream().collect(Collectors.toSet());
+        Assert.assertEquals(sparkResult, result.stream().map(GATKRead::getName).collect(Collectors.toSet()));
+    }
+
 }
\ No newline at end of file
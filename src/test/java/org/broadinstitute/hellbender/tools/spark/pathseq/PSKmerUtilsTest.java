@@ -7,6 +7,7 @@ import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.engine.spark.datasources.ReferenceFileSparkSource;
 import org.broadinstitute.hellbender.tools.spark.sv.utils.SVKmerShort;
 import org.broadinstitute.hellbender.tools.spark.utils.LargeLongHopscotchSet;
+import org.broadinstitute.hellbender.tools.spark.utils.LongBlockedBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LongBloomFilter;
 import org.broadinstitute.hellbender.tools.spark.utils.LongIterator;
 import org.testng.Assert;
@@ -167,6 +168,19 @@ public class PSKmerUtilsTest extends CommandLineProgramTest {
             final long val = rand.nextLong() >>> 2;
             Assert.assertEquals(bloomIn.contains(new SVKmerShort(val)), bfOut.contains(PSKmerCollection.canonicalizeAndMask(new SVKmerShort(val), kSize, mask)), "Bloom filter changed after writing/reading");
         }
+
+        final LongBlockedBloomFilter bbfOut = new LongBlockedBloomFilter(numElements, bloomFPP);
+        hssIter = hssMasked.iterator();
+        while (hssIter.hasNext()) {
+            bbfOut.add(hssIter.next());
+        }
+
+        final File bbfFile = createTempFile("set", ".bin");
+        final PSKmerBlockedBloomFilter truthBlockedBloomFilter = new PSKmerBlockedBloomFilter(bbfOut, kSize, mask, numElements);
+        PSKmerUtils.writeKmerBlockedBloomFilter(bbfFile.getPath(), truthBlockedBloomFilter);
+
+        final PSKmerCollection blockedBloomIn = PSKmerUtils.readKmerFilter(bbfFile.getPath() + PSKmerUtils.BLOCKED_BLOOM_FILTER_EXTENSION);
+        Assert.assertEquals(blockedBloomIn, truthBlockedBloomFilter, "Blocked Bloom filter changed after writing/reading");
     }
 
 }
\ No newline at end of file
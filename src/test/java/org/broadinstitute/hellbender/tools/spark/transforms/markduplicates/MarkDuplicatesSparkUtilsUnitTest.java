@@ -9,6 +9,7 @@ import org.apache.spark.api.java.JavaSparkContext;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.engine.spark.SparkContextFactory;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.SAMRecordToGATKReadAdapter;
 import org.broadinstitute.hellbender.utils.read.markduplicates.MarkDuplicatesScoringStrategy;
@@ -39,6 +40,29 @@ public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
     }
 
 
+    @Test
+    public void testTemplateIndex() {
+        for (final int partitionIndex : new int[]{0, 1, 17, Integer.MAX_VALUE}) {
+            for (final int templateOffset : new int[]{0, 1, 65536, Integer.MAX_VALUE}) {
+                final long templateIndex = MarkDuplicatesSparkUtils.getTemplateIndex(partitionIndex, templateOffset);
+                Assert.assertEquals(MarkDuplicatesSparkUtils.getPartitionIndex(templateIndex), partitionIndex);
+                Assert.assertEquals(MarkDuplicatesSparkUtils.getTemplateOffset(templateIndex), templateOffset);
+            }
+        }
+    }
+
+    @Test
+    public void testTemplateOffsetTracker() {
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final MarkDuplicatesSparkUtils.TemplateOffsetTracker templateOffsets = new MarkDuplicatesSparkUtils.TemplateOffsetTracker();
+        final String[] names = {"a", "a", "b", "c", "c", "c", "a"};
+        final int[] expectedOffsets = {0, 0, 2, 3, 3, 3, 6};
+        for (int i = 0; i < names.length; i++) {
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, names[i], 0, 1, 10);
+            Assert.assertEquals(templateOffsets.next(read), expectedOffsets[i]);
+        }
+    }
+
     private String getReadGroupId(final SAMFileHeader header, final int index) {
         return header.getReadGroups().get(index).getReadGroupId();
     }
@@ -72,7 +96,7 @@ public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
         SAMFileHeader header = samRecordSetBuilder.getHeader();
         header.setReadGroups(new ArrayList<>());
 
-        MarkDuplicatesSparkUtils.transformToDuplicateNames(header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, reads, 2).collect();
+        MarkDuplicatesSparkUtils.transformToNonDuplicateTemplates(header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, reads, 2).collect();
     }
 
     @Test
@@ -88,7 +112,7 @@ public class MarkDuplicatesSparkUtilsUnitTest extends GATKBaseTest {
         SAMFileHeader header = samRecordSetBuilder.getHeader();
 
         try {
-            MarkDuplicatesSparkUtils.transformToDuplicateNames(header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, reads, 2).collect();
+            MarkDuplicatesSparkUtils.transformToNonDuplicateTemplates(header, MarkDuplicatesScoringStrategy.SUM_OF_BASE_QUALITIES, null, reads, 2).collect();
             Assert.fail("Should have thrown an exception");
         } catch (Exception e){
             Assert.assertTrue(e instanceof SparkException);
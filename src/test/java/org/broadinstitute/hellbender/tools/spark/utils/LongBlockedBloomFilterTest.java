@@ -0,0 +1,175 @@
+package org.broadinstitute.hellbender.tools.spark.utils;
+
+import com.esotericsoftware.kryo.Kryo;
+import com.esotericsoftware.kryo.io.Input;
+import com.esotericsoftware.kryo.io.Output;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.HashSet;
+import java.util.Random;
+
+public final class LongBlockedBloomFilterTest {
+
+    private static final long[] testVals = {0, 1, 2, 8, 16, 42, 97, 100, 2894765};
+    private static final long[] notAllTestVals = {0, 1, 2, 3, 7, 22, 61};
+    private static final long notInTestVals = 6;
+    private static final int RAND_SEED = 0xdeadf00;
+    private static final int HHASH_NVALS = 1000000;
+    private static final int FPR_NVALS = 100000;
+    private static final float FPP = 0.01F;
+
+    private static long randomLong(Random rng) {
+        return (((long) rng.nextInt()) | (((long) rng.nextInt()) << 31)) & ~Long.MIN_VALUE;
+    }
+
+    @Test
+    void createFromCollectionTest() {
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(testVals.length, FPP);
+        bloomFilter.addAll(testVals);
+        Assert.assertTrue(bloomFilter.containsAll(testVals));
+    }
+
+    @Test
+    void clearTest() {
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(testVals.length, FPP);
+        bloomFilter.addAll(testVals);
+        Assert.assertFalse(bloomFilter.isEmpty());
+        bloomFilter.clear();
+        Assert.assertFalse(bloomFilter.contains(1L));
+        Assert.assertTrue(bloomFilter.isEmpty());
+    }
+
+    @Test
+    void containsTest() {
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(testVals.length, FPP);
+        bloomFilter.addAll(testVals);
+        Assert.assertTrue(bloomFilter.containsAll(testVals));
+        Assert.assertFalse(bloomFilter.contains(notInTestVals));
+        Assert.assertFalse(bloomFilter.containsAll(notAllTestVals));
+    }
+
+    @Test
+    void batchContainsTest() {
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(testVals.length, FPP);
+        bloomFilter.addAll(testVals);
+        final boolean[] result = new boolean[notAllTestVals.length + 1];
+        result[notAllTestVals.length] = true;
+        bloomFilter.contains(notAllTestVals, notAllTestVals.length, result);
+        for (int i = 0; i < notAllTestVals.length; i++) {
+            Assert.assertEquals(result[i], bloomFilter.contains(notAllTestVals[i]));
+        }
+        Assert.assertTrue(result[notAllTestVals.length], "Results past the batch should not be set");
+    }
+
+    @Test
+    void batchContainsLargerThanQueryBatchTest() {
+        final Random rng = new Random(RAND_SEED);
+        final int numKeys = 3 * LongBlockedBloomFilter.QUERY_BATCH_SIZE + 5;
+        final long[] keys = new long[numKeys];
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(numKeys, FPP);
+        for (int i = 0; i < numKeys; i++) {
+            keys[i] = randomLong(rng);
+            if (i % 2 == 0) {
+                bloomFilter.add(keys[i]);
+            }
+        }
+        final int resultOffset = 3;
+        final boolean[] result = new boolean[resultOffset + numKeys];
+        bloomFilter.contains(keys, numKeys, result, resultOffset);
+        for (int i = 0; i < resultOffset; i++) {
+            Assert.assertFalse(result[i], "Results before the offset should not be set");
+        }
+        for (int i = 0; i < numKeys; i++) {
+            Assert.assertEquals(result[resultOffset + i], bloomFilter.contains(keys[i]));
+        }
+        boolean allContained = true;
+        for (int i = 0; i < numKeys; i++) {
+            allContained &= result[resultOffset + i];
+            if (i % 2 == 0) {
+                Assert.assertTrue(result[resultOffset + i]);
+            }
+        }
+        Assert.assertEquals(bloomFilter.containsAll(keys), allContained);
+    }
+
+    @Test
+    void equalsAndHashcodeTest() {
+        final LongBlockedBloomFilter bloomFilter1 = new LongBlockedBloomFilter(testVals.length, FPP);
+        final LongBlockedBloomFilter bloomFilter2 = new LongBlockedBloomFilter(testVals.length, FPP);
+        final LongBlockedBloomFilter bloomFilter3 = new LongBlockedBloomFilter(testVals.length, FPP);
+        bloomFilter1.addAll(testVals);
+        bloomFilter2.addAll(testVals);
+        bloomFilter3.addAll(notAllTestVals);
+        Assert.assertEquals(bloomFilter1.hashCode(), bloomFilter2.hashCode());
+        Assert.assertEquals(bloomFilter1, bloomFilter2);
+        Assert.assertNotEquals(bloomFilter1.hashCode(), bloomFilter3.hashCode());
+        Assert.assertNotEquals(bloomFilter1, bloomFilter3);
+    }
+
+    @DataProvider(name = "falsePositiveProbabilities")
+    public Object[][] getFalsePositiveProbabilities() {
+        return new Object[][]{{0.1}, {0.01}, {0.001}};
+    }
+
+    @Test(dataProvider = "falsePositiveProbabilities")
+    void testRandomLongs(final double fpp) {
+        final Random rng = new Random(RAND_SEED);
+        final HashSet<Long> hashSet = new HashSet<>();
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(HHASH_NVALS, fpp);
+        for (int valNo = 0; valNo != HHASH_NVALS; ++valNo) {
+            final long randLong = randomLong(rng);
+            hashSet.add(randLong);
+            bloomFilter.add(randLong);
+        }
+        for (final Long val : hashSet) {
+            Assert.assertTrue(bloomFilter.contains(val), "testVal=" + val);
+        }
+        int num_false_pos = 0;
+        int num_total = 0;
+        for (int valNo = 0; valNo != 10 * FPR_NVALS; ++valNo) {
+            final long randLong = randomLong(rng);
+            if (!hashSet.contains(randLong)) {
+                num_total++;
+                if (bloomFilter.contains(randLong)) {
+                    num_false_pos++;
+                }
+            }
+        }
+        final double theoreticalFpp = bloomFilter.getTheoreticalFPP(HHASH_NVALS);
+        Assert.assertTrue(theoreticalFpp <= fpp);
+        Assert.assertTrue(num_false_pos >= num_total * theoreticalFpp * 0.8);
+        Assert.assertTrue(num_false_pos <= num_total * theoreticalFpp * 1.2);
+        Assert.assertEquals(bloomFilter.getEstimatedFPP(), theoreticalFpp, 0.2 * theoreticalFpp);
+    }
+
+    @Test
+    void serializationTest() {
+        final Random rng = new Random(RAND_SEED);
+        final LongBlockedBloomFilter bloomFilter = new LongBlockedBloomFilter(HHASH_NVALS, FPP);
+        final HashSet<Long> hashSet = new HashSet<>(HHASH_NVALS);
+        for (int valNo = 0; valNo != HHASH_NVALS; ++valNo) {
+            final long randLong = randomLong(rng);
+            bloomFilter.add(randLong);
+            hashSet.add(randLong);
+        }
+
+        final ByteArrayOutputStream bos = new ByteArrayOutputStream();
+        final Output out = new Output(bos);
+        final Kryo kryo = new Kryo();
+        kryo.writeObject(out, bloomFilter);
+        out.flush();
+
+        final ByteArrayInputStream bis = new ByteArrayInputStream(bos.toByteArray());
+        final Input in = new Input(bis);
+        final LongBlockedBloomFilter bloomFilter2 = kryo.readObject(in, LongBlockedBloomFilter.class);
+
+        Assert.assertEquals(bloomFilter, bloomFilter2);
+        for (Long val : hashSet) {
+            Assert.assertTrue(bloomFilter2.contains(val));
+        }
+    }
+}
@@ -11,6 +11,8 @@ import org.broadinstitute.barclay.argparser.CommandLineException;
 import org.broadinstitute.hellbender.CommandLineProgramTest;
 import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.engine.FeatureDataSource;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.tools.walkers.variantutils.SelectVariants;
 import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.io.IOUtils;
@@ -34,6 +36,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.function.BiConsumer;
 import java.util.stream.Collectors;
 
@@ -240,6 +243,93 @@ public class GenotypeGVCFsIntegrationTest extends CommandLineProgramTest {
         }
     }
 
+    @Test
+    public void testIncrementalGenotypingWithoutNewSamplesReproducesPreviousCalls() throws IOException {
+        final String interval = "20:10000000-10200000";
+        final File previous = genotypeCEUTrio(CEUTRIO_20_21_GATK3_4_G_VCF, interval, Collections.emptyList());
+        final File incremental = genotypeCEUTrio(CEUTRIO_20_21_GATK3_4_G_VCF, interval,
+                Arrays.asList("--" + GenotypeGVCFs.PREVIOUS_JOINT_CALLS_LONG_NAME, previous.getAbsolutePath()));
+
+        assertForEachElementInLists(getVariantContexts(incremental), getVariantContexts(previous),
+                (a, e) -> VariantContextTestUtils.assertVariantContextsAreEqual(a, e, Collections.emptyList()));
+    }
+
+    @Test
+    public void testIncrementalGenotypingOfNewSample() throws IOException {
+        final String interval = "20:10000000-10200000";
+        final String newSample = "NA12892";
+        final File previousSamplesGVCF = createTempFile("previousSamples", ".g.vcf");
+        final ArgumentsBuilder selectArgs = new ArgumentsBuilder()
+                .addVCF(CEUTRIO_20_21_GATK3_4_G_VCF)
+                .addArgument("L", interval)
+                .addArgument(StandardArgumentDefinitions.SAMPLE_NAME_LONG_NAME, "NA12878")
+                .addArgument(StandardArgumentDefinitions.SAMPLE_NAME_LONG_NAME, "NA12891")
+                .addOutput(previousSamplesGVCF);
+        runCommandLine(selectArgs.getArgsList(), SelectVariants.class.getSimpleName());
+
+        final File previous = genotypeCEUTrio(previousSamplesGVCF, interval, Collections.emptyList());
+        final File full = genotypeCEUTrio(CEUTRIO_20_21_GATK3_4_G_VCF, interval, Collections.emptyList());
+        final File incremental = genotypeCEUTrio(CEUTRIO_20_21_GATK3_4_G_VCF, interval,
+                Arrays.asList("--" + GenotypeGVCFs.PREVIOUS_JOINT_CALLS_LONG_NAME, previous.getAbsolutePath()));
+
+        // every call of the full recompute is made again, with the same QUAL, genotypes and annotations
+        final Map<Integer, VariantContext> incrementalCalls = getVariantContexts(incremental).stream()
+                .collect(Collectors.toMap(VariantContext::getStart, vc -> vc));
+        final List<VariantContext> fullCalls = getVariantContexts(full);
+        Assert.assertEquals(incrementalCalls.size(), fullCalls.size());
+        for ( final VariantContext expected : fullCalls ) {
+            final VariantContext actual = incrementalCalls.get(expected.getStart());
+            Assert.assertNotNull(actual, "missing incremental call at " + expected.getStart());
+            Assert.assertTrue(actual.getGenotype(newSample).hasPL(), "at " + expected.getStart());
+            VariantContextTestUtils.assertVariantContextsAreEqual(actual, expected, Collections.emptyList());
+        }
+    }
+
+    @Test
+    public void testIncrementalGenotypingSkipsBorderlineUncalledSite() throws IOException {
+        // at chr7:100 the new sample is most likely hom-ref but has some likelihood of the alternate allele, which the
+        // documented approximation of incremental mode ignores at sites that were not called before
+        final File input = getTestFile("incremental.borderline.g.vcf");
+        final File reference = new File(publicTestDir, "org/broadinstitute/hellbender/tools/print_reads.fasta");
+        final File previousSampleGVCF = createTempFile("previousSample", ".g.vcf");
+        runCommandLine(new ArgumentsBuilder()
+                .addVCF(input)
+                .addArgument(StandardArgumentDefinitions.SAMPLE_NAME_LONG_NAME, "OLD")
+                .addOutput(previousSampleGVCF)
+                .getArgsList(), SelectVariants.class.getSimpleName());
+
+        final File previous = createTempFile("previous", ".vcf");
+        runCommandLine(new ArgumentsBuilder().addReference(reference).addVCF(previousSampleGVCF).addOutput(previous));
+        Assert.assertTrue(getVariantContexts(previous).isEmpty());
+
+        final File incremental = createTempFile("incremental", ".vcf");
+        runCommandLine(new ArgumentsBuilder().addReference(reference).addVCF(input).addOutput(incremental)
+                .addArgument(GenotypeGVCFs.PREVIOUS_JOINT_CALLS_LONG_NAME, previous.getAbsolutePath()));
+        Assert.assertTrue(getVariantContexts(incremental).isEmpty());
+    }
+
+    @Test(expectedExceptions = UserException.BadInput.class)
+    public void testIncrementalGenotypingRequiresPreviousSamplesInInput() {
+        final String interval = "20:10000000-10200000";
+        final File previous = genotypeCEUTrio(CEUTRIO_20_21_GATK3_4_G_VCF, interval, Collections.emptyList());
+        genotypeCEUTrio(getTestFile(BASE_PAIR_GVCF), interval,
+                Arrays.asList("--" + GenotypeGVCFs.PREVIOUS_JOINT_CALLS_LONG_NAME, previous.getAbsolutePath()));
+    }
+
+    private File genotypeCEUTrio(final File input, final String interval, final List<String> additionalArguments) {
+        final File output = createTempFile("genotypegvcf", ".vcf");
+        final ArgumentsBuilder args = new ArgumentsBuilder()
+                .addReference(new File(b37_reference_20_21))
+                .addVCF(input)
+                .addArgument("L", interval)
+                .addOutput(output);
+        additionalArguments.forEach(args::add);
+
+        Utils.resetRandomGenerator();
+        runCommandLine(args);
+        return output;
+    }
+
     @Test
     public void testIndexIsCreated(){
         final File output = createTempFile("test", ".vcf");
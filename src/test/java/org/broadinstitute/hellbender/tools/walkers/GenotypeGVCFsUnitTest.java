@@ -134,6 +134,24 @@ public class GenotypeGVCFsUnitTest extends GATKBaseTest {
         }
     }
 
+    @DataProvider
+    public Object[][] getGenotypesForIsPossiblyNonReference(){
+        return new Object[][]{
+                {new GenotypeBuilder("SAMPLE", Arrays.asList(REF, REF)).PL(new int[]{0, 30, 450}).make(), false},
+                {new GenotypeBuilder("SAMPLE", Arrays.asList(REF, REF)).PL(new int[]{0, 0, 0}).make(), false},
+                {new GenotypeBuilder("SAMPLE", Arrays.asList(REF, Allele.NON_REF_ALLELE)).make(), false},
+                {new GenotypeBuilder("SAMPLE", GATKVariantContextUtils.noCallAlleles(2)).make(), false},
+                {new GenotypeBuilder("SAMPLE", GATKVariantContextUtils.noCallAlleles(2)).PL(new int[]{10, 0, 100}).make(), true},
+                {new GenotypeBuilder("SAMPLE", Arrays.asList(REF, ALT)).make(), true},
+                {new GenotypeBuilder("SAMPLE", Arrays.asList(REF, Allele.SPAN_DEL)).make(), true}
+        };
+    }
+
+    @Test(dataProvider = "getGenotypesForIsPossiblyNonReference")
+    public void testIsPossiblyNonReference(Genotype genotype, boolean expected){
+        Assert.assertEquals(GenotypeGVCFs.isPossiblyNonReference(genotype), expected);
+    }
+
     @DataProvider
     public Object[][] getVariantsForIsProperlyPolymorphic(){
         return new Object[][]{
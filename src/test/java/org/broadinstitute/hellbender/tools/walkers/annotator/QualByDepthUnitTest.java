@@ -10,6 +10,7 @@ import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.testutils.ArtificialAnnotationUtils;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.testng.Assert;
@@ -168,10 +169,9 @@ public class QualByDepthUnitTest extends GATKBaseTest {
 
         final double lowError = -QualByDepth.MAX_QD_BEFORE_FIXING - 10;
 
-        final VariantContext vc = new VariantContextBuilder("test", "20", 10, 10, AC).log10PError(lowError).genotypes(Arrays.asList(gAC)).make();
-
         final double[] qds = new double[100000];
         for (int i = 0; i < qds.length; i++) {
+            final VariantContext vc = new VariantContextBuilder("test", "20", i + 1, i + 1, AC).log10PError(lowError).genotypes(Arrays.asList(gAC)).make();
             final Map<String, Object> annotatedMap = new QualByDepth().annotate(null, vc, null);
             final String QD = (String)annotatedMap.get(GATKVCFConstants.QUAL_BY_DEPTH_KEY);
             final double qdVal = Double.valueOf(QD);
@@ -181,6 +181,28 @@ public class QualByDepthUnitTest extends GATKBaseTest {
         Assert.assertEquals(StatUtils.mean(qds), QualByDepth.IDEAL_HIGH_QD, 0.02);
     }
 
+    @Test
+    public void testVeryHighQDIsDeterministicPerSite(){
+        final Allele A = Allele.create("A", true);
+        final Allele C = Allele.create("C");
+
+        final List<Allele> AC = Arrays.asList(A, C);
+        final Genotype gAC = new GenotypeBuilder("1", AC).DP(10).AD(new int[]{5, 5}).make();
+
+        final double lowError = -QualByDepth.MAX_QD_BEFORE_FIXING - 10;
+
+        final VariantContext vc = new VariantContextBuilder("test", "20", 10, 10, AC).log10PError(lowError).genotypes(Arrays.asList(gAC)).make();
+        final VariantContext otherVC = new VariantContextBuilder("test", "20", 11, 11, AC).log10PError(lowError).genotypes(Arrays.asList(gAC)).make();
+
+        final Object QD = new QualByDepth().annotate(null, vc, null).get(GATKVCFConstants.QUAL_BY_DEPTH_KEY);
+        final Object otherQD = new QualByDepth().annotate(null, otherVC, null).get(GATKVCFConstants.QUAL_BY_DEPTH_KEY);
+
+        //the jitter must not depend on draws made for other sites, so that threaded runs match single-threaded ones
+        Utils.getRandomGenerator().nextGaussian();
+        Assert.assertEquals(new QualByDepth().annotate(null, vc, null).get(GATKVCFConstants.QUAL_BY_DEPTH_KEY), QD);
+        Assert.assertNotEquals(otherQD, QD);
+    }
+
     @Test
     public void testAnnotate_AS() throws Exception {
 
@@ -178,6 +178,27 @@ public final class ApplyBQSRIntegrationTest extends CommandLineProgramTest {
         SamAssertionUtils.assertSamsEqual(outPath, new File(params.expectedFile).toPath(), refPath);
     }
 
+    /*
+     * Test that running with several traversal threads produces exactly the same output as a single-threaded run
+     */
+    @Test(dataProvider = "MiniApplyBQSRTest")
+    public void testApplyBQSRWithThreadedTraversal(ABQSRTest params) throws IOException {
+        final File outFile = GATKBaseTest.createTempFile("applyBQSRThreadedTest", params.outputExtension);
+        final ArrayList<String> args = new ArrayList<>();
+        args.add("-I");
+        args.add(new File(params.bam).getAbsolutePath());
+        args.add("--" + StandardArgumentDefinitions.BQSR_TABLE_LONG_NAME);
+        args.add(new File(resourceDir + "HiSeq.20mb.1RG.table.gz").getAbsolutePath());
+        args.add("-O");
+        args.add(outFile.getAbsolutePath());
+        args.add("--" + StandardArgumentDefinitions.THREADS_LONG_NAME);
+        args.add("4");
+
+        runCommandLine(args);
+
+        SamAssertionUtils.assertSamsEqual(outFile, new File(params.expectedFile));
+    }
+
     @Test
     public void testMissingReadGroup() throws IOException {
         IntegrationTestSpec spec = new IntegrationTestSpec(
@@ -9,6 +9,7 @@ import org.broadinstitute.hellbender.exceptions.UserException;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
 import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.variant.KnownSitesIndex;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
@@ -78,6 +79,8 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
                 // See RecalDatum for explanation of why the multiplier is needed.
 
                 {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_chr20, dbSNPb37_chr20, "", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_NOINDEL_NOBAQ_RECAL)},
+                // with several traversal threads the report must be exactly that of a single-threaded run
+                {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_chr20, dbSNPb37_chr20, "--" + StandardArgumentDefinitions.THREADS_LONG_NAME + " 3", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_NOINDEL_NOBAQ_RECAL)},
                 {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_chr20, dbSNPb37_chr20, "-indels --enable-baq", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1M_1M1K_RECAL)},
                 {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_1read, dbsnp_138_b37_20_21_vcf, "-indels --enable-baq", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1READ_RECAL)},
                 {new BQSRTest(GRCh37Ref_chr2021, hiSeqBam_readNithNoRefBases, dbsnp_138_b37_20_21_vcf, "-indels --enable-baq", getResourceDir() + BQSRTestData.EXPECTED_WGS_B37_CH20_1READ_NOREFBASES_RECAL)},
@@ -106,6 +109,17 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
         spec.executeTest("testBQSR-" + params.args, this);
     }
 
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testThreadedTraversalNotAllowedWithBAQ() throws IOException {
+        final String hg18Reference = publicTestDir + "human_g1k_v37.chr17_1Mb.fasta";
+        final String HiSeqBam_chr17 = getResourceDir() + "NA12878.chr17_69k_70k.dictFix.bam";
+        final String dbSNPb37_chr17 = getResourceDir() + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf";
+        final File output = createTempFile("testThreadedTraversalNotAllowedWithBAQ", ".table");
+        final String args = "-R " + hg18Reference + " -indels --enable-baq --known-sites " + dbSNPb37_chr17 + " -I " + HiSeqBam_chr17 +
+                " --" + StandardArgumentDefinitions.THREADS_LONG_NAME + " 2 -O " + output.getAbsolutePath();
+        new BaseRecalibrator().instanceMain(Utils.escapeExpressions(args));
+    }
+
     @Test(description = "This is to test https://github.com/broadinstitute/hellbender/issues/322")
     public void testPlottingWorkflow() throws IOException {
         final String resourceDir = getTestDataDir() + "/" + "BQSR" + "/";
@@ -134,6 +148,26 @@ public final class BaseRecalibratorIntegrationTest extends CommandLineProgramTes
         IntegrationTestSpec.assertEqualTextFiles(actualTablePost, expectedTablePost);
     }
 
+    @Test
+    public void testBQSRWithKnownSitesIndex() throws IOException {
+        final String hg18Reference = publicTestDir + "human_g1k_v37.chr17_1Mb.fasta";
+        final String HiSeqBam_chr17 = getResourceDir() + "NA12878.chr17_69k_70k.dictFix.bam";
+        final String dbSNPb37_chr17 =  getResourceDir() + "dbsnp_132.b37.excluding_sites_after_129.chr17_69k_70k.vcf";
+        final String more17Sites = getResourceDir() + "bqsr.fakeSitesForTesting.b37.chr17.vcf";
+
+        final File index = createTempFile("known_sites", KnownSitesIndex.FILE_EXTENSION);
+        new CreateKnownSitesIndex().instanceMain(new String[]{
+                "--" + BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, dbSNPb37_chr17,
+                "--" + BaseRecalibrator.KNOWN_SITES_ARG_FULL_NAME, more17Sites,
+                "-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME, index.getAbsolutePath()});
+
+        // the index of both databases gives the same table as the databases themselves
+        final BQSRTest params = new BQSRTest(hg18Reference, HiSeqBam_chr17, "", "-indels --enable-baq --" + BaseRecalibrator.KNOWN_SITES_INDEX_ARG_FULL_NAME + " " + index.getAbsolutePath(),
+                getResourceDir() + "expected.NA12878.chr17_69k_70k.2inputs.txt");
+        final IntegrationTestSpec spec = new IntegrationTestSpec(params.getCommandLine(), Arrays.asList(params.expectedFileName));
+        spec.executeTest("testBQSRWithKnownSitesIndex", this);
+    }
+
     @Test
     public void testBQSRFailWithoutDBSNP() throws IOException {
         final String resourceDir =  getTestDataDir() + "/" + "BQSR" + "/";
@@ -1,11 +1,14 @@
 package org.broadinstitute.hellbender.tools.walkers.contamination;
 
 import org.broadinstitute.hellbender.CommandLineProgramTest;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
 import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
 import org.testng.Assert;
 import org.testng.annotations.Test;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.List;
 
 /**
@@ -60,6 +63,26 @@ public class GetPileupSummariesIntegrationTest extends CommandLineProgramTest {
 
     }
 
+    @Test
+    public void testThreadedTraversalMatchesSingleThreaded() throws IOException {
+        final File thousandGenomes = new File(largeFileTestDir, "1000G.phase3.broad.withGenotypes.chr20.10100000.vcf");
+
+        final File expected = createTempFile("expected", ".table");
+        final File output = createTempFile("output", ".table");
+        for (final File table : new File[] {expected, output}) {
+            final String[] args = {
+                    "-I", NA12878.getAbsolutePath(),
+                    "-V", thousandGenomes.getAbsolutePath(),
+                    "-L", thousandGenomes.getAbsolutePath(),
+                    "-O", table.getAbsolutePath(),
+                    "--" + StandardArgumentDefinitions.THREADS_LONG_NAME, table == expected ? "1" : "4"
+            };
+            runCommandLine(args);
+        }
+
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+    }
+
     @Test(expectedExceptions = UserException.BadInput.class)
     public void testNoAFFieldInHeader() {
         final File vcfWithoutAF = new File(publicTestDir, "empty.vcf");
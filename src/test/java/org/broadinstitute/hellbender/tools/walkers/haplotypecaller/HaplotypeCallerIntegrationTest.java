@@ -381,6 +381,74 @@ public class HaplotypeCallerIntegrationTest extends CommandLineProgramTest {
         runCommandLine(args);
     }
 
+    /*
+     * Test that running with several traversal threads produces exactly the same output as a single-threaded run
+     */
+    @Test(dataProvider="HaplotypeCallerTestInputs")
+    public void testGVCFModeWithThreadedTraversalIsConsistentWithPastResults(final String inputFileName, final String referenceFileName) throws Exception {
+        Utils.resetRandomGenerator();
+
+        final File output = createTempFile("testGVCFModeWithThreadedTraversalIsConsistentWithPastResults", ".g.vcf");
+        final File expected = new File(TEST_FILES_DIR, "expected.testGVCFMode.gatk4.g.vcf");
+
+        final String[] args = {
+                "-I", inputFileName,
+                "-R", referenceFileName,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-ERC", "GVCF",
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + StandardArgumentDefinitions.THREADS_LONG_NAME, "4",
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+        };
+
+        runCommandLine(args);
+
+        // Test for an exact match against past results
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+    }
+
+    /*
+     * Test that the jittered QD values of a threaded run match those of a single-threaded run
+     */
+    @Test(dataProvider="HaplotypeCallerTestInputs")
+    public void testVCFModeWithThreadedTraversalIsConsistentWithPastResults(final String inputFileName, final String referenceFileName) throws Exception {
+        final File output = createTempFile("testVCFModeWithThreadedTraversalIsConsistentWithPastResults", ".vcf");
+        final File expected = new File(TEST_FILES_DIR, "expected.testVCFMode.gatk4.vcf");
+
+        final String[] args = {
+                "-I", inputFileName,
+                "-R", referenceFileName,
+                "-L", "20:10000000-10100000",
+                "-O", output.getAbsolutePath(),
+                "-pairHMM", "AVX_LOGLESS_CACHING",
+                "--" + StandardArgumentDefinitions.THREADS_LONG_NAME, "4",
+                "--" + StandardArgumentDefinitions.ADD_OUTPUT_VCF_COMMANDLINE, "false"
+        };
+
+        runCommandLine(args);
+
+        // Test for an exact match against past results
+        IntegrationTestSpec.assertEqualTextFiles(output, expected);
+    }
+
+    @Test(expectedExceptions = CommandLineException.BadArgumentValue.class)
+    public void testThreadedTraversalNotAllowedWithBamout() {
+        final File output = createTempFile("testThreadedTraversalNotAllowedWithBamout", ".vcf");
+        final File bamOutput = createTempFile("testThreadedTraversalNotAllowedWithBamout", ".bam");
+
+        final String[] args = {
+                "-I", NA12878_20_21_WGS_bam,
+                "-R", b37_reference_20_21,
+                "-L", "20:10000000-10010000",
+                "-O", output.getAbsolutePath(),
+                "-bamout", bamOutput.getAbsolutePath(),
+                "--" + StandardArgumentDefinitions.THREADS_LONG_NAME, "2"
+        };
+
+        runCommandLine(args);
+    }
+
     @Test
     public void testBamoutProducesReasonablySizedOutput() {
         final Path bamOutput = createTempFile("testBamoutProducesReasonablySizedOutput", ".bam").toPath();
@@ -0,0 +1,61 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public final class PairHMMLikelihoodCacheUnitTest extends GATKBaseTest {
+
+    @Test
+    public void testHitsAndMisses() {
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(1 << 20);
+        Assert.assertNull(cache.get(1L, 2L));
+        cache.put(1L, 2L, -3.5);
+        Assert.assertEquals(cache.get(1L, 2L), -3.5);
+        Assert.assertNull(cache.get(2L, 1L));
+        Assert.assertEquals(cache.getHits(), 1L);
+        Assert.assertEquals(cache.getMisses(), 2L);
+        Assert.assertEquals(cache.size(), 1);
+        Assert.assertTrue(cache.getSummaryLine().contains("1 hits"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedEntryIsEvicted() {
+        final PairHMMLikelihoodCache cache = new PairHMMLikelihoodCache(2 * PairHMMLikelihoodCache.APPROXIMATE_BYTES_PER_ENTRY);
+        cache.put(1L, 1L, -1.0);
+        cache.put(2L, 2L, -2.0);
+        // touching the first entry makes the second one the eldest
+        Assert.assertNotNull(cache.get(1L, 1L));
+        cache.put(3L, 3L, -3.0);
+
+        Assert.assertEquals(cache.size(), 2);
+        Assert.assertEquals(cache.get(1L, 1L), -1.0);
+        Assert.assertNull(cache.get(2L, 2L));
+        Assert.assertEquals(cache.get(3L, 3L), -3.0);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testTooSmallCache() {
+        new PairHMMLikelihoodCache(PairHMMLikelihoodCache.APPROXIMATE_BYTES_PER_ENTRY - 1);
+    }
+
+    @Test
+    public void testReadHashDependsOnBasesAndAllQualities() {
+        final byte[] bases = "ACGTACGT".getBytes();
+        final byte[] quals = {30, 30, 30, 30, 30, 30, 30, 30};
+        final byte[] ins = {45, 45, 45, 45, 45, 45, 45, 45};
+        final byte[] del = {45, 45, 45, 45, 45, 45, 45, 45};
+        final long key = PairHMMLikelihoodCache.hashRead(bases, quals, ins, del);
+
+        Assert.assertEquals(PairHMMLikelihoodCache.hashRead(bases.clone(), quals.clone(), ins.clone(), del.clone()), key);
+        Assert.assertNotEquals(PairHMMLikelihoodCache.hashRead("ACGTACGA".getBytes(), quals, ins, del), key);
+
+        final byte[] otherQuals = quals.clone();
+        otherQuals[3] = 20;
+        Assert.assertNotEquals(PairHMMLikelihoodCache.hashRead(bases, otherQuals, ins, del), key);
+        // the same values in a different field must give a different key
+        Assert.assertNotEquals(PairHMMLikelihoodCache.hashRead(bases, quals, otherQuals, del), PairHMMLikelihoodCache.hashRead(bases, otherQuals, quals, del));
+
+        Assert.assertNotEquals(PairHMMLikelihoodCache.hashHaplotype("ACGT".getBytes()), PairHMMLikelihoodCache.hashHaplotype("ACGTA".getBytes()));
+    }
+}
@@ -7,6 +7,7 @@ import htsjdk.variant.variantcontext.Allele;
 import org.broadinstitute.gatk.nativebindings.pairhmm.PairHMMNativeArguments;
 import org.broadinstitute.hellbender.utils.MathUtils;
 import org.broadinstitute.hellbender.utils.QualityUtils;
+import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
 import org.broadinstitute.hellbender.utils.genotyper.LikelihoodMatrix;
 import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
@@ -207,4 +208,102 @@ public final class PairHMMLikelihoodCalculationEngineUnitTest extends GATKBaseTe
             new File(PairHMMLikelihoodCalculationEngine.LIKELIHOODS_FILENAME).delete();
         }
     }
+
+    @Test
+    public void testLikelihoodCacheGivesSameResults() {
+        final double log10MismappingRate = QualityUtils.qualToErrorProbLog10(45);
+        final PairHMMLikelihoodCalculationEngine uncached = new PairHMMLikelihoodCalculationEngine((byte) 10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, log10MismappingRate, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD, 0);
+        final PairHMMLikelihoodCalculationEngine cached = new PairHMMLikelihoodCalculationEngine((byte) 10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, log10MismappingRate, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD, 1);
+        Assert.assertNull(uncached.getLikelihoodCache());
+
+        final String sample = "sample1";
+        final SampleList samples = new IndexedSampleList(sample);
+        final byte[] refBases = "ACGTTGCAAGCTTAGGCATCGATCGGATTACAGT".getBytes();
+        final byte[] altBases = "ACGTTGCAAGCTTAGGCTTCGATCGGATTACAGT".getBytes();
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int start = 0; start < 10; start += 3 ) {
+            final byte[] readBases = Arrays.copyOfRange(start % 2 == 0 ? refBases : altBases, start, start + 20);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(readBases, Utils.dupBytes((byte) 30, readBases.length), readBases.length + "M");
+            read.setMappingQuality(60);
+            reads.add(read);
+        }
+
+        // the second "region" shares its reads and one of its haplotypes with the first one
+        final List<List<Haplotype>> regions = Arrays.asList(
+                Arrays.asList(new Haplotype(refBases, true), new Haplotype(altBases, false)),
+                Arrays.asList(new Haplotype(refBases, true), new Haplotype("ACGTTGCAAGCTAAGGCATCGATCGGATTACAGT".getBytes(), false)));
+
+        for ( final List<Haplotype> haplotypes : regions ) {
+            final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+            haplotypes.forEach(assemblyResultSet::add);
+
+            final LikelihoodMatrix<Haplotype> expected = uncached.computeReadLikelihoods(assemblyResultSet, samples, Collections.singletonMap(sample, new ArrayList<>(reads))).sampleMatrix(0);
+            final LikelihoodMatrix<Haplotype> actual = cached.computeReadLikelihoods(assemblyResultSet, samples, Collections.singletonMap(sample, new ArrayList<>(reads))).sampleMatrix(0);
+
+            Assert.assertEquals(actual.numberOfReads(), expected.numberOfReads());
+            for ( int h = 0; h < haplotypes.size(); h++ ) {
+                for ( int r = 0; r < expected.numberOfReads(); r++ ) {
+                    Assert.assertEquals(actual.get(h, r), expected.get(h, r), 1e-12);
+                }
+            }
+        }
+
+        // every read is scored against the shared reference haplotype twice, the second time from the cache
+        Assert.assertEquals(cached.getLikelihoodCache().getHits(), reads.size());
+        Assert.assertEquals(cached.getLikelihoodCache().getMisses(), 3L * reads.size());
+        uncached.close();
+        cached.close();
+    }
+
+    @Test
+    public void testLikelihoodCacheWithPartialMisses() {
+        final double log10MismappingRate = QualityUtils.qualToErrorProbLog10(45);
+        final PairHMMLikelihoodCalculationEngine uncached = new PairHMMLikelihoodCalculationEngine((byte) 10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, log10MismappingRate, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD, 0);
+        final PairHMMLikelihoodCalculationEngine cached = new PairHMMLikelihoodCalculationEngine((byte) 10, new PairHMMNativeArguments(),
+                PairHMM.Implementation.LOGLESS_CACHING, log10MismappingRate, PairHMMLikelihoodCalculationEngine.PCRErrorModel.CONSERVATIVE,
+                PairHMM.BASE_QUALITY_SCORE_THRESHOLD, 1);
+
+        final String sample = "sample1";
+        final SampleList samples = new IndexedSampleList(sample);
+        final byte[] refBases = "ACGTTGCAAGCTTAGGCATCGATCGGATTACAGT".getBytes();
+        final byte[] altBases = "ACGTTGCAAGCTTAGGCTTCGATCGGATTACAGT".getBytes();
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int start = 0; start < 14; start += 2 ) {
+            final byte[] readBases = Arrays.copyOfRange(start % 4 == 0 ? refBases : altBases, start, start + 20);
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(readBases, Utils.dupBytes((byte) 30, readBases.length), readBases.length + "M");
+            read.setMappingQuality(60);
+            reads.add(read);
+        }
+
+        // the second "region" adds reads and a haplotype to the first one, so only some of its pairs are cached
+        final List<Haplotype> firstHaplotypes = Collections.singletonList(new Haplotype(refBases, true));
+        final List<Haplotype> secondHaplotypes = Arrays.asList(new Haplotype(refBases, true), new Haplotype(altBases, false));
+        final List<GATKRead> firstReads = reads.subList(0, 3);
+
+        cached.computeReadLikelihoods(assemblyResultSet(firstHaplotypes), samples, Collections.singletonMap(sample, new ArrayList<>(firstReads)));
+        final LikelihoodMatrix<Haplotype> expected = uncached.computeReadLikelihoods(assemblyResultSet(secondHaplotypes), samples, Collections.singletonMap(sample, new ArrayList<>(reads))).sampleMatrix(0);
+        final LikelihoodMatrix<Haplotype> actual = cached.computeReadLikelihoods(assemblyResultSet(secondHaplotypes), samples, Collections.singletonMap(sample, new ArrayList<>(reads))).sampleMatrix(0);
+
+        for ( int h = 0; h < secondHaplotypes.size(); h++ ) {
+            for ( int r = 0; r < reads.size(); r++ ) {
+                Assert.assertEquals(actual.get(h, r), expected.get(h, r), 1e-12);
+            }
+        }
+        Assert.assertEquals(cached.getLikelihoodCache().getHits(), firstReads.size());
+        Assert.assertEquals(cached.getLikelihoodCache().getMisses(), firstReads.size() + 2L * reads.size() - firstReads.size());
+        uncached.close();
+        cached.close();
+    }
+
+    private static AssemblyResultSet assemblyResultSet(final List<Haplotype> haplotypes) {
+        final AssemblyResultSet assemblyResultSet = new AssemblyResultSet();
+        haplotypes.forEach(assemblyResultSet::add);
+        return assemblyResultSet;
+    }
 }
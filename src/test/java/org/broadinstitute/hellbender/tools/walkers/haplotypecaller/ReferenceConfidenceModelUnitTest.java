@@ -25,9 +25,11 @@ import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
 import org.broadinstitute.hellbender.utils.read.ReadUtils;
 import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
 import org.broadinstitute.hellbender.utils.variant.HomoSapiensConstants;
+import org.broadinstitute.hellbender.utils.variant.writers.ReferenceConfidenceSites;
 import org.testng.Assert;
 import org.testng.annotations.BeforeClass;
 import org.testng.annotations.BeforeMethod;
@@ -373,6 +375,46 @@ public final class ReferenceConfidenceModelUnitTest extends GATKBaseTest {
         }
     }
 
+    @Test
+    public void testGroupedSitesMatchSites() {
+        final ReferenceConfidenceModel groupingModel = new ReferenceConfidenceModel(samples, header, 10, -1);
+        groupingModel.setGroupSites(true);
+        final PloidyModel ploidyModel = new HomogeneousPloidyModel(samples,2);
+        final String ref = "ACGTAACCGGTT";
+        final RefConfData xxxdata = new RefConfData(ref, 0);
+        final int start = xxxdata.getStart();
+        final VariantContext vcMiddle = GATKVariantContextUtils.makeFromAlleles("test", "1", start + 2, Arrays.asList("A", "C"));
+        final VariantContext vcDel = GATKVariantContextUtils.makeFromAlleles("test", "1", start + 4, Arrays.asList("AAC", "A"));
+
+        for ( final List<VariantContext> calls : Arrays.asList(Collections.<VariantContext>emptyList(), Arrays.asList(vcMiddle, vcDel)) ) {
+            for ( int readLen = 3; readLen < ref.length(); readLen += 4 ) {
+                final RefConfData data = new RefConfData(ref, 0);
+                final List<Haplotype> haplotypes = Arrays.asList(data.getRefHap());
+                data.getActiveRegion().add(data.makeRead(0, readLen));
+                data.getActiveRegion().add(data.makeRead(ref.length() - readLen, readLen));
+                final ReadLikelihoods<Haplotype> likelihoods = createDummyStratifiedReadMap(data.getRefHap(), samples, data.getActiveRegion());
+
+                final List<VariantContext> expected = model.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls);
+                final List<VariantContext> actual = new ArrayList<>();
+                for ( final VariantContext vc : groupingModel.calculateRefConfidence(data.getRefHap(), haplotypes, data.getPaddedRefLoc(), data.getActiveRegion(), likelihoods, ploidyModel, calls) ) {
+                    if ( vc instanceof ReferenceConfidenceSites ) {
+                        final ReferenceConfidenceSites sites = (ReferenceConfidenceSites) vc;
+                        for ( int i = 0; i < sites.size(); i++ ) {
+                            actual.add(sites.makeSiteVariantContext(i));
+                        }
+                    } else {
+                        actual.add(vc);
+                    }
+                }
+
+                Assert.assertEquals(actual.size(), expected.size());
+                for ( int i = 0; i < actual.size(); i++ ) {
+                    VariantContextTestUtils.assertVariantContextsAreEqual(actual.get(i), expected.get(i), Collections.emptyList());
+                }
+            }
+        }
+    }
+
     /**
      * Create a context that maps each read to the reference haplotype with log10 L of 0
      * @param refHaplotype a non-null reference haplotype
@@ -0,0 +1,155 @@
+package org.broadinstitute.hellbender.tools.walkers.haplotypecaller.readthreading;
+
+import htsjdk.samtools.SAMFileHeader;
+import htsjdk.samtools.SAMReadGroupRecord;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.Kmer;
+import org.broadinstitute.hellbender.tools.walkers.haplotypecaller.graphs.MultiSampleEdge;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.*;
+
+public final class PackedKmerGraphUnitTest extends GATKBaseTest {
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @DataProvider(name = "GraphParameters")
+    public Object[][] makeGraphParameters() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final int kmerSize : Arrays.asList(5, 10, 25, 31) ) {
+            for ( final int numSamples : Arrays.asList(1, 3) ) {
+                for ( final boolean startOnlyAtExistingVertex : Arrays.asList(false, true) ) {
+                    for ( final boolean throughBranches : Arrays.asList(false, true) ) {
+                        tests.add(new Object[]{kmerSize, numSamples, startOnlyAtExistingVertex, throughBranches});
+                    }
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "GraphParameters")
+    public void testSameGraphAsReadThreadingGraph(final int kmerSize, final int numSamples, final boolean startOnlyAtExistingVertex, final boolean throughBranches) {
+        final Random random = new Random(kmerSize * 31 + numSamples);
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        for ( int s = 0; s < numSamples; s++ ) {
+            final SAMReadGroupRecord readGroup = new SAMReadGroupRecord("rg" + s);
+            readGroup.setSample("sample" + s);
+            header.addReadGroup(readGroup);
+        }
+
+        // a short tandem repeat in the reference gives non-unique kmers for the smaller kmer sizes
+        final byte[] ref = randomBases(random, 200);
+        System.arraycopy("ACACACACACACACAC".getBytes(), 0, ref, 80, 16);
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int r = 0; r < 60; r++ ) {
+            final int start = random.nextInt(ref.length - 60);
+            final byte[] bases = Arrays.copyOfRange(ref, start, start + 60);
+            // sequencing errors and a recurrent SNP give bubbles, dangling ends and edges shared between samples
+            if ( random.nextInt(3) == 0 ) {
+                bases[random.nextInt(bases.length)] = BASES[random.nextInt(BASES.length)];
+            }
+            if ( start <= 120 && start + 60 > 120 && r % 2 == 0 ) {
+                bases[120 - start] = ref[120] == 'A' ? (byte) 'G' : (byte) 'A';
+            }
+            final byte[] quals = Utils.dupBytes((byte) 30, bases.length);
+            if ( r % 7 == 0 ) {
+                quals[random.nextInt(quals.length)] = 2;
+            }
+            final GATKRead read = ArtificialReadUtils.createArtificialRead(header, "read" + r, 0, 1, bases, quals, bases.length + "M");
+            read.setReadGroup("rg" + (r % numSamples));
+            reads.add(read);
+        }
+
+        final ReadThreadingGraph expected = buildGraph(kmerSize, false, startOnlyAtExistingVertex, throughBranches, ref, reads, header);
+        final ReadThreadingGraph actual = buildGraph(kmerSize, true, startOnlyAtExistingVertex, throughBranches, ref, reads, header);
+        assertSameGraph(actual, expected, kmerSize);
+    }
+
+    @Test
+    public void testReadsWithNsBeforeTheirStart() {
+        // the kmers before the start of a read are still used to find the non-unique kmers, even if they contain Ns
+        final int kmerSize = 3;
+        final byte[] ref = "ACGTTGCATGCAACGTAGCT".getBytes();
+        final SAMFileHeader header = ArtificialReadUtils.createArtificialSamHeader();
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( final String bases : Arrays.asList("NNANNANNGTTGCATG", "GTTGCANNNNNNCATGCAACG", "TTGCATGCAACGTAG") ) {
+            reads.add(ArtificialReadUtils.createArtificialRead(bases.getBytes(), Utils.dupBytes((byte) 30, bases.length()), bases.length() + "M"));
+        }
+
+        final ReadThreadingGraph expected = buildGraph(kmerSize, false, false, false, ref, reads, header);
+        final ReadThreadingGraph actual = buildGraph(kmerSize, true, false, false, ref, reads, header);
+        assertSameGraph(actual, expected, kmerSize);
+        Assert.assertTrue(actual.getNonUniqueKmers().contains(new Kmer("NNA")));
+    }
+
+    @Test
+    public void testCanThread() {
+        final ReadThreadingGraph.SequenceForKmers acgt = new ReadThreadingGraph.SequenceForKmers("read", "ACGTACGT".getBytes(), 0, 8, 1, false);
+        final ReadThreadingGraph.SequenceForKmers nBeforeStart = new ReadThreadingGraph.SequenceForKmers("read", "NCGTACGT".getBytes(), 1, 8, 1, false);
+        final ReadThreadingGraph.SequenceForKmers nInRef = new ReadThreadingGraph.SequenceForKmers("ref", "NCGTACGT".getBytes(), 1, 8, 1, true);
+
+        Assert.assertTrue(PackedKmerGraph.canThread(Arrays.asList(acgt, nBeforeStart), 4));
+        Assert.assertTrue(PackedKmerGraph.canThread(Collections.singletonList(acgt), PackedKmerGraph.MAX_KMER_SIZE));
+        Assert.assertFalse(PackedKmerGraph.canThread(Collections.singletonList(acgt), PackedKmerGraph.MAX_KMER_SIZE + 1));
+        Assert.assertFalse(PackedKmerGraph.canThread(Arrays.asList(acgt, nInRef), 4));
+    }
+
+    private static ReadThreadingGraph buildGraph(final int kmerSize, final boolean usePackedKmerGraph, final boolean startOnlyAtExistingVertex,
+                                                 final boolean throughBranches, final byte[] ref, final List<GATKRead> reads, final SAMFileHeader header) {
+        final ReadThreadingGraph graph = new ReadThreadingGraph(kmerSize, false, (byte) 6, 2);
+        graph.setUsePackedKmerGraph(usePackedKmerGraph);
+        graph.setThreadingStartOnlyAtExistingVertex(startOnlyAtExistingVertex);
+        graph.setIncreaseCountsThroughBranches(throughBranches);
+        graph.addSequence("ref", ref, true);
+        for ( final GATKRead read : reads ) {
+            graph.addRead(read, header);
+        }
+        graph.buildGraphIfNecessary();
+        return graph;
+    }
+
+    private static void assertSameGraph(final ReadThreadingGraph actual, final ReadThreadingGraph expected, final int kmerSize) {
+        final List<MultiDeBruijnVertex> actualVertices = new ArrayList<>(actual.vertexSet());
+        final List<MultiDeBruijnVertex> expectedVertices = new ArrayList<>(expected.vertexSet());
+        Assert.assertEquals(actualVertices.size(), expectedVertices.size());
+        for ( int v = 0; v < expectedVertices.size(); v++ ) {
+            Assert.assertEquals(actualVertices.get(v).getSequenceString(), expectedVertices.get(v).getSequenceString());
+            Assert.assertEquals(actualVertices.get(v).getAdditionalInfo(), expectedVertices.get(v).getAdditionalInfo());
+        }
+
+        final List<MultiSampleEdge> actualEdges = new ArrayList<>(actual.edgeSet());
+        final List<MultiSampleEdge> expectedEdges = new ArrayList<>(expected.edgeSet());
+        Assert.assertEquals(actualEdges.size(), expectedEdges.size());
+        for ( int e = 0; e < expectedEdges.size(); e++ ) {
+            final MultiSampleEdge actualEdge = actualEdges.get(e);
+            final MultiSampleEdge expectedEdge = expectedEdges.get(e);
+            Assert.assertEquals(actualVertices.indexOf(actual.getEdgeSource(actualEdge)), expectedVertices.indexOf(expected.getEdgeSource(expectedEdge)));
+            Assert.assertEquals(actualVertices.indexOf(actual.getEdgeTarget(actualEdge)), expectedVertices.indexOf(expected.getEdgeTarget(expectedEdge)));
+            Assert.assertEquals(actualEdge.isRef(), expectedEdge.isRef());
+            Assert.assertEquals(actualEdge.getMultiplicity(), expectedEdge.getMultiplicity());
+            Assert.assertEquals(actualEdge.getPruningMultiplicity(), expectedEdge.getPruningMultiplicity());
+        }
+
+        Assert.assertEquals(actual.getNonUniqueKmers(), expected.getNonUniqueKmers());
+        Assert.assertEquals(actual.isLowComplexity(), expected.isLowComplexity());
+        for ( final MultiDeBruijnVertex vertex : expectedVertices ) {
+            final MultiDeBruijnVertex expectedUnique = expected.findKmer(new Kmer(vertex.getSequence()));
+            final MultiDeBruijnVertex actualUnique = actual.findKmer(new Kmer(vertex.getSequence()));
+            Assert.assertEquals(actualUnique == null ? -1 : actualVertices.indexOf(actualUnique),
+                                expectedUnique == null ? -1 : expectedVertices.indexOf(expectedUnique), "kmer size " + kmerSize);
+        }
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+}
@@ -122,6 +122,12 @@ public final class ReadThreadingAssemblerUnitTest extends GATKBaseTest {
         testAssemblyWithVariant(assembler, refBases, loc, nReadsToUse, vcb.make());
     }
 
+    @Test(dataProvider = "AssembleIntervalsWithVariantData")
+    public void testAssembleRefAndSNPWithPackedKmerGraph(final ReadThreadingAssembler assembler, final SimpleInterval loc, final int nReadsToUse, final int variantSite) {
+        assembler.setUsePackedKmerGraph(true);
+        testAssembleRefAndSNP(assembler, loc, nReadsToUse, variantSite);
+    }
+
     @Test(dataProvider = "AssembleIntervalsWithVariantData")
     public void testAssembleRefAndDeletion(final ReadThreadingAssembler assembler, final SimpleInterval loc, final int nReadsToUse, final int variantSite) {
         final byte[] refBases = seq.getSubsequenceAt(loc.getContig(), loc.getStart(), loc.getEnd()).getBases();
@@ -0,0 +1,99 @@
+package org.broadinstitute.hellbender.tools.walkers.markduplicates;
+
+import htsjdk.samtools.ValidationStringency;
+import org.broadinstitute.hellbender.cmdline.CommandLineProgram;
+import org.broadinstitute.hellbender.cmdline.StandardArgumentDefinitions;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.testutils.ArgumentsBuilder;
+import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.testutils.SamAssertionUtils;
+import org.broadinstitute.hellbender.testutils.testers.MarkDuplicatesSparkTester;
+import org.broadinstitute.hellbender.tools.spark.transforms.markduplicates.MarkDuplicatesSpark;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+
+public class MarkDuplicatesGATKIntegrationTest extends AbstractMarkDuplicatesCommandLineProgramTest {
+
+    private static final class MarkDuplicatesGATKTester extends MarkDuplicatesSparkTester {
+        private MarkDuplicatesGATKTester(final boolean markUnmappedReads) {
+            super(markUnmappedReads);
+        }
+
+        @Override
+        protected CommandLineProgram getProgram() { return new MarkDuplicatesGATK(); }
+    }
+
+    @Override
+    protected MarkDuplicatesSparkTester getTester() {
+        return new MarkDuplicatesGATKTester(false);
+    }
+
+    @Override
+    protected CommandLineProgram getCommandLineProgramInstance() {
+        return new MarkDuplicatesGATK();
+    }
+
+    @Override
+    protected boolean markSecondaryAndSupplementaryRecordsLikeTheCanonical() { return true; }
+
+    @Test
+    @Override
+    public void testNonExistantReadGroupInRead() {
+        final MarkDuplicatesSparkTester tester = new MarkDuplicatesGATKTester(true);
+        tester.addMatePair("RUNID:7:1203:2886:82292",  19, 19, 485253, 485253, false, false, true, true, "42M59S", "59S42M", true, false, false, false, false, DEFAULT_BASE_QUALITY, "NotADuplicateGroup");
+        Assert.assertThrows(UserException.HeaderMissingReadGroup.class, tester::runTest);
+    }
+
+    @Test
+    @Override
+    public void testNoReadGroupInRead() {
+        final MarkDuplicatesSparkTester tester = new MarkDuplicatesGATKTester(true);
+        tester.addMatePair("RUNID:7:1203:2886:82292",  19, 19, 485253, 485253, false, false, true, true, "42M59S", "59S42M", true, false, false, false, false, DEFAULT_BASE_QUALITY, null);
+        Assert.assertThrows(UserException.ReadMissingReadGroup.class, tester::runTest);
+    }
+
+    @DataProvider(name = "matchesSpark")
+    public Object[][] matchesSpark() {
+        return new Object[][]{
+                {new File(TEST_DATA_DIR, "example.chr1.1-1K.unmarkedDups.bam")},
+                {new File(TEST_DATA_DIR, "optical_dupes.bam")},
+                {new File(TEST_DATA_DIR, "optical_dupes_casava.bam")},
+                {new File(TEST_DATA_DIR, "inputSingleLibrarySolexa16404.bam")},
+        };
+    }
+
+    // Spill the sorted reads and key table to disk, and score on several threads, to exercise everything that could differ
+    @Test(dataProvider = "matchesSpark", groups = "spark")
+    public void testMatchesMarkDuplicatesSpark(final File input) throws IOException {
+        final File sparkOutput = createTempFile("markdups_spark", ".bam");
+        final File sparkMetrics = createTempFile("markdups_spark_metrics", ".txt");
+        new MarkDuplicatesSpark().instanceMain(markDuplicatesArgs(input, sparkOutput, sparkMetrics).getArgsArray());
+
+        final File output = createTempFile("markdups", ".bam");
+        final File metrics = createTempFile("markdups_metrics", ".txt");
+        final ArgumentsBuilder args = markDuplicatesArgs(input, output, metrics);
+        args.add("--" + StandardArgumentDefinitions.THREADS_LONG_NAME);
+        args.add("4");
+        args.add("--" + MarkDuplicatesGATK.MAX_RECORDS_IN_RAM_LONG_NAME);
+        args.add("10");
+        new MarkDuplicatesGATK().instanceMain(args.getArgsArray());
+
+        SamAssertionUtils.assertEqualBamFiles(output, sparkOutput, false, ValidationStringency.SILENT);
+        IntegrationTestSpec.assertEqualTextFiles(metrics, sparkMetrics, "#");
+    }
+
+    private static ArgumentsBuilder markDuplicatesArgs(final File input, final File output, final File metrics) {
+        final ArgumentsBuilder args = new ArgumentsBuilder();
+        args.add("-" + StandardArgumentDefinitions.INPUT_SHORT_NAME);
+        args.add(input.getPath());
+        args.add("-" + StandardArgumentDefinitions.OUTPUT_SHORT_NAME);
+        args.add(output.getAbsolutePath());
+        args.add("--" + StandardArgumentDefinitions.METRICS_FILE_LONG_NAME);
+        args.add(metrics.getAbsolutePath());
+        return args;
+    }
+}
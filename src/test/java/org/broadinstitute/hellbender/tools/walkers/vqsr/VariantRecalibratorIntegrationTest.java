@@ -131,6 +131,15 @@ public class VariantRecalibratorIntegrationTest extends CommandLineProgramTest {
         doSNPTest(args.toArray(new String[args.size()]), getLargeVQSRTestDataDir() + "expected/SNPAlternateTranches.txt");
     }
 
+    @Test(dataProvider = "VarRecalSNP")
+    public void testVariantRecalibratorSNPMultiThreaded(final String[] params) throws IOException {
+        // same as testVariantRecalibratorSNP, the models must not depend on the number of threads
+        List<String> args = new ArrayList<>(params.length);
+        Stream.of(params).forEach(arg -> args.add(arg));
+        args.addAll(Arrays.asList("--gmm-threads", "4"));
+        doSNPTest(args.toArray(new String[args.size()]), getLargeVQSRTestDataDir() + "expected/SNPDefaultTranches.txt");
+    }
+
     @Test(dataProvider = "VarRecalSNP")
     public void testVariantRecalibratorSNPMaxAttempts(final String[] params) throws IOException {
         // For this test, we deliberately *DON'T* sample a single random int as above; this causes
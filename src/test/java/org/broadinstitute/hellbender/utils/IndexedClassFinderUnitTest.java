@@ -0,0 +1,98 @@
+package org.broadinstitute.hellbender.utils;
+
+import htsjdk.tribble.FeatureCodec;
+import org.apache.commons.lang3.tuple.Pair;
+import org.broadinstitute.barclay.argparser.ClassFinder;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.codecs.table.TableCodec;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.util.*;
+
+public final class IndexedClassFinderUnitTest extends GATKBaseTest {
+
+    //These classes are for testing the fallback to scanning the classpath.
+
+    interface Searched {
+    }
+
+    static abstract class AbstractSearched implements Searched {
+    }
+
+    static final class ConcreteSearched extends AbstractSearched {
+    }
+
+    private static Set<Class<?>> scan(final String packageName, final Class<?> parentType) {
+        final ClassFinder finder = new ClassFinder();
+        finder.find(packageName, parentType);
+        return finder.getClasses();
+    }
+
+    private static Map<String, List<String>> writeAndReadClassIndex() throws IOException {
+        final File indexFile = createTempFile("ClassIndex", ".tsv");
+        IndexedClassFinder.writeClassIndex(indexFile.toPath());
+        try (final InputStream indexStream = Files.newInputStream(indexFile.toPath())) {
+            return IndexedClassFinder.readClassIndex(indexStream);
+        }
+    }
+
+    @Test
+    public void testIndexedSearchesMatchClasspathScan() throws IOException {
+        final Map<String, List<String>> classIndex = writeAndReadClassIndex();
+        Assert.assertEquals(classIndex.size(), IndexedClassFinder.getIndexedSearches().size());
+
+        for (final Pair<String, Class<?>> search : IndexedClassFinder.getIndexedSearches()) {
+            final IndexedClassFinder finder = new IndexedClassFinder(classIndex);
+            finder.find(search.getLeft(), search.getRight());
+            Assert.assertEquals(finder.getClasses(), scan(search.getLeft(), search.getRight()), search.toString());
+        }
+    }
+
+    @Test
+    public void testIndexedCodecs() throws IOException {
+        final IndexedClassFinder finder = new IndexedClassFinder(writeAndReadClassIndex());
+        finder.find("org.broadinstitute.hellbender.utils.codecs", FeatureCodec.class);
+        Assert.assertTrue(finder.getClasses().contains(TableCodec.class));
+    }
+
+    @Test
+    public void testSearchNotInIndexScansClasspath() {
+        final IndexedClassFinder finder = new IndexedClassFinder(Collections.emptyMap());
+        finder.find(getClass().getPackage().getName(), Searched.class);
+        Assert.assertEquals(finder.getClasses(), scan(getClass().getPackage().getName(), Searched.class));
+        Assert.assertEquals(finder.getClasses(), new HashSet<>(Arrays.asList(Searched.class, AbstractSearched.class, ConcreteSearched.class)));
+        Assert.assertEquals(finder.getConcreteClasses(), Collections.singleton(ConcreteSearched.class));
+    }
+
+    @Test
+    public void testWithoutIndexScansClasspath() {
+        final IndexedClassFinder finder = new IndexedClassFinder(null);
+        finder.find(getClass().getPackage().getName(), Searched.class);
+        Assert.assertEquals(finder.getClasses(), scan(getClass().getPackage().getName(), Searched.class));
+    }
+
+    @Test
+    public void testIndexNotMatchingClasspathScansClasspath() {
+        final Map<String, List<String>> classIndex = new HashMap<>();
+        classIndex.put(Searched.class.getName() + '\t' + getClass().getPackage().getName(),
+                Arrays.asList(ConcreteSearched.class.getName(), "org.broadinstitute.hellbender.utils.NoSuchClass"));
+        final IndexedClassFinder finder = new IndexedClassFinder(classIndex);
+        finder.find(getClass().getPackage().getName(), Searched.class);
+        Assert.assertEquals(finder.getClasses(), scan(getClass().getPackage().getName(), Searched.class));
+    }
+
+    @Test
+    public void testIndexIsUsed() {
+        final Map<String, List<String>> classIndex = new HashMap<>();
+        classIndex.put(Searched.class.getName() + '\t' + getClass().getPackage().getName(),
+                Collections.singletonList(ConcreteSearched.class.getName()));
+        final IndexedClassFinder finder = new IndexedClassFinder(classIndex);
+        finder.find(getClass().getPackage().getName(), Searched.class);
+        Assert.assertEquals(finder.getClasses(), Collections.singleton(ConcreteSearched.class));
+    }
+}
@@ -10,10 +10,12 @@ import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.utils.downsampling.DownsampleType;
 import org.broadinstitute.hellbender.utils.downsampling.DownsamplingMethod;
 import org.broadinstitute.hellbender.utils.pileup.PileupElement;
+import org.broadinstitute.hellbender.utils.pileup.PileupElementPool;
 import org.broadinstitute.hellbender.utils.pileup.ReadPileup;
 import org.broadinstitute.hellbender.utils.read.ArtificialBAMBuilder;
 import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
 import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadCoordinateComparator;
 import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
@@ -445,6 +447,63 @@ public final class LocusIteratorByStateUnitTest extends LocusIteratorByStateBase
         Assert.assertEquals(bpVisited, expectedBpToVisit, "Didn't visit the expected number of bp");
     }
 
+    @Test
+    public void testPooledPileupsMatchUnpooledPileups() {
+        // more reads than the initial capacity of a column, so that the pool has to grow
+        final List<GATKRead> reads = new ArrayList<>();
+        for ( int i = 0; i < 150; i++ ) {
+            final String cigar = i % 3 == 0 ? "4M2D4M" : (i % 3 == 1 ? "3M1I4M" : "8M");
+            final byte[] bases = Utils.dupBytes((byte) "ACGT".charAt(i % 4), 8);
+            final byte[] quals = Utils.dupBytes((byte) (10 + i % 30), bases.length);
+            reads.add(ArtificialReadUtils.createArtificialRead(header, "read" + i, 0, 1 + i % 5, bases, quals, cigar));
+        }
+        reads.sort(new ReadCoordinateComparator(header));
+
+        final LocusIteratorByState unpooled = makeLIBS(new ArrayList<>(reads), header);
+        final LocusIteratorByState pooled = new LocusIteratorByState(
+                new FakeCloseableIterator<>(reads.iterator()),
+                LIBSDownsamplingInfo.toDownsamplingInfo(DownsamplingMethod.NONE),
+                false,
+                sampleListForSAMWithoutReadGroups(),
+                header,
+                true,
+                false,
+                new PileupElementPool(2));
+
+        AlignmentContext previousExpected = null;
+        AlignmentContext previousActual = null;
+        while ( unpooled.hasNext() ) {
+            Assert.assertTrue(pooled.hasNext());
+            final AlignmentContext expected = unpooled.next();
+            final AlignmentContext actual = pooled.next();
+            assertSamePileups(actual.getBasePileup(), expected.getBasePileup());
+            // a pool of two columns keeps the previous pileup valid
+            if ( previousExpected != null ) {
+                assertSamePileups(previousActual.getBasePileup(), previousExpected.getBasePileup());
+            }
+            previousExpected = expected;
+            previousActual = actual;
+        }
+        Assert.assertFalse(pooled.hasNext());
+    }
+
+    private static void assertSamePileups(final ReadPileup actual, final ReadPileup expected) {
+        Assert.assertEquals(actual.getLocation(), expected.getLocation());
+        Assert.assertEquals(actual.size(), expected.size());
+        Assert.assertEquals(actual.getBases(), expected.getBases());
+        Assert.assertEquals(actual.getBaseQuals(), expected.getBaseQuals());
+        Assert.assertEquals(actual.getOffsets(), expected.getOffsets());
+        Assert.assertEquals(actual.getReads(), expected.getReads());
+        final Iterator<PileupElement> expectedElements = expected.iterator();
+        for ( final PileupElement actualElement : actual ) {
+            final PileupElement expectedElement = expectedElements.next();
+            Assert.assertEquals(actualElement.isDeletion(), expectedElement.isDeletion());
+            Assert.assertEquals(actualElement.isBeforeInsertion(), expectedElement.isBeforeInsertion());
+            Assert.assertEquals(actualElement.getCurrentCigarOffset(), expectedElement.getCurrentCigarOffset());
+            Assert.assertEquals(actualElement.getOffsetInCurrentCigar(), expectedElement.getOffsetInCurrentCigar());
+        }
+    }
+
     // ------------------------------------------------------------
     //
     // Tests for keeping reads
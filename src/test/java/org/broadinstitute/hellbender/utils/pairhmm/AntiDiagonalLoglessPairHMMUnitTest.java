@@ -0,0 +1,160 @@
+package org.broadinstitute.hellbender.utils.pairhmm;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedAlleleList;
+import org.broadinstitute.hellbender.utils.genotyper.IndexedSampleList;
+import org.broadinstitute.hellbender.utils.genotyper.ReadLikelihoods;
+import org.broadinstitute.hellbender.utils.haplotype.Haplotype;
+import org.broadinstitute.hellbender.utils.read.ArtificialReadUtils;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.read.ReadUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+import picard.util.BasicInputParser;
+
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.util.*;
+
+public final class AntiDiagonalLoglessPairHMMUnitTest extends GATKBaseTest {
+
+    private static final String pairHMMTestData = publicTestDir + "pairhmm-testdata.txt";
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @Test
+    public void testLikelihoodsFromHaplotypes() throws FileNotFoundException {
+        final PairHMM hmm = PairHMM.Implementation.LOGLESS_ANTI_DIAGONAL.makeNewHMM(null);
+        final BasicInputParser parser = new BasicInputParser(true, new FileInputStream(pairHMMTestData));
+
+        while (parser.hasNext()) {
+            final String tokens[] = parser.next();
+
+            final byte[] hap = tokens[0].getBytes();
+            final byte[] bases = tokens[1].getBytes();
+            final byte[] baseQuals = normalize(tokens[2].getBytes(), 6);
+            final byte[] insertionQuals = normalize(tokens[3].getBytes(), 0);
+            final byte[] deletionQuals = normalize(tokens[4].getBytes(), 0);
+            final byte[] gcp = normalize(tokens[5].getBytes(), 0);
+            final double expectedResult = Double.parseDouble(tokens[6]);
+
+            hmm.initialize(bases.length, hap.length);
+            final double result = hmm.computeReadLikelihoodGivenHaplotypeLog10(hap, bases, baseQuals, insertionQuals, deletionQuals, gcp, true, null);
+            Assert.assertEquals(result, expectedResult, 1e-5, "Likelihood not in expected range.");
+        }
+
+        hmm.close();
+    }
+
+    @DataProvider(name = "RandomReadsAndHaplotypes")
+    public Object[][] makeRandomReadsAndHaplotypes() {
+        final Random random = new Random(13);
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final boolean tristate : Arrays.asList(true, false) ) {
+            for ( final int readLength : Arrays.asList(1, 2, 10, 76, 151) ) {
+                for ( final int haplotypeLength : Arrays.asList(1, 5, 80, 300) ) {
+                    tests.add(new Object[]{random.nextLong(), readLength, haplotypeLength, tristate});
+                }
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    @Test(dataProvider = "RandomReadsAndHaplotypes")
+    public void testIdenticalToLoglessPairHMM(final long seed, final int readLength, final int haplotypeLength, final boolean tristate) {
+        final Random random = new Random(seed);
+        final LoglessPairHMM expectedHMM = new LoglessPairHMM();
+        final AntiDiagonalLoglessPairHMM actualHMM = new AntiDiagonalLoglessPairHMM();
+        if ( ! tristate ) {
+            expectedHMM.doNotUseTristateCorrection();
+            actualHMM.doNotUseTristateCorrection();
+        }
+        expectedHMM.initialize(readLength, haplotypeLength);
+        actualHMM.initialize(readLength, haplotypeLength);
+
+        final List<byte[]> haplotypes = new ArrayList<>();
+        final byte[] firstHaplotype = randomBases(random, haplotypeLength);
+        haplotypes.add(firstHaplotype);
+        for ( int h = 0; h < 3; h++ ) {
+            // haplotypes sharing a prefix with the first one exercise the haplotype caching path of LoglessPairHMM
+            final byte[] mutated = firstHaplotype.clone();
+            mutated[random.nextInt(haplotypeLength)] = BASES[random.nextInt(BASES.length)];
+            haplotypes.add(mutated);
+        }
+
+        for ( int r = 0; r < 5; r++ ) {
+            final byte[] readBases = randomBases(random, readLength);
+            if ( r == 1 ) {
+                readBases[0] = 'N';
+            }
+            final byte[] readQuals = randomQuals(random, readLength, 6, 41);
+            final byte[] insQuals = randomQuals(random, readLength, 20, 45);
+            final byte[] delQuals = randomQuals(random, readLength, 20, 45);
+            final byte[] gcps = randomQuals(random, readLength, 10, 10);
+
+            for ( int h = 0; h < haplotypes.size(); h++ ) {
+                final byte[] next = h == haplotypes.size() - 1 ? null : haplotypes.get(h + 1);
+                final double expected = expectedHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(h), readBases, readQuals, insQuals, delQuals, gcps, h == 0, next);
+                final double actual = actualHMM.computeReadLikelihoodGivenHaplotypeLog10(haplotypes.get(h), readBases, readQuals, insQuals, delQuals, gcps, h == 0, next);
+                Assert.assertEquals(actual, expected, 1e-12);
+            }
+        }
+    }
+
+    @Test
+    public void testComputeLog10LikelihoodsWithGrowingInputs() {
+        final LoglessPairHMM expectedHMM = new LoglessPairHMM();
+        final AntiDiagonalLoglessPairHMM actualHMM = new AntiDiagonalLoglessPairHMM();
+        final Random random = new Random(17);
+
+        // successive calls with longer reads and haplotypes force the buffers to be reallocated
+        for ( final int length : Arrays.asList(20, 50, 120) ) {
+            final List<Haplotype> haplotypes = Arrays.asList(new Haplotype(randomBases(random, length + 10), true),
+                                                             new Haplotype(randomBases(random, length + 10), false));
+            final List<GATKRead> reads = new ArrayList<>();
+            final Map<GATKRead, byte[]> gcps = new LinkedHashMap<>();
+            for ( int r = 0; r < 4; r++ ) {
+                final GATKRead read = ArtificialReadUtils.createArtificialRead(randomBases(random, length), randomQuals(random, length, 6, 41), length + "M");
+                ReadUtils.setInsertionBaseQualities(read, randomQuals(random, length, 30, 45));
+                ReadUtils.setDeletionBaseQualities(read, randomQuals(random, length, 30, 45));
+                reads.add(read);
+                gcps.put(read, randomQuals(random, length, 10, 10));
+            }
+
+            final ReadLikelihoods<Haplotype> expected = new ReadLikelihoods<>(new IndexedSampleList("sample"), new IndexedAlleleList<>(haplotypes), Collections.singletonMap("sample", reads));
+            final ReadLikelihoods<Haplotype> actual = new ReadLikelihoods<>(new IndexedSampleList("sample"), new IndexedAlleleList<>(haplotypes), Collections.singletonMap("sample", reads));
+            expectedHMM.computeLog10Likelihoods(expected.sampleMatrix(0), reads, gcps);
+            actualHMM.computeLog10Likelihoods(actual.sampleMatrix(0), reads, gcps);
+            Assert.assertEquals(actualHMM.getLogLikelihoodArray(), expectedHMM.getLogLikelihoodArray(), 1e-12);
+            for ( int a = 0; a < haplotypes.size(); a++ ) {
+                for ( int r = 0; r < reads.size(); r++ ) {
+                    Assert.assertEquals(actual.sampleMatrix(0).get(a, r), expected.sampleMatrix(0).get(a, r), 1e-12);
+                }
+            }
+        }
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    private static byte[] randomQuals(final Random random, final int length, final int min, final int max) {
+        final byte[] quals = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            quals[i] = (byte) (min + random.nextInt(max - min + 1));
+        }
+        return quals;
+    }
+
+    private static byte[] normalize(final byte[] scores, final int min) {
+        for (int i = 0; i < scores.length; i++) {
+            scores[i] -= 33;
+            scores[i] = scores[i] < min ? (byte)min : scores[i];
+        }
+        return scores;
+    }
+}
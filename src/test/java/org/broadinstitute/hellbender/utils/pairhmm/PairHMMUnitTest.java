@@ -532,6 +532,90 @@ public final class PairHMMUnitTest extends GATKBaseTest {
 
     }
 
+    @Test(dataProvider = "JustHMMProvider")
+    public void testBatchLikelihoodsMatchPerPairLikelihoods(final PairHMM hmm) {
+        final byte[][] haplotypes = {
+                "ACGTGTCAAACCGGGTTACGTAGCATTACGA".getBytes(),
+                "ACGTGTCACACTGGGTTACGTAGCATTACGA".getBytes(),
+                "ACGTGTCACTCCGCGTTACGTAGCATTACGAGGT".getBytes()};
+        final byte[][] reads = {
+                "ACGTGTCACACTGGATT".getBytes(),
+                "GTCAAACCGGGTTACGTAGC".getBytes(),
+                "CCAGTAACGTGTCACACTGGATTCGAT".getBytes()};
+        final byte[][] quals = new byte[reads.length][];
+        final byte[][] insQuals = new byte[reads.length][];
+        final byte[][] delQuals = new byte[reads.length][];
+        final byte[][] gcps = new byte[reads.length][];
+        for ( int r = 0; r < reads.length; r++ ) {
+            quals[r] = Utils.dupBytes((byte) (20 + r), reads[r].length);
+            insQuals[r] = Utils.dupBytes((byte) 45, reads[r].length);
+            delQuals[r] = Utils.dupBytes((byte) 40, reads[r].length);
+            gcps[r] = Utils.dupBytes((byte) 10, reads[r].length);
+        }
+
+        // a destination larger than needed is allowed, so buffers can be reused across calls
+        final double[] batch = new double[reads.length * haplotypes.length + 5];
+        hmm.computeLog10Likelihoods(haplotypes, reads, quals, insQuals, delQuals, gcps, batch);
+
+        hmm.initialize(50, 50);
+        for ( int r = 0; r < reads.length; r++ ) {
+            for ( int h = 0; h < haplotypes.length; h++ ) {
+                final double expected = hmm.computeReadLikelihoodGivenHaplotypeLog10(haplotypes[h], reads[r], quals[r], insQuals[r], delQuals[r], gcps[r], true, null);
+                Assert.assertEquals(batch[r * haplotypes.length + h], expected, 1e-9);
+            }
+        }
+    }
+
+    @Test(dataProvider = "JustHMMProvider")
+    public void testBatchLikelihoodsWithReusedReadArrays(final PairHMM hmm) {
+        final byte[][] haplotypes = {"ACGTGTCAAACCGGGTTACGTAGCATTACGA".getBytes(), "ACGTGTCACACTGGGTTACGTAGCATTACGA".getBytes()};
+        final byte[] shortRead = "GTCAAACCGG".getBytes();
+        final byte[] longRead = "ACGTGTCACACTGGGTTACGTAGCA".getBytes();
+        // read arrays longer than the batch, whose unused entries are ignored, and a second batch with longer reads
+        final byte[][] reads = new byte[4][];
+        final byte[][] quals = new byte[4][];
+        final byte[][] insQuals = new byte[4][];
+        final byte[][] delQuals = new byte[4][];
+        final byte[][] gcps = new byte[4][];
+        final double[] batch = new double[reads.length * haplotypes.length];
+        final List<byte[]> batchReads = Arrays.asList(shortRead, longRead);
+        final double[][] batchLikelihoods = new double[batchReads.size()][];
+        for ( int b = 0; b < batchReads.size(); b++ ) {
+            final byte[] read = batchReads.get(b);
+            reads[0] = read;
+            quals[0] = Utils.dupBytes((byte) 30, read.length);
+            insQuals[0] = Utils.dupBytes((byte) 45, read.length);
+            delQuals[0] = Utils.dupBytes((byte) 45, read.length);
+            gcps[0] = Utils.dupBytes((byte) 10, read.length);
+            hmm.computeLog10Likelihoods(haplotypes, reads, quals, insQuals, delQuals, gcps, 1, batch);
+            batchLikelihoods[b] = Arrays.copyOf(batch, haplotypes.length);
+        }
+
+        hmm.initialize(50, 50);
+        for ( int b = 0; b < batchReads.size(); b++ ) {
+            final byte[] read = batchReads.get(b);
+            for ( int h = 0; h < haplotypes.length; h++ ) {
+                final double expected = hmm.computeReadLikelihoodGivenHaplotypeLog10(haplotypes[h], read, Utils.dupBytes((byte) 30, read.length),
+                        Utils.dupBytes((byte) 45, read.length), Utils.dupBytes((byte) 45, read.length), Utils.dupBytes((byte) 10, read.length), true, null);
+                Assert.assertEquals(batchLikelihoods[b][h], expected, 1e-9);
+            }
+        }
+    }
+
+    @Test(dataProvider = "JustHMMProvider", expectedExceptions = IllegalArgumentException.class)
+    public void testBatchLikelihoodsRejectsInconsistentReadArrays(final PairHMM hmm) {
+        final byte[][] reads = {"ACGT".getBytes()};
+        hmm.computeLog10Likelihoods(new byte[][]{"ACGTACGT".getBytes()}, reads, new byte[][]{{30, 30, 30}},
+                new byte[][]{{45, 45, 45, 45}}, new byte[][]{{45, 45, 45, 45}}, new byte[][]{{10, 10, 10, 10}}, new double[1]);
+    }
+
+    @Test(dataProvider = "JustHMMProvider", expectedExceptions = IllegalArgumentException.class)
+    public void testBatchLikelihoodsRejectsSmallDestination(final PairHMM hmm) {
+        final byte[][] reads = {"ACGT".getBytes()};
+        hmm.computeLog10Likelihoods(new byte[][]{"ACGTACGT".getBytes(), "ACGAACGT".getBytes()}, reads, new byte[][]{{30, 30, 30, 30}},
+                new byte[][]{{45, 45, 45, 45}}, new byte[][]{{45, 45, 45, 45}}, new byte[][]{{10, 10, 10, 10}}, new double[1]);
+    }
+
     private LikelihoodMatrix<Haplotype> matrix(final List<Haplotype> haplotypes) {
         return new LikelihoodMatrix<Haplotype>() {
             @Override
@@ -112,6 +112,48 @@ public final class VectorPairHMMUnitTest extends GATKBaseTest {
         hmm.close();
     }
 
+    @Test(dataProvider = "JustHMMProvider")
+    public void testBatchLikelihoodsFromHaplotypes(final PairHMM hmm, Boolean loaded){
+
+        // skip if not loaded
+        if(!loaded.booleanValue()) {
+            throw new SkipException("AVX PairHMM is not supported on this system or the library is not available");
+        }
+
+        BasicInputParser parser = null;
+        try {
+            parser = new BasicInputParser(true, new FileInputStream(pairHMMTestData));
+        } catch (FileNotFoundException e) {
+            Assert.fail("PairHMM test data not found : " + pairHMMTestData);
+        }
+
+        final double[] la = new double[1];
+        while (parser.hasNext()) {
+            String tokens[] = parser.next();
+
+            final byte[] hap = tokens[0].getBytes();
+            final byte[] bases = tokens[1].getBytes();
+            final byte[] baseQuals = normalize(tokens[2].getBytes(), 6);
+            final byte[] insertionQuals = normalize(tokens[3].getBytes());
+            final byte[] deletionQuals = normalize(tokens[4].getBytes());
+            final byte[] gcp = normalize(tokens[5].getBytes());
+            final double expectedResult = Double.parseDouble(tokens[6]);
+
+            hmm.computeLog10Likelihoods(new byte[][]{hap}, new byte[][]{bases}, new byte[][]{baseQuals},
+                    new byte[][]{insertionQuals}, new byte[][]{deletionQuals}, new byte[][]{gcp}, la);
+
+            Assert.assertEquals(la[0], expectedResult, 1e-5, "Likelihood not in expected range.");
+        }
+
+        // the native batch call does not use the Java matrices, so they must not have been allocated
+        final VectorLoglessPairHMM vectorHMM = (VectorLoglessPairHMM) hmm;
+        Assert.assertNull(vectorHMM.matchMatrix);
+        Assert.assertNull(vectorHMM.insertionMatrix);
+        Assert.assertNull(vectorHMM.deletionMatrix);
+
+        hmm.close();
+    }
+
     private static byte[] normalize(byte[] scores) {
         return normalize(scores, 0);
     }
@@ -10,6 +10,11 @@ import org.testng.Assert;
 import org.testng.annotations.DataProvider;
 import org.testng.annotations.Test;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
 import java.util.Map;
 import java.util.Random;
 
@@ -165,4 +170,28 @@ public class ReadsKeyUnitTest extends GATKBaseTest {
         Assert.assertEquals(key1.equals(key2), shouldEqual);
     }
 
-}
\ No newline at end of file
+
+    @Test(dataProvider = "artificalReadsForKeys")
+    public void testKeysRoundTripThroughStreamsInOrder(SAMFileHeader header, GATKRead pair1r1, GATKRead pair1r2,
+                                                       boolean shouldEqual, GATKRead pair2r1, GATKRead pair2r2) throws IOException {
+        Map<String, Byte> libraryIndex = MarkDuplicatesSparkUtils.constructLibraryIndex(header);
+        ReadsKey key1 = ReadsKey.getKeyForPair(header, pair1r1, pair1r2, libraryIndex);
+        ReadsKey key2 = ReadsKey.getKeyForPair(header, pair2r1, pair2r2, libraryIndex);
+        ReadsKey fragmentKey = ReadsKey.getKeyForFragment(1000, false, 0, (byte) 0);
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            key1.write(out);
+            fragmentKey.write(out);
+        }
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()))) {
+            Assert.assertEquals(ReadsKey.read(in), key1);
+            Assert.assertEquals(ReadsKey.read(in), fragmentKey);
+        }
+
+        Assert.assertEquals(key1.compareTo(key2) == 0, shouldEqual);
+        Assert.assertEquals(Integer.signum(key1.compareTo(key2)), -Integer.signum(key2.compareTo(key1)));
+        Assert.assertTrue(fragmentKey.compareTo(key1) < 0);
+        Assert.assertTrue(key1.compareTo(fragmentKey) > 0);
+    }
+}
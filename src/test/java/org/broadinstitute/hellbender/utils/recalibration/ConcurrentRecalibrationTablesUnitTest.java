@@ -0,0 +1,138 @@
+package org.broadinstitute.hellbender.utils.recalibration;
+
+import org.apache.spark.SparkConf;
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.engine.ReadsDataSource;
+import org.broadinstitute.hellbender.engine.ReferenceDataSource;
+import org.broadinstitute.hellbender.engine.ReferenceMemorySource;
+import org.broadinstitute.hellbender.testutils.SparkTestUtils;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.Utils;
+import org.broadinstitute.hellbender.utils.collections.NestedIntegerArray;
+import org.broadinstitute.hellbender.utils.read.GATKRead;
+import org.broadinstitute.hellbender.utils.recalibration.covariates.StandardCovariateList;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+public final class ConcurrentRecalibrationTablesUnitTest extends GATKBaseTest {
+
+    private static final String BAM = publicTestDir + "org/broadinstitute/hellbender/tools/BQSR/CEUTrio.HiSeq.WGS.b37.ch20.1m-1m1k.NA12878.noMD.noBQSR.bam";
+    private static final SimpleInterval REFERENCE_WINDOW = new SimpleInterval("20", 999_000, 1_002_000);
+
+    @Test
+    public void testFoldIntoRecalibrationTables() {
+        final int numReadGroups = 3;
+        final List<String> readGroups = IntStream.range(0, numReadGroups).mapToObj(i -> "readgroup" + i).collect(Collectors.toList());
+        final StandardCovariateList covariates = new StandardCovariateList(new RecalibrationArgumentCollection(), readGroups);
+        final ConcurrentRecalibrationTables concurrentTables = new ConcurrentRecalibrationTables(covariates, numReadGroups);
+        final int eventIndex = EventType.BASE_INSERTION.ordinal();
+
+        // observations are added from many threads at once
+        IntStream.range(0, 10_000).parallel().forEach(i -> {
+            concurrentTables.incrementQualityScoreTable(1, 30, eventIndex, i % 4 == 0);
+            concurrentTables.incrementAdditionalTable(2, 1, 30, 7, eventIndex, i % 4 == 0);
+        });
+
+        final RecalibrationTables tables = concurrentTables.toRecalibrationTables();
+        Assert.assertTrue(tables.getReadGroupTable().getAllValues().isEmpty());
+        Assert.assertEquals(tables.getQualityScoreTable().getAllValues().size(), 1);
+        Assert.assertEquals(tables.getTable(2).getAllValues().size(), 1);
+        Assert.assertTrue(tables.getTable(3).getAllValues().isEmpty());
+
+        for ( final RecalDatum datum : Arrays.asList(tables.getQualityScoreTable().get(1, 30, eventIndex), tables.getTable(2).get(1, 30, 7, eventIndex)) ) {
+            Assert.assertNotNull(datum);
+            Assert.assertEquals(datum.getNumObservations(), 10_000);
+            Assert.assertEquals(datum.getNumMismatches(), 2_500.0);
+            Assert.assertEquals(datum.getEstimatedQReported(), 30.0);
+        }
+    }
+
+    @DataProvider(name = "concurrentEngineData")
+    public Object[][] concurrentEngineData() {
+        return new Object[][]{ {false}, {true} };
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void testConcurrentEngineRejectsBAQ() {
+        final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+        recalArgs.enableBAQ = true;
+        try ( final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(BAM)) ) {
+            new BaseRecalibrationEngine(recalArgs, readsSource.getHeader(), true);
+        }
+    }
+
+    @Test
+    public void testConcurrentEngineAfterSerialization() {
+        final List<GATKRead> reads;
+        final ReferenceDataSource reference;
+        final BaseRecalibrationEngine engine;
+        try ( final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(BAM));
+              final ReferenceDataSource fileReference = ReferenceDataSource.of(Paths.get(b37_reference_20_21)) ) {
+            reads = Utils.stream(readsSource).filter(read -> !read.isUnmapped() && read.getMappingQuality() > 0).limit(100).collect(Collectors.toList());
+            reference = new ReferenceMemorySource(fileReference.queryAndPrefetch(REFERENCE_WINDOW), fileReference.getSequenceDictionary());
+            final SparkConf conf = new SparkConf().set("spark.kryo.registrator", "org.broadinstitute.hellbender.engine.spark.GATKRegistrator");
+            engine = SparkTestUtils.roundTripInKryo(new BaseRecalibrationEngine(new RecalibrationArgumentCollection(), readsSource.getHeader(), true),
+                    BaseRecalibrationEngine.class, conf);
+        }
+
+        // the per-thread key caches are not serialized, and must be recreated on first use
+        reads.parallelStream().forEach(read -> engine.processRead(read, reference, Collections.emptyList()));
+        engine.finalizeData();
+        Assert.assertEquals(engine.getNumReadsProcessed(), reads.size());
+    }
+
+    @Test(dataProvider = "concurrentEngineData")
+    public void testConcurrentEngineMatchesSerialEngine(final boolean computeIndelBQSRTables) {
+        final RecalibrationArgumentCollection recalArgs = new RecalibrationArgumentCollection();
+        recalArgs.computeIndelBQSRTables = computeIndelBQSRTables;
+
+        final List<GATKRead> reads;
+        final ReferenceDataSource reference;
+        final BaseRecalibrationEngine serialEngine;
+        final BaseRecalibrationEngine concurrentEngine;
+        try ( final ReadsDataSource readsSource = new ReadsDataSource(Paths.get(BAM));
+              final ReferenceDataSource fileReference = ReferenceDataSource.of(Paths.get(b37_reference_20_21)) ) {
+            reads = Utils.stream(readsSource).filter(read -> !read.isUnmapped() && read.getMappingQuality() > 0).collect(Collectors.toList());
+            // an in-memory reference can safely be queried from many threads
+            reference = new ReferenceMemorySource(fileReference.queryAndPrefetch(REFERENCE_WINDOW), fileReference.getSequenceDictionary());
+            serialEngine = new BaseRecalibrationEngine(recalArgs, readsSource.getHeader());
+            concurrentEngine = new BaseRecalibrationEngine(recalArgs, readsSource.getHeader(), true);
+        }
+        Assert.assertFalse(reads.isEmpty());
+        Assert.assertFalse(serialEngine.isConcurrent());
+        Assert.assertTrue(concurrentEngine.isConcurrent());
+
+        // processRead modifies the reads, so each engine gets its own copies
+        reads.forEach(read -> serialEngine.processRead(read.copy(), reference, Collections.emptyList()));
+        reads.parallelStream().forEach(read -> concurrentEngine.processRead(read.copy(), reference, Collections.emptyList()));
+        serialEngine.finalizeData();
+        concurrentEngine.finalizeData();
+
+        Assert.assertEquals(concurrentEngine.getNumReadsProcessed(), serialEngine.getNumReadsProcessed());
+        final RecalibrationTables expected = serialEngine.getFinalRecalibrationTables();
+        final RecalibrationTables actual = concurrentEngine.getFinalRecalibrationTables();
+        Assert.assertEquals(actual.numTables(), expected.numTables());
+        for ( int i = 0; i < expected.numTables(); i++ ) {
+            final NestedIntegerArray<RecalDatum> expectedTable = expected.getTable(i);
+            final NestedIntegerArray<RecalDatum> actualTable = actual.getTable(i);
+            Assert.assertEquals(actualTable.getAllLeaves().size(), expectedTable.getAllLeaves().size(), "number of keys in table " + i);
+            for ( final NestedIntegerArray.Leaf<RecalDatum> leaf : expectedTable.getAllLeaves() ) {
+                final RecalDatum actualDatum = actualTable.get(leaf.keys);
+                Assert.assertNotNull(actualDatum, "missing keys " + Arrays.toString(leaf.keys) + " in table " + i);
+                Assert.assertEquals(actualDatum.getNumObservations(), leaf.value.getNumObservations());
+                // the counts are exact, so they do not depend on the order the reads were processed in
+                Assert.assertEquals(actualDatum.getNumMismatches(), leaf.value.getNumMismatches());
+                Assert.assertEquals(actualDatum.getEstimatedQReported(), leaf.value.getEstimatedQReported());
+                Assert.assertEquals(actualDatum.getEmpiricalQuality(), leaf.value.getEmpiricalQuality());
+            }
+        }
+    }
+}
@@ -0,0 +1,114 @@
+package org.broadinstitute.hellbender.utils.smithwaterman;
+
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWOverhangStrategy;
+import org.broadinstitute.gatk.nativebindings.smithwaterman.SWParameters;
+import org.broadinstitute.hellbender.utils.read.CigarUtils;
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public final class SmithWatermanBandedAlignerUnitTest extends SmithWatermanAlignerAbstractUnitTest {
+
+    private static final byte[] BASES = {'A', 'C', 'G', 'T'};
+
+    @Override
+    protected SmithWatermanBandedAligner getAligner() {
+        return SmithWatermanBandedAligner.getInstance();
+    }
+
+    @DataProvider(name = "parametersAndStrategies")
+    public Object[][] parametersAndStrategies() {
+        final List<Object[]> tests = new ArrayList<>();
+        for ( final SWParameters parameters : new SWParameters[]{ CigarUtils.NEW_SW_PARAMETERS, SmithWatermanAligner.STANDARD_NGS,
+                SmithWatermanAligner.ORIGINAL_DEFAULT, CigarUtils.ALIGNMENT_TO_BEST_HAPLOTYPE_SW_PARAMETERS } ) {
+            for ( final SWOverhangStrategy strategy : SWOverhangStrategy.values() ) {
+                tests.add(new Object[]{ parameters, strategy });
+            }
+        }
+        return tests.toArray(new Object[][]{});
+    }
+
+    private static byte[] randomBases(final Random random, final int length) {
+        final byte[] bases = new byte[length];
+        for ( int i = 0; i < length; i++ ) {
+            bases[i] = BASES[random.nextInt(BASES.length)];
+        }
+        return bases;
+    }
+
+    /**
+     * @return a copy of bases with the given number of random substitutions, insertions and deletions of up to maxIndelLength bases
+     */
+    private static byte[] mutate(final Random random, final byte[] bases, final int numEvents, final int maxIndelLength) {
+        final StringBuilder mutated = new StringBuilder(new String(bases));
+        for ( int i = 0; i < numEvents; i++ ) {
+            final int position = random.nextInt(mutated.length());
+            switch ( random.nextInt(3) ) {
+                case 0:
+                    mutated.setCharAt(position, (char) BASES[random.nextInt(BASES.length)]);
+                    break;
+                case 1:
+                    mutated.insert(position, new String(randomBases(random, 1 + random.nextInt(maxIndelLength))));
+                    break;
+                default:
+                    mutated.delete(position, Math.min(mutated.length() - 1, position + 1 + random.nextInt(maxIndelLength)));
+            }
+        }
+        return mutated.toString().getBytes();
+    }
+
+    private static void assertSameAlignment(final byte[] ref, final byte[] alt, final SWParameters parameters, final SWOverhangStrategy strategy) {
+        final SmithWatermanAlignment expected = SmithWatermanJavaAligner.getInstance().align(ref, alt, parameters, strategy);
+        final SmithWatermanAlignment actual = SmithWatermanBandedAligner.getInstance().align(ref, alt, parameters, strategy);
+        Assert.assertEquals(actual.getCigar(), expected.getCigar(), "cigar of " + new String(alt) + " against " + new String(ref));
+        Assert.assertEquals(actual.getAlignmentOffset(), expected.getAlignmentOffset(), "offset of " + new String(alt) + " against " + new String(ref));
+    }
+
+    @Test(dataProvider = "parametersAndStrategies")
+    public void testNearIdenticalSequencesMatchJavaAligner(final SWParameters parameters, final SWOverhangStrategy strategy) {
+        final Random random = new Random(17);
+        for ( int i = 0; i < 50; i++ ) {
+            final byte[] ref = randomBases(random, 300 + random.nextInt(300));
+            final byte[] alt = mutate(random, ref, 1 + random.nextInt(10), 10);
+            assertSameAlignment(ref, alt, parameters, strategy);
+            assertSameAlignment(alt, ref, parameters, strategy);
+
+            // padded with Ns, as in CigarUtils.calculateCigar
+            final String padding = "NNNNNNNNNN";
+            assertSameAlignment((padding + new String(ref) + padding).getBytes(), (padding + new String(alt) + padding).getBytes(), parameters, strategy);
+        }
+    }
+
+    @Test(dataProvider = "parametersAndStrategies")
+    public void testDivergentSequencesMatchJavaAligner(final SWParameters parameters, final SWOverhangStrategy strategy) {
+        final Random random = new Random(19);
+        for ( int i = 0; i < 20; i++ ) {
+            final byte[] ref = randomBases(random, 300 + random.nextInt(300));
+            // long indels that leave the band, or unrelated sequences
+            final byte[] alt = random.nextBoolean() ? mutate(random, ref, 5 + random.nextInt(20), 60) : randomBases(random, ref.length);
+            assertSameAlignment(ref, alt, parameters, strategy);
+            assertSameAlignment(alt, ref, parameters, strategy);
+        }
+    }
+
+    @Test
+    public void testNearIdenticalSequencesAreBanded() {
+        final SmithWatermanBandedAligner aligner = getAligner();
+        final byte[] ref = randomBases(new Random(23), 500);
+        // a few substitutions and a short deletion
+        final StringBuilder alt = new StringBuilder(new String(ref));
+        for ( final int position : new int[]{ 50, 170, 333 } ) {
+            alt.setCharAt(position, ref[position] == 'A' ? 'C' : 'A');
+        }
+        alt.delete(250, 253);
+
+        final long before = aligner.getNumBandedAlignments();
+        aligner.align(ref, alt.toString().getBytes(), CigarUtils.NEW_SW_PARAMETERS, SWOverhangStrategy.SOFTCLIP);
+        aligner.align(ref, alt.toString().getBytes(), SmithWatermanAligner.STANDARD_NGS, SWOverhangStrategy.INDEL);
+        Assert.assertEquals(aligner.getNumBandedAlignments() - before, 2);
+    }
+}
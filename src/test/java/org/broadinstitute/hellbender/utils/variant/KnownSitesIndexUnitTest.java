@@ -0,0 +1,71 @@
+package org.broadinstitute.hellbender.utils.variant;
+
+import org.broadinstitute.hellbender.GATKBaseTest;
+import org.broadinstitute.hellbender.exceptions.UserException;
+import org.broadinstitute.hellbender.utils.SimpleInterval;
+import org.broadinstitute.hellbender.utils.collections.IntervalsSkipList;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public final class KnownSitesIndexUnitTest extends GATKBaseTest {
+
+    private static File writeIndex(final List<GATKVariant> sites) {
+        final KnownSitesIndex.Builder builder = new KnownSitesIndex.Builder();
+        sites.forEach(builder::add);
+        final File index = createTempFile("knownSites", KnownSitesIndex.FILE_EXTENSION);
+        builder.write(index.getAbsolutePath());
+        return index;
+    }
+
+    @Test
+    public void testOverlappingMatchesSkipList() {
+        final Random random = new Random(17);
+        final List<GATKVariant> sites = new ArrayList<>();
+        for (final String contig : new String[]{"1", "2", "X"}) {
+            for (int i = 0; i < 5000; i++) {
+                final int start = 1 + random.nextInt(100000);
+                // mostly SNPs and short indels, with the odd site longer than the short ones of the index
+                final int length = random.nextInt(50) == 0 ? KnownSitesIndex.MAX_SHORT_SITE_LENGTH + random.nextInt(5000) : 1 + random.nextInt(10);
+                sites.add(new MinimalVariant(new SimpleInterval(contig, start, start + length - 1), length == 1, length > 1));
+            }
+        }
+        // unsorted input, with duplicates
+        sites.addAll(sites.subList(0, 100));
+        Collections.shuffle(sites, random);
+
+        final KnownSitesIndex index = KnownSitesIndex.open(writeIndex(sites).getAbsolutePath());
+        final IntervalsSkipList<GATKVariant> skipList = new IntervalsSkipList<>(sites);
+        Assert.assertEquals(index.size(), sites.size());
+
+        for (int i = 0; i < 2000; i++) {
+            final String contig = new String[]{"1", "2", "X", "Y"}[random.nextInt(4)];
+            final int start = 1 + random.nextInt(110000);
+            final SimpleInterval query = new SimpleInterval(contig, start, start + random.nextInt(300));
+            final List<GATKVariant> expected = skipList.getOverlapping(query);
+            final List<GATKVariant> actual = index.getOverlapping(query);
+            Assert.assertEquals(actual, expected, query.toString());
+        }
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        final KnownSitesIndex index = KnownSitesIndex.open(writeIndex(Collections.emptyList()).getAbsolutePath());
+        Assert.assertEquals(index.size(), 0);
+        Assert.assertTrue(index.getOverlapping(new SimpleInterval("1", 1, 1000)).isEmpty());
+    }
+
+    @Test(expectedExceptions = UserException.MalformedFile.class)
+    public void testNotAnIndex() throws IOException {
+        final File notAnIndex = createTempFile("notAnIndex", KnownSitesIndex.FILE_EXTENSION);
+        Files.write(notAnIndex.toPath(), "##fileformat=VCFv4.2\n".getBytes());
+        KnownSitesIndex.open(notAnIndex.getAbsolutePath());
+    }
+}
@@ -16,6 +16,7 @@ import org.broadinstitute.hellbender.utils.SimpleInterval;
 import org.broadinstitute.hellbender.utils.Utils;
 import org.broadinstitute.hellbender.GATKBaseTest;
 import org.broadinstitute.hellbender.testutils.IntegrationTestSpec;
+import org.broadinstitute.hellbender.testutils.VariantContextTestUtils;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFConstants;
 import org.broadinstitute.hellbender.utils.variant.GATKVCFHeaderLines;
 import org.broadinstitute.hellbender.utils.variant.GATKVariantContextUtils;
@@ -629,4 +630,74 @@ public class GVCFWriterUnitTest extends GATKBaseTest {
 
     }
 
+
+    // runs of reference confidence sites, broken by a deletion, a gap and a change of contig, over every GQ band
+    private static List<VariantContext> makeReferenceConfidenceRunsAndCalls() {
+        final Random random = new Random(13);
+        final List<VariantContext> result = new ArrayList<>();
+        ReferenceConfidenceSites.Builder run = null;
+        for (final SimpleInterval interval : Arrays.asList(new SimpleInterval(CHR1, 1, 300), new SimpleInterval(CHR1, 351, 500), new SimpleInterval(CHR2, 1, 200))) {
+            for (int position = interval.getStart(); position <= interval.getEnd(); position++) {
+                if (position == 100 || position == 400) {
+                    result.add(run.make());
+                    run = null;
+                    result.add(makeDeletion(position, 5));
+                    continue;
+                }
+                if (run == null) {
+                    run = new ReferenceConfidenceSites.Builder("test", interval.getContig(), position, SAMPLE_NAME, HomoSapiensConstants.DEFAULT_PLOIDY);
+                }
+                // long stretches of similar GQs, as in real data, then the odd outlier
+                final int gq = random.nextInt(10) == 0 ? random.nextInt(120) : 15 * (position / 40 % 8);
+                run.add((byte) 'G', random.nextInt(30), random.nextInt(3), gq, new int[]{0, gq, 10 * gq + random.nextInt(10)});
+            }
+            result.add(run.make());
+            run = null;
+        }
+        return result;
+    }
+
+    private static List<VariantContext> writeGVCF(final List<VariantContext> variants, final List<Integer> gqPartitions, final boolean bySite) {
+        final MockWriter mockWriter = new MockWriter();
+        final GVCFWriter writer = new GVCFWriter(mockWriter, gqPartitions, HomoSapiensConstants.DEFAULT_PLOIDY);
+        for (final VariantContext vc : variants) {
+            if (bySite && vc instanceof ReferenceConfidenceSites) {
+                final ReferenceConfidenceSites sites = (ReferenceConfidenceSites) vc;
+                for (int i = 0; i < sites.size(); i++) {
+                    writer.add(sites.makeSiteVariantContext(i));
+                }
+            } else {
+                writer.add(vc);
+            }
+        }
+        writer.close();
+        return mockWriter.emitted;
+    }
+
+    @Test
+    public void testReferenceConfidenceSitesMatchSiteBySiteBanding() {
+        final List<VariantContext> variants = makeReferenceConfidenceRunsAndCalls();
+        for (final List<Integer> gqPartitions : Arrays.asList(standardPartition, ImmutableList.of(20, 60), ImmutableList.of(MAX_GENOTYPE_QUAL + 1))) {
+            final List<VariantContext> expected = writeGVCF(variants, gqPartitions, true);
+            final List<VariantContext> actual = writeGVCF(variants, gqPartitions, false);
+            Assert.assertEquals(actual.size(), expected.size());
+            for (int i = 0; i < actual.size(); i++) {
+                VariantContextTestUtils.assertVariantContextsAreEqual(actual.get(i), expected.get(i), Collections.emptyList());
+            }
+        }
+    }
+
+    @Test
+    public void testReferenceConfidenceSitesAreABlock() {
+        final List<Integer> singleBand = ImmutableList.of(MAX_GENOTYPE_QUAL + 1);
+        for (final VariantContext vc : makeReferenceConfidenceRunsAndCalls()) {
+            if (vc instanceof ReferenceConfidenceSites) {
+                final List<VariantContext> block = writeGVCF(Collections.singletonList(vc), singleBand, true);
+                Assert.assertEquals(block.size(), 1);
+                VariantContextTestUtils.assertVariantContextsAreEqual(vc, block.get(0), Collections.emptyList());
+                Assert.assertEquals(vc.getEnd(), vc.getStart() + ((ReferenceConfidenceSites) vc).size() - 1);
+            }
+        }
+    }
+
 }